@@ -0,0 +1,272 @@
+// src/com/library/BatchRunner.java
+package com.library;
+
+import com.library.model.Book;
+import com.library.service.LibraryService;
+import com.library.trace.InMemorySpanExporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a command file through LibraryService without the interactive menus.
+ * One command per line; blank lines and lines starting with '#' are skipped:
+ * <pre>
+ * BORROW &lt;memberId&gt; &lt;bookId&gt;
+ * RETURN &lt;loanId&gt;
+ * RENEW &lt;loanId&gt;
+ * ADD_BOOK &lt;isbn&gt;|&lt;title&gt;|&lt;author&gt;|&lt;year&gt;|&lt;copies&gt;
+ * </pre>
+ * Commands are spread over a number of lanes, each run by one thread. A borrow goes to the
+ * lane of its member, a return or renewal to the lane of its loan, and an addition to the
+ * lane of its ISBN. Only commands with the same key keep their file order: one member's
+ * borrows, one loan's return and renewals, one ISBN's additions. A member's borrow and a
+ * later return, or an addition and a later borrow of that book, may run out of order or at
+ * the same time with more than one lane; replay such files with a single lane. At the end
+ * the throughput, the number of failed commands, latency percentiles, transaction retries
+ * and, with admission control, admitted and rejected commands are printed.
+ */
+public class BatchRunner {
+
+    private static final int LANE_QUEUE_CAPACITY = 1024; // commands read ahead per lane
+
+    private final LibraryService libraryService;
+    private final int parallelism;
+    private final boolean verbose;
+
+    /**
+     * @param libraryService The service the commands are run through.
+     * @param parallelism The number of lanes (threads).
+     * @param verbose Whether to keep the service's per-command messages; they are discarded otherwise.
+     */
+    public BatchRunner(LibraryService libraryService, int parallelism, boolean verbose) {
+        this.libraryService = libraryService;
+        this.parallelism = Math.max(1, parallelism);
+        this.verbose = verbose;
+    }
+
+    /**
+     * Runs every command in a file and prints a summary.
+     * @param file The command file.
+     * @return true if every command succeeded, false otherwise.
+     */
+    public boolean run(Path file) {
+        PrintStream console = System.out;
+        Lane[] lanes = new Lane[parallelism];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        if (!verbose) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        int commands = 0;
+        int rejected = 0;
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Command command = parse(line);
+                if (command == null) {
+                    System.err.println("Line " + lineNumber + ": cannot parse '" + line + "'");
+                    rejected++;
+                    continue;
+                }
+                commands++;
+                lanes[Math.floorMod(command.key, lanes.length)].submit(command);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading command file: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        List<LaneResult> results = new ArrayList<>();
+        for (Lane lane : lanes) {
+            results.add(lane.finish());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        System.setOut(console);
+
+        long[] latencies = new long[0];
+        int failed = rejected;
+        for (LaneResult result : results) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + result.count);
+            System.arraycopy(result.latencies, 0, latencies, offset, result.count);
+            failed += result.failed;
+        }
+        printSummary(commands, failed, latencies, elapsedNanos);
+        return failed == 0;
+    }
+
+    private Command parse(String line) {
+        String[] parts = line.split("\\s+", 2);
+        String type = parts[0].toUpperCase();
+        String rest = parts.length > 1 ? parts[1] : "";
+        try {
+            switch (type) {
+                case "BORROW": {
+                    String[] ids = rest.split("\\s+");
+                    if (ids.length != 2) {
+                        return null;
+                    }
+                    int memberId = Integer.parseInt(ids[0]);
+                    int bookId = Integer.parseInt(ids[1]);
+                    return new Command(memberId, () -> libraryService.borrowBook(memberId, bookId));
+                }
+                case "RETURN": {
+                    int loanId = Integer.parseInt(rest);
+                    return new Command(loanId, () -> libraryService.returnBook(loanId) != LibraryService.RETURN_FAILED);
+                }
+                case "RENEW": {
+                    int loanId = Integer.parseInt(rest);
+                    return new Command(loanId, () -> libraryService.renewBook(loanId));
+                }
+                case "ADD_BOOK": {
+                    String[] fields = rest.split("\\|");
+                    if (fields.length != 5) {
+                        return null;
+                    }
+                    int year = Integer.parseInt(fields[3].trim());
+                    int copies = Integer.parseInt(fields[4].trim());
+                    Book book = new Book(fields[1].trim(), fields[2].trim(), fields[0].trim(), year, copies, copies);
+                    return new Command(fields[0].trim().hashCode(), () -> libraryService.addBook(book));
+                }
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void printSummary(int commands, int failed, long[] latencies, long elapsedNanos) {
+        Arrays.sort(latencies);
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.println("\n--- Batch Summary ---");
+        System.out.println("Commands: " + commands + ", Failed: " + failed + ", Lanes: " + parallelism);
+        System.out.printf("Elapsed: %.3f s, Throughput: %.1f commands/s%n", seconds, seconds > 0 ? commands / seconds : 0.0);
+        if (latencies.length > 0) {
+            System.out.printf("Latency (ms): p50=%.3f p90=%.3f p99=%.3f max=%.3f%n",
+                              percentile(latencies, 50), percentile(latencies, 90),
+                              percentile(latencies, 99), latencies[latencies.length - 1] / 1_000_000.0);
+        }
+        System.out.println(libraryService.getTransactionExecutor().getSummary());
+        if (libraryService.getAdmissionController() != null) {
+            System.out.println(libraryService.getAdmissionController().getSummary());
+        }
+        if (libraryService.getTracer() != null && libraryService.getTracer().getExporter() instanceof InMemorySpanExporter) {
+            System.out.println(((InMemorySpanExporter) libraryService.getTracer().getExporter()).getSummary());
+        }
+        System.out.println("---------------------");
+    }
+
+    /**
+     * Nearest-rank percentile of sorted nanosecond latencies, in milliseconds.
+     */
+    private static double percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    private interface Action {
+        boolean run();
+    }
+
+    private static class Command {
+        final int key; // member, loan or ISBN hash the command belongs to; picks the lane
+        final Action action;
+
+        Command(int key, Action action) {
+            this.key = key;
+            this.action = action;
+        }
+    }
+
+    private static class LaneResult {
+        final long[] latencies;
+        final int count;
+        final int failed;
+
+        LaneResult(long[] latencies, int count, int failed) {
+            this.latencies = latencies;
+            this.count = count;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * One worker thread with a bounded queue. When the queue is full the reader waits, so a
+     * large file is never held in memory. Statistics are only touched by the worker thread.
+     */
+    private static class Lane {
+        private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(LANE_QUEUE_CAPACITY),
+                (task, pool) -> {
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        private long[] latencies = new long[256];
+        private int count;
+        private int failed;
+
+        void submit(Command command) {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = command.action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Batch command failed: " + e);
+                    ok = false;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+                if (!ok) {
+                    failed++;
+                }
+            });
+        }
+
+        /**
+         * Waits for the queued commands and returns the lane's statistics.
+         */
+        LaneResult finish() {
+            Future<LaneResult> result = executor.submit(() -> new LaneResult(latencies, count, failed));
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new LaneResult(new long[0], 0, 0);
+            } catch (ExecutionException e) {
+                return new LaneResult(new long[0], 0, 0);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
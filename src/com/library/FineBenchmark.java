@@ -0,0 +1,98 @@
+package com.library;
+
+import com.library.model.Borrower;
+import com.library.model.Money;
+import com.library.service.FineTotals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares two ways of totalling the fines of many loans held in memory: rupee doubles
+ * summed through a boxed stream, as the reports used to, and FineTotals' loop over long
+ * paise. Prints the best time of each per loan, the bytes each allocates, and how far the
+ * double total drifts from the exact one.
+ *
+ * Usage: java com.library.FineBenchmark [loans] [rounds]
+ */
+public class FineBenchmark {
+
+    public static void main(String[] args) {
+        int loanCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Borrower> loans = syntheticLoans(loanCount, new Random(42));
+
+        long bestDoubleNanos = Long.MAX_VALUE;
+        long bestPaiseNanos = Long.MAX_VALUE;
+        long doubleBytes = 0;
+        long paiseBytes = 0;
+        double doubleTotal = 0;
+        long paiseTotal = 0;
+        for (int round = 0; round < rounds; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            doubleTotal = sumAsDoubles(loans);
+            bestDoubleNanos = Math.min(bestDoubleNanos, System.nanoTime() - start);
+            doubleBytes = allocatedBytes() - bytes;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            FineTotals totals = new FineTotals();
+            totals.addAll(loans);
+            paiseTotal = totals.getAssessedPaise();
+            bestPaiseNanos = Math.min(bestPaiseNanos, System.nanoTime() - start);
+            paiseBytes = allocatedBytes() - bytes;
+        }
+
+        System.out.println("Loans: " + loanCount + ", Rounds: " + rounds);
+        System.out.printf("double stream: %.2f ns/loan, %d bytes allocated, total Rs. %s%n",
+                          (double) bestDoubleNanos / loanCount, doubleBytes, Double.toString(doubleTotal));
+        System.out.printf("long paise:    %.2f ns/loan, %d bytes allocated, total Rs. %s%n",
+                          (double) bestPaiseNanos / loanCount, paiseBytes, Money.format(paiseTotal));
+        System.out.printf("Drift of the double total: %s paise%n",
+                          Money.toDecimal(paiseTotal).subtract(new BigDecimal(doubleTotal)).movePointRight(2).toPlainString());
+    }
+
+    /**
+     * The way fines used to be totalled: each fine as rupees, boxed through a stream.
+     */
+    private static double sumAsDoubles(List<Borrower> loans) {
+        return loans.stream()
+                    .map(loan -> loan.getFinePaise() / (double) Money.PAISE_PER_RUPEE)
+                    .reduce(0.0, Double::sum);
+    }
+
+    /**
+     * Loans of which about a third carry a fine of a whole number of days, less a partial
+     * waiver of up to a rupee, so many fines have paise.
+     */
+    private static List<Borrower> syntheticLoans(int count, Random random) {
+        List<Borrower> loans = new ArrayList<>(count);
+        LocalDate dueDate = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < count; i++) {
+            long fine = 0;
+            if (random.nextInt(3) == 0) {
+                fine = (1 + random.nextInt(30)) * Borrower.FINE_PER_DAY_PAISE - random.nextInt(100);
+            }
+            loans.add(new Borrower(i + 1, 1 + random.nextInt(1000), 1 + random.nextInt(5000), dueDate.minusDays(5),
+                                   dueDate, dueDate.plusDays(1), false, fine, random.nextBoolean()));
+        }
+        return loans;
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far, or 0 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
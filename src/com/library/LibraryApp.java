@@ -1,15 +1,56 @@
 // src/com/library/LibraryApp.java
 package com.library;
 
+import com.library.dao.BookCopyDAO;
 import com.library.dao.BookDAO;
 import com.library.dao.BorrowerDAO;
+import com.library.dao.CatalogSnapshotDAO;
+import com.library.dao.ChangeLogDAO;
+import com.library.dao.CirculationProcedureDAO;
+import com.library.dao.CirculationRollupDAO;
+import com.library.dao.DaoCallEvent;
+import com.library.dao.InMemoryBookDAO;
+import com.library.dao.InMemoryBorrowerDAO;
+import com.library.dao.InMemoryDatabase;
+import com.library.dao.InMemoryMemberDAO;
+import com.library.dao.JdbcBookDAO;
+import com.library.dao.JdbcBorrowerDAO;
+import com.library.dao.JdbcMemberDAO;
+import com.library.dao.KioskJournal;
+import com.library.dao.KioskSyncDAO;
+import com.library.dao.LoanArchiveDAO;
 import com.library.dao.MemberDAO;
+import com.library.dao.ReportRangeDAO;
+import com.library.dao.ShardRouter;
+import com.library.dao.ShardedBookDAO;
+import com.library.dao.ShardedBorrowerDAO;
+import com.library.dao.ShardedMemberDAO;
+import com.library.dao.UserDAO;
 import com.library.model.Book;
 import com.library.model.Borrower;
-import com.library.model.Member;
+import com.library.model.CirculationRollup;
+import com.library.model.Money;
+import com.library.report.ReportWriter;
+import com.library.service.AdmissionController;
+import com.library.service.KioskSync;
 import com.library.service.LibraryService;
+import com.library.service.ParallelReportEngine;
+import com.library.service.PasswordHasher;
+import com.library.service.PopularityTracker;
+import com.library.service.RecommendationEngine;
+import com.library.service.SearchResultCache;
+import com.library.service.SessionManager;
+import com.library.service.TransactionExecutor;
+import com.library.trace.InMemorySpanExporter;
+import com.library.trace.Tracer;
 
+import java.io.Console;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -19,13 +60,115 @@ public class LibraryApp {
     private static MemberDAO memberDAO;
     private static BorrowerDAO borrowerDAO;
     private static LibraryService libraryService;
+    private static KioskSync kioskSync; // null unless kiosk mode is enabled
+    private static SessionManager sessionManager; // null unless librarian login is enabled
+    private static InMemorySpanExporter traces; // null unless tracing is enabled
+    private static String librarianToken; // the logged-in librarian's session, if any
     private static Scanner scanner = new Scanner(System.in);
 
     public static void main(String[] args) {
-        bookDAO = new BookDAO();
-        memberDAO = new MemberDAO();
-        borrowerDAO = new BorrowerDAO();
+        if (args.length == 3 && "--add-user".equals(args[0])) {
+            System.exit(addUser(args[1], args[2]) ? 0 : 1);
+        }
+        boolean kiosk = Boolean.getBoolean("library.kiosk");
+        boolean embedded = kiosk || Boolean.getBoolean("library.embedded");
+        String shards = System.getProperty("library.shards");
+        if (kiosk) {
+            if (!openKiosk(Paths.get(System.getProperty("library.kiosk.dir", "kiosk")))) {
+                System.exit(1);
+            }
+        } else if (embedded) {
+            if (!openEmbeddedDatabase(System.getProperty("library.embedded.snapshot"))) {
+                System.exit(1);
+            }
+        } else if (shards != null) {
+            if (!openShards(shards, Integer.getInteger("library.shard.home", 0),
+                            Integer.getInteger("library.shard.connections", 8))) {
+                System.exit(1);
+            }
+        } else {
+            bookDAO = new JdbcBookDAO();
+            memberDAO = new JdbcMemberDAO();
+            borrowerDAO = new JdbcBorrowerDAO();
+        }
+        // Every DAO call becomes a JFR event while a recording has com.library.DaoCall enabled
+        bookDAO = DaoCallEvent.record(BookDAO.class, bookDAO);
+        memberDAO = DaoCallEvent.record(MemberDAO.class, memberDAO);
+        borrowerDAO = DaoCallEvent.record(BorrowerDAO.class, borrowerDAO);
+        // Per-copy tracking, rollups, archival and the other single-database features need one MySQL instance
+        boolean singleDatabase = !embedded && shards == null;
         libraryService = new LibraryService(bookDAO, memberDAO, borrowerDAO);
+        libraryService.setTransactionExecutor(new TransactionExecutor(
+                Integer.getInteger("library.tx.maxRetries", 3),
+                Long.getLong("library.tx.backoffMillis", 20L),
+                Long.getLong("library.tx.maxBackoffMillis", 1000L)));
+        if (Boolean.getBoolean("library.admission")) {
+            libraryService.enableAdmissionControl(new AdmissionController(
+                    Integer.getInteger("library.admission.circulation.maxConcurrency", 16),
+                    Integer.getInteger("library.admission.circulation.queue", 64),
+                    Integer.getInteger("library.admission.query.maxConcurrency", 4),
+                    Integer.getInteger("library.admission.query.queue", 16),
+                    Long.getLong("library.admission.queueTimeoutMillis", 2000L)));
+        }
+        if (Boolean.getBoolean("library.tracing")) {
+            traces = new InMemorySpanExporter();
+            libraryService.enableTracing(new Tracer(traces));
+        }
+        if (singleDatabase) {
+            if (Boolean.getBoolean("library.changeLog")) {
+                // Before the caches are loaded, so writes made by other nodes meanwhile are replayed
+                libraryService.enableChangeLog(new ChangeLogDAO(),
+                        Long.getLong("library.changeLog.pollMillis", 1000L),
+                        Integer.getInteger("library.changeLog.retentionHours", 24));
+            }
+            String catalogSnapshot = System.getProperty("library.catalogSnapshot");
+            if (catalogSnapshot != null) {
+                libraryService.enableCatalogSnapshot(new CatalogSnapshotDAO(Paths.get(catalogSnapshot)),
+                        Integer.getInteger("library.catalogSnapshot.intervalMinutes", 60));
+            }
+            libraryService.enableCopyTracking(new BookCopyDAO());
+        }
+        libraryService.enableSearchCache(new SearchResultCache(bookDAO,
+                Integer.getInteger("library.searchCache.maxEntries", 1000),
+                Long.getLong("library.searchCache.ttlMillis", 10 * 60 * 1000L),
+                Long.getLong("library.searchCache.maxStalenessMillis", 30 * 1000L)));
+        libraryService.enablePopularityTracking(new PopularityTracker(4096, 10));
+        libraryService.enableRecommendations(new RecommendationEngine());
+        if (singleDatabase) {
+            // These features live in MySQL tables and procedures
+            CirculationRollupDAO rollupDAO = new CirculationRollupDAO();
+            Runtime.getRuntime().addShutdownHook(new Thread(rollupDAO::close)); // Write the queued counters
+            libraryService.enableCirculationRollups(rollupDAO,
+                    Boolean.getBoolean("library.rollups.rebuild"),
+                    Integer.getInteger("library.rollups.threads", 4));
+            libraryService.enableArchival(new LoanArchiveDAO(
+                    Integer.getInteger("library.archive.batchSize", 500),
+                    Long.getLong("library.archive.pauseMillis", 200)));
+            if (Boolean.getBoolean("library.storedProcedures")) {
+                libraryService.enableStoredProcedures(new CirculationProcedureDAO(
+                        Integer.getInteger("library.storedProcedures.connections", 4)));
+            }
+            if (Boolean.getBoolean("library.parallelReports")) {
+                libraryService.enableParallelReports(new ParallelReportEngine(new ReportRangeDAO(),
+                        Integer.getInteger("library.parallelReports.parallelism", Runtime.getRuntime().availableProcessors()),
+                        Integer.getInteger("library.parallelReports.sliceKeys", 10000)));
+            }
+        }
+        if (!embedded && Boolean.getBoolean("library.librarianLogin")) {
+            sessionManager = newSessionManager();
+        }
+
+        if (kioskSync != null) {
+            libraryService.enableKioskMode(kioskSync, Integer.getInteger("library.kiosk.syncSeconds", 30));
+        }
+
+        if (args.length == 2 && "--batch".equals(args[0])) {
+            BatchRunner batchRunner = new BatchRunner(libraryService,
+                    Integer.getInteger("library.batch.threads", 1),
+                    Boolean.getBoolean("library.batch.verbose"));
+            boolean success = batchRunner.run(Paths.get(args[1]));
+            System.exit(success ? 0 : 1);
+        }
 
         while (true) {
             printMainMenu();
@@ -39,6 +182,12 @@ public class LibraryApp {
                     librarianMenu();
                     break;
                 case 3:
+                    if (sessionManager != null) {
+                        sessionManager.logout(librarianToken);
+                    }
+                    if (traces != null) {
+                        System.out.println(traces.getSummary());
+                    }
                     System.out.println("Exiting Library System. Goodbye!");
                     scanner.close();
                     return;
@@ -48,14 +197,188 @@ public class LibraryApp {
         }
     }
 
+    /**
+     * Sets up the in-memory DAOs. With a snapshot file the data is loaded from it at startup
+     * and written back when the JVM exits.
+     * @param snapshot The snapshot file, or null to start empty and keep nothing.
+     * @return True if the database is ready, false if the snapshot could not be read.
+     */
+    private static boolean openEmbeddedDatabase(String snapshot) {
+        InMemoryDatabase database;
+        if (snapshot == null) {
+            database = new InMemoryDatabase();
+        } else {
+            Path snapshotFile = Paths.get(snapshot);
+            try {
+                database = InMemoryDatabase.load(snapshotFile);
+            } catch (IOException e) {
+                System.err.println("Error loading snapshot " + snapshot + ": " + e.getMessage());
+                return false;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    database.save(snapshotFile);
+                } catch (IOException e) {
+                    System.err.println("Error saving snapshot " + snapshot + ": " + e.getMessage());
+                }
+            }));
+        }
+        bookDAO = new InMemoryBookDAO(database);
+        memberDAO = new InMemoryMemberDAO(database);
+        borrowerDAO = new InMemoryBorrowerDAO(database);
+        return true;
+    }
+
+    /**
+     * Sets up the sharded DAOs, one MySQL instance per branch.
+     * @param shardUrls The comma-separated JDBC URLs of the shards, in shard order.
+     * @param homeShard The shard of the branch this application serves.
+     * @param connectionsPerShard The most connections open to each shard at once.
+     * @return True if every shard is reachable and configured for sharding.
+     */
+    private static boolean openShards(String shardUrls, int homeShard, int connectionsPerShard) {
+        ShardRouter router;
+        try {
+            router = new ShardRouter(Arrays.asList(shardUrls.trim().split("\\s*,\\s*")), homeShard, connectionsPerShard);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+        if (!router.verifyShards()) {
+            return false;
+        }
+        bookDAO = new ShardedBookDAO(router);
+        memberDAO = new ShardedMemberDAO(router);
+        borrowerDAO = new ShardedBorrowerDAO(router);
+        return true;
+    }
+
+    /**
+     * Sets up an offline kiosk: the in-memory DAOs start from the last snapshot taken from
+     * MySQL plus the operations journaled since, and every later borrow, return and renewal
+     * is journaled before it is applied.
+     * @param dir The directory holding the kiosk's snapshot and journal.
+     * @return True if the kiosk is ready, false if its files could not be read.
+     */
+    private static boolean openKiosk(Path dir) {
+        Path snapshotFile = dir.resolve("snapshot.bin");
+        InMemoryDatabase database;
+        KioskJournal journal;
+        try {
+            Files.createDirectories(dir);
+            database = InMemoryDatabase.load(snapshotFile);
+            journal = KioskJournal.open(dir.resolve("journal.bin"));
+        } catch (IOException e) {
+            System.err.println("Error opening kiosk files in " + dir + ": " + e.getMessage());
+            return false;
+        }
+        InMemoryBorrowerDAO kioskBorrowerDAO = new InMemoryBorrowerDAO(database, journal);
+        kioskBorrowerDAO.replay(journal.getEntries());
+        bookDAO = new InMemoryBookDAO(database);
+        memberDAO = new InMemoryMemberDAO(database);
+        borrowerDAO = kioskBorrowerDAO;
+        kioskSync = new KioskSync(kioskBorrowerDAO, journal,
+                new KioskSyncDAO(Integer.getInteger("library.kiosk.connectTimeoutMillis", 2000),
+                                 Integer.getInteger("library.kiosk.socketTimeoutMillis", 10000)),
+                snapshotFile, Integer.getInteger("library.kiosk.batchSize", 100));
+        return true;
+    }
+
+    private static SessionManager newSessionManager() {
+        return new SessionManager(new UserDAO(),
+                new PasswordHasher(Integer.getInteger("library.auth.iterations", 600000)),
+                Long.getLong("library.auth.idleMinutes", 15L) * 60 * 1000,
+                Long.getLong("library.auth.maxHours", 8L) * 60 * 60 * 1000);
+    }
+
+    /**
+     * Creates a user with a hashed password (--add-user &lt;username&gt; &lt;role&gt;).
+     * @return True if the user was added.
+     */
+    private static boolean addUser(String username, String role) {
+        String password = readPassword("Password for " + username + ": ");
+        if (password.isEmpty()) {
+            System.out.println("Error: The password must not be empty.");
+            return false;
+        }
+        if (!newSessionManager().createUser(username, password, role)) {
+            System.out.println("Error: Could not add user " + username + ".");
+            return false;
+        }
+        System.out.println("User " + username + " added.");
+        return true;
+    }
+
+    /**
+     * Makes sure a librarian is logged in, asking for credentials if the session is missing
+     * or expired. Always succeeds when librarian login is not enabled.
+     * @return True if librarian actions may run.
+     */
+    private static boolean ensureLibrarianSession() {
+        if (sessionManager == null || sessionManager.hasRole(librarianToken, "LIBRARIAN")) {
+            return true;
+        }
+        System.out.println(librarianToken == null ? "Please log in." : "Your session has expired. Please log in again.");
+        System.out.print("Username: ");
+        String username = scanner.nextLine().trim();
+        String password = readPassword("Password: ");
+        librarianToken = sessionManager.login(username, password);
+        if (!sessionManager.hasRole(librarianToken, "LIBRARIAN")) {
+            sessionManager.logout(librarianToken);
+            librarianToken = null;
+            System.out.println("Error: Invalid username or password, or not a librarian.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a password without echoing it when a console is attached.
+     */
+    private static String readPassword(String prompt) {
+        Console console = System.console();
+        if (console != null) {
+            char[] password = console.readPassword(prompt);
+            return password != null ? new String(password) : "";
+        }
+        System.out.print(prompt);
+        return scanner.hasNextLine() ? scanner.nextLine() : "";
+    }
+
     private static void printMainMenu() {
         System.out.println("\n--- Library System ---");
+        if (kioskSync != null) {
+            System.out.println("(Kiosk " + (kioskSync.isOnline() ? "online" : "offline") + ", "
+                               + kioskSync.getPendingCount() + " operation(s) waiting to sync)");
+        }
         System.out.println("1. User Actions");
         System.out.println("2. Librarian Actions");
         System.out.println("3. Exit");
         System.out.print("Enter your choice: ");
     }
 
+    /**
+     * Asks where a report should go and opens it.
+     * @return The report writer, or null if the file could not be opened.
+     */
+    private static ReportWriter openReport() {
+        System.out.print("Output (1 = Screen, 2 = Text file, 3 = CSV file): ");
+        int target = getUserChoice();
+        if (target != 2 && target != 3) {
+            return ReportWriter.toConsole();
+        }
+        System.out.print("File name: ");
+        String fileName = scanner.nextLine().trim();
+        try {
+            ReportWriter report = target == 3 ? ReportWriter.toCsvFile(Paths.get(fileName)) : ReportWriter.toTextFile(Paths.get(fileName));
+            System.out.println("Writing report to " + fileName);
+            return report;
+        } catch (IOException e) {
+            System.out.println("Could not open " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
     private static int getUserChoice() {
         while (!scanner.hasNextInt()) {
             System.out.println("Invalid input. Please enter a number.");
@@ -77,7 +400,9 @@ public class LibraryApp {
             System.out.println("5. View Borrowed Books");
             System.out.println("6. Check My Fine Details");
             System.out.println("7. Pay Fines");
-            System.out.println("8. Back to Main Menu");
+            System.out.println("8. Get Recommendations");
+            System.out.println("9. View Loan History");
+            System.out.println("10. Back to Main Menu");
             System.out.print("Enter your choice: ");
             int choice = getUserChoice();
 
@@ -125,7 +450,7 @@ public class LibraryApp {
                                                ", Loan Date: " + borrowerEntry.getLoanDate() +
                                                ", Due Date: " + borrowerEntry.getDueDate() +
                                                ", Renewed: " + (borrowerEntry.isRenewed() ? "Yes" : "No") +
-                                               ", Fine: Rs. " + String.format("%.2f", borrowerEntry.getFineAmount()) +
+                                               ", Fine: Rs. " + Money.format(borrowerEntry.getFinePaise()) +
                                                ", Paid: " + (borrowerEntry.isFinePaid() ? "Yes" : "No"));
                         });
                     }
@@ -141,6 +466,30 @@ public class LibraryApp {
                     libraryService.payFines(memberIdPayFine);
                     break;
                 case 8:
+                    System.out.print("Enter your Member ID: ");
+                    int memberIdRecommend = getUserChoice();
+                    List<Book> recommendedBooks = libraryService.getRecommendationsForMember(memberIdRecommend, 5);
+                    if (recommendedBooks.isEmpty()) {
+                        System.out.println("No recommendations yet. Borrow a few books first!");
+                    } else {
+                        System.out.println("\n--- Members Who Borrowed Your Books Also Borrowed ---");
+                        recommendedBooks.forEach(System.out::println);
+                    }
+                    break;
+                case 9:
+                    System.out.print("Enter your Member ID: ");
+                    int memberIdHistory = getUserChoice();
+                    System.out.print("Include archived loans from how many past years? (0 = none): ");
+                    int archivedYears = getUserChoice();
+                    List<Borrower> loanHistory = libraryService.getLoanHistory(memberIdHistory, archivedYears);
+                    if (loanHistory.isEmpty()) {
+                        System.out.println("No loans found.");
+                    } else {
+                        System.out.println("\n--- Your Loan History ---");
+                        loanHistory.forEach(System.out::println);
+                    }
+                    break;
+                case 10:
                     return; // Back to main menu
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -157,9 +506,16 @@ public class LibraryApp {
             System.out.println("4. View All Overdue Borrower Entries");
             System.out.println("5. View All Members with Fines"); // NEW OPTION
             System.out.println("6. Delete Book"); // Shifted from 5 to 6
-            System.out.println("7. Back to Main Menu"); // Shifted from 6 to 7
+            System.out.println("7. View Trending Books");
+            System.out.println("8. Circulation Dashboard");
+            System.out.println("9. Archive Returned Loans");
+            System.out.println("10. Back to Main Menu");
             System.out.print("Enter your choice: ");
             int choice = getUserChoice();
+            // Checked per action, so an idle or revoked session ends while the menu is open
+            if (choice != 10 && !ensureLibrarianSession()) {
+                return;
+            }
 
             switch (choice) {
                 case 1:
@@ -192,25 +548,19 @@ public class LibraryApp {
                     }
                     break;
                 case 4:
-                    List<Borrower> overdueLoans = libraryService.getOverdueLoansReport();
-                    if (overdueLoans.isEmpty()) {
-                        System.out.println("No overdue borrower entries found.");
-                    } else {
-                        System.out.println("\n--- Overdue Borrower Entries Report ---");
-                        overdueLoans.forEach(borrowerEntry -> {
-                            Book book = bookDAO.getBookById(borrowerEntry.getBookId());
-                            Member member = memberDAO.getMemberById(borrowerEntry.getMemberId());
-                            System.out.println("Borrower Entry ID: " + borrowerEntry.getLoanId() +
-                                               ", Book: " + (book != null ? book.getTitle() : "Unknown") +
-                                               ", Member: " + (member != null ? member.getFirstName() + " " + member.getLastName() : "Unknown") +
-                                               ", Due Date: " + borrowerEntry.getDueDate() +
-                                               ", Fine: Rs. " + String.format("%.2f", borrowerEntry.getFineAmount()) +
-                                               ", Paid: " + (borrowerEntry.isFinePaid() ? "Yes" : "No"));
-                        });
+                    try (ReportWriter report = openReport()) {
+                        if (report != null) {
+                            libraryService.writeOverdueLoansReport(report);
+                        }
                     }
                     break;
                 case 5: // NEW CASE FOR VIEWING ALL MEMBERS WITH FINES
-                    libraryService.viewAllMembersWithFines();
+                    try (ReportWriter report = openReport()) {
+                        if (report != null) {
+                            libraryService.writeMembersWithFinesReport(report);
+                        }
+                    }
+                    libraryService.viewFineTotals();
                     break;
                 case 6: // Shifted from 5 to 6
                     System.out.print("Enter Book ID to delete: ");
@@ -221,7 +571,34 @@ public class LibraryApp {
                         System.out.println("Failed to delete book. It might not exist or has active loans.");
                     }
                     break;
-                case 7: // Shifted from 6 to 7
+                case 7:
+                    System.out.print("Window (1 = Today, 2 = This Week, 3 = This Month): ");
+                    int windowChoice = getUserChoice();
+                    PopularityTracker.TrendWindow window = windowChoice == 1 ? PopularityTracker.TrendWindow.DAY
+                            : windowChoice == 3 ? PopularityTracker.TrendWindow.MONTH
+                            : PopularityTracker.TrendWindow.WEEK;
+                    List<Book> trendingBooks = libraryService.getTrendingBooks(10, window);
+                    if (trendingBooks.isEmpty()) {
+                        System.out.println("No borrows recorded in this window.");
+                    } else {
+                        System.out.println("\n--- Most Borrowed Books (" + window + ") ---");
+                        trendingBooks.forEach(System.out::println);
+                    }
+                    break;
+                case 8:
+                    System.out.print("Period (1 = Today, 2 = This Week, 3 = This Month): ");
+                    int periodChoice = getUserChoice();
+                    CirculationRollup.Period period = periodChoice == 1 ? CirculationRollup.Period.DAY
+                            : periodChoice == 3 ? CirculationRollup.Period.MONTH
+                            : CirculationRollup.Period.WEEK;
+                    libraryService.viewCirculationDashboard(period);
+                    break;
+                case 9:
+                    System.out.print("Archive loans returned more than how many days ago? ");
+                    int archiveDays = getUserChoice();
+                    libraryService.archiveReturnedLoans(archiveDays);
+                    break;
+                case 10:
                     return; // Back to main menu
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -0,0 +1,78 @@
+package com.library;
+
+import com.library.dao.JdbcBookDAO;
+import com.library.dao.JdbcBorrowerDAO;
+import com.library.dao.JdbcMemberDAO;
+import com.library.dao.ReportRangeDAO;
+import com.library.report.ReportWriter;
+import com.library.service.LibraryService;
+import com.library.service.ParallelReportEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times the overdue loans report against the configured MySQL database, first the
+ * sequential way and then with parallel reports at 1, 2, 4 ... up to the given parallelism
+ * (threads and connections). Each run writes the whole report to a scratch CSV file, so
+ * lookups and writing are included; the best of several rounds is kept, and every run must
+ * write the same number of rows.
+ *
+ * Usage: java com.library.ReportBenchmark [maxParallelism] [sliceKeys] [rounds]
+ */
+public class ReportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int maxParallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int sliceKeys = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        Path scratch = Files.createTempFile("overdue-report", ".csv");
+        try {
+            LibraryService sequential = newService();
+            int rows = run(sequential, scratch); // Warm up the JIT, the driver and the buffer pool
+            long sequentialNanos = bestOf(sequential, scratch, rounds, rows);
+            System.out.println("Overdue loans: " + rows + ", Slice keys: " + sliceKeys + ", Rounds: " + rounds);
+            System.out.printf("%-12s %10s %8s%n", "Parallelism", "Best ms", "Speedup");
+            System.out.printf("%-12s %10.1f %8s%n", "sequential", sequentialNanos / 1e6, "1.00x");
+            for (int parallelism = 1; parallelism <= maxParallelism; parallelism = nextParallelism(parallelism, maxParallelism)) {
+                LibraryService parallel = newService();
+                parallel.enableParallelReports(new ParallelReportEngine(new ReportRangeDAO(), parallelism, sliceKeys));
+                long nanos = bestOf(parallel, scratch, rounds, rows);
+                System.out.printf("%-12d %10.1f %7.2fx%n", parallelism, nanos / 1e6, (double) sequentialNanos / nanos);
+            }
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+    }
+
+    private static LibraryService newService() {
+        return new LibraryService(new JdbcBookDAO(), new JdbcMemberDAO(), new JdbcBorrowerDAO());
+    }
+
+    /**
+     * Doubles the parallelism, ending with maxParallelism itself even when it is not a power of two.
+     */
+    private static int nextParallelism(int parallelism, int maxParallelism) {
+        return parallelism < maxParallelism ? Math.min(parallelism * 2, maxParallelism) : maxParallelism + 1;
+    }
+
+    private static long bestOf(LibraryService service, Path scratch, int rounds, int expectedRows) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int rows = run(service, scratch);
+            best = Math.min(best, System.nanoTime() - start);
+            if (rows != expectedRows) {
+                throw new IllegalStateException("Report wrote " + rows + " rows instead of " + expectedRows);
+            }
+        }
+        return best;
+    }
+
+    private static int run(LibraryService service, Path scratch) throws IOException {
+        try (ReportWriter report = ReportWriter.toCsvFile(scratch)) {
+            return service.writeOverdueLoansReport(report);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.library;
+
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.model.Money;
+import com.library.report.ReportWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares two ways of writing the members-with-fines report to a file: a printf per row
+ * into a PrintStream set up the way System.out is when it is redirected to a file (a small
+ * buffer, flushed at every line), as the report used to, and ReportWriter. Both render the
+ * same synthetic members into a scratch file, which is deleted at the end. Prints the best
+ * time of each after a warm-up round, the size of each file and the speedup.
+ *
+ * Usage: java com.library.ReportWriterBenchmark [rows] [rounds]
+ */
+public class ReportWriterBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Member> members = syntheticMembers(rowCount, new Random(42));
+        Path file = Files.createTempFile("report-benchmark", ".txt");
+        try {
+            printfReport(members, file); // Warm up the JIT and the file system
+            writerReport(members, file);
+
+            long bestPrintfNanos = Long.MAX_VALUE;
+            long bestWriterNanos = Long.MAX_VALUE;
+            long printfBytes = 0;
+            long writerBytes = 0;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                printfReport(members, file);
+                bestPrintfNanos = Math.min(bestPrintfNanos, System.nanoTime() - start);
+                printfBytes = Files.size(file);
+
+                start = System.nanoTime();
+                writerReport(members, file);
+                bestWriterNanos = Math.min(bestWriterNanos, System.nanoTime() - start);
+                writerBytes = Files.size(file);
+            }
+
+            System.out.println("Rows: " + rowCount + ", Rounds: " + rounds);
+            System.out.printf("%-14s %12s %12s%n", "Path", "Best ms", "File bytes");
+            System.out.printf("%-14s %12.1f %12d%n", "printf", bestPrintfNanos / 1e6, printfBytes);
+            System.out.printf("%-14s %12.1f %12d%n", "ReportWriter", bestWriterNanos / 1e6, writerBytes);
+            System.out.printf("Speedup: %.1fx%n", (double) bestPrintfNanos / Math.max(1, bestWriterNanos));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The way the report used to be written: String.format per row, with the fine as rupees
+     * in a double, into a stream that flushes every line.
+     */
+    private static void printfReport(List<Member> members, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 128),
+                                               true, StandardCharsets.UTF_8)) {
+            out.println("\n--- All Members and Outstanding Fines ---");
+            out.printf("%-10s %-25s %-15s%n", "Member ID", "Member Name", "Total Fine Due");
+            out.println("--------------------------------------------------");
+            for (Member member : members) {
+                out.printf("%-10d %-25s Rs. %-15.2f%n",
+                           member.getMemberId(),
+                           member.getFirstName() + " " + member.getLastName(),
+                           member.getTotalFineDuePaise() / (double) Money.PAISE_PER_RUPEE);
+            }
+            out.println("--------------------------------------------------");
+        }
+    }
+
+    /**
+     * The report as LibraryService writes it now, without the total row.
+     */
+    private static void writerReport(List<Member> members, Path file) throws IOException {
+        try (ReportWriter report = ReportWriter.toTextFile(file)) {
+            report.header("All Members and Outstanding Fines",
+                          new String[] { "Member ID", "Member Name", "Total Fine Due" },
+                          new int[] { 10, 25, 15 });
+            for (Member member : members) {
+                report.beginRow()
+                      .cell(member.getMemberId())
+                      .cell(member.getFirstName() + " " + member.getLastName())
+                      .money(member.getTotalFineDuePaise())
+                      .endRow();
+            }
+            report.separator();
+        }
+    }
+
+    /**
+     * Members with generated names, of whom about a third owe a fine of a few days, less a
+     * partial waiver of up to a rupee.
+     */
+    private static List<Member> syntheticMembers(int count, Random random) {
+        List<Member> members = new ArrayList<>(count);
+        LocalDate joinDate = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < count; i++) {
+            long fine = 0;
+            if (random.nextInt(3) == 0) {
+                fine = (1 + random.nextInt(30)) * Borrower.FINE_PER_DAY_PAISE - random.nextInt(100);
+            }
+            members.add(new Member(i + 1, "Member" + random.nextInt(10_000), "Surname" + random.nextInt(10_000),
+                                   "m" + (i + 1) + "@example.invalid", "0", joinDate, fine));
+        }
+        return members;
+    }
+}
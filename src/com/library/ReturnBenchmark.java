@@ -0,0 +1,232 @@
+package com.library;
+
+import com.library.dao.DatabaseConnection;
+import com.library.dao.JdbcBookDAO;
+import com.library.dao.JdbcBorrowerDAO;
+import com.library.dao.JdbcMemberDAO;
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Compares the two ways of writing a book return against the configured MySQL database:
+ * the four separate DAO calls returns used to make (loan, book copies, member read, member
+ * fine), each on its own connection, and BorrowerDAO.returnLoan's single multi-statement
+ * round trip. Each setting runs behind a local proxy that delays every packet by half the
+ * given round-trip time in each direction, so the driver sees that network latency; 0
+ * connects directly. Returns are made on overdue loans, so every return carries a fine.
+ * The benchmark adds one scratch book and member with their loans and deletes them at the end.
+ *
+ * Usage: java com.library.ReturnBenchmark [returns] [rttMillis ...]
+ */
+public class ReturnBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int returns = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int[] rttMillis = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 0, 1, 10 };
+        URI server = URI.create(DatabaseConnection.DB_URL.substring("jdbc:".length()));
+
+        System.out.println("Returns per path: " + returns);
+        System.out.printf("%-8s %16s %16s %8s%n", "RTT ms", "Four calls ms", "One trip ms", "Speedup");
+        for (int rtt : rttMillis) {
+            try (LatencyProxy proxy = rtt > 0 ? new LatencyProxy(server.getHost(), server.getPort(), rtt * 500_000L) : null) {
+                String dbUrl = proxy == null ? DatabaseConnection.DB_URL
+                        : "jdbc:mysql://localhost:" + proxy.getPort() + server.getPath();
+                double[] millis = run(dbUrl, returns);
+                if (millis == null) {
+                    System.err.println("Could not set up the scratch book and member; is the database reachable?");
+                    return;
+                }
+                System.out.printf("%-8d %16.2f %16.2f %7.2fx%n", rtt, millis[0], millis[1], millis[0] / millis[1]);
+            }
+        }
+    }
+
+    /**
+     * Returns half of a batch of scratch loans each way.
+     * @return The mean milliseconds per return of the four-call path and of returnLoan, or null if setup failed.
+     */
+    private static double[] run(String dbUrl, int returns) {
+        JdbcBookDAO bookDAO = new JdbcBookDAO(dbUrl);
+        JdbcMemberDAO memberDAO = new JdbcMemberDAO(dbUrl);
+        JdbcBorrowerDAO borrowerDAO = new JdbcBorrowerDAO(dbUrl);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // The DAOs report every row
+        Book book = null;
+        Member member = null;
+        try {
+            long tag = System.nanoTime();
+            book = bookDAO.addBook(new Book("Return benchmark", "Benchmark", "RB-" + tag, 2000, 2 * returns, 0));
+            member = memberDAO.addMember(new Member("Return", "Benchmark", "rb-" + tag + "@example.invalid", "0", LocalDate.now()));
+            if (book == null || member == null) {
+                return null;
+            }
+            LocalDate dueDate = LocalDate.now().minusDays(3);
+            List<Borrower> loans = new ArrayList<>();
+            for (int i = 0; i < 2 * returns; i++) {
+                Borrower loan = borrowerDAO.createLoan(new Borrower(book.getBookId(), member.getMemberId(), dueDate.minusDays(14), dueDate));
+                if (loan == null) {
+                    return null;
+                }
+                loans.add(loan);
+            }
+
+            // Warm up the JIT and the driver with one return each way
+            LocalDate returnDate = LocalDate.now();
+            returnWithFourCalls(bookDAO, memberDAO, borrowerDAO, loans.get(0), returnDate);
+            borrowerDAO.returnLoan(loans.get(1), returnDate, loans.get(1).calculateFinePaise(returnDate));
+
+            long start = System.nanoTime();
+            for (int i = 2; i < returns + 1; i++) {
+                returnWithFourCalls(bookDAO, memberDAO, borrowerDAO, loans.get(i), returnDate);
+            }
+            long fourCallNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = returns + 1; i < 2 * returns; i++) {
+                Borrower loan = loans.get(i);
+                borrowerDAO.returnLoan(loan, returnDate, loan.calculateFinePaise(returnDate));
+            }
+            long oneTripNanos = System.nanoTime() - start;
+            int timed = Math.max(1, returns - 1);
+            return new double[] { fourCallNanos / 1e6 / timed, oneTripNanos / 1e6 / timed };
+        } finally {
+            if (book != null) {
+                bookDAO.deleteBook(book.getBookId()); // The loans go with it
+            }
+            if (member != null) {
+                memberDAO.deleteMember(member.getMemberId());
+            }
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * The way returns used to be written: one DAO call, and so one connection, per statement.
+     */
+    private static void returnWithFourCalls(JdbcBookDAO bookDAO, JdbcMemberDAO memberDAO, JdbcBorrowerDAO borrowerDAO,
+                                            Borrower loan, LocalDate returnDate) {
+        long fine = loan.calculateFinePaise(returnDate);
+        borrowerDAO.updateLoanReturnDate(loan.getLoanId(), returnDate, fine, false);
+        bookDAO.updateBookCopies(loan.getBookId(), 1);
+        if (fine > 0) {
+            Member member = memberDAO.getMemberById(loan.getMemberId());
+            memberDAO.updateTotalFineDue(loan.getMemberId(), member.getTotalFineDuePaise() + fine);
+        }
+    }
+
+    /**
+     * A TCP proxy on the loopback interface that holds every chunk of data for a fixed delay
+     * before passing it on, in both directions. Chunks keep their order, since they all wait
+     * equally long.
+     */
+    private static class LatencyProxy implements AutoCloseable {
+        private final ServerSocket listener;
+        private final String host;
+        private final int port;
+        private final long delayNanos;
+
+        LatencyProxy(String host, int port, long delayNanos) throws IOException {
+            this.listener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.host = host;
+            this.port = port;
+            this.delayNanos = delayNanos;
+            daemon(this::accept).start();
+        }
+
+        int getPort() {
+            return listener.getLocalPort();
+        }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Socket client = listener.accept();
+                    Socket upstream = new Socket(host, port);
+                    client.setTcpNoDelay(true);
+                    upstream.setTcpNoDelay(true);
+                    pipe(client, upstream);
+                    pipe(upstream, client);
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+
+        /**
+         * Copies from one socket to the other: a reader thread timestamps each chunk and a
+         * writer thread sends it once its delay is up.
+         */
+        private void pipe(Socket from, Socket to) {
+            BlockingQueue<Object[]> chunks = new LinkedBlockingQueue<>();
+            byte[] end = new byte[0];
+            daemon(() -> {
+                byte[] buffer = new byte[16384];
+                try (InputStream in = from.getInputStream()) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        chunks.add(new Object[] { System.nanoTime() + delayNanos, Arrays.copyOf(buffer, read) });
+                    }
+                } catch (IOException e) {
+                    // Connection closed
+                }
+                chunks.add(new Object[] { System.nanoTime(), end });
+            }).start();
+            daemon(() -> {
+                try (OutputStream out = to.getOutputStream()) {
+                    while (true) {
+                        Object[] chunk = chunks.take();
+                        long wait = (Long) chunk[0] - System.nanoTime();
+                        if (wait > 0) {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        }
+                        if (chunk[1] == end) {
+                            break;
+                        }
+                        out.write((byte[]) chunk[1]);
+                        out.flush();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // Connection closed
+                }
+                closeQuietly(from);
+                closeQuietly(to);
+            }).start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+        }
+
+        private static Thread daemon(Runnable task) {
+            Thread thread = new Thread(task, "return-benchmark-proxy");
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.library.dao;
+
+import com.library.model.BookCopy;
+import com.library.model.Borrower;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BookCopyDAO {
+
+    /**
+     * Adds physical copies for a book. Barcodes are generated as "B<bookId>-<n>",
+     * continuing after the highest copy number the book already has.
+     * @param bookId The ID of the book the copies belong to.
+     * @param count The number of copies to add.
+     * @param availableCount How many of the new copies start out AVAILABLE; the rest are BORROWED.
+     * @return The list of created BookCopy objects, empty if insertion fails.
+     */
+    public List<BookCopy> addCopies(int bookId, int count, int availableCount) {
+        return DaoCallEvent.record(this, "addCopies", bookId, () -> {
+            List<BookCopy> copies = new ArrayList<>();
+            String countSql = "SELECT COUNT(*) FROM book_copies WHERE book_id = ?";
+            String insertSql = "INSERT INTO book_copies (barcode, book_id, status, loan_id) VALUES (?, ?, ?, NULL)";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement countStmt = conn.prepareStatement(countSql);
+                 PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+
+                countStmt.setInt(1, bookId);
+                int existing = 0;
+                try (ResultSet rs = countStmt.executeQuery()) {
+                    if (rs.next()) {
+                        existing = rs.getInt(1);
+                    }
+                }
+
+                for (int i = 0; i < count; i++) {
+                    String status = i < availableCount ? BookCopy.STATUS_AVAILABLE : BookCopy.STATUS_BORROWED;
+                    BookCopy copy = new BookCopy("B" + bookId + "-" + (existing + i + 1), bookId, status, 0);
+                    pstmt.setString(1, copy.getBarcode());
+                    pstmt.setInt(2, bookId);
+                    pstmt.setString(3, status);
+                    pstmt.addBatch();
+                    copies.add(copy);
+                }
+                pstmt.executeBatch();
+            } catch (SQLException e) {
+                System.err.println("Error adding book copies: " + e.getMessage());
+                e.printStackTrace();
+                copies.clear();
+            }
+            return copies;
+        });
+    }
+
+    /**
+     * Retrieves all copies, ordered by book and barcode so that the copies of one
+     * book are contiguous.
+     * @return A list of all BookCopy objects.
+     */
+    public List<BookCopy> getAllCopies() {
+        return DaoCallEvent.record(this, "getAllCopies", 0, () -> {
+            List<BookCopy> copies = new ArrayList<>();
+            String sql = "SELECT " + RowMappers.COPY_COLUMNS + " FROM book_copies ORDER BY book_id, barcode";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    copies.add(RowMappers.COPY.mapRow(rs));
+                }
+            } catch (SQLException e) {
+                System.err.println("Error getting all book copies: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return copies;
+        });
+    }
+
+    /**
+     * Retrieves all copies of a book.
+     * @param bookId The ID of the book.
+     * @return A list of BookCopy objects ordered by barcode.
+     */
+    public List<BookCopy> getCopiesByBookId(int bookId) {
+        return DaoCallEvent.record(this, "getCopiesByBookId", bookId, () -> {
+            List<BookCopy> copies = new ArrayList<>();
+            String sql = "SELECT " + RowMappers.COPY_COLUMNS + " FROM book_copies WHERE book_id = ? ORDER BY barcode";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, bookId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        copies.add(RowMappers.COPY.mapRow(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error getting book copies: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return copies;
+        });
+    }
+
+    /**
+     * Retrieves the copy that is out on the given loan.
+     * @param loanId The ID of the loan.
+     * @return The BookCopy object, or null if no copy is linked to the loan.
+     */
+    public BookCopy getCopyByLoanId(int loanId) {
+        return DaoCallEvent.record(this, "getCopyByLoanId", loanId, () -> {
+            String sql = "SELECT " + RowMappers.COPY_COLUMNS + " FROM book_copies WHERE loan_id = ?";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, loanId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return RowMappers.COPY.mapRow(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error getting book copy by loan ID: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves a borrowed copy of a book that is not linked to any loan.
+     * Such copies come from seeding copy records for loans made before copies were tracked.
+     * @param bookId The ID of the book.
+     * @return The BookCopy object, or null if there is none.
+     */
+    public BookCopy getUnlinkedBorrowedCopy(int bookId) {
+        return DaoCallEvent.record(this, "getUnlinkedBorrowedCopy", bookId, () -> {
+            String sql = "SELECT " + RowMappers.COPY_COLUMNS + " FROM book_copies WHERE book_id = ? AND status = ? AND loan_id IS NULL LIMIT 1";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setInt(1, bookId);
+                pstmt.setString(2, BookCopy.STATUS_BORROWED);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return RowMappers.COPY.mapRow(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error getting unlinked borrowed copy: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Updates the status of a copy and the loan it is attached to.
+     * @param barcode The barcode of the copy.
+     * @param status The new status (BookCopy.STATUS_AVAILABLE or BookCopy.STATUS_BORROWED).
+     * @param loanId The loan the copy is out on, or 0 to clear it.
+     * @return true if updated successfully, false otherwise.
+     */
+    public boolean updateCopyStatus(String barcode, String status, int loanId) {
+        return DaoCallEvent.record(this, "updateCopyStatus", loanId, () -> {
+            String sql = "UPDATE book_copies SET status = ?, loan_id = ? WHERE barcode = ?";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, status);
+                if (loanId != 0) {
+                    pstmt.setInt(2, loanId);
+                } else {
+                    pstmt.setNull(2, Types.INTEGER);
+                }
+                pstmt.setString(3, barcode);
+                int rowsAffected = pstmt.executeUpdate();
+                return rowsAffected > 0;
+            } catch (SQLException e) {
+                System.err.println("Error updating book copy status: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Marks copies BORROWED on the new loans that take them, as one batch on the given
+     * connection. The caller owns the connection and the transaction, and has already
+     * inserted the loans, so their IDs are set.
+     * @param conn The connection to use.
+     * @param issuedCopies New loan to the barcode of the copy it takes.
+     * @throws SQLException If the batch fails, or a copy is no longer AVAILABLE.
+     */
+    static void issueCopies(Connection conn, Map<Borrower, String> issuedCopies) throws SQLException {
+        if (issuedCopies.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE book_copies SET status = ?, loan_id = ? WHERE barcode = ? AND status = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Borrower, String> issued : issuedCopies.entrySet()) {
+                pstmt.setString(1, BookCopy.STATUS_BORROWED);
+                pstmt.setInt(2, issued.getKey().getLoanId());
+                pstmt.setString(3, issued.getValue());
+                pstmt.setString(4, BookCopy.STATUS_AVAILABLE);
+                pstmt.addBatch();
+            }
+            for (int rowsAffected : pstmt.executeBatch()) {
+                if (rowsAffected == 0) {
+                    throw new SQLException("A copy being issued is no longer available");
+                }
+            }
+        }
+    }
+}
@@ -2,117 +2,40 @@ package com.library.dao;
 
 import com.library.model.Book;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.List;
 
-public class BookDAO {
+/**
+ * Storage of the book catalog. JdbcBookDAO keeps it in MySQL, InMemoryBookDAO in memory.
+ */
+public interface BookDAO {
 
     /**
-     * Adds a new book to the database.
+     * Adds a new book.
      * @param book The Book object to add.
      * @return The Book object with its auto-generated ID, or null if insertion fails.
      */
-    public Book addBook(Book book) {
-        String sql = "INSERT INTO books (title, author, isbn, publication_year, total_copies, available_copies) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            pstmt.setString(1, book.getTitle());
-            pstmt.setString(2, book.getAuthor());
-            pstmt.setString(3, book.getIsbn());
-            pstmt.setInt(4, book.getPublicationYear());
-            pstmt.setInt(5, book.getTotalCopies());
-            
-            pstmt.setInt(6, book.getAvailableCopies());
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        book.setBookId(generatedKeys.getInt(1)); // Set the auto-generated ID
-                        System.out.println("Book added successfully with ID: " + book.getBookId());
-                        return book;
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error adding book: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
+    Book addBook(Book book);
 
     /**
      * Retrieves a book by its ID.
      * @param bookId The ID of the book to retrieve.
      * @return The Book object, or null if not found.
      */
-    public Book getBookById(int bookId) {
-        String sql = "SELECT book_id, title, author, isbn, publication_year, total_copies, available_copies FROM books WHERE book_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    Book getBookById(int bookId);
 
-            pstmt.setInt(1, bookId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Book(
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getInt("publication_year"),
-                        rs.getInt("total_copies"),
-                        rs.getInt("available_copies")
-                    );
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting book by ID: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
+    /**
+     * Retrieves several books by ID in one query.
+     * @param bookIds The IDs of the books to retrieve.
+     * @return A list of the Book objects found, in no particular order.
+     */
+    List<Book> getBooksByIds(List<Integer> bookIds);
 
     /**
      * Searches for books by title, author, or ISBN.
      * @param query The search string.
      * @return A list of matching Book objects.
      */
-    public List<Book> searchBooks(String query) {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, author, isbn, publication_year, total_copies, available_copies FROM books WHERE title LIKE ? OR author LIKE ? OR isbn LIKE ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            String searchPattern = "%" + query + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    books.add(new Book(
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getInt("publication_year"),
-                        rs.getInt("total_copies"),
-                        rs.getInt("available_copies")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error searching books: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return books;
-    }
+    List<Book> searchBooks(String query);
 
     /**
      * Updates the available copies of a book.
@@ -120,97 +43,24 @@ public class BookDAO {
      * @param change The amount to change (positive for increment, negative for decrement).
      * @return true if updated successfully, false otherwise.
      */
-    public boolean updateBookCopies(int bookId, int change) {
-        String sql = "UPDATE books SET available_copies = available_copies + ? WHERE book_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, change);
-            pstmt.setInt(2, bookId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating book copies: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean updateBookCopies(int bookId, int change);
 
     /**
      * Retrieves all books from the database.
      * @return A list of all Book objects.
      */
-    public List<Book> getAllBooks() {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, author, isbn, publication_year, total_copies, available_copies FROM books";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                books.add(new Book(
-                    rs.getInt("book_id"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    rs.getString("isbn"),
-                    rs.getInt("publication_year"),
-                    rs.getInt("total_copies"),
-                    rs.getInt("available_copies")
-                ));
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting all books: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return books;
-    }
+    List<Book> getAllBooks();
 
     /**
      * Retrieves all books that have available copies.
      * @return A list of available Book objects.
      */
-    public List<Book> getAvailableBooks() {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, title, author, isbn, publication_year, total_copies, available_copies FROM books WHERE available_copies > 0";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                books.add(new Book(
-                    rs.getInt("book_id"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    rs.getString("isbn"),
-                    rs.getInt("publication_year"),
-                    rs.getInt("total_copies"),
-                    rs.getInt("available_copies")
-                ));
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting available books: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return books;
-    }
+    List<Book> getAvailableBooks();
 
     /**
      * Deletes a book from the database by ID.
      * @param bookId The ID of the book to delete.
      * @return true if deleted successfully, false otherwise.
      */
-    public boolean deleteBook(int bookId) {
-        String sql = "DELETE FROM books WHERE book_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, bookId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error deleting book: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean deleteBook(int bookId);
 }
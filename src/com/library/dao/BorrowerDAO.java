@@ -1,175 +1,65 @@
 package com.library.dao;
 
 import com.library.model.Borrower;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import com.library.model.Member;
+
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
-public class BorrowerDAO {
+/**
+ * Storage of loans (borrower entries). JdbcBorrowerDAO keeps them in MySQL, InMemoryBorrowerDAO in memory.
+ */
+public interface BorrowerDAO {
 
     /**
      * Creates a new loan record in the database.
      * @param borrower The Borrower object to create.
      * @return The Borrower object with its auto-generated ID, or null if creation fails.
      */
-    public Borrower createLoan(Borrower borrower) { // Parameter name changed for consistency
-        String sql = "INSERT INTO loans (book_id, member_id, loan_date, due_date, renewed, fine_amount, fine_paid) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, borrower.getBookId());
-            pstmt.setInt(2, borrower.getMemberId());
-            pstmt.setDate(3, java.sql.Date.valueOf(borrower.getLoanDate()));
-            pstmt.setDate(4, java.sql.Date.valueOf(borrower.getDueDate()));
-            pstmt.setBoolean(5, borrower.isRenewed());
-            pstmt.setDouble(6, borrower.getFineAmount()); // New: Set initial fine amount (0.00)
-            pstmt.setBoolean(7, borrower.isFinePaid());   // New: Set initial fine paid status (FALSE)
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        borrower.setLoanId(generatedKeys.getInt(1));
-                        System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
-                        return borrower;
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error creating borrower entry: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
+    Borrower createLoan(Borrower borrower);
 
     /**
      * Retrieves a loan (borrower entry) by its ID.
      * @param loanId The ID of the loan to retrieve.
      * @return The Borrower object, or null if not found.
      */
-    public Borrower getLoanById(int loanId) {
-        String sql = "SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, renewed, fine_amount, fine_paid FROM loans WHERE loan_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, loanId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    LocalDate returnDate = rs.getDate("return_date") != null ? rs.getDate("return_date").toLocalDate() : null;
-                    return new Borrower(
-                        rs.getInt("loan_id"),
-                        rs.getInt("book_id"),
-                        rs.getInt("member_id"),
-                        rs.getDate("loan_date").toLocalDate(),
-                        rs.getDate("due_date").toLocalDate(),
-                        returnDate,
-                        rs.getBoolean("renewed"),
-                        rs.getDouble("fine_amount"), // New: Retrieve fine amount
-                        rs.getBoolean("fine_paid")   // New: Retrieve fine paid status
-                    );
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting borrower entry by ID: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
-    }
+    Borrower getLoanById(int loanId);
 
     /**
      * Retrieves all loans (borrower entries) for a specific member.
      * @param memberId The ID of the member.
      * @return A list of Borrower objects for the member.
      */
-    public List<Borrower> getLoansByMemberId(int memberId) {
-        List<Borrower> borrowers = new ArrayList<>(); // Changed list name
-        String sql = "SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, renewed, fine_amount, fine_paid FROM loans WHERE member_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, memberId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    LocalDate returnDate = rs.getDate("return_date") != null ? rs.getDate("return_date").toLocalDate() : null;
-                    borrowers.add(new Borrower(
-                        rs.getInt("loan_id"),
-                        rs.getInt("book_id"),
-                        rs.getInt("member_id"),
-                        rs.getDate("loan_date").toLocalDate(),
-                        rs.getDate("due_date").toLocalDate(),
-                        returnDate,
-                        rs.getBoolean("renewed"),
-                        rs.getDouble("fine_amount"),
-                        rs.getBoolean("fine_paid")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting borrower entries by member ID: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return borrowers;
-    }
+    List<Borrower> getLoansByMemberId(int memberId);
+
+    /**
+     * Retrieves a member's loan history. Archived loans are only included when asked for,
+     * and only those made since the given date.
+     * @param memberId The ID of the member.
+     * @param archivedSince The earliest loan date of archived loans to include, or null for none.
+     * @return A list of Borrower objects for the member, most recent loan first.
+     */
+    List<Borrower> getLoanHistoryByMemberId(int memberId, LocalDate archivedSince);
 
     /**
      * Retrieves active loans (not yet returned) for a specific member.
      * @param memberId The ID of the member.
      * @return A list of active Borrower objects for the member.
      */
-    public List<Borrower> getActiveLoansByMemberId(int memberId) {
-        List<Borrower> borrowers = new ArrayList<>(); // Changed list name
-        String sql = "SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, renewed, fine_amount, fine_paid FROM loans WHERE member_id = ? AND return_date IS NULL";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, memberId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    borrowers.add(new Borrower(
-                        rs.getInt("loan_id"),
-                        rs.getInt("book_id"),
-                        rs.getInt("member_id"),
-                        rs.getDate("loan_date").toLocalDate(),
-                        rs.getDate("due_date").toLocalDate(),
-                        null, // return_date is null for active loans
-                        rs.getBoolean("renewed"),
-                        rs.getDouble("fine_amount"),
-                        rs.getBoolean("fine_paid")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting active borrower entries by member ID: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return borrowers;
-    }
+    List<Borrower> getActiveLoansByMemberId(int memberId);
 
     /**
      * Updates the return date and fine amount/status of a loan (borrower entry).
      * @param loanId The ID of the loan to update.
      * @param returnDate The date the book was returned.
-     * @param fineAmount The fine calculated for this loan.
+     * @param finePaise The fine calculated for this loan, in paise.
      * @param finePaid The initial fine paid status (usually false when first set).
      * @return true if updated successfully, false otherwise.
      */
-    public boolean updateLoanReturnDate(int loanId, LocalDate returnDate, double fineAmount, boolean finePaid) { // Changed signature
-        String sql = "UPDATE loans SET return_date = ?, fine_amount = ?, fine_paid = ? WHERE loan_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(returnDate));
-            pstmt.setDouble(2, fineAmount); // New: Set fine amount
-            pstmt.setBoolean(3, finePaid);  // New: Set fine paid status
-            pstmt.setInt(4, loanId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating borrower entry return date: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean updateLoanReturnDate(int loanId, LocalDate returnDate, long finePaise, boolean finePaid);
 
     /**
      * Updates the due date and sets the renewed status of a loan (borrower entry).
@@ -178,20 +68,33 @@ public class BorrowerDAO {
      * @param newDueDate The new due date after renewal.
      * @return true if updated successfully, false otherwise.
      */
-    public boolean updateLoanRenewedStatus(int loanId, LocalDate newDueDate) {
-        String sql = "UPDATE loans SET due_date = ?, renewed = TRUE WHERE loan_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(newDueDate));
-            pstmt.setInt(2, loanId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating borrower entry renewed status: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean updateLoanRenewedStatus(int loanId, LocalDate newDueDate);
+
+    /**
+     * Returns a loan atomically: marks the loan returned with its fine, puts the copy back into
+     * the book's available count, marks the physical copy AVAILABLE where copies are tracked,
+     * and adds the fine to the member's total.
+     * Nothing is changed if the loan was already returned.
+     * @param borrower The loan being returned, as read; its version is bumped on success.
+     * @param returnDate The date the book was returned.
+     * @param finePaise The fine calculated for this loan, in paise.
+     * @return The result (member's new total fine due and, where copies are tracked, the barcode
+     *         of the copy put back), or null if the return was not written.
+     * @throws OptimisticLockException If the loan changed since it was read.
+     * @throws DataAccessException If the database failed; nothing was written.
+     */
+    CirculationResult returnLoan(Borrower borrower, LocalDate returnDate, long finePaise);
+
+    /**
+     * Renews a loan. The update only applies while the loan is still at the version it was
+     * read at, still out and not yet renewed, so a concurrent return or renewal is not overwritten.
+     * @param borrower The loan to renew, as read; its version is bumped on success.
+     * @param newDueDate The new due date after renewal.
+     * @return true if renewed, false if the update failed.
+     * @throws OptimisticLockException If the loan changed since it was read.
+     * @throws DataAccessException If the database failed; nothing was written.
+     */
+    boolean renewLoan(Borrower borrower, LocalDate newDueDate);
 
     /**
      * Updates the fine_paid status for a specific borrower entry.
@@ -199,52 +102,43 @@ public class BorrowerDAO {
      * @param paidStatus The new payment status (true for paid, false for unpaid).
      * @return true if updated successfully, false otherwise.
      */
-    public boolean updateFinePaidStatus(int loanId, boolean paidStatus) { // New method
-        String sql = "UPDATE loans SET fine_paid = ? WHERE loan_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setBoolean(1, paidStatus);
-            pstmt.setInt(2, loanId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating fine paid status for borrower entry: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean updateFinePaidStatus(int loanId, boolean paidStatus);
 
     /**
      * Retrieves all active loans (borrower entries) that are overdue.
      * @param currentDate The current date to check overdue against.
      * @return A list of overdue Borrower objects.
      */
-    public List<Borrower> getOverdueLoans(LocalDate currentDate) {
-        List<Borrower> overdueLoans = new ArrayList<>();
-        // Note: fine_amount and fine_paid are included in the SELECT statement
-        String sql = "SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, renewed, fine_amount, fine_paid FROM loans WHERE return_date IS NULL AND due_date < ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDate(1, java.sql.Date.valueOf(currentDate));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    overdueLoans.add(new Borrower(
-                        rs.getInt("loan_id"),
-                        rs.getInt("book_id"),
-                        rs.getInt("member_id"),
-                        rs.getDate("loan_date").toLocalDate(),
-                        rs.getDate("due_date").toLocalDate(),
-                        null, // return_date is null for active overdue loans
-                        rs.getBoolean("renewed"),
-                        rs.getDouble("fine_amount"),
-                        rs.getBoolean("fine_paid")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting overdue borrower entries: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return overdueLoans;
-    }
+    List<Borrower> getOverdueLoans(LocalDate currentDate);
+
+    /**
+     * Retrieves all loans (borrower entries) made on or after a date, oldest first.
+     * @param fromDate The earliest loan date to include.
+     * @return A list of Borrower objects ordered by loan date.
+     */
+    List<Borrower> getLoansSince(LocalDate fromDate);
+
+    /**
+     * Passes every loan (borrower entry), including archived ones, to a consumer one at a time.
+     * @param consumer Receives each Borrower object; it should not call back into the DAO.
+     */
+    void streamAllLoans(Consumer<Borrower> consumer);
+
+    /**
+     * Writes a DaoSession's unit of work atomically: inserts the new loans (setting their IDs),
+     * marks the copies they take BORROWED on them, updates the modified loans, applies the available-copy changes and writes the members'
+     * total fine due. Either all changes are written or none. Modified loans and members
+     * are only written at the version they were read at, and get their new version on success;
+     * copy changes must keep each book's available copies between 0 and its total.
+     * @param newLoans The loans to insert.
+     * @param issuedCopies New loan to the barcode of the copy it takes, for loans of tracked copies.
+     * @param dirtyLoans The modified loans.
+     * @param bookCopyChanges Book ID to change in available copies.
+     * @param dirtyMembers The members whose total fine due changed.
+     * @return true if all changes were written, false otherwise.
+     * @throws OptimisticLockException If a loan, member or book changed since it was read.
+     * @throws DataAccessException If the database failed or an issued copy is no longer available; nothing was written.
+     */
+    boolean writeUnitOfWork(List<Borrower> newLoans, Map<Borrower, String> issuedCopies, Collection<Borrower> dirtyLoans,
+                            Map<Integer, Integer> bookCopyChanges, Collection<Member> dirtyMembers);
 }
@@ -0,0 +1,210 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Member;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only, memory-mapped snapshot of the books and members tables.
+ * The file holds fixed-width records sorted by ID followed by a string table in which every
+ * distinct string is stored once, so opening a snapshot only maps the file and rows are
+ * decoded when they are read. The snapshot remembers when it was taken and the highest
+ * IDs it contains, so callers can fetch just the rows that changed since.
+ *
+ * Layout: a 64-byte header, book records, member records, then the string table.
+ */
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x4C494243; // "LIBC"
+    private static final int VERSION = 2; // 2: total fine due in paise
+    private static final int HEADER_BYTES = 64;
+    // id, title, author, isbn, publication year, total copies, available copies
+    private static final int BOOK_BYTES = 7 * 4;
+    // id, first name, last name, email, phone (-1 if null), join date (epoch day), total fine due (paise)
+    private static final int MEMBER_BYTES = 6 * 4 + 8;
+    private static final int NO_STRING = -1;
+
+    private final MappedByteBuffer buffer;
+    private final long takenAtMillis;
+    private final int maxBookId;
+    private final int maxMemberId;
+    private final int bookCount;
+    private final int memberCount;
+    private final int booksOffset;
+    private final int membersOffset;
+    private final int stringsOffset;
+
+    private CatalogSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a catalog snapshot");
+        }
+        takenAtMillis = buffer.getLong(8);
+        maxBookId = buffer.getInt(16);
+        maxMemberId = buffer.getInt(20);
+        bookCount = buffer.getInt(24);
+        memberCount = buffer.getInt(28);
+        booksOffset = HEADER_BYTES;
+        membersOffset = booksOffset + bookCount * BOOK_BYTES;
+        stringsOffset = membersOffset + memberCount * MEMBER_BYTES;
+        if (buffer.getInt(32) != stringsOffset || stringsOffset > buffer.capacity()) {
+            throw new IOException("truncated catalog snapshot");
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory.
+     * @param file The snapshot file.
+     * @return The snapshot, or null if the file does not exist.
+     * @throws IOException If the file cannot be mapped or is not a valid snapshot.
+     */
+    public static CatalogSnapshot open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a snapshot. The file is written next to the target and then moved over it,
+     * so readers never see a half-written snapshot.
+     * @param file The snapshot file.
+     * @param books The books, sorted by ID.
+     * @param members The members, sorted by ID.
+     * @param takenAtMillis The database time the rows were read at.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static void write(Path file, List<Book> books, List<Member> members, long takenAtMillis) throws IOException {
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream strings = new DataOutputStream(stringBytes);
+        Map<String, Integer> stringOffsets = new HashMap<>();
+
+        ByteBuffer bookRecords = ByteBuffer.allocate(books.size() * BOOK_BYTES);
+        int maxBookId = 0;
+        for (Book book : books) {
+            bookRecords.putInt(book.getBookId())
+                       .putInt(intern(book.getTitle(), strings, stringOffsets))
+                       .putInt(intern(book.getAuthor(), strings, stringOffsets))
+                       .putInt(intern(book.getIsbn(), strings, stringOffsets))
+                       .putInt(book.getPublicationYear())
+                       .putInt(book.getTotalCopies())
+                       .putInt(book.getAvailableCopies());
+            maxBookId = Math.max(maxBookId, book.getBookId());
+        }
+        ByteBuffer memberRecords = ByteBuffer.allocate(members.size() * MEMBER_BYTES);
+        int maxMemberId = 0;
+        for (Member member : members) {
+            memberRecords.putInt(member.getMemberId())
+                         .putInt(intern(member.getFirstName(), strings, stringOffsets))
+                         .putInt(intern(member.getLastName(), strings, stringOffsets))
+                         .putInt(intern(member.getEmail(), strings, stringOffsets))
+                         .putInt(intern(member.getPhoneNumber(), strings, stringOffsets))
+                         .putInt((int) member.getJoinDate().toEpochDay())
+                         .putLong(member.getTotalFineDuePaise());
+            maxMemberId = Math.max(maxMemberId, member.getMemberId());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(takenAtMillis)
+              .putInt(maxBookId).putInt(maxMemberId).putInt(books.size()).putInt(members.size())
+              .putInt(HEADER_BYTES + bookRecords.capacity() + memberRecords.capacity());
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            out.write(header.array());
+            out.write(bookRecords.array());
+            out.write(memberRecords.array());
+            stringBytes.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(String value, DataOutputStream strings, Map<String, Integer> offsets) throws IOException {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            offset = strings.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            strings.writeInt(bytes.length);
+            strings.write(bytes);
+            offsets.put(value, offset);
+        }
+        return offset;
+    }
+
+    public long getTakenAtMillis() { return takenAtMillis; }
+    public int getMaxBookId() { return maxBookId; }
+    public int getMaxMemberId() { return maxMemberId; }
+    public int getBookCount() { return bookCount; }
+    public int getMemberCount() { return memberCount; }
+
+    /**
+     * @param index The position of the book, 0 to getBookCount() - 1, in ID order.
+     * @return The decoded book.
+     */
+    public Book getBook(int index) {
+        int at = booksOffset + index * BOOK_BYTES;
+        return new Book(buffer.getInt(at), string(buffer.getInt(at + 4)), string(buffer.getInt(at + 8)),
+                        string(buffer.getInt(at + 12)), buffer.getInt(at + 16), buffer.getInt(at + 20),
+                        buffer.getInt(at + 24));
+    }
+
+    /**
+     * @param index The position of the member, 0 to getMemberCount() - 1, in ID order.
+     * @return The decoded member.
+     */
+    public Member getMember(int index) {
+        int at = membersOffset + index * MEMBER_BYTES;
+        return new Member(buffer.getInt(at), string(buffer.getInt(at + 4)), string(buffer.getInt(at + 8)),
+                          string(buffer.getInt(at + 12)), string(buffer.getInt(at + 16)),
+                          LocalDate.ofEpochDay(buffer.getInt(at + 20)), buffer.getLong(at + 24));
+    }
+
+    public List<Book> getBooks() {
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(getBook(i));
+        }
+        return books;
+    }
+
+    public List<Member> getMembers() {
+        List<Member> members = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(getMember(i));
+        }
+        return members;
+    }
+
+    private String string(int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        int at = stringsOffset + offset;
+        byte[] bytes = new byte[buffer.getInt(at)];
+        buffer.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,213 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Member;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Reads the whole catalog (books and members) from a CatalogSnapshot plus the rows that changed
+ * since it was taken, instead of scanning the tables. Rows with an ID above the snapshot's
+ * high-water mark or an updated_at at or after the snapshot time are re-read; deleted rows are
+ * found from an ID-only scan. writeSnapshot folds those deltas into a new snapshot file.
+ */
+public class CatalogSnapshotDAO {
+
+    // Rows committed by transactions that were open when a snapshot was taken can carry an
+    // updated_at slightly before it, so deltas are read from a little earlier
+    private static final long DELTA_MARGIN_MILLIS = 60 * 1000L;
+
+    private final Path file;
+
+    /**
+     * @param file The snapshot file; it is created by the first writeSnapshot call.
+     */
+    public CatalogSnapshotDAO(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return True if a readable snapshot file exists.
+     */
+    public boolean hasSnapshot() {
+        return openSnapshot() != null;
+    }
+
+    /**
+     * Retrieves all books, from the snapshot plus the rows changed since.
+     * Falls back to a full scan if there is no snapshot.
+     * @return A list of all Book objects sorted by ID, or null if the database cannot be read.
+     */
+    public synchronized List<Book> getAllBooks() {
+        return DaoCallEvent.record(this, "getAllBooks", 0, () -> {
+            CatalogSnapshot snapshot = openSnapshot();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                return readBooks(conn, snapshot);
+            } catch (SQLException e) {
+                System.err.println("Error reading books from catalog snapshot: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves all members, from the snapshot plus the rows changed since.
+     * Falls back to a full scan if there is no snapshot.
+     * @return A list of all Member objects sorted by ID, or null if the database cannot be read.
+     */
+    public synchronized List<Member> getAllMembers() {
+        return DaoCallEvent.record(this, "getAllMembers", 0, () -> {
+            CatalogSnapshot snapshot = openSnapshot();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                return readMembers(conn, snapshot);
+            } catch (SQLException e) {
+                System.err.println("Error reading members from catalog snapshot: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Writes a new snapshot: the current snapshot with the deltas folded in, or a full scan of
+     * both tables if there is none yet. Rows are read in one transaction, at the database's clock.
+     * @return True if the snapshot was written.
+     */
+    public synchronized boolean writeSnapshot() {
+        return DaoCallEvent.record(this, "writeSnapshot", 0, () -> {
+            CatalogSnapshot snapshot = openSnapshot();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                long takenAtMillis;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP(3)");
+                     ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    takenAtMillis = rs.getTimestamp(1).getTime();
+                }
+                List<Book> books = readBooks(conn, snapshot);
+                List<Member> members = readMembers(conn, snapshot);
+                conn.commit();
+                CatalogSnapshot.write(file, books, members, takenAtMillis);
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error writing catalog snapshot: " + e.getMessage());
+                e.printStackTrace();
+            } catch (IOException e) {
+                System.err.println("Error writing catalog snapshot " + file + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            return false;
+        });
+    }
+
+    private CatalogSnapshot openSnapshot() {
+        try {
+            return CatalogSnapshot.open(file);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable catalog snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Book> readBooks(Connection conn, CatalogSnapshot snapshot) throws SQLException {
+        Map<Integer, Book> changed = new HashMap<>();
+        String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books" + (snapshot != null ? " WHERE book_id > ? OR updated_at >= ?" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (snapshot != null) {
+                pstmt.setInt(1, snapshot.getMaxBookId());
+                pstmt.setTimestamp(2, new Timestamp(snapshot.getTakenAtMillis() - DELTA_MARGIN_MILLIS));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Book book = RowMappers.BOOK.mapRow(rs);
+                    changed.put(book.getBookId(), book);
+                }
+            }
+        }
+        if (snapshot == null) {
+            return merge(Collections.emptyList(), changed, null, Book::getBookId);
+        }
+        BitSet present = readIds(conn, "SELECT book_id FROM books WHERE book_id <= ?", snapshot.getMaxBookId());
+        return merge(snapshot.getBooks(), changed, present, Book::getBookId);
+    }
+
+    private List<Member> readMembers(Connection conn, CatalogSnapshot snapshot) throws SQLException {
+        Map<Integer, Member> changed = new HashMap<>();
+        String sql = "SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members" + (snapshot != null ? " WHERE member_id > ? OR updated_at >= ?" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (snapshot != null) {
+                pstmt.setInt(1, snapshot.getMaxMemberId());
+                pstmt.setTimestamp(2, new Timestamp(snapshot.getTakenAtMillis() - DELTA_MARGIN_MILLIS));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Member member = RowMappers.MEMBER.mapRow(rs);
+                    changed.put(member.getMemberId(), member);
+                }
+            }
+        }
+        if (snapshot == null) {
+            return merge(Collections.emptyList(), changed, null, Member::getMemberId);
+        }
+        BitSet present = readIds(conn, "SELECT member_id FROM members WHERE member_id <= ?", snapshot.getMaxMemberId());
+        return merge(snapshot.getMembers(), changed, present, Member::getMemberId);
+    }
+
+    /**
+     * Reads the IDs that still exist up to a snapshot's high-water mark, through the primary key only.
+     */
+    private BitSet readIds(Connection conn, String sql, int maxId) throws SQLException {
+        BitSet ids = new BitSet(maxId + 1);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, maxId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.set(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces changed snapshot rows, drops deleted ones and appends new ones, keeping ID order.
+     * @param present The IDs that still exist, or null if nothing was deleted.
+     */
+    private static <T> List<T> merge(List<T> snapshotRows, Map<Integer, T> changed, BitSet present, ToIntFunction<T> id) {
+        List<T> rows = new ArrayList<>(snapshotRows.size() + changed.size());
+        for (T row : snapshotRows) {
+            int rowId = id.applyAsInt(row);
+            T update = changed.remove(rowId);
+            if (update != null) {
+                rows.add(update);
+            } else if (present == null || present.get(rowId)) {
+                rows.add(row);
+            }
+        }
+        List<T> added = new ArrayList<>(changed.values());
+        added.sort(Comparator.comparingInt(id));
+        boolean inOrder = rows.isEmpty() || added.isEmpty()
+                || id.applyAsInt(added.get(0)) > id.applyAsInt(rows.get(rows.size() - 1));
+        rows.addAll(added);
+        if (!inOrder) {
+            rows.sort(Comparator.comparingInt(id)); // A row was inserted with an explicit ID below the high-water mark
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,210 @@
+package com.library.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Reads the change_log table that keeps the in-process caches of several application nodes
+ * coherent. Rows are appended by triggers on books, members and book_copies, so every write
+ * is logged in its own transaction whichever path made it: the DAOs, a session flush, the
+ * stored procedures or a kiosk sync. Nodes tail the log by change_id through the primary key.
+ * Note that deletes cascading from a book to its copies do not fire triggers; the book's
+ * delete entry stands for them.
+ */
+public class ChangeLogDAO {
+
+    private static final String[] TRIGGER_NAMES = {
+        "lib_books_ai", "lib_books_au", "lib_books_ad",
+        "lib_members_ai", "lib_members_au", "lib_members_ad",
+        "lib_book_copies_ai", "lib_book_copies_au"
+    };
+
+    private static final String[] TRIGGER_BODIES = {
+        "CREATE TRIGGER lib_books_ai AFTER INSERT ON books FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('BOOK', NEW.book_id, 'I', NEW.available_copies)",
+
+        // Only a change of the copy counts can be patched; anything else makes caches re-read the row
+        "CREATE TRIGGER lib_books_au AFTER UPDATE ON books FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('BOOK', NEW.book_id, 'U',\n"
+      + "    IF(NEW.title <=> OLD.title AND NEW.author <=> OLD.author AND NEW.isbn <=> OLD.isbn\n"
+      + "       AND NEW.publication_year <=> OLD.publication_year AND NEW.total_copies <=> OLD.total_copies,\n"
+      + "       NEW.available_copies, NULL))",
+
+        "CREATE TRIGGER lib_books_ad AFTER DELETE ON books FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('BOOK', OLD.book_id, 'D', NULL)",
+
+        "CREATE TRIGGER lib_members_ai AFTER INSERT ON members FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('MEMBER', NEW.member_id, 'I', NEW.total_fine_due)",
+
+        "CREATE TRIGGER lib_members_au AFTER UPDATE ON members FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('MEMBER', NEW.member_id, 'U',\n"
+      + "    IF(NEW.first_name <=> OLD.first_name AND NEW.last_name <=> OLD.last_name AND NEW.email <=> OLD.email\n"
+      + "       AND NEW.phone_number <=> OLD.phone_number, NEW.total_fine_due, NULL))",
+
+        "CREATE TRIGGER lib_members_ad AFTER DELETE ON members FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, op, new_value) VALUES ('MEMBER', OLD.member_id, 'D', NULL)",
+
+        "CREATE TRIGGER lib_book_copies_ai AFTER INSERT ON book_copies FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, entity_key, op, new_value)\n"
+      + "    VALUES ('COPY', NEW.book_id, NEW.barcode, 'I', NEW.status = 'AVAILABLE')",
+
+        "CREATE TRIGGER lib_book_copies_au AFTER UPDATE ON book_copies FOR EACH ROW\n"
+      + "  INSERT INTO change_log (entity, entity_id, entity_key, op, new_value)\n"
+      + "    VALUES ('COPY', NEW.book_id, NEW.barcode, 'U', NEW.status = 'AVAILABLE')"
+    };
+
+    private static final String COLUMNS = "change_id, entity, entity_id, entity_key, op, new_value";
+
+    /**
+     * Creates the triggers that fill change_log unless they exist. Existing triggers are never
+     * dropped and recreated, since other nodes keep writing meanwhile and their changes would
+     * go unlogged; drop them by hand to install a new version. The database user needs the
+     * TRIGGER privilege.
+     * @return true if all triggers are in place, false otherwise.
+     */
+    public boolean installTriggers() {
+        return DaoCallEvent.record(this, "installTriggers", 0, () -> {
+            String existingSql = "SELECT trigger_name FROM information_schema.triggers WHERE trigger_schema = DATABASE()";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                Set<String> existing = new HashSet<>();
+                try (ResultSet rs = stmt.executeQuery(existingSql)) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                    }
+                }
+                for (int i = 0; i < TRIGGER_NAMES.length; i++) {
+                    if (!existing.contains(TRIGGER_NAMES[i])) {
+                        stmt.execute(TRIGGER_BODIES[i]);
+                    }
+                }
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error installing change log triggers: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return The highest change_id logged so far (0 if none), or -1 if it cannot be read.
+     */
+    public long getLatestChangeId() {
+        return DaoCallEvent.record(this, "getLatestChangeId", 0, () -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(change_id), 0) FROM change_log");
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            } catch (SQLException e) {
+                System.err.println("Error reading latest change: " + e.getMessage());
+                e.printStackTrace();
+                return -1L;
+            }
+        });
+    }
+
+    /**
+     * @return How many seconds the oldest transaction still open on the server has been
+     *         running, -1 if none is open, or null if information_schema.innodb_trx cannot be
+     *         read (it needs the PROCESS privilege).
+     */
+    public Long getOldestOpenTransactionSeconds() {
+        return DaoCallEvent.record(this, "getOldestOpenTransactionSeconds", 0, () -> {
+            String sql = "SELECT TIMESTAMPDIFF(SECOND, MIN(trx_started), NOW()) FROM information_schema.innodb_trx";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                long seconds = rs.getLong(1);
+                return rs.wasNull() ? -1L : seconds;
+            } catch (SQLException e) {
+                System.err.println("Error reading open transactions: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Reads the changes after a given change_id, oldest first, plus any of the given earlier
+     * IDs that have appeared since they were last looked for.
+     * @param afterChangeId The last change_id already seen.
+     * @param missingIds Earlier IDs that were skipped because their transactions had not committed yet.
+     * @param limit The maximum number of new changes to read.
+     * @return The changes ordered by change_id, or null if the log cannot be read.
+     */
+    public List<ChangeLogEntry> getChanges(long afterChangeId, Collection<Long> missingIds, int limit) {
+        return DaoCallEvent.record(this, "getChanges", 0, () -> {
+            List<ChangeLogEntry> changes = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM change_log WHERE change_id > ?");
+            if (!missingIds.isEmpty()) {
+                sql.append(" OR change_id IN (");
+                for (int i = 0; i < missingIds.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(')');
+            }
+            sql.append(" ORDER BY change_id LIMIT ?");
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                int index = 1;
+                pstmt.setLong(index++, afterChangeId);
+                for (long id : missingIds) {
+                    pstmt.setLong(index++, id);
+                }
+                pstmt.setInt(index, limit + missingIds.size());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        double value = rs.getDouble("new_value");
+                        Double newValue = rs.wasNull() ? null : value;
+                        changes.add(new ChangeLogEntry(
+                            rs.getLong("change_id"),
+                            rs.getString("entity"),
+                            rs.getInt("entity_id"),
+                            rs.getString("entity_key"),
+                            rs.getString("op").charAt(0),
+                            newValue
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reading change log: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * Deletes log rows older than the retention period, a limited number at a time.
+     * Every node may call this; the deletes do not conflict with readers.
+     * @param retentionHours How long rows are kept.
+     * @return The number of rows deleted, or -1 on error.
+     */
+    public int purgeOlderThan(int retentionHours) {
+        return DaoCallEvent.record(this, "purgeOlderThan", 0, () -> {
+            String sql = "DELETE FROM change_log WHERE changed_at < NOW(3) - INTERVAL ? HOUR ORDER BY change_id LIMIT 10000";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, retentionHours);
+                return pstmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Error purging change log: " + e.getMessage());
+                e.printStackTrace();
+                return -1;
+            }
+        });
+    }
+}
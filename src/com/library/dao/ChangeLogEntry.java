@@ -0,0 +1,41 @@
+package com.library.dao;
+
+/**
+ * One row of the change_log table: a write to a book, member or book copy made by any node.
+ * newValue carries the value a cache can patch in place (available copies of a book, a
+ * member's total fine due, 1 or 0 for a copy on or off the shelf); it is null when the row
+ * changed in a way that can only be handled by re-reading it.
+ */
+public class ChangeLogEntry {
+    public static final String BOOK = "BOOK";
+    public static final String MEMBER = "MEMBER";
+    public static final String COPY = "COPY";
+
+    public static final char INSERT = 'I';
+    public static final char UPDATE = 'U';
+    public static final char DELETE = 'D';
+
+    private final long changeId;
+    private final String entity;
+    private final int entityId;    // Book or member ID; for copies, the copy's book
+    private final String entityKey; // Copy barcode, null otherwise
+    private final char operation;
+    private final Double newValue;
+
+    public ChangeLogEntry(long changeId, String entity, int entityId, String entityKey, char operation, Double newValue) {
+        this.changeId = changeId;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.entityKey = entityKey;
+        this.operation = operation;
+        this.newValue = newValue;
+    }
+
+    // Getters
+    public long getChangeId() { return changeId; }
+    public String getEntity() { return entity; }
+    public int getEntityId() { return entityId; }
+    public String getEntityKey() { return entityKey; }
+    public char getOperation() { return operation; }
+    public Double getNewValue() { return newValue; }
+}
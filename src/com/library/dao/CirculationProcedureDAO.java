@@ -0,0 +1,327 @@
+package com.library.dao;
+
+import com.library.model.Money;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * Runs borrow, return, renew and pay-fines as server-side stored procedures, so each
+ * operation costs one round trip. The procedures check the same rules as LibraryService
+ * inside one transaction and report the outcome as a single result row
+ * (status code plus the values needed for the service's messages) rather than OUT
+ * parameters, which the driver would fetch with a second query.
+ * Calls lease connections from a small long-lived pool with callable statement caching enabled,
+ * so concurrent kiosks run their procedures in parallel and each connection keeps its cache.
+ */
+public class CirculationProcedureDAO {
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_MEMBER_NOT_FOUND = 1;
+    public static final int STATUS_BOOK_NOT_FOUND = 2;
+    public static final int STATUS_NOT_AVAILABLE = 3;
+    public static final int STATUS_LIMIT_REACHED = 4;
+    public static final int STATUS_ALREADY_BORROWED = 5;
+    public static final int STATUS_LOAN_NOT_FOUND = 6;
+    public static final int STATUS_ALREADY_RETURNED = 7;
+    public static final int STATUS_ALREADY_RENEWED = 8;
+    public static final int STATUS_NO_FINES = 9;
+    public static final int STATUS_FINES_RESET = 10; // total was due but no loan carried an unpaid fine
+
+    private static final String[] PROCEDURE_NAMES = {
+        "lib_borrow_book", "lib_return_book", "lib_renew_book", "lib_pay_fines"
+    };
+
+    private static final String[] PROCEDURE_BODIES = {
+        "CREATE PROCEDURE lib_borrow_book(IN p_member_id INT, IN p_book_id INT, IN p_barcode VARCHAR(32),"
+      + " IN p_loan_date DATE, IN p_due_date DATE, IN p_max_loans INT)\n"
+      + "BEGIN\n"
+      + "  DECLARE v_status INT DEFAULT 0;\n"
+      + "  DECLARE v_loan_id INT DEFAULT NULL;\n"
+      + "  DECLARE v_member_name VARCHAR(100) DEFAULT NULL;\n"
+      + "  DECLARE v_book_title VARCHAR(255) DEFAULT NULL;\n"
+      + "  DECLARE v_available INT;\n"
+      + "  DECLARE v_active INT;\n"
+      + "  DECLARE v_existing INT;\n"
+      + "  DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END;\n"
+      + "  START TRANSACTION;\n"
+      + "  body: BEGIN\n"
+      + "    SELECT first_name INTO v_member_name FROM members WHERE member_id = p_member_id;\n"
+      + "    IF v_member_name IS NULL THEN SET v_status = 1; LEAVE body; END IF;\n"
+      + "    SELECT title, available_copies INTO v_book_title, v_available FROM books WHERE book_id = p_book_id FOR UPDATE;\n"
+      + "    IF v_book_title IS NULL THEN SET v_status = 2; LEAVE body; END IF;\n"
+      + "    IF v_available <= 0 THEN SET v_status = 3; LEAVE body; END IF;\n"
+      + "    SELECT COUNT(*), COALESCE(SUM(book_id = p_book_id), 0) INTO v_active, v_existing\n"
+      + "      FROM loans WHERE member_id = p_member_id AND return_date IS NULL FOR UPDATE;\n"
+      + "    IF v_active >= p_max_loans THEN SET v_status = 4; LEAVE body; END IF;\n"
+      + "    IF v_existing > 0 THEN SET v_status = 5; LEAVE body; END IF;\n"
+      + "    INSERT INTO loans (book_id, member_id, loan_date, due_date, renewed, fine_amount, fine_paid)\n"
+      + "      VALUES (p_book_id, p_member_id, p_loan_date, p_due_date, FALSE, 0.00, FALSE);\n"
+      + "    SET v_loan_id = LAST_INSERT_ID();\n"
+      + "    IF p_barcode IS NOT NULL THEN\n"
+      + "      UPDATE book_copies SET status = 'BORROWED', loan_id = v_loan_id WHERE barcode = p_barcode AND status = 'AVAILABLE';\n"
+      + "      IF ROW_COUNT() = 0 THEN SET v_status = 3; LEAVE body; END IF;\n"
+      + "    END IF;\n"
+      + "    UPDATE books SET available_copies = available_copies - 1, version = version + 1 WHERE book_id = p_book_id;\n"
+      + "  END body;\n"
+      + "  IF v_status = 0 THEN COMMIT; ELSE ROLLBACK; END IF;\n"
+      + "  SELECT v_status AS status, v_loan_id AS loan_id, v_member_name AS member_name, v_book_title AS book_title;\n"
+      + "END",
+
+        "CREATE PROCEDURE lib_return_book(IN p_loan_id INT, IN p_return_date DATE, IN p_fine_per_day DECIMAL(10,2))\n"
+      + "BEGIN\n"
+      + "  DECLARE v_status INT DEFAULT 0;\n"
+      + "  DECLARE v_fine DECIMAL(10,2) DEFAULT 0.00;\n"
+      + "  DECLARE v_total_fine_due DECIMAL(10,2) DEFAULT NULL;\n"
+      + "  DECLARE v_book_id INT DEFAULT NULL;\n"
+      + "  DECLARE v_member_id INT;\n"
+      + "  DECLARE v_due_date DATE;\n"
+      + "  DECLARE v_return_date DATE;\n"
+      + "  DECLARE v_barcode VARCHAR(32) DEFAULT NULL;\n"
+      + "  DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END;\n"
+      + "  START TRANSACTION;\n"
+      + "  body: BEGIN\n"
+      + "    SELECT book_id, member_id, due_date, return_date, fine_amount\n"
+      + "      INTO v_book_id, v_member_id, v_due_date, v_return_date, v_fine\n"
+      + "      FROM loans WHERE loan_id = p_loan_id FOR UPDATE;\n"
+      + "    IF v_book_id IS NULL THEN SET v_status = 6; LEAVE body; END IF;\n"
+      + "    IF v_return_date IS NOT NULL THEN SET v_status = 7; LEAVE body; END IF;\n"
+      + "    SET v_fine = GREATEST(DATEDIFF(p_return_date, v_due_date), 0) * p_fine_per_day;\n"
+      + "    UPDATE loans SET return_date = p_return_date, fine_amount = v_fine, fine_paid = FALSE, version = version + 1 WHERE loan_id = p_loan_id;\n"
+      + "    SELECT barcode INTO v_barcode FROM book_copies WHERE loan_id = p_loan_id FOR UPDATE;\n"
+      + "    IF v_barcode IS NULL THEN\n"
+      + "      SELECT barcode INTO v_barcode FROM book_copies\n"
+      + "        WHERE book_id = v_book_id AND status = 'BORROWED' AND loan_id IS NULL LIMIT 1 FOR UPDATE;\n"
+      + "    END IF;\n"
+      + "    UPDATE book_copies SET status = 'AVAILABLE', loan_id = NULL WHERE barcode = v_barcode;\n"
+      + "    UPDATE books SET available_copies = available_copies + 1, version = version + 1 WHERE book_id = v_book_id;\n"
+      + "    IF v_fine > 0 THEN\n"
+      + "      UPDATE members SET total_fine_due = total_fine_due + v_fine, version = version + 1 WHERE member_id = v_member_id;\n"
+      + "    END IF;\n"
+      + "    SELECT total_fine_due INTO v_total_fine_due FROM members WHERE member_id = v_member_id;\n"
+      + "  END body;\n"
+      + "  IF v_status = 0 THEN COMMIT; ELSE ROLLBACK; END IF;\n"
+      + "  SELECT v_status AS status, v_book_id AS book_id, v_fine AS fine_amount, v_total_fine_due AS total_fine_due,\n"
+      + "    v_barcode AS barcode;\n"
+      + "END",
+
+        "CREATE PROCEDURE lib_renew_book(IN p_loan_id INT, IN p_renewal_days INT)\n"
+      + "BEGIN\n"
+      + "  DECLARE v_status INT DEFAULT 0;\n"
+      + "  DECLARE v_due_date DATE DEFAULT NULL;\n"
+      + "  DECLARE v_return_date DATE;\n"
+      + "  DECLARE v_renewed BOOLEAN;\n"
+      + "  DECLARE v_found INT DEFAULT 0;\n"
+      + "  DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END;\n"
+      + "  START TRANSACTION;\n"
+      + "  body: BEGIN\n"
+      + "    SELECT 1, due_date, return_date, renewed INTO v_found, v_due_date, v_return_date, v_renewed\n"
+      + "      FROM loans WHERE loan_id = p_loan_id FOR UPDATE;\n"
+      + "    IF v_found = 0 THEN SET v_status = 6; LEAVE body; END IF;\n"
+      + "    IF v_return_date IS NOT NULL THEN SET v_status = 7; LEAVE body; END IF;\n"
+      + "    IF v_renewed THEN SET v_status = 8; LEAVE body; END IF;\n"
+      + "    SET v_due_date = DATE_ADD(v_due_date, INTERVAL p_renewal_days DAY);\n"
+      + "    UPDATE loans SET due_date = v_due_date, renewed = TRUE, version = version + 1 WHERE loan_id = p_loan_id;\n"
+      + "  END body;\n"
+      + "  IF v_status = 0 THEN COMMIT; ELSE ROLLBACK; END IF;\n"
+      + "  SELECT v_status AS status, v_due_date AS due_date;\n"
+      + "END",
+
+        "CREATE PROCEDURE lib_pay_fines(IN p_member_id INT)\n"
+      + "BEGIN\n"
+      + "  DECLARE v_status INT DEFAULT 0;\n"
+      + "  DECLARE v_member_name VARCHAR(100) DEFAULT NULL;\n"
+      + "  DECLARE v_total_fine_due DECIMAL(10,2) DEFAULT 0.00;\n"
+      + "  DECLARE v_paid_loans INT;\n"
+      + "  DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END;\n"
+      + "  START TRANSACTION;\n"
+      + "  body: BEGIN\n"
+      + "    SELECT first_name, total_fine_due INTO v_member_name, v_total_fine_due\n"
+      + "      FROM members WHERE member_id = p_member_id FOR UPDATE;\n"
+      + "    IF v_member_name IS NULL THEN SET v_status = 1; LEAVE body; END IF;\n"
+      + "    IF v_total_fine_due <= 0 THEN SET v_status = 9; LEAVE body; END IF;\n"
+      + "    UPDATE loans SET fine_paid = TRUE, version = version + 1 WHERE member_id = p_member_id AND fine_amount > 0 AND fine_paid = FALSE;\n"
+      + "    SET v_paid_loans = ROW_COUNT();\n"
+      + "    UPDATE members SET total_fine_due = 0.00, version = version + 1 WHERE member_id = p_member_id;\n"
+      + "    IF v_paid_loans = 0 THEN SET v_status = 10; END IF;\n"
+      + "  END body;\n"
+      + "  IF v_status IN (0, 10) THEN COMMIT; ELSE ROLLBACK; END IF;\n"
+      + "  SELECT v_status AS status, v_member_name AS member_name, v_total_fine_due AS total_fine_due;\n"
+      + "END"
+    };
+
+    private final ConnectionPool pool; // long-lived, so each connection's cached callable statements are reused
+
+    /**
+     * @param connections The most procedure calls running at once.
+     */
+    public CirculationProcedureDAO(int connections) {
+        this.pool = new ConnectionPool(DatabaseConnection.CALLABLE_DB_URL, connections);
+    }
+
+    /**
+     * (Re)creates the circulation stored procedures in the database.
+     * The database user needs the CREATE ROUTINE and ALTER ROUTINE privileges.
+     * @return true if all procedures were installed, false otherwise.
+     */
+    public boolean installProcedures() {
+        return DaoCallEvent.record(this, "installProcedures", 0, () -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                for (int i = 0; i < PROCEDURE_NAMES.length; i++) {
+                    stmt.execute("DROP PROCEDURE IF EXISTS " + PROCEDURE_NAMES[i]);
+                    stmt.execute(PROCEDURE_BODIES[i]);
+                }
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error installing circulation procedures: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Borrows a book through lib_borrow_book.
+     * @param memberId The ID of the member.
+     * @param bookId The ID of the book.
+     * @param barcode The copy to mark BORROWED on the new loan, or null if copies are not tracked.
+     * @param loanDate The loan date.
+     * @param dueDate The due date.
+     * @param maxLoans The maximum number of active loans a member may have.
+     * @return The result (loan ID, member first name and book title filled in), or null if the procedure returned no row.
+     * @throws DataAccessException If the call failed; the procedure rolled its transaction back.
+     */
+    public CirculationResult borrowBook(int memberId, int bookId, String barcode, LocalDate loanDate,
+                                                    LocalDate dueDate, int maxLoans) {
+        return DaoCallEvent.record(this, "borrowBook", memberId, () -> {
+            try (Connection conn = pool.getConnection();
+                 CallableStatement cstmt = conn.prepareCall("{call lib_borrow_book(?, ?, ?, ?, ?, ?)}")) {
+                cstmt.setInt(1, memberId);
+                cstmt.setInt(2, bookId);
+                if (barcode != null) {
+                    cstmt.setString(3, barcode);
+                } else {
+                    cstmt.setNull(3, Types.VARCHAR);
+                }
+                cstmt.setDate(4, Date.valueOf(loanDate));
+                cstmt.setDate(5, Date.valueOf(dueDate));
+                cstmt.setInt(6, maxLoans);
+                try (ResultSet rs = cstmt.executeQuery()) {
+                    if (rs.next()) {
+                        CirculationResult result = new CirculationResult(rs.getInt("status"));
+                        result.setLoanId(rs.getInt("loan_id"));
+                        result.setMemberName(rs.getString("member_name"));
+                        result.setBookTitle(rs.getString("book_title"));
+                        result.setDueDate(dueDate);
+                        return result;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error calling lib_borrow_book", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns a book through lib_return_book.
+     * @param loanId The ID of the loan.
+     * @param returnDate The return date.
+     * @param finePerDayPaise The fine per day overdue, in paise.
+     * @return The result (book ID, fine amount, member's new total fine due and the barcode of the copy put
+     *         back on the shelf filled in; for an already returned loan, the fine recorded at return), or null
+     *         if the procedure returned no row.
+     * @throws DataAccessException If the call failed; the procedure rolled its transaction back.
+     */
+    public CirculationResult returnBook(int loanId, LocalDate returnDate, long finePerDayPaise) {
+        return DaoCallEvent.record(this, "returnBook", loanId, () -> {
+            try (Connection conn = pool.getConnection();
+                 CallableStatement cstmt = conn.prepareCall("{call lib_return_book(?, ?, ?)}")) {
+                cstmt.setInt(1, loanId);
+                cstmt.setDate(2, Date.valueOf(returnDate));
+                cstmt.setBigDecimal(3, Money.toDecimal(finePerDayPaise));
+                try (ResultSet rs = cstmt.executeQuery()) {
+                    if (rs.next()) {
+                        CirculationResult result = new CirculationResult(rs.getInt("status"));
+                        result.setBookId(rs.getInt("book_id"));
+                        result.setFinePaise(Money.fromDecimal(rs.getBigDecimal("fine_amount")));
+                        result.setTotalFineDuePaise(Money.fromDecimal(rs.getBigDecimal("total_fine_due")));
+                        result.setBarcode(rs.getString("barcode"));
+                        return result;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error calling lib_return_book", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Renews a loan through lib_renew_book.
+     * @param loanId The ID of the loan.
+     * @param renewalDays The number of days to extend the due date by.
+     * @return The result (new due date filled in), or null if the procedure returned no row.
+     * @throws DataAccessException If the call failed; the procedure rolled its transaction back.
+     */
+    public CirculationResult renewBook(int loanId, int renewalDays) {
+        return DaoCallEvent.record(this, "renewBook", loanId, () -> {
+            try (Connection conn = pool.getConnection();
+                 CallableStatement cstmt = conn.prepareCall("{call lib_renew_book(?, ?)}")) {
+                cstmt.setInt(1, loanId);
+                cstmt.setInt(2, renewalDays);
+                try (ResultSet rs = cstmt.executeQuery()) {
+                    if (rs.next()) {
+                        CirculationResult result = new CirculationResult(rs.getInt("status"));
+                        Date dueDate = rs.getDate("due_date");
+                        result.setDueDate(dueDate != null ? dueDate.toLocalDate() : null);
+                        return result;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error calling lib_renew_book", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Pays all outstanding fines of a member through lib_pay_fines.
+     * @param memberId The ID of the member.
+     * @return The result (member first name and the total that was due filled in), or null if the procedure returned no row.
+     * @throws DataAccessException If the call failed; the procedure rolled its transaction back.
+     */
+    public CirculationResult payFines(int memberId) {
+        return DaoCallEvent.record(this, "payFines", memberId, () -> {
+            try (Connection conn = pool.getConnection();
+                 CallableStatement cstmt = conn.prepareCall("{call lib_pay_fines(?)}")) {
+                cstmt.setInt(1, memberId);
+                try (ResultSet rs = cstmt.executeQuery()) {
+                    if (rs.next()) {
+                        CirculationResult result = new CirculationResult(rs.getInt("status"));
+                        result.setMemberName(rs.getString("member_name"));
+                        result.setTotalFineDuePaise(Money.fromDecimal(rs.getBigDecimal("total_fine_due")));
+                        return result;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error calling lib_pay_fines", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Closes the pooled connections.
+     */
+    public void close() {
+        pool.close();
+    }
+}
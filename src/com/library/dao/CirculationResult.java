@@ -0,0 +1,46 @@
+package com.library.dao;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of a circulation stored procedure call, or of BorrowerDAO.returnLoan.
+ * status is 0 on success; other values are procedure-specific rejection reasons
+ * (see the STATUS_ constants in CirculationProcedureDAO). Fields a procedure does not
+ * produce are left at their defaults.
+ */
+public class CirculationResult {
+    private final int status;
+    private int loanId;
+    private int bookId;
+    private String memberName;
+    private String bookTitle;
+    private LocalDate dueDate;
+    private long finePaise;
+    private long totalFineDuePaise;
+    private String barcode; // the copy a return put back on the shelf, if copies are tracked
+
+    public CirculationResult(int status) {
+        this.status = status;
+    }
+
+    // Getters
+    public int getStatus() { return status; }
+    public int getLoanId() { return loanId; }
+    public int getBookId() { return bookId; }
+    public String getMemberName() { return memberName; }
+    public String getBookTitle() { return bookTitle; }
+    public LocalDate getDueDate() { return dueDate; }
+    public long getFinePaise() { return finePaise; }
+    public long getTotalFineDuePaise() { return totalFineDuePaise; }
+    public String getBarcode() { return barcode; }
+
+    // Setters
+    public void setLoanId(int loanId) { this.loanId = loanId; }
+    public void setBookId(int bookId) { this.bookId = bookId; }
+    public void setMemberName(String memberName) { this.memberName = memberName; }
+    public void setBookTitle(String bookTitle) { this.bookTitle = bookTitle; }
+    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+    public void setFinePaise(long finePaise) { this.finePaise = finePaise; }
+    public void setTotalFineDuePaise(long totalFineDuePaise) { this.totalFineDuePaise = totalFineDuePaise; }
+    public void setBarcode(String barcode) { this.barcode = barcode; }
+}
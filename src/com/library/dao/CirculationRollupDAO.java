@@ -0,0 +1,442 @@
+package com.library.dao;
+
+import com.library.model.CirculationRollup;
+import com.library.model.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains pre-aggregated circulation counters (borrows, returns, overdue returns and fines
+ * assessed) per day, week and month, broken down by book and by member cohort (the month the
+ * member joined). Counters are bumped as loans are made and returned, so dashboards read a
+ * handful of summary rows instead of scanning the loans table.
+ *
+ * Events are queued and applied by a single writer thread, so a borrow or return never waits
+ * for the summary tables: the writer takes whatever has queued up and upserts it into both
+ * tables in one transaction, one batch per table. Counters therefore trail the loans table
+ * by about one batch. Call close() on shutdown to write what is still queued. A rebuild aggregates the
+ * whole loan history: day rows are computed in parallel, one month of loans per task (tasks
+ * never touch the same row), then week and month rows are summed from the day rows.
+ */
+public class CirculationRollupDAO {
+
+    private static final String COLUMNS = "borrows, returns, overdue_returns, fines_assessed";
+    private static final String[] COUNTER_COLUMNS = { "borrows", "returns", "overdue_returns", "fines_assessed" };
+
+    private static final String BOOK_TABLE = "book_circulation_rollups";
+    private static final String COHORT_TABLE = "cohort_circulation_rollups";
+    // Active and archived loans; conditions on l are pushed down into both tables
+    private static final String ALL_LOANS = "(SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, fine_amount FROM loans"
+            + " UNION ALL SELECT loan_id, book_id, member_id, loan_date, due_date, return_date, fine_amount FROM loan_history) l";
+    private static final String COHORT_KEY = "COALESCE(DATE_FORMAT(m.join_date, '%Y-%m'), 'unknown')";
+
+    // The three period rows (day, week, month) an event is counted in
+    private static final String PERIODS = "(SELECT 'D' AS period, CAST(? AS DATE) AS period_start"
+            + " UNION ALL SELECT 'W', CAST(? AS DATE) UNION ALL SELECT 'M', CAST(? AS DATE)) p";
+
+    private static final String RECORD_BOOK_SQL = upsert(BOOK_TABLE, "book_id",
+            "p.period", "p.period_start", "l.book_id", counters("?", "?", "?", "?"),
+            " FROM loans l JOIN " + PERIODS + " WHERE l.loan_id = ?");
+    private static final String RECORD_COHORT_SQL = upsert(COHORT_TABLE, "cohort",
+            "p.period", "p.period_start", COHORT_KEY, counters("?", "?", "?", "?"),
+            " FROM loans l JOIN members m ON m.member_id = l.member_id JOIN " + PERIODS + " WHERE l.loan_id = ?");
+
+    private static final int MAX_BATCH = 500;
+    private static final RollupEvent CLOSE = new RollupEvent(0, null, 0, 0, 0, 0);
+
+    private final BlockingQueue<RollupEvent> pending = new LinkedBlockingQueue<>();
+    private final ExecutorService writer;
+
+    public CirculationRollupDAO() {
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "rollup-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::writeQueuedEvents);
+    }
+
+    /**
+     * Queues a new loan to be counted on its loan date.
+     * @param loanId The ID of the loan, which must already be committed.
+     * @param loanDate The date of the loan.
+     * @return true if the event was queued, false if the DAO is closed.
+     */
+    public boolean recordBorrow(int loanId, LocalDate loanDate) {
+        return DaoCallEvent.record(this, "recordBorrow", loanId, () -> {
+            return record(loanId, loanDate, 1, 0, 0, 0);
+        });
+    }
+
+    /**
+     * Queues a return to be counted on its return date.
+     * @param loanId The ID of the returned loan.
+     * @param returnDate The date the book was returned.
+     * @param finePaise The fine assessed on return, in paise; a positive fine means the return was overdue.
+     * @return true if the event was queued, false if the DAO is closed.
+     */
+    public boolean recordReturn(int loanId, LocalDate returnDate, long finePaise) {
+        return DaoCallEvent.record(this, "recordReturn", loanId, () -> {
+            return record(loanId, returnDate, 0, 1, finePaise > 0 ? 1 : 0, finePaise);
+        });
+    }
+
+    private boolean record(int loanId, LocalDate date, int borrows, int returns, int overdueReturns, long finesPaise) {
+        if (writer.isShutdown()) {
+            return false;
+        }
+        return pending.offer(new RollupEvent(loanId, date, borrows, returns, overdueReturns, finesPaise));
+    }
+
+    /**
+     * Writes the events still queued and stops the writer.
+     */
+    public void close() {
+        pending.offer(CLOSE);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Circulation rollups were still being written at shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The writer thread: takes whatever has queued up, at most MAX_BATCH events at a time, and
+     * writes it, until close() queues CLOSE.
+     */
+    private void writeQueuedEvents() {
+        List<RollupEvent> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch, MAX_BATCH - 1);
+            boolean closing = batch.remove(CLOSE);
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            if (closing) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Upserts a batch of events into both summary tables in one transaction. Waits for a
+     * running rebuild to finish.
+     */
+    private synchronized void write(List<RollupEvent> batch) {
+        try (Connection conn = DatabaseConnection.getBatchConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement book = conn.prepareStatement(RECORD_BOOK_SQL);
+                 PreparedStatement cohort = conn.prepareStatement(RECORD_COHORT_SQL)) {
+                for (RollupEvent event : batch) {
+                    event.bind(book);
+                    book.addBatch();
+                    event.bind(cohort);
+                    cohort.addBatch();
+                }
+                book.executeBatch();
+                cohort.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating circulation rollups (" + batch.size() + " events lost): " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Checks whether the summary tables have never been filled.
+     * @return true if there are no book rollup rows, false if there are, or null if the check failed.
+     */
+    public Boolean isEmpty() {
+        return DaoCallEvent.record(this, "isEmpty", 0, () -> {
+            String sql = "SELECT 1 FROM " + BOOK_TABLE + " LIMIT 1";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                return !rs.next();
+            } catch (SQLException e) {
+                System.err.println("Error checking circulation rollups: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Recomputes both summary tables from the active and archived loans. Events queued
+     * while the rebuild runs are written once it has finished.
+     * @param threads The number of month chunks aggregated at the same time.
+     * @return true if rebuilt successfully, false otherwise.
+     */
+    public synchronized boolean rebuild(int threads) {
+        return DaoCallEvent.record(this, "rebuild", 0, () -> {
+            LocalDate first;
+            LocalDate last;
+            String rangeSql = "SELECT MIN(l.loan_date), GREATEST(MAX(l.loan_date), COALESCE(MAX(l.return_date), MAX(l.loan_date))) FROM " + ALL_LOANS;
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("TRUNCATE TABLE " + BOOK_TABLE);
+                stmt.executeUpdate("TRUNCATE TABLE " + COHORT_TABLE);
+                try (ResultSet rs = stmt.executeQuery(rangeSql)) {
+                    if (!rs.next() || rs.getDate(1) == null) {
+                        return true; // No loans yet
+                    }
+                    first = rs.getDate(1).toLocalDate().withDayOfMonth(1);
+                    last = rs.getDate(2).toLocalDate();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error preparing circulation rollup rebuild: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+            try {
+                List<Future<Boolean>> chunks = new ArrayList<>();
+                for (LocalDate from = first; !from.isAfter(last); from = from.plusMonths(1)) {
+                    LocalDate chunkFrom = from;
+                    chunks.add(executor.submit(() -> aggregateDays(chunkFrom, chunkFrom.plusMonths(1))));
+                }
+                boolean success = true;
+                for (Future<Boolean> chunk : chunks) {
+                    success &= chunk.get();
+                }
+                return success && deriveWeeksAndMonths();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                System.err.println("Error rebuilding circulation rollups: " + e.getCause().getMessage());
+                e.printStackTrace();
+                return false;
+            } finally {
+                executor.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Writes the day rows for loans made or returned in [from, to).
+     */
+    private boolean aggregateDays(LocalDate from, LocalDate to) {
+        String[] sqls = {
+            dayRowsSql(BOOK_TABLE, "book_id", "l.book_id", "", "loan_date", counters("COUNT(*)", "0", "0", "0")),
+            dayRowsSql(BOOK_TABLE, "book_id", "l.book_id", "", "return_date",
+                       counters("0", "COUNT(*)", "SUM(l.return_date > l.due_date)", "SUM(l.fine_amount)")),
+            dayRowsSql(COHORT_TABLE, "cohort", COHORT_KEY, " JOIN members m ON m.member_id = l.member_id",
+                       "loan_date", counters("COUNT(*)", "0", "0", "0")),
+            dayRowsSql(COHORT_TABLE, "cohort", COHORT_KEY, " JOIN members m ON m.member_id = l.member_id",
+                       "return_date",
+                       counters("0", "COUNT(*)", "SUM(l.return_date > l.due_date)", "SUM(l.fine_amount)"))
+        };
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (String sql : sqls) {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setDate(1, java.sql.Date.valueOf(from));
+                    pstmt.setDate(2, java.sql.Date.valueOf(to));
+                    pstmt.executeUpdate();
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error aggregating circulation from " + from + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static String dayRowsSql(String table, String keyColumn, String keyExpression, String join,
+                                     String dateColumn, String counters) {
+        return upsert(table, keyColumn, "'D'", "l." + dateColumn, keyExpression, counters,
+                      " FROM " + ALL_LOANS + join
+                    + " WHERE l." + dateColumn + " >= ? AND l." + dateColumn + " < ?"
+                    + " GROUP BY l." + dateColumn + ", " + keyExpression);
+    }
+
+    /**
+     * Builds an INSERT ... SELECT that adds its counters to existing rows. The SELECT is wrapped
+     * in a derived table aliased "new", which is how ON DUPLICATE KEY UPDATE refers to the row
+     * being inserted without the deprecated VALUES() function (MySQL 8.0.19 and later).
+     * @param counters The four counter expressions, as listed by counters().
+     * @param from The FROM clause and anything after it.
+     */
+    private static String upsert(String table, String keyColumn, String period, String periodStart, String key,
+                                 String counters, String from) {
+        return "INSERT INTO " + table + " (period, period_start, " + keyColumn + ", " + COLUMNS + ")"
+             + " SELECT * FROM (SELECT " + period + " AS period, " + periodStart + " AS period_start, "
+             + key + " AS " + keyColumn + ", " + counters + from + ") AS new ON DUPLICATE KEY UPDATE "
+             + addCounters(table);
+    }
+
+    /**
+     * Adds the inserted row's counters to an existing row. The table's own columns are
+     * qualified, since the derived table has columns of the same names.
+     */
+    private static String addCounters(String table) {
+        StringBuilder assignments = new StringBuilder();
+        for (String column : COUNTER_COLUMNS) {
+            assignments.append(assignments.length() > 0 ? ", " : "")
+                       .append(column).append(" = ").append(table).append('.').append(column)
+                       .append(" + new.").append(column);
+        }
+        return assignments.toString();
+    }
+
+    /**
+     * Lists four counter expressions with the counter column names as aliases.
+     */
+    private static String counters(String borrows, String returns, String overdueReturns, String finesAssessed) {
+        String[] expressions = { borrows, returns, overdueReturns, finesAssessed };
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < expressions.length; i++) {
+            list.append(i > 0 ? ", " : "").append(expressions[i]).append(" AS ").append(COUNTER_COLUMNS[i]);
+        }
+        return list.toString();
+    }
+
+    private boolean deriveWeeksAndMonths() {
+        String[][] periods = {
+            { "W", "DATE_SUB(period_start, INTERVAL WEEKDAY(period_start) DAY)" },
+            { "M", "DATE_FORMAT(period_start, '%Y-%m-01')" }
+        };
+        String[][] tables = { { BOOK_TABLE, "book_id" }, { COHORT_TABLE, "cohort" } };
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String[] table : tables) {
+                for (String[] period : periods) {
+                    stmt.executeUpdate("INSERT INTO " + table[0] + " (period, period_start, " + table[1] + ", " + COLUMNS + ")"
+                            + " SELECT '" + period[0] + "', " + period[1] + ", " + table[1] + ","
+                            + " SUM(borrows), SUM(returns), SUM(overdue_returns), SUM(fines_assessed)"
+                            + " FROM " + table[0] + " WHERE period = 'D'"
+                            + " GROUP BY " + period[1] + ", " + table[1]);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error deriving weekly and monthly circulation rollups: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the busiest books in one period.
+     * @param period The period granularity.
+     * @param periodStart Any date inside the period.
+     * @param limit The maximum number of rows.
+     * @return A list of CirculationRollup objects keyed by book ID, most borrowed first.
+     */
+    public List<CirculationRollup> getBookRollups(CirculationRollup.Period period, LocalDate periodStart, int limit) {
+        return DaoCallEvent.record(this, "getBookRollups", 0, () -> {
+            String sql = "SELECT book_id, " + COLUMNS + " FROM " + BOOK_TABLE
+                       + " WHERE period = ? AND period_start = ? ORDER BY borrows DESC, book_id LIMIT ?";
+            return query(sql, period, periodStart, limit);
+        });
+    }
+
+    /**
+     * Retrieves the totals of every member cohort in one period.
+     * @param period The period granularity.
+     * @param periodStart Any date inside the period.
+     * @return A list of CirculationRollup objects keyed by cohort, oldest cohort first.
+     */
+    public List<CirculationRollup> getCohortRollups(CirculationRollup.Period period, LocalDate periodStart) {
+        return DaoCallEvent.record(this, "getCohortRollups", 0, () -> {
+            String sql = "SELECT cohort, " + COLUMNS + " FROM " + COHORT_TABLE
+                       + " WHERE period = ? AND period_start = ? ORDER BY cohort";
+            return query(sql, period, periodStart, -1);
+        });
+    }
+
+    private List<CirculationRollup> query(String sql, CirculationRollup.Period period, LocalDate date, int limit) {
+        List<CirculationRollup> rollups = new ArrayList<>();
+        LocalDate periodStart = period.startOf(date);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, period.getCode());
+            pstmt.setDate(2, java.sql.Date.valueOf(periodStart));
+            if (limit >= 0) {
+                pstmt.setInt(3, limit);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rollups.add(new CirculationRollup(
+                        period,
+                        periodStart,
+                        rs.getString(1),
+                        rs.getInt("borrows"),
+                        rs.getInt("returns"),
+                        rs.getInt("overdue_returns"),
+                        Money.fromDecimal(rs.getBigDecimal("fines_assessed"))
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting circulation rollups: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return rollups;
+    }
+
+    /**
+     * One borrow or return waiting to be counted.
+     */
+    private static final class RollupEvent {
+        final int loanId;
+        final LocalDate date;
+        final int borrows;
+        final int returns;
+        final int overdueReturns;
+        final long finesPaise;
+
+        RollupEvent(int loanId, LocalDate date, int borrows, int returns, int overdueReturns, long finesPaise) {
+            this.loanId = loanId;
+            this.date = date;
+            this.borrows = borrows;
+            this.returns = returns;
+            this.overdueReturns = overdueReturns;
+            this.finesPaise = finesPaise;
+        }
+
+        /**
+         * Sets the parameters of RECORD_BOOK_SQL or RECORD_COHORT_SQL.
+         */
+        void bind(PreparedStatement pstmt) throws SQLException {
+            int index = 1;
+            pstmt.setInt(index++, borrows);
+            pstmt.setInt(index++, returns);
+            pstmt.setInt(index++, overdueReturns);
+            pstmt.setBigDecimal(index++, Money.toDecimal(finesPaise));
+            for (CirculationRollup.Period period : CirculationRollup.Period.values()) {
+                pstmt.setDate(index++, java.sql.Date.valueOf(period.startOf(date)));
+            }
+            pstmt.setInt(index, loanId);
+        }
+    }
+}
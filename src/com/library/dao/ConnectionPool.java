@@ -0,0 +1,181 @@
+package com.library.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A fixed number of connections to one database, shared by the tasks of a parallel job or
+ * kept for the life of the application. Connections are opened as they are first needed and
+ * handed out wrapped, so closing one in a try-with-resources block gives it back to the pool
+ * instead of closing it; a task that finds every connection in use waits for one. A connection
+ * that sat idle for a while is checked before it is handed out again, since the server may have
+ * dropped it in the meantime. Closing the pool closes the connections.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final long VALIDATE_AFTER_IDLE_NANOS = 30_000_000_000L;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final String dbUrl;
+    private final int size;
+    private final Semaphore leases;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>(); // guarded by itself
+    private boolean closed; // guarded by idle
+
+    /**
+     * @param dbUrl The JDBC URL of the database.
+     * @param size The most connections open at once.
+     */
+    public ConnectionPool(String dbUrl, int size) {
+        this.dbUrl = dbUrl;
+        this.size = Math.max(1, size);
+        this.leases = new Semaphore(this.size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Takes a connection, waiting while all of them are in use.
+     * @return A connection whose close() returns it to the pool.
+     * @throws SQLException If a new connection cannot be opened, or the wait is interrupted.
+     */
+    public Connection getConnection() throws SQLException {
+        try {
+            leases.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        IdleConnection idleConnection;
+        synchronized (idle) {
+            idleConnection = idle.pollFirst();
+        }
+        Connection connection = idleConnection != null ? idleConnection.connection : null;
+        try {
+            if (connection != null && !isUsable(idleConnection)) {
+                closeQuietly(connection);
+                connection = null;
+            }
+            if (connection == null) {
+                connection = DatabaseConnection.getConnection(dbUrl);
+            }
+        } catch (SQLException e) {
+            leases.release();
+            throw e;
+        }
+        return lease(connection);
+    }
+
+    /**
+     * Closes the idle connections; connections still leased are closed as they come back.
+     */
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (IdleConnection idleConnection : idle) {
+                closeQuietly(idleConnection.connection);
+            }
+            idle.clear();
+        }
+    }
+
+    private Connection lease(Connection connection) {
+        boolean[] returned = { false };
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("close")) {
+                synchronized (returned) {
+                    if (!returned[0]) {
+                        returned[0] = true;
+                        giveBack(connection);
+                    }
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                synchronized (returned) {
+                    if (returned[0]) {
+                        return true;
+                    }
+                }
+            }
+            return forward(connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    /**
+     * Puts a connection back, unless the pool is closed or the connection is broken. A
+     * connection given back with auto-commit off has anything uncommitted rolled back and
+     * auto-commit restored.
+     */
+    private void giveBack(Connection connection) {
+        boolean reusable;
+        try {
+            reusable = !connection.isClosed();
+            if (reusable && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        synchronized (idle) {
+            if (reusable && !closed) {
+                idle.addFirst(new IdleConnection(connection, System.nanoTime()));
+            } else {
+                closeQuietly(connection);
+            }
+        }
+        leases.release();
+    }
+
+    /**
+     * Checks an idle connection: a closed one is not usable, and one idle long enough for the
+     * server to have timed it out is pinged first.
+     */
+    private static boolean isUsable(IdleConnection idleConnection) throws SQLException {
+        Connection connection = idleConnection.connection;
+        if (connection.isClosed()) {
+            return false;
+        }
+        return System.nanoTime() - idleConnection.since < VALIDATE_AFTER_IDLE_NANOS
+                || connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private static Object forward(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final long since; // System.nanoTime() when it was given back
+
+        IdleConnection(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+}
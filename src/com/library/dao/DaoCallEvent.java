@@ -0,0 +1,151 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * JFR event for one DAO call. Wrap a BookDAO, MemberDAO or BorrowerDAO with
+ * {@link #record(Class, Object)} to emit it; DAOs without an interface to wrap (copies,
+ * procedures, rollups, archival, the change log, kiosk syncs, report ranges, users, catalog
+ * snapshots) run each public method through
+ * {@link #record(Object, String, int, Call)} instead. While the event is disabled in the
+ * running recording (or no recording runs) either way only makes the call.
+ */
+@Name("com.library.DaoCall")
+@Label("DAO Call")
+@Category({ "Library", "DAO" })
+@Description("A call of a book, member or loan DAO method")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("ID")
+    @Description("The book, member or loan ID the call is about: its first int, book, member or loan argument")
+    int id;
+
+    @Label("Rows")
+    @Description("Rows returned (list size, or 1 for a found row) or, for updates, 1 if the update applied")
+    int rows;
+
+    @Label("Failed")
+    @Description("True if the call threw")
+    boolean failed;
+
+    /**
+     * Wraps a DAO so that each of its interface methods emits a DaoCallEvent.
+     * @param daoInterface The DAO interface, e.g. BookDAO.class.
+     * @param dao The DAO.
+     * @return A DAO that forwards every call to dao.
+     */
+    public static <T> T record(Class<T> daoInterface, T dao) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return forward(dao, method, args);
+            }
+            return record(dao, method.getName(), idOf(args), () -> forward(dao, method, args));
+        };
+        return daoInterface.cast(Proxy.newProxyInstance(daoInterface.getClassLoader(), new Class<?>[] { daoInterface }, handler));
+    }
+
+    /**
+     * The body of one DAO call.
+     */
+    @FunctionalInterface
+    interface Call<T, E extends Throwable> {
+        T run() throws E;
+    }
+
+    /**
+     * Makes one DAO call and emits a DaoCallEvent for it.
+     * @param dao The DAO, named in the event by its class.
+     * @param method The name of the DAO method.
+     * @param id The book, member or loan ID the call is about, or 0.
+     * @param call The body of the method.
+     * @return What the call returned.
+     * @throws E What the call threw.
+     */
+    static <T, E extends Throwable> T record(Object dao, String method, int id, Call<T, E> call) throws E {
+        DaoCallEvent event = new DaoCallEvent();
+        if (!event.isEnabled()) {
+            return call.run();
+        }
+        event.begin();
+        try {
+            T result = call.run();
+            event.rows = rowCount(result);
+            return result;
+        } catch (Throwable e) {
+            event.failed = true;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.dao = dao.getClass().getSimpleName();
+                event.method = method;
+                event.id = id;
+                event.commit();
+            }
+        }
+    }
+
+    private static Object forward(Object dao, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(dao, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause(); // The DAO's own exception, unwrapped
+        }
+    }
+
+    private static int rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        }
+        return result != null ? 1 : 0;
+    }
+
+    private static int idOf(Object[] args) {
+        if (args == null || args.length == 0) {
+            return 0;
+        }
+        Object arg = args[0];
+        if (arg instanceof Integer) {
+            return (Integer) arg;
+        }
+        if (arg instanceof Borrower) {
+            return ((Borrower) arg).getLoanId();
+        }
+        if (arg instanceof Member) {
+            return ((Member) arg).getMemberId();
+        }
+        if (arg instanceof Book) {
+            return ((Book) arg).getBookId();
+        }
+        return 0;
+    }
+}
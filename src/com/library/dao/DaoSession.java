@@ -0,0 +1,227 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A short-lived, per-request view of the database.
+ * Reads go through an identity map, so each book, member and loan is loaded at most once
+ * and always resolves to the same instance within the session. Writes are collected as a
+ * unit of work and written atomically when flush() is called (with JDBC, in one transaction
+ * using batches).
+ * A session is not thread-safe and should not outlive the service call that opened it.
+ */
+public class DaoSession {
+
+    private final BookDAO bookDAO;
+    private final MemberDAO memberDAO;
+    private final BorrowerDAO borrowerDAO;
+
+    // Identity maps (a null value records that the row does not exist)
+    private final Map<Integer, Book> books = new HashMap<>();
+    private final Map<Integer, Member> members = new HashMap<>();
+    private final Map<Integer, Borrower> loans = new HashMap<>();
+    private final Map<Integer, List<Borrower>> loansByMember = new HashMap<>();
+    private final Map<Integer, List<Borrower>> activeLoansByMember = new HashMap<>();
+
+    // Unit of work
+    private final List<Borrower> newLoans = new ArrayList<>();
+    private final Map<Borrower, String> issuedCopies = new IdentityHashMap<>(); // new loan to its copy's barcode
+    private final Map<Integer, Borrower> dirtyLoans = new LinkedHashMap<>();
+    private final Map<Integer, Member> dirtyMembers = new LinkedHashMap<>();
+    private final Map<Integer, Integer> bookCopyChanges = new LinkedHashMap<>();
+
+    public DaoSession(BookDAO bookDAO, MemberDAO memberDAO, BorrowerDAO borrowerDAO) {
+        this.bookDAO = bookDAO;
+        this.memberDAO = memberDAO;
+        this.borrowerDAO = borrowerDAO;
+    }
+
+    /**
+     * Retrieves a book by its ID, loading it on first access.
+     * @param bookId The ID of the book.
+     * @return The Book object, or null if not found.
+     */
+    public Book getBook(int bookId) {
+        if (!books.containsKey(bookId)) {
+            books.put(bookId, bookDAO.getBookById(bookId));
+        }
+        return books.get(bookId);
+    }
+
+    /**
+     * Retrieves a member by their ID, loading them on first access.
+     * @param memberId The ID of the member.
+     * @return The Member object, or null if not found.
+     */
+    public Member getMember(int memberId) {
+        if (!members.containsKey(memberId)) {
+            members.put(memberId, memberDAO.getMemberById(memberId));
+        }
+        return members.get(memberId);
+    }
+
+    /**
+     * Retrieves a loan by its ID, loading it on first access.
+     * @param loanId The ID of the loan.
+     * @return The Borrower object, or null if not found.
+     */
+    public Borrower getLoan(int loanId) {
+        if (!loans.containsKey(loanId)) {
+            loans.put(loanId, borrowerDAO.getLoanById(loanId));
+        }
+        return loans.get(loanId);
+    }
+
+    /**
+     * Retrieves all loans of a member. Loans already in the session are returned as the same instances.
+     * @param memberId The ID of the member.
+     * @return A list of Borrower objects for the member.
+     */
+    public List<Borrower> getLoansByMemberId(int memberId) {
+        List<Borrower> memberLoans = loansByMember.get(memberId);
+        if (memberLoans == null) {
+            memberLoans = register(borrowerDAO.getLoansByMemberId(memberId));
+            loansByMember.put(memberId, memberLoans);
+        }
+        return memberLoans;
+    }
+
+    /**
+     * Retrieves the active (not yet returned) loans of a member.
+     * Answered from the member's full loan list if the session already holds it.
+     * @param memberId The ID of the member.
+     * @return A list of active Borrower objects for the member.
+     */
+    public List<Borrower> getActiveLoansByMemberId(int memberId) {
+        List<Borrower> memberLoans = loansByMember.get(memberId);
+        if (memberLoans == null) {
+            memberLoans = activeLoansByMember.get(memberId);
+            if (memberLoans == null) {
+                memberLoans = register(borrowerDAO.getActiveLoansByMemberId(memberId));
+                activeLoansByMember.put(memberId, memberLoans);
+            }
+        }
+        List<Borrower> active = new ArrayList<>();
+        for (Borrower loan : memberLoans) {
+            if (loan.getReturnDate() == null) {
+                active.add(loan);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Swaps freshly loaded loans for the instances the session already holds.
+     */
+    private List<Borrower> register(List<Borrower> loaded) {
+        List<Borrower> result = new ArrayList<>(loaded.size());
+        for (Borrower borrower : loaded) {
+            Borrower known = loans.get(borrower.getLoanId());
+            if (known == null) {
+                loans.put(borrower.getLoanId(), borrower);
+                known = borrower;
+            }
+            result.add(known);
+        }
+        return result;
+    }
+
+    /**
+     * Registers a new loan to be inserted on flush. Its ID is set once the flush succeeds.
+     * @param borrower The new Borrower object.
+     */
+    public void createLoan(Borrower borrower) {
+        newLoans.add(borrower);
+        List<Borrower> memberLoans = loansByMember.get(borrower.getMemberId());
+        if (memberLoans != null) {
+            memberLoans.add(borrower);
+        }
+        List<Borrower> activeLoans = activeLoansByMember.get(borrower.getMemberId());
+        if (activeLoans != null) {
+            activeLoans.add(borrower);
+        }
+    }
+
+    /**
+     * Registers a new loan that takes a particular copy. The copy is marked BORROWED on the
+     * loan in the same transaction that inserts the loan.
+     * @param borrower The new Borrower object.
+     * @param barcode The barcode of the copy being issued.
+     */
+    public void createLoan(Borrower borrower, String barcode) {
+        createLoan(borrower);
+        issuedCopies.put(borrower, barcode);
+    }
+
+    /**
+     * Registers a change to a book's available copies. The cached Book is patched right away.
+     * @param bookId The ID of the book.
+     * @param change The amount to change (positive for increment, negative for decrement).
+     */
+    public void updateBookCopies(int bookId, int change) {
+        bookCopyChanges.merge(bookId, change, Integer::sum);
+        Book book = books.get(bookId);
+        if (book != null) {
+            book.setAvailableCopies(book.getAvailableCopies() + change);
+        }
+    }
+
+    /**
+     * Marks a loan as modified; its due date, return date, renewed flag and fine columns are written on flush.
+     * @param borrower The modified Borrower object.
+     */
+    public void markDirty(Borrower borrower) {
+        dirtyLoans.put(borrower.getLoanId(), borrower);
+    }
+
+    /**
+     * Marks a member's total fine due as modified; it is written on flush.
+     * @param member The modified Member object.
+     */
+    public void markDirty(Member member) {
+        dirtyMembers.put(member.getMemberId(), member);
+    }
+
+    /**
+     * @return true if there are changes that have not been flushed yet.
+     */
+    public boolean hasPendingChanges() {
+        return !newLoans.isEmpty() || !dirtyLoans.isEmpty() || !dirtyMembers.isEmpty() || !bookCopyChanges.isEmpty();
+    }
+
+    /**
+     * Writes all pending changes atomically through BorrowerDAO.writeUnitOfWork.
+     * On failure nothing is written and the pending changes are kept.
+     * @return true if all changes were written (or there was nothing to write), false otherwise.
+     * @throws OptimisticLockException If a row changed since this session read it; the session
+     *         is then stale and the whole operation should be retried with a new one.
+     * @throws DataAccessException If the database failed; nothing was written.
+     */
+    public boolean flush() {
+        if (!hasPendingChanges()) {
+            return true;
+        }
+        if (!borrowerDAO.writeUnitOfWork(newLoans, issuedCopies, dirtyLoans.values(), bookCopyChanges, dirtyMembers.values())) {
+            return false;
+        }
+
+        for (Borrower borrower : newLoans) {
+            loans.put(borrower.getLoanId(), borrower);
+        }
+        newLoans.clear();
+        issuedCopies.clear();
+        dirtyLoans.clear();
+        dirtyMembers.clear();
+        bookCopyChanges.clear();
+        return true;
+    }
+}
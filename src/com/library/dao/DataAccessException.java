@@ -0,0 +1,25 @@
+package com.library.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown instead of returning null or false by the DAO calls that run a whole circulation
+ * transaction, so the caller can tell from the driver's error code whether the database
+ * rolled the transaction back and it can be run again (a deadlock or lock wait timeout)
+ * or the failure is permanent. The transaction was rolled back either way.
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(String message, SQLException cause) {
+        super(message + ": " + cause.getMessage(), cause);
+    }
+
+    /**
+     * @return The driver's exception, with the MySQL error code and SQLState.
+     */
+    public SQLException getSQLException() {
+        return (SQLException) getCause();
+    }
+}
@@ -1,12 +1,15 @@
 package com.library.dao;
 
+import com.library.trace.Tracer;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
 
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/library_db";
+    public static final String DB_URL = "jdbc:mysql://localhost:3306/library_db";
+    static final String CALLABLE_DB_URL = DB_URL + "?cacheCallableStmts=true";
     private static final String USER = "library user"; 
     private static final String PASS = "library_management"; 
 
@@ -16,12 +19,91 @@ public class DatabaseConnection {
      * @throws SQLException If a database access error occurs or the URL is null.
      */
     public static Connection getConnection() throws SQLException {
+        return open(DB_URL);
+    }
+
+    /**
+     * Establishes a connection to a given database, e.g. one shard of a sharded library.
+     * @param dbUrl The JDBC URL of the database.
+     * @return A Connection object to the database.
+     * @throws SQLException If a database access error occurs or the URL is null.
+     */
+    public static Connection getConnection(String dbUrl) throws SQLException {
+        return open(dbUrl);
+    }
+
+    /**
+     * Establishes a connection that accepts several ';'-separated statements in one execute call,
+     * so related writes can be sent to the server in a single round trip.
+     * @return A Connection object to the database with allowMultiQueries enabled.
+     * @throws SQLException If a database access error occurs or the URL is null.
+     */
+    public static Connection getMultiStatementConnection() throws SQLException {
+        return getMultiStatementConnection(DB_URL);
+    }
+
+    /**
+     * Establishes a multi-statement connection to a given database.
+     * @param dbUrl The JDBC URL of the database.
+     * @return A Connection object to the database with allowMultiQueries enabled.
+     * @throws SQLException If a database access error occurs or the URL is null.
+     */
+    public static Connection getMultiStatementConnection(String dbUrl) throws SQLException {
+        return open(multiStatementUrl(dbUrl));
+    }
+
+    /**
+     * Establishes a connection on which executeBatch sends a whole batch in as few round trips
+     * as it can: batched inserts of VALUES become one multi-row insert, and other batched
+     * statements are sent together as one multi-statement execute.
+     * @return A Connection object to the database with rewriteBatchedStatements enabled.
+     * @throws SQLException If a database access error occurs or the URL is null.
+     */
+    public static Connection getBatchConnection() throws SQLException {
+        return open(DB_URL + "?rewriteBatchedStatements=true");
+    }
+
+    /**
+     * Establishes a connection meant to be kept open for stored procedure calls.
+     * Callable statements are cached, so procedure parameter metadata is only fetched
+     * the first time each procedure is called on the connection.
+     * @return A Connection object to the database with cacheCallableStmts enabled.
+     * @throws SQLException If a database access error occurs or the URL is null.
+     */
+    public static Connection getCallableConnection() throws SQLException {
+        return open(CALLABLE_DB_URL);
+    }
+
+    /**
+     * Establishes a connection that gives up quickly when the server is unreachable, for
+     * background work that must not hang while the network is down.
+     * @param connectTimeoutMillis How long to wait for the TCP connection.
+     * @param socketTimeoutMillis How long to wait for any single server response.
+     * @return A Connection object to the database with connect and socket timeouts set.
+     * @throws SQLException If the server cannot be reached in time or a database access error occurs.
+     */
+    public static Connection getSyncConnection(int connectTimeoutMillis, int socketTimeoutMillis) throws SQLException {
+        return open(DB_URL + "?connectTimeout=" + connectTimeoutMillis + "&socketTimeout=" + socketTimeoutMillis);
+    }
+
+    /**
+     * @param dbUrl The JDBC URL of a database.
+     * @return The URL with allowMultiQueries enabled.
+     */
+    static String multiStatementUrl(String dbUrl) {
+        return dbUrl + (dbUrl.indexOf('?') < 0 ? "?" : "&") + "allowMultiQueries=true";
+    }
+
+    private static Connection open(String url) throws SQLException {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
             System.err.println("MySQL JDBC Driver not found. Make sure the JAR is in your classpath.");
             throw new SQLException("JDBC Driver not found", e);
         }
-        return DriverManager.getConnection(DB_URL, USER, PASS);
+        if (Tracer.isEnabled()) {
+            return Tracer.connect(() -> DriverManager.getConnection(url, USER, PASS));
+        }
+        return DriverManager.getConnection(url, USER, PASS);
     }
 }
@@ -0,0 +1,153 @@
+package com.library.dao;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BookDAO kept in an InMemoryDatabase.
+ */
+public class InMemoryBookDAO implements BookDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryBookDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public Book addBook(Book book) {
+        db.lock.writeLock().lock();
+        try {
+            if (db.bookIdsByIsbn.containsKey(book.getIsbn())) {
+                System.err.println("Error adding book: Duplicate ISBN " + book.getIsbn());
+                return null;
+            }
+            book.setBookId(db.nextBookId++);
+            db.insertBook(InMemoryDatabase.copyOf(book));
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+        System.out.println("Book added successfully with ID: " + book.getBookId());
+        return book;
+    }
+
+    @Override
+    public Book getBookById(int bookId) {
+        db.lock.readLock().lock();
+        try {
+            Book book = db.books.get(bookId);
+            return book != null ? InMemoryDatabase.copyOf(book) : null;
+        } finally {
+            db.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        List<Book> books = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (int bookId : bookIds) {
+                Book book = db.books.get(bookId);
+                if (book != null) {
+                    books.add(InMemoryDatabase.copyOf(book));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        return books;
+    }
+
+    /**
+     * Case-insensitive substring match on title, author and ISBN, like the LIKE query of JdbcBookDAO.
+     */
+    @Override
+    public List<Book> searchBooks(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Book> books = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (Book book : db.books.values()) {
+                if (book.getTitle().toLowerCase(Locale.ROOT).contains(needle)
+                        || book.getAuthor().toLowerCase(Locale.ROOT).contains(needle)
+                        || book.getIsbn().toLowerCase(Locale.ROOT).contains(needle)) {
+                    books.add(InMemoryDatabase.copyOf(book));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        books.sort(Comparator.comparingInt(Book::getBookId));
+        return books;
+    }
+
+    @Override
+    public boolean updateBookCopies(int bookId, int change) {
+        db.lock.writeLock().lock();
+        try {
+            Book book = db.books.get(bookId);
+            if (book == null) {
+                return false;
+            }
+            int available = book.getAvailableCopies() + change;
+            if (available < 0 || available > book.getTotalCopies()) {
+                return false;
+            }
+            book.setAvailableCopies(available);
+            InMemoryDatabase.bumpVersion(book);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return books(false);
+    }
+
+    @Override
+    public List<Book> getAvailableBooks() {
+        return books(true);
+    }
+
+    private List<Book> books(boolean availableOnly) {
+        List<Book> books = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (Book book : db.books.values()) {
+                if (!availableOnly || book.getAvailableCopies() > 0) {
+                    books.add(InMemoryDatabase.copyOf(book));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        books.sort(Comparator.comparingInt(Book::getBookId));
+        return books;
+    }
+
+    /**
+     * Deletes a book and, like ON DELETE CASCADE, its loans.
+     */
+    @Override
+    public boolean deleteBook(int bookId) {
+        db.lock.writeLock().lock();
+        try {
+            Book book = db.books.remove(bookId);
+            if (book == null) {
+                return false;
+            }
+            db.bookIdsByIsbn.remove(book.getIsbn());
+            db.removeLoansWhere(bookId, 0);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.util.IntObjectMap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * BorrowerDAO kept in an InMemoryDatabase. Active loans are indexed per member and by due
+ * date, so the borrow limit check and the overdue report do not scan all loans.
+ * There is no archive; every loan is part of the history.
+ * With a KioskJournal, borrows, returns and renewals are journaled before they are applied,
+ * and loan changes the journal cannot describe are refused.
+ */
+public class InMemoryBorrowerDAO implements BorrowerDAO {
+
+    private static final Comparator<Borrower> BY_LOAN_DATE =
+            Comparator.comparing(Borrower::getLoanDate).thenComparingInt(Borrower::getLoanId);
+
+    private final InMemoryDatabase db;
+    private final KioskJournal journal; // null unless kiosk mode is enabled
+
+    public InMemoryBorrowerDAO(InMemoryDatabase db) {
+        this(db, null);
+    }
+
+    public InMemoryBorrowerDAO(InMemoryDatabase db, KioskJournal journal) {
+        this.db = db;
+        this.journal = journal;
+    }
+
+    @Override
+    public Borrower createLoan(Borrower borrower) {
+        if (refusedAtKiosk("creating borrower entry")) {
+            return null;
+        }
+        db.lock.writeLock().lock();
+        try {
+            if (!referencesExist(borrower)) {
+                System.err.println("Error creating borrower entry: book " + borrower.getBookId()
+                                   + " or member " + borrower.getMemberId() + " does not exist");
+                return null;
+            }
+            borrower.setLoanId(db.nextLoanId++);
+            db.insertLoan(InMemoryDatabase.copyOf(borrower));
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+        System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
+        return borrower;
+    }
+
+    @Override
+    public Borrower getLoanById(int loanId) {
+        db.lock.readLock().lock();
+        try {
+            Borrower loan = db.loans.get(loanId);
+            return loan != null ? InMemoryDatabase.copyOf(loan) : null;
+        } finally {
+            db.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Borrower> getLoansByMemberId(int memberId) {
+        return copies(db.loansByMember, memberId);
+    }
+
+    @Override
+    public List<Borrower> getLoanHistoryByMemberId(int memberId, LocalDate archivedSince) {
+        List<Borrower> history = getLoansByMemberId(memberId);
+        if (archivedSince != null) {
+            history.sort(BY_LOAN_DATE.reversed());
+        }
+        return history;
+    }
+
+    @Override
+    public List<Borrower> getActiveLoansByMemberId(int memberId) {
+        return copies(db.activeLoansByMember, memberId);
+    }
+
+    private List<Borrower> copies(IntObjectMap<List<Borrower>> index, int memberId) {
+        List<Borrower> borrowers = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            List<Borrower> memberLoans = index.get(memberId);
+            if (memberLoans != null) {
+                for (Borrower loan : memberLoans) {
+                    borrowers.add(InMemoryDatabase.copyOf(loan));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        return borrowers;
+    }
+
+    @Override
+    public boolean updateLoanReturnDate(int loanId, LocalDate returnDate, long finePaise, boolean finePaid) {
+        if (refusedAtKiosk("updating return date")) {
+            return false;
+        }
+        db.lock.writeLock().lock();
+        try {
+            Borrower loan = db.loans.get(loanId);
+            if (loan == null) {
+                return false;
+            }
+            db.unindexActive(loan);
+            loan.setReturnDate(returnDate);
+            loan.setFinePaise(finePaise);
+            loan.setFinePaid(finePaid);
+            InMemoryDatabase.bumpVersion(loan);
+            db.indexIfActive(loan);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateLoanRenewedStatus(int loanId, LocalDate newDueDate) {
+        if (refusedAtKiosk("updating renewed status")) {
+            return false;
+        }
+        db.lock.writeLock().lock();
+        try {
+            Borrower loan = db.loans.get(loanId);
+            if (loan == null) {
+                return false;
+            }
+            db.unindexActive(loan);
+            loan.setDueDate(newDueDate);
+            loan.setRenewed(true);
+            InMemoryDatabase.bumpVersion(loan);
+            db.indexIfActive(loan);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CirculationResult returnLoan(Borrower borrower, LocalDate returnDate, long finePaise) {
+        db.lock.writeLock().lock();
+        try {
+            Borrower loan = db.loans.get(borrower.getLoanId());
+            Book book = db.books.get(borrower.getBookId());
+            Member member = db.members.get(borrower.getMemberId());
+            if (loan == null || loan.getVersion() != borrower.getVersion() || loan.getReturnDate() != null) {
+                throw new OptimisticLockException("Borrower entry " + borrower.getLoanId() + " changed since it was read");
+            }
+            if (book == null || member == null) {
+                System.err.println("Borrower entry " + borrower.getLoanId() + " was not returned: its book/member is missing.");
+                return null;
+            }
+            if (!journal(KioskJournal.Type.RETURN, loan.getLoanId(), loan.getBookId(), loan.getMemberId(), returnDate, null, finePaise)) {
+                return null;
+            }
+            applyReturn(loan, book, member, returnDate, finePaise);
+            borrower.setVersion(loan.getVersion());
+            CirculationResult result = new CirculationResult(CirculationProcedureDAO.STATUS_OK);
+            result.setBookId(loan.getBookId());
+            result.setFinePaise(finePaise);
+            result.setTotalFineDuePaise(member.getTotalFineDuePaise()); // Physical copies are not tracked in memory
+            return result;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean renewLoan(Borrower borrower, LocalDate newDueDate) {
+        db.lock.writeLock().lock();
+        try {
+            Borrower loan = db.loans.get(borrower.getLoanId());
+            if (loan == null || loan.getVersion() != borrower.getVersion() || loan.getReturnDate() != null || loan.isRenewed()) {
+                throw new OptimisticLockException("Borrower entry " + borrower.getLoanId() + " changed since it was read");
+            }
+            if (!journal(KioskJournal.Type.RENEW, loan.getLoanId(), loan.getBookId(), loan.getMemberId(), newDueDate, null, 0)) {
+                return false;
+            }
+            applyRenew(loan, newDueDate);
+            borrower.setVersion(loan.getVersion());
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateFinePaidStatus(int loanId, boolean paidStatus) {
+        if (refusedAtKiosk("updating fine paid status")) {
+            return false;
+        }
+        db.lock.writeLock().lock();
+        try {
+            Borrower loan = db.loans.get(loanId);
+            if (loan == null) {
+                return false;
+            }
+            loan.setFinePaid(paidStatus);
+            InMemoryDatabase.bumpVersion(loan);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the loans due before the given date from the front of the due-date index.
+     */
+    @Override
+    public List<Borrower> getOverdueLoans(LocalDate currentDate) {
+        Borrower dueToday = new Borrower(Integer.MIN_VALUE, 0, 0, currentDate, currentDate, null, false, 0, false);
+        List<Borrower> overdueLoans = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (Borrower loan : db.activeLoansByDueDate.headSet(dueToday, false)) {
+                overdueLoans.add(InMemoryDatabase.copyOf(loan));
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        return overdueLoans;
+    }
+
+    @Override
+    public List<Borrower> getLoansSince(LocalDate fromDate) {
+        List<Borrower> borrowers = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (Borrower loan : db.loans.values()) {
+                if (!loan.getLoanDate().isBefore(fromDate)) {
+                    borrowers.add(InMemoryDatabase.copyOf(loan));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        borrowers.sort(BY_LOAN_DATE);
+        return borrowers;
+    }
+
+    @Override
+    public void streamAllLoans(Consumer<Borrower> consumer) {
+        db.lock.readLock().lock();
+        try {
+            for (Borrower loan : db.loans.values()) {
+                consumer.accept(InMemoryDatabase.copyOf(loan));
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks every reference, version and copy count first and applies the changes only if
+     * all of them hold, under the write lock, so the unit of work is applied completely or not at all.
+     */
+    @Override
+    public boolean writeUnitOfWork(List<Borrower> newLoans, Map<Borrower, String> issuedCopies, Collection<Borrower> dirtyLoans,
+                                   Map<Integer, Integer> bookCopyChanges, Collection<Member> dirtyMembers) {
+        if (!issuedCopies.isEmpty()) {
+            System.err.println("Error flushing session changes: physical copies are not tracked in memory");
+            return false;
+        }
+        db.lock.writeLock().lock();
+        try {
+            boolean valid = true;
+            for (Borrower borrower : newLoans) {
+                valid &= referencesExist(borrower);
+            }
+            for (Borrower borrower : dirtyLoans) {
+                valid &= db.loans.get(borrower.getLoanId()) != null;
+            }
+            for (int bookId : bookCopyChanges.keySet()) {
+                valid &= db.books.get(bookId) != null;
+            }
+            for (Member member : dirtyMembers) {
+                valid &= db.members.get(member.getMemberId()) != null;
+            }
+            if (!valid) {
+                System.err.println("Error flushing session changes: a book, member or borrower entry no longer exists");
+                return false;
+            }
+            checkVersions(dirtyLoans, bookCopyChanges, dirtyMembers);
+            if (journal != null) {
+                return writeJournaledBorrows(newLoans, dirtyLoans, bookCopyChanges, dirtyMembers);
+            }
+
+            for (Borrower borrower : newLoans) {
+                borrower.setLoanId(db.nextLoanId++);
+                db.insertLoan(InMemoryDatabase.copyOf(borrower));
+                System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
+            }
+            for (Borrower borrower : dirtyLoans) {
+                Borrower loan = db.loans.get(borrower.getLoanId());
+                db.unindexActive(loan);
+                loan.setDueDate(borrower.getDueDate());
+                loan.setReturnDate(borrower.getReturnDate());
+                loan.setRenewed(borrower.isRenewed());
+                loan.setFinePaise(borrower.getFinePaise());
+                loan.setFinePaid(borrower.isFinePaid());
+                InMemoryDatabase.bumpVersion(loan);
+                borrower.setVersion(loan.getVersion());
+                db.indexIfActive(loan);
+            }
+            for (Map.Entry<Integer, Integer> change : bookCopyChanges.entrySet()) {
+                Book book = db.books.get(change.getKey());
+                book.setAvailableCopies(book.getAvailableCopies() + change.getValue());
+                InMemoryDatabase.bumpVersion(book);
+            }
+            for (Member member : dirtyMembers) {
+                Member stored = db.members.get(member.getMemberId());
+                stored.setTotalFineDuePaise(member.getTotalFineDuePaise());
+                InMemoryDatabase.bumpVersion(stored);
+                member.setVersion(stored.getVersion());
+            }
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that the modified loans and members are still at the versions they were read at
+     * and that the copy changes keep every book between 0 and its total copies, as the JDBC
+     * DAO's guarded updates do; the caller holds the write lock.
+     * @throws OptimisticLockException If any of them does not hold.
+     */
+    private void checkVersions(Collection<Borrower> dirtyLoans, Map<Integer, Integer> bookCopyChanges,
+                               Collection<Member> dirtyMembers) {
+        for (Borrower borrower : dirtyLoans) {
+            if (db.loans.get(borrower.getLoanId()).getVersion() != borrower.getVersion()) {
+                throw new OptimisticLockException("Borrower entry " + borrower.getLoanId() + " changed since it was read");
+            }
+        }
+        for (Map.Entry<Integer, Integer> change : bookCopyChanges.entrySet()) {
+            Book book = db.books.get(change.getKey());
+            int available = book.getAvailableCopies() + change.getValue();
+            if (available < 0 || available > book.getTotalCopies()) {
+                throw new OptimisticLockException("Available copies of book " + book.getBookId() + " changed since it was read");
+            }
+        }
+        for (Member member : dirtyMembers) {
+            if (db.members.get(member.getMemberId()).getVersion() != member.getVersion()) {
+                throw new OptimisticLockException("Member " + member.getMemberId() + " changed since it was read");
+            }
+        }
+    }
+
+    /**
+     * Kiosk variant of writeUnitOfWork: only borrows, each taking one copy, can be journaled.
+     * Each loan is journaled and then applied; the caller holds the write lock.
+     */
+    private boolean writeJournaledBorrows(List<Borrower> newLoans, Collection<Borrower> dirtyLoans,
+                                          Map<Integer, Integer> bookCopyChanges, Collection<Member> dirtyMembers) {
+        Map<Integer, Integer> copiesTaken = new HashMap<>();
+        for (Borrower borrower : newLoans) {
+            copiesTaken.merge(borrower.getBookId(), -1, Integer::sum);
+        }
+        if (!dirtyLoans.isEmpty() || !dirtyMembers.isEmpty() || !copiesTaken.equals(bookCopyChanges)) {
+            System.err.println("Error flushing session changes: only borrows can be recorded at an offline kiosk");
+            return false;
+        }
+        for (Borrower borrower : newLoans) {
+            if (!journal(KioskJournal.Type.BORROW, db.nextLoanId, borrower.getBookId(), borrower.getMemberId(),
+                         borrower.getLoanDate(), borrower.getDueDate(), 0)) {
+                return false;
+            }
+            borrower.setLoanId(db.nextLoanId++);
+            applyBorrow(InMemoryDatabase.copyOf(borrower));
+            System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
+        }
+        return true;
+    }
+
+    /**
+     * Re-applies journaled operations on top of the snapshot they were made against, without
+     * journaling them again. Entries that no longer fit the data are reported and skipped.
+     * @param entries The journal entries, oldest first.
+     */
+    public void replay(List<KioskJournal.Entry> entries) {
+        db.lock.writeLock().lock();
+        try {
+            for (KioskJournal.Entry entry : entries) {
+                Book book = db.books.get(entry.getBookId());
+                Member member = db.members.get(entry.getMemberId());
+                Borrower loan = db.loans.get(entry.getLoanId());
+                boolean applies;
+                switch (entry.getType()) {
+                    case BORROW:
+                        applies = book != null && member != null && loan == null;
+                        if (applies) {
+                            applyBorrow(new Borrower(entry.getLoanId(), entry.getBookId(), entry.getMemberId(),
+                                                     entry.getDate(), entry.getDueDate(), null, false, 0, false));
+                        }
+                        break;
+                    case RETURN:
+                        applies = book != null && member != null && loan != null && loan.getReturnDate() == null;
+                        if (applies) {
+                            applyReturn(loan, book, member, entry.getDate(), entry.getFinePaise());
+                        }
+                        break;
+                    default:
+                        applies = loan != null && loan.getReturnDate() == null;
+                        if (applies) {
+                            applyRenew(loan, entry.getDate());
+                        }
+                }
+                if (!applies) {
+                    System.err.println("Kiosk journal entry " + entry + " does not fit the local snapshot; skipped.");
+                }
+            }
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Swaps in a fresh snapshot after the journal was synced. Nothing happens if entries were
+     * journaled after the sync read the journal; they are pushed with the next sync.
+     * @param fresh The snapshot loaded from MySQL after the push.
+     * @param syncedEntries The number of journal entries the push covered.
+     * @param snapshotFile Where the snapshot is kept for the next start.
+     * @return True if the local data was replaced and the journal emptied.
+     * @throws IOException If the snapshot or the new journal cannot be written.
+     */
+    public boolean completeSync(InMemoryDatabase fresh, int syncedEntries, Path snapshotFile) throws IOException {
+        db.lock.writeLock().lock();
+        try {
+            if (journal.size() != syncedEntries) {
+                return false;
+            }
+            fresh.save(snapshotFile);
+            db.replaceContents(fresh);
+            journal.reset();
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    // --- Changes shared by live operations and journal replay; callers hold the write lock ---
+
+    private void applyBorrow(Borrower loan) {
+        db.insertLoan(loan);
+        Book book = db.books.get(loan.getBookId());
+        book.setAvailableCopies(book.getAvailableCopies() - 1);
+        InMemoryDatabase.bumpVersion(book);
+    }
+
+    private void applyReturn(Borrower loan, Book book, Member member, LocalDate returnDate, long finePaise) {
+        db.unindexActive(loan);
+        loan.setReturnDate(returnDate);
+        loan.setFinePaise(finePaise);
+        loan.setFinePaid(false);
+        InMemoryDatabase.bumpVersion(loan);
+        book.setAvailableCopies(book.getAvailableCopies() + 1);
+        InMemoryDatabase.bumpVersion(book);
+        member.setTotalFineDuePaise(member.getTotalFineDuePaise() + finePaise);
+        InMemoryDatabase.bumpVersion(member);
+    }
+
+    private void applyRenew(Borrower loan, LocalDate newDueDate) {
+        db.unindexActive(loan);
+        loan.setDueDate(newDueDate);
+        loan.setRenewed(true);
+        InMemoryDatabase.bumpVersion(loan);
+        db.indexIfActive(loan);
+    }
+
+    /**
+     * Makes an operation durable in the kiosk journal before it is applied.
+     * @return True if there is no journal or the entry was written, false if writing failed.
+     */
+    private boolean journal(KioskJournal.Type type, int loanId, int bookId, int memberId,
+                            LocalDate date, LocalDate dueDate, long finePaise) {
+        if (journal == null) {
+            return true;
+        }
+        try {
+            journal.append(type, loanId, bookId, memberId, date, dueDate, finePaise);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing kiosk journal: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private boolean refusedAtKiosk(String operation) {
+        if (journal != null) {
+            System.err.println("Error " + operation + ": not available at an offline kiosk");
+            return true;
+        }
+        return false;
+    }
+
+    private boolean referencesExist(Borrower borrower) {
+        return db.books.get(borrower.getBookId()) != null && db.members.get(borrower.getMemberId()) != null;
+    }
+}
@@ -0,0 +1,309 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.model.Money;
+import com.library.util.IntObjectMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The shared state behind InMemoryBookDAO, InMemoryMemberDAO and InMemoryBorrowerDAO.
+ * Rows are kept in int-keyed open-addressing maps, with secondary indexes for ISBN, email,
+ * a member's loans, a member's active loans and active loans ordered by due date.
+ * Reads take the read lock and run in parallel; writes take the write lock, so an operation
+ * touching books, members and loans together is atomic. The DAOs hand out copies, never the
+ * stored objects. The whole database can be saved to and loaded from a snapshot file.
+ */
+public class InMemoryDatabase {
+
+    private static final int SNAPSHOT_MAGIC = 0x4C494232; // "LIB2"
+    private static final int RUPEE_FINES_SNAPSHOT_MAGIC = 0x4C494231; // "LIB1": fines as rupee doubles
+
+    static final Comparator<Borrower> BY_DUE_DATE =
+            Comparator.comparing(Borrower::getDueDate).thenComparingInt(Borrower::getLoanId);
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    final IntObjectMap<Book> books = new IntObjectMap<>();
+    final Map<String, Integer> bookIdsByIsbn = new HashMap<>();
+    final IntObjectMap<Member> members = new IntObjectMap<>();
+    final Map<String, Integer> memberIdsByEmail = new HashMap<>();
+    final IntObjectMap<Borrower> loans = new IntObjectMap<>();
+    final IntObjectMap<List<Borrower>> loansByMember = new IntObjectMap<>();
+    final IntObjectMap<List<Borrower>> activeLoansByMember = new IntObjectMap<>();
+    final TreeSet<Borrower> activeLoansByDueDate = new TreeSet<>(BY_DUE_DATE);
+
+    int nextBookId = 1;
+    int nextMemberId = 1;
+    int nextLoanId = 1;
+
+    // --- Index maintenance; callers hold the write lock ---
+
+    void insertBook(Book book) {
+        books.put(book.getBookId(), book);
+        bookIdsByIsbn.put(book.getIsbn(), book.getBookId());
+        nextBookId = Math.max(nextBookId, book.getBookId() + 1);
+    }
+
+    void insertMember(Member member) {
+        members.put(member.getMemberId(), member);
+        memberIdsByEmail.put(member.getEmail(), member.getMemberId());
+        nextMemberId = Math.max(nextMemberId, member.getMemberId() + 1);
+    }
+
+    void insertLoan(Borrower loan) {
+        loans.put(loan.getLoanId(), loan);
+        listFor(loansByMember, loan.getMemberId()).add(loan);
+        indexIfActive(loan);
+        nextLoanId = Math.max(nextLoanId, loan.getLoanId() + 1);
+    }
+
+    void removeLoan(Borrower loan) {
+        unindexActive(loan);
+        loans.remove(loan.getLoanId());
+        List<Borrower> memberLoans = loansByMember.get(loan.getMemberId());
+        if (memberLoans != null) {
+            memberLoans.remove(loan);
+        }
+    }
+
+    /**
+     * Must be called before a stored loan's due date or return date changes.
+     */
+    void unindexActive(Borrower loan) {
+        if (loan.getReturnDate() == null) {
+            activeLoansByDueDate.remove(loan);
+            List<Borrower> active = activeLoansByMember.get(loan.getMemberId());
+            if (active != null) {
+                active.remove(loan);
+            }
+        }
+    }
+
+    /**
+     * Must be called after a stored loan's due date or return date changed.
+     */
+    void indexIfActive(Borrower loan) {
+        if (loan.getReturnDate() == null) {
+            activeLoansByDueDate.add(loan);
+            listFor(activeLoansByMember, loan.getMemberId()).add(loan);
+        }
+    }
+
+    /**
+     * Removes every loan matching a book or member, as ON DELETE CASCADE does.
+     */
+    void removeLoansWhere(int bookId, int memberId) {
+        for (Borrower loan : loans.values()) {
+            if (loan.getBookId() == bookId || loan.getMemberId() == memberId) {
+                removeLoan(loan);
+            }
+        }
+    }
+
+    /**
+     * Replaces every row with the rows of another database.
+     */
+    void replaceContents(InMemoryDatabase source) {
+        books.clear();
+        bookIdsByIsbn.clear();
+        members.clear();
+        memberIdsByEmail.clear();
+        loans.clear();
+        loansByMember.clear();
+        activeLoansByMember.clear();
+        activeLoansByDueDate.clear();
+        nextBookId = source.nextBookId;
+        nextMemberId = source.nextMemberId;
+        nextLoanId = source.nextLoanId;
+        for (Book book : source.books.values()) {
+            insertBook(copyOf(book));
+        }
+        for (Member member : source.members.values()) {
+            insertMember(copyOf(member));
+        }
+        for (Borrower loan : source.loans.values()) {
+            insertLoan(copyOf(loan));
+        }
+    }
+
+    private static List<Borrower> listFor(IntObjectMap<List<Borrower>> index, int memberId) {
+        List<Borrower> list = index.get(memberId);
+        if (list == null) {
+            list = new ArrayList<>();
+            index.put(memberId, list);
+        }
+        return list;
+    }
+
+    // --- Copies handed to and taken from callers ---
+
+    static Book copyOf(Book book) {
+        Book copy = new Book(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                             book.getPublicationYear(), book.getTotalCopies(), book.getAvailableCopies());
+        copy.setVersion(book.getVersion());
+        return copy;
+    }
+
+    static Member copyOf(Member member) {
+        Member copy = new Member(member.getMemberId(), member.getFirstName(), member.getLastName(), member.getEmail(),
+                                 member.getPhoneNumber(), member.getJoinDate(), member.getTotalFineDuePaise());
+        copy.setVersion(member.getVersion());
+        return copy;
+    }
+
+    static Borrower copyOf(Borrower loan) {
+        Borrower copy = new Borrower(loan.getLoanId(), loan.getBookId(), loan.getMemberId(), loan.getLoanDate(),
+                                     loan.getDueDate(), loan.getReturnDate(), loan.isRenewed(), loan.getFinePaise(),
+                                     loan.isFinePaid());
+        copy.setVersion(loan.getVersion());
+        return copy;
+    }
+
+    static void bumpVersion(Book book) {
+        book.setVersion(book.getVersion() + 1);
+    }
+
+    static void bumpVersion(Member member) {
+        member.setVersion(member.getVersion() + 1);
+    }
+
+    static void bumpVersion(Borrower loan) {
+        loan.setVersion(loan.getVersion() + 1);
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Loads a database from a snapshot file.
+     * @param file The snapshot file; if it does not exist an empty database is returned.
+     * @return The loaded database.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static InMemoryDatabase load(Path file) throws IOException {
+        InMemoryDatabase db = new InMemoryDatabase();
+        if (!Files.exists(file)) {
+            return db;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != RUPEE_FINES_SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a library snapshot");
+            }
+            boolean rupeeFines = magic == RUPEE_FINES_SNAPSHOT_MAGIC;
+            int bookCount = in.readInt();
+            for (int i = 0; i < bookCount; i++) {
+                db.insertBook(new Book(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(),
+                                       in.readInt(), in.readInt(), in.readInt()));
+            }
+            int memberCount = in.readInt();
+            for (int i = 0; i < memberCount; i++) {
+                db.insertMember(new Member(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(),
+                                           readNullableString(in), readDate(in), readMoney(in, rupeeFines)));
+            }
+            int loanCount = in.readInt();
+            for (int i = 0; i < loanCount; i++) {
+                db.insertLoan(new Borrower(in.readInt(), in.readInt(), in.readInt(), readDate(in), readDate(in),
+                                           readDate(in), in.readBoolean(), readMoney(in, rupeeFines), in.readBoolean()));
+            }
+            db.nextBookId = Math.max(db.nextBookId, in.readInt());
+            db.nextMemberId = Math.max(db.nextMemberId, in.readInt());
+            db.nextLoanId = Math.max(db.nextLoanId, in.readInt());
+        }
+        return db;
+    }
+
+    /**
+     * Writes a consistent snapshot of the database. The file is written next to the target
+     * and then moved over it, so a crash never leaves a half-written snapshot behind.
+     * @param file The snapshot file.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(books.size());
+            for (Book book : books.values()) {
+                out.writeInt(book.getBookId());
+                out.writeUTF(book.getTitle());
+                out.writeUTF(book.getAuthor());
+                out.writeUTF(book.getIsbn());
+                out.writeInt(book.getPublicationYear());
+                out.writeInt(book.getTotalCopies());
+                out.writeInt(book.getAvailableCopies());
+            }
+            out.writeInt(members.size());
+            for (Member member : members.values()) {
+                out.writeInt(member.getMemberId());
+                out.writeUTF(member.getFirstName());
+                out.writeUTF(member.getLastName());
+                out.writeUTF(member.getEmail());
+                writeNullableString(out, member.getPhoneNumber());
+                writeDate(out, member.getJoinDate());
+                out.writeLong(member.getTotalFineDuePaise());
+            }
+            out.writeInt(loans.size());
+            for (Borrower loan : loans.values()) {
+                out.writeInt(loan.getLoanId());
+                out.writeInt(loan.getBookId());
+                out.writeInt(loan.getMemberId());
+                writeDate(out, loan.getLoanDate());
+                writeDate(out, loan.getDueDate());
+                writeDate(out, loan.getReturnDate());
+                out.writeBoolean(loan.isRenewed());
+                out.writeLong(loan.getFinePaise());
+                out.writeBoolean(loan.isFinePaid());
+            }
+            // IDs are never reused, even after the newest row was deleted
+            out.writeInt(nextBookId);
+            out.writeInt(nextMemberId);
+            out.writeInt(nextLoanId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static long readMoney(DataInputStream in, boolean rupeeFines) throws IOException {
+        return rupeeFines ? Money.fromDouble(in.readDouble()) : in.readLong();
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
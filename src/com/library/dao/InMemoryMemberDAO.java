@@ -0,0 +1,154 @@
+package com.library.dao;
+
+import com.library.model.Member;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * MemberDAO kept in an InMemoryDatabase.
+ */
+public class InMemoryMemberDAO implements MemberDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryMemberDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public Member addMember(Member member) {
+        db.lock.writeLock().lock();
+        try {
+            if (db.memberIdsByEmail.containsKey(member.getEmail())) {
+                System.err.println("Error adding member: Duplicate email " + member.getEmail());
+                return null;
+            }
+            member.setMemberId(db.nextMemberId++);
+            db.insertMember(InMemoryDatabase.copyOf(member));
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+        System.out.println("Member added successfully with ID: " + member.getMemberId());
+        return member;
+    }
+
+    @Override
+    public Member getMemberById(int memberId) {
+        db.lock.readLock().lock();
+        try {
+            Member member = db.members.get(memberId);
+            return member != null ? InMemoryDatabase.copyOf(member) : null;
+        } finally {
+            db.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Member getMemberByEmail(String email) {
+        db.lock.readLock().lock();
+        try {
+            Integer memberId = db.memberIdsByEmail.get(email);
+            return memberId != null ? InMemoryDatabase.copyOf(db.members.get(memberId)) : null;
+        } finally {
+            db.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateMember(Member member) {
+        db.lock.writeLock().lock();
+        try {
+            Member stored = db.members.get(member.getMemberId());
+            if (stored == null || stored.getVersion() != member.getVersion()) {
+                throw new OptimisticLockException("Member " + member.getMemberId() + " changed since it was read");
+            }
+            Integer owner = db.memberIdsByEmail.get(member.getEmail());
+            if (owner != null && owner != member.getMemberId()) {
+                System.err.println("Error updating member: Duplicate email " + member.getEmail());
+                return false;
+            }
+            db.memberIdsByEmail.remove(stored.getEmail());
+            stored.setFirstName(member.getFirstName());
+            stored.setLastName(member.getLastName());
+            stored.setEmail(member.getEmail());
+            stored.setPhoneNumber(member.getPhoneNumber());
+            InMemoryDatabase.bumpVersion(stored);
+            member.setVersion(stored.getVersion());
+            db.memberIdsByEmail.put(stored.getEmail(), stored.getMemberId());
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Member> getAllMembers() {
+        List<Member> members = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (Member member : db.members.values()) {
+                members.add(InMemoryDatabase.copyOf(member));
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        members.sort(Comparator.comparingInt(Member::getMemberId));
+        return members;
+    }
+
+    @Override
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        List<Member> members = new ArrayList<>();
+        db.lock.readLock().lock();
+        try {
+            for (int memberId : memberIds) {
+                Member member = db.members.get(memberId);
+                if (member != null) {
+                    members.add(InMemoryDatabase.copyOf(member));
+                }
+            }
+        } finally {
+            db.lock.readLock().unlock();
+        }
+        return members;
+    }
+
+    @Override
+    public boolean updateTotalFineDue(int memberId, long newTotalFineDuePaise) {
+        db.lock.writeLock().lock();
+        try {
+            Member member = db.members.get(memberId);
+            if (member == null) {
+                return false;
+            }
+            member.setTotalFineDuePaise(newTotalFineDuePaise);
+            InMemoryDatabase.bumpVersion(member);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes a member and, like ON DELETE CASCADE, their loans.
+     */
+    @Override
+    public boolean deleteMember(int memberId) {
+        db.lock.writeLock().lock();
+        try {
+            Member member = db.members.remove(memberId);
+            if (member == null) {
+                return false;
+            }
+            db.memberIdsByEmail.remove(member.getEmail());
+            db.removeLoansWhere(0, memberId);
+            db.loansByMember.remove(memberId);
+            db.activeLoansByMember.remove(memberId);
+            return true;
+        } finally {
+            db.lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.library.dao;
+
+import com.library.model.Book;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class JdbcBookDAO implements BookDAO {
+
+    private final String dbUrl;
+    private final ConnectionPool pool; // null unless connections are leased from a pool
+
+    public JdbcBookDAO() {
+        this(DatabaseConnection.DB_URL);
+    }
+
+    /**
+     * @param dbUrl The JDBC URL of the database to use, e.g. one shard of a sharded library.
+     */
+    public JdbcBookDAO(String dbUrl) {
+        this.dbUrl = dbUrl;
+        this.pool = null;
+    }
+
+    /**
+     * @param pool The pool to lease connections from, e.g. one shard's.
+     */
+    public JdbcBookDAO(ConnectionPool pool) {
+        this.dbUrl = null;
+        this.pool = pool;
+    }
+
+    /**
+     * Adds a new book to the database.
+     * @param book The Book object to add.
+     * @return The Book object with its auto-generated ID, or null if insertion fails.
+     */
+    @Override
+    public Book addBook(Book book) {
+        String sql = "INSERT INTO books (title, author, isbn, publication_year, total_copies, available_copies) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setString(1, book.getTitle());
+            pstmt.setString(2, book.getAuthor());
+            pstmt.setString(3, book.getIsbn());
+            pstmt.setInt(4, book.getPublicationYear());
+            pstmt.setInt(5, book.getTotalCopies());
+            
+            pstmt.setInt(6, book.getAvailableCopies());
+
+            int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        book.setBookId(generatedKeys.getInt(1)); // Set the auto-generated ID
+                        System.out.println("Book added successfully with ID: " + book.getBookId());
+                        return book;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error adding book: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a book by its ID.
+     * @param bookId The ID of the book to retrieve.
+     * @return The Book object, or null if not found.
+     */
+    @Override
+    public Book getBookById(int bookId) {
+        String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books WHERE book_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, bookId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.BOOK.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting book by ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves several books by ID in one query.
+     * @param bookIds The IDs of the books to retrieve.
+     * @return A list of the Book objects found, in no particular order.
+     */
+    @Override
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        List<Book> books = new ArrayList<>();
+        if (bookIds.isEmpty()) {
+            return books;
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + RowMappers.BOOK_COLUMNS + " FROM books WHERE book_id IN (");
+        for (int i = 0; i < bookIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < bookIds.size(); i++) {
+                pstmt.setInt(i + 1, bookIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(RowMappers.BOOK.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting books by IDs: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return books;
+    }
+
+    /**
+     * Searches for books by title, author, or ISBN.
+     * @param query The search string.
+     * @return A list of matching Book objects.
+     */
+    @Override
+    public List<Book> searchBooks(String query) {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books WHERE title LIKE ? OR author LIKE ? OR isbn LIKE ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            String searchPattern = "%" + query + "%";
+            pstmt.setString(1, searchPattern);
+            pstmt.setString(2, searchPattern);
+            pstmt.setString(3, searchPattern);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(RowMappers.BOOK.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error searching books: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return books;
+    }
+
+    /**
+     * Updates the available copies of a book, unless that would take them below 0 or above
+     * the total copies.
+     * @param bookId The ID of the book to update.
+     * @param change The amount to change (positive for increment, negative for decrement).
+     * @return true if updated successfully, false otherwise.
+     */
+    @Override
+    public boolean updateBookCopies(int bookId, int change) {
+        String sql = "UPDATE books SET available_copies = available_copies + ?, version = version + 1"
+                   + " WHERE book_id = ? AND available_copies + ? BETWEEN 0 AND total_copies";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, change);
+            pstmt.setInt(2, bookId);
+            pstmt.setInt(3, change);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating book copies: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves all books from the database.
+     * @return A list of all Book objects.
+     */
+    @Override
+    public List<Book> getAllBooks() {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                books.add(RowMappers.BOOK.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting all books: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return books;
+    }
+
+    /**
+     * Retrieves all books that have available copies.
+     * @return A list of available Book objects.
+     */
+    @Override
+    public List<Book> getAvailableBooks() {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books WHERE available_copies > 0";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                books.add(RowMappers.BOOK.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting available books: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return books;
+    }
+
+    /**
+     * Deletes a book from the database by ID.
+     * @param bookId The ID of the book to delete.
+     * @return true if deleted successfully, false otherwise.
+     */
+    @Override
+    public boolean deleteBook(int bookId) {
+        String sql = "DELETE FROM books WHERE book_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, bookId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error deleting book: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Applies available-copy changes as one batch on the given connection. A change is
+     * checked against the current count rather than the version the book was read at, so
+     * concurrent borrows of a title only conflict when its last copy is taken.
+     * The caller owns the connection and the transaction.
+     * @param conn The connection to use.
+     * @param changes Book ID to change in available copies.
+     * @throws SQLException If the batch fails.
+     * @throws OptimisticLockException If a change would take a book's available copies below 0
+     *         or above its total, or the book no longer exists.
+     */
+    static void updateBookCopies(Connection conn, Map<Integer, Integer> changes) throws SQLException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE books SET available_copies = available_copies + ?, version = version + 1"
+                   + " WHERE book_id = ? AND available_copies + ? BETWEEN 0 AND total_copies";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                pstmt.setInt(1, change.getValue());
+                pstmt.setInt(2, change.getKey());
+                pstmt.setInt(3, change.getValue());
+                pstmt.addBatch();
+            }
+            for (int rowsAffected : pstmt.executeBatch()) {
+                if (rowsAffected == 0) {
+                    throw new OptimisticLockException("A book's available copies changed since it was read");
+                }
+            }
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool != null ? pool.getConnection() : DatabaseConnection.getConnection(dbUrl);
+    }
+}
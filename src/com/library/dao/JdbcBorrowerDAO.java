@@ -0,0 +1,560 @@
+package com.library.dao;
+
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.model.Money;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class JdbcBorrowerDAO implements BorrowerDAO {
+
+    private final String dbUrl;
+    private final ConnectionPool pool; // null unless connections are leased from a pool
+
+    public JdbcBorrowerDAO() {
+        this(DatabaseConnection.DB_URL);
+    }
+
+    /**
+     * @param dbUrl The JDBC URL of the database to use, e.g. one shard of a sharded library.
+     */
+    public JdbcBorrowerDAO(String dbUrl) {
+        this.dbUrl = dbUrl;
+        this.pool = null;
+    }
+
+    /**
+     * @param pool The pool to lease connections from, e.g. one shard's; its connections must
+     *             accept multi-statement executes.
+     */
+    public JdbcBorrowerDAO(ConnectionPool pool) {
+        this.dbUrl = null;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a new loan record in the database.
+     * @param borrower The Borrower object to create.
+     * @return The Borrower object with its auto-generated ID, or null if creation fails.
+     */
+    @Override
+    public Borrower createLoan(Borrower borrower) { // Parameter name changed for consistency
+        String sql = "INSERT INTO loans (book_id, member_id, loan_date, due_date, renewed, fine_amount, fine_paid) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, borrower.getBookId());
+            pstmt.setInt(2, borrower.getMemberId());
+            pstmt.setDate(3, java.sql.Date.valueOf(borrower.getLoanDate()));
+            pstmt.setDate(4, java.sql.Date.valueOf(borrower.getDueDate()));
+            pstmt.setBoolean(5, borrower.isRenewed());
+            pstmt.setBigDecimal(6, Money.toDecimal(borrower.getFinePaise())); // New: Set initial fine amount (0.00)
+            pstmt.setBoolean(7, borrower.isFinePaid());   // New: Set initial fine paid status (FALSE)
+
+            int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        borrower.setLoanId(generatedKeys.getInt(1));
+                        System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
+                        return borrower;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating borrower entry: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a loan (borrower entry) by its ID.
+     * @param loanId The ID of the loan to retrieve.
+     * @return The Borrower object, or null if not found.
+     */
+    @Override
+    public Borrower getLoanById(int loanId) {
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE loan_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, loanId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.LOAN.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting borrower entry by ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves all loans (borrower entries) for a specific member.
+     * @param memberId The ID of the member.
+     * @return A list of Borrower objects for the member.
+     */
+    @Override
+    public List<Borrower> getLoansByMemberId(int memberId) {
+        List<Borrower> borrowers = new ArrayList<>(); // Changed list name
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE member_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, memberId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    borrowers.add(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting borrower entries by member ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return borrowers;
+    }
+
+    /**
+     * Retrieves a member's loan history. Returned loans that were archived are only read when
+     * asked for, and only from the archive partitions covering loans made since the given date.
+     * @param memberId The ID of the member.
+     * @param archivedSince The earliest loan date of archived loans to include, or null for none.
+     * @return A list of Borrower objects for the member, most recent loan first.
+     */
+    @Override
+    public List<Borrower> getLoanHistoryByMemberId(int memberId, LocalDate archivedSince) {
+        if (archivedSince == null) {
+            return getLoansByMemberId(memberId);
+        }
+        List<Borrower> borrowers = new ArrayList<>();
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE member_id = ?"
+                   + " UNION ALL"
+                   + " SELECT " + RowMappers.LOAN_COLUMNS + " FROM loan_history WHERE member_id = ? AND loan_date >= ?"
+                   + " ORDER BY loan_date DESC, loan_id DESC";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, memberId);
+            pstmt.setInt(2, memberId);
+            pstmt.setDate(3, java.sql.Date.valueOf(archivedSince));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    borrowers.add(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting borrower history by member ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return borrowers;
+    }
+
+    /**
+     * Retrieves active loans (not yet returned) for a specific member.
+     * @param memberId The ID of the member.
+     * @return A list of active Borrower objects for the member.
+     */
+    @Override
+    public List<Borrower> getActiveLoansByMemberId(int memberId) {
+        List<Borrower> borrowers = new ArrayList<>(); // Changed list name
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE member_id = ? AND return_date IS NULL";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, memberId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    borrowers.add(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting active borrower entries by member ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return borrowers;
+    }
+
+    /**
+     * Updates the return date and fine amount/status of a loan (borrower entry).
+     * @param loanId The ID of the loan to update.
+     * @param returnDate The date the book was returned.
+     * @param finePaise The fine calculated for this loan, in paise.
+     * @param finePaid The initial fine paid status (usually false when first set).
+     * @return true if updated successfully, false otherwise.
+     */
+    @Override
+    public boolean updateLoanReturnDate(int loanId, LocalDate returnDate, long finePaise, boolean finePaid) { // Changed signature
+        String sql = "UPDATE loans SET return_date = ?, fine_amount = ?, fine_paid = ?, version = version + 1 WHERE loan_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(returnDate));
+            pstmt.setBigDecimal(2, Money.toDecimal(finePaise)); // New: Set fine amount
+            pstmt.setBoolean(3, finePaid);  // New: Set fine paid status
+            pstmt.setInt(4, loanId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating borrower entry return date: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Updates the due date and sets the renewed status of a loan (borrower entry).
+     * Fine amount and paid status are not changed here, only on return.
+     * @param loanId The ID of the loan to update.
+     * @param newDueDate The new due date after renewal.
+     * @return true if updated successfully, false otherwise.
+     */
+    @Override
+    public boolean updateLoanRenewedStatus(int loanId, LocalDate newDueDate) {
+        String sql = "UPDATE loans SET due_date = ?, renewed = TRUE, version = version + 1 WHERE loan_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(newDueDate));
+            pstmt.setInt(2, loanId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating borrower entry renewed status: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns a loan in a single round trip: marks the loan returned with its fine, puts the
+     * physical copy back on the shelf, puts the copy back into the book's available count, adds
+     * the fine to the member's total and reads the new total, all as one multi-statement execute
+     * inside a transaction. The copy is the one linked to the loan or, for loans made before
+     * copies were tracked, one of the book's unlinked borrowed copies; where copies are not
+     * tracked there is none. Copies are locked before the book, in the same order as a borrow.
+     * The transaction is rolled back if the loan changed since it was read or any statement fails.
+     * @param borrower The loan being returned, as read; its version is bumped on success.
+     * @param returnDate The date the book was returned.
+     * @param finePaise The fine calculated for this loan, in paise.
+     * @return The result (member's new total fine due, and the copy's barcode if there was one),
+     *         or null if the book or member is missing.
+     * @throws OptimisticLockException If the loan changed since it was read.
+     * @throws DataAccessException If a statement failed.
+     */
+    @Override
+    public CirculationResult returnLoan(Borrower borrower, LocalDate returnDate, long finePaise) {
+        String sql = "UPDATE loans SET return_date = ?, fine_amount = ?, fine_paid = FALSE, version = version + 1"
+                   + " WHERE loan_id = ? AND version = ? AND return_date IS NULL;"
+                   + "SET @copy = NULL;"
+                   + "SELECT barcode INTO @copy FROM book_copies WHERE loan_id = ? FOR UPDATE;"
+                   + "SELECT barcode INTO @copy FROM book_copies"
+                   + " WHERE @copy IS NULL AND book_id = ? AND status = 'BORROWED' AND loan_id IS NULL LIMIT 1 FOR UPDATE;"
+                   + "UPDATE book_copies SET status = 'AVAILABLE', loan_id = NULL WHERE barcode = @copy;"
+                   + "UPDATE books SET available_copies = available_copies + 1, version = version + 1 WHERE book_id = ?;"
+                   + "UPDATE members SET total_fine_due = total_fine_due + ?, version = version + 1 WHERE member_id = ?;"
+                   + "SELECT total_fine_due, @copy FROM members WHERE member_id = ?";
+        try (Connection conn = getMultiStatementConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setDate(1, java.sql.Date.valueOf(returnDate));
+                pstmt.setBigDecimal(2, Money.toDecimal(finePaise));
+                pstmt.setInt(3, borrower.getLoanId());
+                pstmt.setInt(4, borrower.getVersion());
+                pstmt.setInt(5, borrower.getLoanId());
+                pstmt.setInt(6, borrower.getBookId());
+                pstmt.setInt(7, borrower.getBookId());
+                pstmt.setBigDecimal(8, Money.toDecimal(finePaise));
+                pstmt.setInt(9, borrower.getMemberId());
+                pstmt.setInt(10, borrower.getMemberId());
+
+                // Update counts in statement order (loans first, books sixth), then the member row
+                int[] updateCounts = new int[7];
+                int updates = 0;
+                CirculationResult result = null;
+                boolean isResultSet = pstmt.execute();
+                while (isResultSet || pstmt.getUpdateCount() != -1) {
+                    if (isResultSet) {
+                        try (ResultSet rs = pstmt.getResultSet()) {
+                            if (rs.next()) {
+                                result = new CirculationResult(CirculationProcedureDAO.STATUS_OK);
+                                result.setBookId(borrower.getBookId());
+                                result.setFinePaise(finePaise);
+                                result.setTotalFineDuePaise(Money.fromDecimal(rs.getBigDecimal(1)));
+                                result.setBarcode(rs.getString(2));
+                            }
+                        }
+                    } else if (updates < updateCounts.length) {
+                        updateCounts[updates++] = pstmt.getUpdateCount();
+                    }
+                    isResultSet = pstmt.getMoreResults();
+                }
+                int loanRows = updateCounts[0];
+                int bookRows = updateCounts[5];
+
+                if (loanRows == 0) {
+                    conn.rollback();
+                    throw new OptimisticLockException("Borrower entry " + borrower.getLoanId() + " changed since it was read");
+                }
+                if (bookRows == 1 && result != null) {
+                    conn.commit();
+                    borrower.setVersion(borrower.getVersion() + 1);
+                    return result;
+                }
+                conn.rollback();
+                System.err.println("Borrower entry " + borrower.getLoanId() + " was not returned: its book/member is missing.");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error returning borrower entry", e);
+        }
+        return null;
+    }
+
+    /**
+     * Renews a loan in a single statement. The update only applies while the loan is at
+     * the version it was read at, still out and not yet renewed, so a concurrent return or
+     * renewal is not overwritten.
+     * @param borrower The loan to renew, as read; its version is bumped on success.
+     * @param newDueDate The new due date after renewal.
+     * @return true once renewed.
+     * @throws OptimisticLockException If the loan changed since it was read.
+     * @throws DataAccessException If the update failed.
+     */
+    @Override
+    public boolean renewLoan(Borrower borrower, LocalDate newDueDate) {
+        String sql = "UPDATE loans SET due_date = ?, renewed = TRUE, version = version + 1"
+                   + " WHERE loan_id = ? AND version = ? AND return_date IS NULL AND renewed = FALSE";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(newDueDate));
+            pstmt.setInt(2, borrower.getLoanId());
+            pstmt.setInt(3, borrower.getVersion());
+            if (pstmt.executeUpdate() == 0) {
+                throw new OptimisticLockException("Borrower entry " + borrower.getLoanId() + " changed since it was read");
+            }
+            borrower.setVersion(borrower.getVersion() + 1);
+            return true;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error renewing borrower entry", e);
+        }
+    }
+
+    /**
+     * Updates the fine_paid status for a specific borrower entry.
+     * @param loanId The ID of the borrower entry.
+     * @param paidStatus The new payment status (true for paid, false for unpaid).
+     * @return true if updated successfully, false otherwise.
+     */
+    @Override
+    public boolean updateFinePaidStatus(int loanId, boolean paidStatus) { // New method
+        String sql = "UPDATE loans SET fine_paid = ?, version = version + 1 WHERE loan_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setBoolean(1, paidStatus);
+            pstmt.setInt(2, loanId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating fine paid status for borrower entry: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves all active loans (borrower entries) that are overdue.
+     * @param currentDate The current date to check overdue against.
+     * @return A list of overdue Borrower objects.
+     */
+    @Override
+    public List<Borrower> getOverdueLoans(LocalDate currentDate) {
+        List<Borrower> overdueLoans = new ArrayList<>();
+        // Note: fine_amount and fine_paid are included in the SELECT statement
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE return_date IS NULL AND due_date < ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(currentDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    overdueLoans.add(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting overdue borrower entries: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return overdueLoans;
+    }
+
+    /**
+     * Retrieves all loans (borrower entries) made on or after a date, oldest first.
+     * @param fromDate The earliest loan date to include.
+     * @return A list of Borrower objects ordered by loan date.
+     */
+    @Override
+    public List<Borrower> getLoansSince(LocalDate fromDate) {
+        List<Borrower> borrowers = new ArrayList<>();
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans WHERE loan_date >= ? ORDER BY loan_date, loan_id";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(fromDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    borrowers.add(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting borrower entries since date: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return borrowers;
+    }
+
+    /**
+     * Streams every loan (borrower entry), including archived ones, to a consumer without holding
+     * the whole table in memory. Rows are read with MySQL result streaming, one at a time.
+     * @param consumer Receives each Borrower object; it should not call back into the DAO.
+     */
+    @Override
+    public void streamAllLoans(Consumer<Borrower> consumer) {
+        String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans"
+                   + " UNION ALL"
+                   + " SELECT " + RowMappers.LOAN_COLUMNS + " FROM loan_history";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows instead of buffering the result
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    consumer.accept(RowMappers.LOAN.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming borrower entries: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the unit of work in one transaction, one JDBC batch per statement type.
+     * On failure or a conflict the transaction is rolled back and the new loans' IDs are reset;
+     * on success the modified loans and members take their new versions.
+     * @throws DataAccessException If a statement failed.
+     */
+    @Override
+    public boolean writeUnitOfWork(List<Borrower> newLoans, Map<Borrower, String> issuedCopies, Collection<Borrower> dirtyLoans,
+                                   Map<Integer, Integer> bookCopyChanges, Collection<Member> dirtyMembers) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                createLoans(conn, newLoans);
+                BookCopyDAO.issueCopies(conn, issuedCopies);
+                updateLoans(conn, dirtyLoans);
+                JdbcBookDAO.updateBookCopies(conn, bookCopyChanges);
+                JdbcMemberDAO.updateTotalFineDue(conn, dirtyMembers);
+                conn.commit();
+                for (Borrower borrower : newLoans) {
+                    System.out.println("Borrower entry created successfully with ID: " + borrower.getLoanId());
+                }
+                for (Borrower borrower : dirtyLoans) {
+                    borrower.setVersion(borrower.getVersion() + 1);
+                }
+                for (Member member : dirtyMembers) {
+                    member.setVersion(member.getVersion() + 1);
+                }
+                return true;
+            } catch (SQLException | OptimisticLockException e) {
+                conn.rollback();
+                for (Borrower borrower : newLoans) {
+                    borrower.setLoanId(0);
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error flushing session changes", e);
+        }
+    }
+
+    /**
+     * Inserts new loans as one batch on the given connection and sets their generated IDs.
+     * The caller owns the connection and the transaction.
+     * @param conn The connection to use.
+     * @param borrowers The new Borrower objects.
+     * @throws SQLException If the batch fails.
+     */
+    void createLoans(Connection conn, List<Borrower> borrowers) throws SQLException {
+        if (borrowers.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO loans (book_id, member_id, loan_date, due_date, renewed, fine_amount, fine_paid) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Borrower borrower : borrowers) {
+                pstmt.setInt(1, borrower.getBookId());
+                pstmt.setInt(2, borrower.getMemberId());
+                pstmt.setDate(3, java.sql.Date.valueOf(borrower.getLoanDate()));
+                pstmt.setDate(4, java.sql.Date.valueOf(borrower.getDueDate()));
+                pstmt.setBoolean(5, borrower.isRenewed());
+                pstmt.setBigDecimal(6, Money.toDecimal(borrower.getFinePaise()));
+                pstmt.setBoolean(7, borrower.isFinePaid());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                for (Borrower borrower : borrowers) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Missing generated key for new borrower entry");
+                    }
+                    borrower.setLoanId(generatedKeys.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the mutable columns of the given loans as one batch on the given connection,
+     * each only if the row is still at the version the loan was read at.
+     * The caller owns the connection and the transaction, and bumps the loans' versions after commit.
+     * @param conn The connection to use.
+     * @param borrowers The modified Borrower objects.
+     * @throws SQLException If the batch fails.
+     * @throws OptimisticLockException If a loan changed or was removed since it was read.
+     */
+    void updateLoans(Connection conn, Collection<Borrower> borrowers) throws SQLException {
+        if (borrowers.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE loans SET due_date = ?, return_date = ?, renewed = ?, fine_amount = ?, fine_paid = ?, version = version + 1"
+                   + " WHERE loan_id = ? AND version = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Borrower borrower : borrowers) {
+                pstmt.setDate(1, java.sql.Date.valueOf(borrower.getDueDate()));
+                pstmt.setDate(2, borrower.getReturnDate() != null ? java.sql.Date.valueOf(borrower.getReturnDate()) : null);
+                pstmt.setBoolean(3, borrower.isRenewed());
+                pstmt.setBigDecimal(4, Money.toDecimal(borrower.getFinePaise()));
+                pstmt.setBoolean(5, borrower.isFinePaid());
+                pstmt.setInt(6, borrower.getLoanId());
+                pstmt.setInt(7, borrower.getVersion());
+                pstmt.addBatch();
+            }
+            for (int rowsAffected : pstmt.executeBatch()) {
+                if (rowsAffected == 0) {
+                    throw new OptimisticLockException("A borrower entry changed since it was read");
+                }
+            }
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool != null ? pool.getConnection() : DatabaseConnection.getConnection(dbUrl);
+    }
+
+    private Connection getMultiStatementConnection() throws SQLException {
+        return pool != null ? pool.getConnection() : DatabaseConnection.getMultiStatementConnection(dbUrl);
+    }
+}
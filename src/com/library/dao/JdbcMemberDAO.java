@@ -0,0 +1,293 @@
+
+package com.library.dao;
+
+import com.library.model.Member;
+import com.library.model.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class JdbcMemberDAO implements MemberDAO {
+
+    private final String dbUrl;
+    private final ConnectionPool pool; // null unless connections are leased from a pool
+
+    public JdbcMemberDAO() {
+        this(DatabaseConnection.DB_URL);
+    }
+
+    /**
+     * @param dbUrl The JDBC URL of the database to use, e.g. one shard of a sharded library.
+     */
+    public JdbcMemberDAO(String dbUrl) {
+        this.dbUrl = dbUrl;
+        this.pool = null;
+    }
+
+    /**
+     * @param pool The pool to lease connections from, e.g. one shard's.
+     */
+    public JdbcMemberDAO(ConnectionPool pool) {
+        this.dbUrl = null;
+        this.pool = pool;
+    }
+
+    /**
+     * Adds a new member to the database.
+     * @param member The Member object to add.
+     * @return The Member object with its auto-generated ID, or null if insertion fails.
+     */
+    @Override
+    public Member addMember(Member member) {
+        // total_fine_due is added to the INSERT statement
+        String sql = "INSERT INTO members (first_name, last_name, email, phone_number, join_date, total_fine_due) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setString(1, member.getFirstName());
+            pstmt.setString(2, member.getLastName());
+            pstmt.setString(3, member.getEmail());
+            pstmt.setString(4, member.getPhoneNumber());
+            pstmt.setDate(5, java.sql.Date.valueOf(member.getJoinDate()));
+            pstmt.setBigDecimal(6, Money.toDecimal(member.getTotalFineDuePaise())); // New: Set initial total fine due (0.00)
+
+            int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        member.setMemberId(generatedKeys.getInt(1));
+                        System.out.println("Member added successfully with ID: " + member.getMemberId());
+                        return member;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error adding member: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a member by their ID.
+     * @param memberId The ID of the member to retrieve.
+     * @return The Member object, or null if not found.
+     */
+    @Override
+    public Member getMemberById(int memberId) {
+        // total_fine_due is added to the SELECT statement
+        String sql = "SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members WHERE member_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, memberId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.MEMBER.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting member by ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a member by their email address.
+     * @param email The email address of the member to retrieve.
+     * @return The Member object, or null if not found.
+     */
+    @Override
+    public Member getMemberByEmail(String email) {
+        // total_fine_due is added to the SELECT statement
+        String sql = "SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members WHERE email = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, email);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMappers.MEMBER.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting member by email: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Updates an existing member's details in the database.
+     * total_fine_due is NOT updated here, it's handled by a separate method.
+     * @param member The Member object with updated details, as read; its version is bumped on success.
+     * @return true if updated successfully, false otherwise.
+     * @throws OptimisticLockException If the member changed or was removed since it was read.
+     */
+    @Override
+    public boolean updateMember(Member member) {
+        String sql = "UPDATE members SET first_name = ?, last_name = ?, email = ?, phone_number = ?, version = version + 1"
+                   + " WHERE member_id = ? AND version = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, member.getFirstName());
+            pstmt.setString(2, member.getLastName());
+            pstmt.setString(3, member.getEmail());
+            pstmt.setString(4, member.getPhoneNumber());
+            pstmt.setInt(5, member.getMemberId());
+            pstmt.setInt(6, member.getVersion());
+
+            if (pstmt.executeUpdate() == 0) {
+                throw new OptimisticLockException("Member " + member.getMemberId() + " changed since it was read");
+            }
+            member.setVersion(member.getVersion() + 1);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error updating member: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves all members from the database.
+     * @return A list of all Member objects.
+     */
+    @Override
+    public List<Member> getAllMembers() {
+        List<Member> members = new ArrayList<>();
+        // total_fine_due is added to the SELECT statement
+        String sql = "SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                members.add(RowMappers.MEMBER.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting all members: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return members;
+    }
+
+    /**
+     * Retrieves several members in one query.
+     * @param memberIds The IDs of the members to retrieve.
+     * @return A list of the Member objects found, in no particular order.
+     */
+    @Override
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        List<Member> members = new ArrayList<>();
+        if (memberIds.isEmpty()) {
+            return members;
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members WHERE member_id IN (");
+        for (int i = 0; i < memberIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < memberIds.size(); i++) {
+                pstmt.setInt(i + 1, memberIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    members.add(RowMappers.MEMBER.mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting members by IDs: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return members;
+    }
+
+    /**
+     * Updates the total_fine_due for a member.
+     * @param memberId The ID of the member.
+     * @param newTotalFineDuePaise The new total fine amount for the member, in paise.
+     * @return true if updated successfully, false otherwise.
+     */
+    @Override
+    public boolean updateTotalFineDue(int memberId, long newTotalFineDuePaise) { // New method
+        String sql = "UPDATE members SET total_fine_due = ?, version = version + 1 WHERE member_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setBigDecimal(1, Money.toDecimal(newTotalFineDuePaise));
+            pstmt.setInt(2, memberId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating total fine due for member: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Deletes a member from the database by ID.
+     * @param memberId The ID of the member to delete.
+     * @return true if deleted successfully, false otherwise.
+     */
+    @Override
+    public boolean deleteMember(int memberId) {
+        String sql = "DELETE FROM members WHERE member_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, memberId);
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Error deleting member: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes total_fine_due for the given members as one batch on the given connection,
+     * each only if the row is still at the version the member was read at.
+     * The caller owns the connection and the transaction, and bumps the members' versions after commit.
+     * @param conn The connection to use.
+     * @param members The modified Member objects.
+     * @throws SQLException If the batch fails.
+     * @throws OptimisticLockException If a member changed or was removed since it was read.
+     */
+    static void updateTotalFineDue(Connection conn, Collection<Member> members) throws SQLException {
+        if (members.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE members SET total_fine_due = ?, version = version + 1 WHERE member_id = ? AND version = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Member member : members) {
+                pstmt.setBigDecimal(1, Money.toDecimal(member.getTotalFineDuePaise()));
+                pstmt.setInt(2, member.getMemberId());
+                pstmt.setInt(3, member.getVersion());
+                pstmt.addBatch();
+            }
+            for (int rowsAffected : pstmt.executeBatch()) {
+                if (rowsAffected == 0) {
+                    throw new OptimisticLockException("A member changed since it was read");
+                }
+            }
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool != null ? pool.getConnection() : DatabaseConnection.getConnection(dbUrl);
+    }
+}
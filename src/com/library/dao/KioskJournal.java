@@ -0,0 +1,248 @@
+package com.library.dao;
+
+import com.library.model.Money;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the circulation operations made at an offline kiosk.
+ * Every entry is forced to disk before the operation is applied to the local copy of the
+ * data, so after a crash the kiosk state is the last snapshot plus the journal.
+ * Each journal has a random ID; together with an entry's sequence number it identifies
+ * the entry when it is synced, so an entry is never applied to MySQL twice.
+ * Records carry a CRC, and a torn record at the end of the file is cut off on open.
+ */
+public class KioskJournal implements AutoCloseable {
+
+    public enum Type { BORROW, RETURN, RENEW }
+
+    /**
+     * One journaled operation. Dates that do not apply to the type are null.
+     */
+    public static final class Entry {
+        private final int seq;
+        private final Type type;
+        private final int loanId;      // For BORROW, the ID the loan was given locally
+        private final int bookId;
+        private final int memberId;
+        private final LocalDate date;  // Loan, return or new due date
+        private final LocalDate dueDate; // BORROW only
+        private final long finePaise;  // RETURN only
+
+        Entry(int seq, Type type, int loanId, int bookId, int memberId, LocalDate date, LocalDate dueDate, long finePaise) {
+            this.seq = seq;
+            this.type = type;
+            this.loanId = loanId;
+            this.bookId = bookId;
+            this.memberId = memberId;
+            this.date = date;
+            this.dueDate = dueDate;
+            this.finePaise = finePaise;
+        }
+
+        public int getSeq() { return seq; }
+        public Type getType() { return type; }
+        public int getLoanId() { return loanId; }
+        public int getBookId() { return bookId; }
+        public int getMemberId() { return memberId; }
+        public LocalDate getDate() { return date; }
+        public LocalDate getDueDate() { return dueDate; }
+        public long getFinePaise() { return finePaise; }
+
+        @Override
+        public String toString() {
+            return "#" + seq + " " + type + " loan " + loanId + " (book " + bookId + ", member " + memberId + ") " + date;
+        }
+    }
+
+    private static final int MAGIC = 0x4C49424B; // "LIBK"
+    private static final int RUPEE_FINES_MAGIC = 0x4C49424A; // "LIBJ": journals that kept fines as rupee doubles
+    private static final int HEADER_BYTES = 4 + 16;
+    private static final int RECORD_BYTES = 1 + 4 + 4 + 4 + 4 + 8 + 8 + 8 + 8; // type, seq, ids, dates, fine, crc
+
+    private final Path file;
+    private FileChannel channel;
+    private UUID journalId;
+    private boolean rupeeFines; // true while appending to a journal with RUPEE_FINES_MAGIC
+    private final List<Entry> entries = new ArrayList<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+
+    private KioskJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens a journal, creating an empty one if the file does not exist.
+     * @param file The journal file.
+     * @return The journal with the entries read from the file.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    public static KioskJournal open(Path file) throws IOException {
+        KioskJournal journal = new KioskJournal(file);
+        if (!Files.exists(file)) {
+            journal.create();
+            return journal;
+        }
+        journal.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal.readAll();
+        return journal;
+    }
+
+    private void readAll() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.read(header, 0) != HEADER_BYTES || (header.getInt(0) != MAGIC && header.getInt(0) != RUPEE_FINES_MAGIC)) {
+            throw new IOException(file + " is not a kiosk journal");
+        }
+        rupeeFines = header.getInt(0) == RUPEE_FINES_MAGIC;
+        journalId = new UUID(header.getLong(4), header.getLong(12));
+
+        long position = HEADER_BYTES;
+        while (true) {
+            record.clear();
+            if (channel.read(record, position) != RECORD_BYTES) {
+                break;
+            }
+            record.flip();
+            Entry entry = decode(record);
+            if (entry == null || entry.getSeq() != entries.size() + 1) {
+                break;
+            }
+            entries.add(entry);
+            position += RECORD_BYTES;
+        }
+        if (channel.size() > position) {
+            System.err.println("Kiosk journal " + file + ": discarding " + (channel.size() - position) + " bytes of an incomplete record");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+    }
+
+    private void create() throws IOException {
+        journalId = UUID.randomUUID();
+        rupeeFines = false;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putLong(journalId.getMostSignificantBits()).putLong(journalId.getLeastSignificantBits()).flip();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(header);
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(HEADER_BYTES);
+        entries.clear();
+    }
+
+    public synchronized UUID getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * @return A copy of the entries, oldest first.
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Appends an entry and forces it to disk.
+     * @return The appended entry.
+     * @throws IOException If the entry could not be made durable; it is then not part of the journal.
+     */
+    public synchronized Entry append(Type type, int loanId, int bookId, int memberId,
+                                     LocalDate date, LocalDate dueDate, long finePaise) throws IOException {
+        Entry entry = new Entry(entries.size() + 1, type, loanId, bookId, memberId, date, dueDate, finePaise);
+        encode(entry);
+        long position = channel.position();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            channel.truncate(position);
+            channel.position(position);
+            throw e;
+        }
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Replaces the journal with an empty one under a new ID, once all entries are synced.
+     */
+    public synchronized void reset() throws IOException {
+        channel.close();
+        create();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void encode(Entry entry) {
+        record.clear();
+        record.put((byte) entry.getType().ordinal())
+              .putInt(entry.getSeq())
+              .putInt(entry.getLoanId())
+              .putInt(entry.getBookId())
+              .putInt(entry.getMemberId())
+              .putLong(toEpochDay(entry.getDate()))
+              .putLong(toEpochDay(entry.getDueDate()));
+        if (rupeeFines) {
+            record.putDouble(entry.getFinePaise() / (double) Money.PAISE_PER_RUPEE);
+        } else {
+            record.putLong(entry.getFinePaise());
+        }
+        record.putLong(crc(record.array(), RECORD_BYTES - 8));
+        record.flip();
+    }
+
+    private Entry decode(ByteBuffer buffer) {
+        if (buffer.getLong(RECORD_BYTES - 8) != crc(buffer.array(), RECORD_BYTES - 8)) {
+            return null;
+        }
+        int type = buffer.get();
+        if (type < 0 || type >= Type.values().length) {
+            return null;
+        }
+        return new Entry(buffer.getInt(), Type.values()[type], buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                         fromEpochDay(buffer.getLong()), fromEpochDay(buffer.getLong()),
+                         rupeeFines ? Money.fromDouble(buffer.getDouble()) : buffer.getLong());
+    }
+
+    private static long crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    private static long toEpochDay(LocalDate date) {
+        return date != null ? date.toEpochDay() : Long.MIN_VALUE;
+    }
+
+    private static LocalDate fromEpochDay(long epochDay) {
+        return epochDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
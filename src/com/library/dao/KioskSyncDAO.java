@@ -0,0 +1,278 @@
+package com.library.dao;
+
+import com.library.model.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Moves data between MySQL and an offline kiosk: pushes the kiosk's journal to the central
+ * tables and loads the snapshot the kiosk works from while offline.
+ * Unlike the other DAOs, failures are thrown rather than printed, since an unreachable
+ * server is the normal state of an offline kiosk and the caller decides what to report.
+ */
+public class KioskSyncDAO {
+
+    private static final String APPLIED = "APPLIED";
+    private static final String CONFLICT = "CONFLICT";
+
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+
+    /**
+     * @param connectTimeoutMillis How long to wait for the server before treating it as unreachable.
+     * @param socketTimeoutMillis How long to wait for a single statement before giving up on the sync.
+     */
+    public KioskSyncDAO(int connectTimeoutMillis, int socketTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    /**
+     * Applies journal entries to the central tables, batchSize entries per transaction.
+     * Each entry is recorded in kiosk_journal_entries in the same transaction as its changes,
+     * so entries already pushed by an interrupted sync are skipped, never applied twice.
+     * Every change is conditional on the central row still being in the state the kiosk saw;
+     * entries whose condition fails are recorded as conflicts and change nothing.
+     * Where the book's physical copies are tracked, a borrow marks one of its available copies
+     * BORROWED on the new loan and a return puts the loan's copy back to AVAILABLE, in the same
+     * transaction; a borrow of a tracked book with no copy on the shelf is a conflict.
+     * @param journalId The ID of the journal the entries belong to.
+     * @param entries The entries, oldest first.
+     * @param batchSize The number of entries per transaction.
+     * @return The counts of applied, skipped and conflicting entries.
+     * @throws SQLException If the server is unreachable or a statement fails; batches committed before that stay applied.
+     */
+    public KioskSyncResult push(UUID journalId, List<KioskJournal.Entry> entries, int batchSize) throws SQLException {
+        return DaoCallEvent.record(this, "push", 0, () -> {
+            KioskSyncResult result = new KioskSyncResult();
+            try (Connection conn = DatabaseConnection.getSyncConnection(connectTimeoutMillis, socketTimeoutMillis)) {
+                Map<Integer, Integer> centralLoanIds = new HashMap<>(); // Local ID of a loan borrowed offline -> central ID, 0 if not synced
+                Set<Integer> syncedSeqs = loadSyncedEntries(conn, journalId, centralLoanIds);
+
+                conn.setAutoCommit(false);
+                try (PreparedStatement memberExists = conn.prepareStatement("SELECT 1 FROM members WHERE member_id = ?");
+                     PreparedStatement pickCopy = conn.prepareStatement(
+                             "SELECT barcode FROM book_copies WHERE book_id = ? AND status = 'AVAILABLE' LIMIT 1 FOR UPDATE");
+                     PreparedStatement copiesTracked = conn.prepareStatement("SELECT 1 FROM book_copies WHERE book_id = ? LIMIT 1");
+                     PreparedStatement issueCopy = conn.prepareStatement(
+                             "UPDATE book_copies SET status = 'BORROWED', loan_id = ? WHERE barcode = ?");
+                     PreparedStatement takeCopy = conn.prepareStatement(
+                             "UPDATE books SET available_copies = available_copies - 1, version = version + 1 WHERE book_id = ? AND available_copies > 0");
+                     PreparedStatement insertLoan = conn.prepareStatement(
+                             "INSERT INTO loans (book_id, member_id, loan_date, due_date, renewed, fine_amount, fine_paid) VALUES (?, ?, ?, ?, FALSE, 0.00, FALSE)",
+                             Statement.RETURN_GENERATED_KEYS);
+                     PreparedStatement returnLoan = conn.prepareStatement(
+                             "UPDATE loans SET return_date = ?, fine_amount = ?, fine_paid = FALSE, version = version + 1 WHERE loan_id = ? AND return_date IS NULL");
+                     PreparedStatement releaseCopy = conn.prepareStatement(
+                             "UPDATE book_copies SET status = 'AVAILABLE', loan_id = NULL WHERE loan_id = ?");
+                     PreparedStatement releaseUnlinkedCopy = conn.prepareStatement( // loans made before copies were tracked
+                             "UPDATE book_copies SET status = 'AVAILABLE' WHERE book_id = ? AND status = 'BORROWED' AND loan_id IS NULL LIMIT 1");
+                     PreparedStatement putBackCopy = conn.prepareStatement(
+                             "UPDATE books SET available_copies = available_copies + 1, version = version + 1 WHERE book_id = ?");
+                     PreparedStatement addFine = conn.prepareStatement(
+                             "UPDATE members SET total_fine_due = total_fine_due + ?, version = version + 1 WHERE member_id = ?");
+                     PreparedStatement renewLoan = conn.prepareStatement(
+                             "UPDATE loans SET due_date = ?, renewed = TRUE, version = version + 1 WHERE loan_id = ? AND return_date IS NULL AND renewed = FALSE");
+                     PreparedStatement recordEntry = conn.prepareStatement(
+                             "INSERT INTO kiosk_journal_entries (journal_id, seq, entry_type, local_loan_id, loan_id, status, detail) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+
+                    int inBatch = 0;
+                    for (KioskJournal.Entry entry : entries) {
+                        if (syncedSeqs.contains(entry.getSeq())) {
+                            result.addSkipped();
+                            continue;
+                        }
+
+                        int loanId = centralLoanIds.getOrDefault(entry.getLoanId(), entry.getLoanId());
+                        String conflict = null;
+                        switch (entry.getType()) {
+                            case BORROW:
+                                loanId = 0;
+                                memberExists.setInt(1, entry.getMemberId());
+                                try (ResultSet rs = memberExists.executeQuery()) {
+                                    if (!rs.next()) {
+                                        conflict = "member no longer exists";
+                                    }
+                                }
+                                // The copy is locked before the book, in the same order as a borrow at the desk
+                                String barcode = null;
+                                if (conflict == null) {
+                                    pickCopy.setInt(1, entry.getBookId());
+                                    try (ResultSet rs = pickCopy.executeQuery()) {
+                                        barcode = rs.next() ? rs.getString(1) : null;
+                                    }
+                                    if (barcode == null) {
+                                        copiesTracked.setInt(1, entry.getBookId());
+                                        try (ResultSet rs = copiesTracked.executeQuery()) {
+                                            if (rs.next()) {
+                                                conflict = "book has no copy on the shelf";
+                                            }
+                                        }
+                                    }
+                                }
+                                if (conflict == null) {
+                                    takeCopy.setInt(1, entry.getBookId());
+                                    if (takeCopy.executeUpdate() == 0) {
+                                        conflict = "book no longer exists or has no available copy";
+                                    }
+                                }
+                                if (conflict == null) {
+                                    insertLoan.setInt(1, entry.getBookId());
+                                    insertLoan.setInt(2, entry.getMemberId());
+                                    insertLoan.setDate(3, java.sql.Date.valueOf(entry.getDate()));
+                                    insertLoan.setDate(4, java.sql.Date.valueOf(entry.getDueDate()));
+                                    insertLoan.executeUpdate();
+                                    try (ResultSet generatedKeys = insertLoan.getGeneratedKeys()) {
+                                        generatedKeys.next();
+                                        loanId = generatedKeys.getInt(1);
+                                    }
+                                    if (barcode != null) {
+                                        issueCopy.setInt(1, loanId);
+                                        issueCopy.setString(2, barcode);
+                                        issueCopy.executeUpdate();
+                                    }
+                                }
+                                centralLoanIds.put(entry.getLoanId(), loanId);
+                                break;
+                            case RETURN:
+                                if (loanId == 0) {
+                                    conflict = "the loan was borrowed offline and its borrow was not synced";
+                                    break;
+                                }
+                                returnLoan.setDate(1, java.sql.Date.valueOf(entry.getDate()));
+                                returnLoan.setBigDecimal(2, Money.toDecimal(entry.getFinePaise()));
+                                returnLoan.setInt(3, loanId);
+                                if (returnLoan.executeUpdate() == 0) {
+                                    conflict = "loan was already returned or no longer exists";
+                                    break;
+                                }
+                                releaseCopy.setInt(1, loanId);
+                                if (releaseCopy.executeUpdate() == 0) {
+                                    releaseUnlinkedCopy.setInt(1, entry.getBookId());
+                                    releaseUnlinkedCopy.executeUpdate();
+                                }
+                                putBackCopy.setInt(1, entry.getBookId());
+                                putBackCopy.executeUpdate();
+                                if (entry.getFinePaise() > 0) {
+                                    addFine.setBigDecimal(1, Money.toDecimal(entry.getFinePaise()));
+                                    addFine.setInt(2, entry.getMemberId());
+                                    addFine.executeUpdate();
+                                }
+                                break;
+                            case RENEW:
+                                if (loanId == 0) {
+                                    conflict = "the loan was borrowed offline and its borrow was not synced";
+                                    break;
+                                }
+                                renewLoan.setDate(1, java.sql.Date.valueOf(entry.getDate()));
+                                renewLoan.setInt(2, loanId);
+                                if (renewLoan.executeUpdate() == 0) {
+                                    conflict = "loan was already returned or renewed";
+                                }
+                                break;
+                        }
+
+                        recordEntry.setString(1, journalId.toString());
+                        recordEntry.setInt(2, entry.getSeq());
+                        recordEntry.setString(3, entry.getType().name());
+                        recordEntry.setInt(4, entry.getLoanId());
+                        if (loanId != 0) {
+                            recordEntry.setInt(5, loanId);
+                        } else {
+                            recordEntry.setNull(5, java.sql.Types.INTEGER);
+                        }
+                        recordEntry.setString(6, conflict == null ? APPLIED : CONFLICT);
+                        recordEntry.setString(7, conflict);
+                        recordEntry.executeUpdate();
+
+                        if (conflict == null) {
+                            result.addApplied();
+                        } else {
+                            result.addConflict(entry, conflict);
+                        }
+                        if (++inBatch == batchSize) {
+                            conn.commit();
+                            inBatch = 0;
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Reads which entries of a journal were pushed before and the central IDs of the loans it borrowed.
+     */
+    private Set<Integer> loadSyncedEntries(Connection conn, UUID journalId, Map<Integer, Integer> centralLoanIds) throws SQLException {
+        Set<Integer> syncedSeqs = new HashSet<>();
+        String sql = "SELECT seq, entry_type, local_loan_id, loan_id FROM kiosk_journal_entries WHERE journal_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, journalId.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    syncedSeqs.add(rs.getInt("seq"));
+                    if (KioskJournal.Type.BORROW.name().equals(rs.getString("entry_type"))) {
+                        centralLoanIds.put(rs.getInt("local_loan_id"), rs.getInt("loan_id")); // NULL reads as 0
+                    }
+                }
+            }
+        }
+        return syncedSeqs;
+    }
+
+    /**
+     * Loads what a kiosk needs to work offline: all books and members, and the loans that are
+     * still out or have an unpaid fine. New local loan IDs continue after the highest central one.
+     * @return A database holding the snapshot.
+     * @throws SQLException If the server is unreachable or a query fails.
+     */
+    public InMemoryDatabase loadSnapshot() throws SQLException {
+        return DaoCallEvent.record(this, "loadSnapshot", 0, () -> {
+            InMemoryDatabase db = new InMemoryDatabase();
+            try (Connection conn = DatabaseConnection.getSyncConnection(connectTimeoutMillis, socketTimeoutMillis);
+                 Statement stmt = conn.createStatement()) {
+                // One read view, so books, members and loans agree with each other
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                try (ResultSet rs = stmt.executeQuery("SELECT " + RowMappers.BOOK_COLUMNS + " FROM books")) {
+                    while (rs.next()) {
+                        db.insertBook(RowMappers.BOOK.mapRow(rs));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members")) {
+                    while (rs.next()) {
+                        db.insertMember(RowMappers.MEMBER.mapRow(rs));
+                    }
+                }
+                String loansSql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans "
+                                + "WHERE return_date IS NULL OR (fine_amount > 0 AND fine_paid = FALSE)";
+                try (ResultSet rs = stmt.executeQuery(loansSql)) {
+                    while (rs.next()) {
+                        db.insertLoan(RowMappers.LOAN.mapRow(rs));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(loan_id), 0) FROM loans")) {
+                    rs.next();
+                    db.nextLoanId = Math.max(db.nextLoanId, rs.getInt(1) + 1);
+                }
+                conn.commit();
+            }
+            return db;
+        });
+    }
+}
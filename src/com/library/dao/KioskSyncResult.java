@@ -0,0 +1,25 @@
+package com.library.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of pushing a kiosk journal to MySQL. Entries synced by an earlier, interrupted
+ * push are counted as skipped. A conflict is an entry that no longer fits the central data,
+ * e.g. a return of a loan that was already returned elsewhere; it is recorded in
+ * kiosk_journal_entries for a librarian to resolve instead of being applied.
+ */
+public class KioskSyncResult {
+    private int applied;
+    private int skipped;
+    private final List<String> conflicts = new ArrayList<>();
+
+    // Getters
+    public int getApplied() { return applied; }
+    public int getSkipped() { return skipped; }
+    public List<String> getConflicts() { return conflicts; }
+
+    void addApplied() { applied++; }
+    void addSkipped() { skipped++; }
+    void addConflict(KioskJournal.Entry entry, String reason) { conflicts.add(entry + ": " + reason); }
+}
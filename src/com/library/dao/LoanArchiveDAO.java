@@ -0,0 +1,132 @@
+package com.library.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves returned loans whose fine is settled out of the active loans table into
+ * loan_history, which is range-partitioned by loan year. Loans are moved in small
+ * batches, each in its own short transaction, with a pause in between so the job
+ * does not hold locks or saturate the server while the library is in use.
+ */
+public class LoanArchiveDAO {
+
+    private static final String OPEN_PARTITION = "p_future"; // catch-all partition, split off one year at a time
+
+    private final int batchSize;
+    private final long pauseMillis;
+
+    /**
+     * @param batchSize The number of loans moved per transaction.
+     * @param pauseMillis How long to wait between batches.
+     */
+    public LoanArchiveDAO(int batchSize, long pauseMillis) {
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+    }
+
+    /**
+     * Archives returned loans with no unpaid fine that were returned before a date.
+     * @param returnedBefore Loans returned on or after this date stay active.
+     * @return The number of loans archived, or -1 if the job failed before moving anything.
+     */
+    public int archiveLoans(LocalDate returnedBefore) {
+        return DaoCallEvent.record(this, "archiveLoans", 0, () -> {
+            if (!ensureYearPartitions(returnedBefore.getYear())) {
+                return -1;
+            }
+            String selectSql = "SELECT loan_id FROM loans WHERE return_date < ? AND (fine_paid = TRUE OR fine_amount = 0)"
+                             + " ORDER BY loan_id LIMIT ? FOR UPDATE";
+            int archived = 0;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                while (true) {
+                    List<Integer> loanIds = new ArrayList<>();
+                    try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                        pstmt.setDate(1, java.sql.Date.valueOf(returnedBefore));
+                        pstmt.setInt(2, batchSize);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                loanIds.add(rs.getInt(1));
+                            }
+                        }
+                    }
+                    if (loanIds.isEmpty()) {
+                        conn.commit();
+                        break;
+                    }
+
+                    String idList = String.join(", ", Collections.nCopies(loanIds.size(), "?"));
+                    String insertSql = "INSERT INTO loan_history (" + RowMappers.LOAN_COLUMNS + ", archived_on) SELECT " + RowMappers.LOAN_COLUMNS
+                                     + ", ? FROM loans WHERE loan_id IN (" + idList + ")";
+                    String deleteSql = "DELETE FROM loans WHERE loan_id IN (" + idList + ")";
+                    try (PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+                         PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
+                        insertStmt.setDate(1, java.sql.Date.valueOf(LocalDate.now()));
+                        for (int i = 0; i < loanIds.size(); i++) {
+                            insertStmt.setInt(i + 2, loanIds.get(i));
+                            deleteStmt.setInt(i + 1, loanIds.get(i));
+                        }
+                        insertStmt.executeUpdate();
+                        deleteStmt.executeUpdate();
+                        conn.commit();
+                        archived += loanIds.size();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+
+                    if (loanIds.size() < batchSize) {
+                        break;
+                    }
+                    Thread.sleep(pauseMillis);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error archiving borrower entries after " + archived + " were moved: " + e.getMessage());
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return archived;
+        });
+    }
+
+    /**
+     * Makes sure loan_history has its own partition for every year up to the given one, by
+     * splitting the catch-all partition. Only years after the newest existing partition are added.
+     */
+    private boolean ensureYearPartitions(int lastYear) {
+        String sql = "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS"
+                   + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'loan_history' AND PARTITION_NAME REGEXP '^p[0-9]{4}$'";
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int newestYear = 0;
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    newestYear = Math.max(newestYear, Integer.parseInt(rs.getString(1).substring(1)));
+                }
+            }
+            if (newestYear == 0) {
+                System.err.println("loan_history has no yearly partitions; see the schema in README.md.");
+                return false;
+            }
+            for (int year = newestYear + 1; year <= lastYear; year++) {
+                stmt.executeUpdate("ALTER TABLE loan_history REORGANIZE PARTITION " + OPEN_PARTITION + " INTO ("
+                        + "PARTITION p" + year + " VALUES LESS THAN ('" + (year + 1) + "-01-01'), "
+                        + "PARTITION " + OPEN_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            }
+            return true;
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Error preparing loan history partitions: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.library.dao;
+
+/**
+ * Thrown by a DAO when a row it was asked to update changed since it was read: its version
+ * column no longer matches, it was deleted, or a guarded count would leave its bounds.
+ * Nothing was written. The caller can read the rows again and retry the whole operation.
+ */
+public class OptimisticLockException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
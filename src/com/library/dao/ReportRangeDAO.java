@@ -0,0 +1,238 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads for parallel reports. Each read covers one slice of a table by primary key range,
+ * in key order, so slices read at the same time on different connections can be merged by
+ * concatenation; each is a range scan of the clustered index. Reads return null instead of
+ * a partial result when they fail, so a report is never silently missing a slice.
+ */
+public class ReportRangeDAO {
+
+    private static final int LOOKUP_BATCH_SIZE = 1000; // IDs per IN (...) lookup
+
+    /**
+     * The tables a report can be split over, with their primary keys.
+     */
+    public enum Table {
+        BOOKS("books", "book_id"),
+        MEMBERS("members", "member_id"),
+        LOANS("loans", "loan_id");
+
+        private final String name;
+        private final String key;
+
+        Table(String name, String key) {
+            this.name = name;
+            this.key = key;
+        }
+    }
+
+    private final String dbUrl;
+
+    public ReportRangeDAO() {
+        this(DatabaseConnection.DB_URL);
+    }
+
+    /**
+     * @param dbUrl The JDBC URL of the database to use.
+     */
+    public ReportRangeDAO(String dbUrl) {
+        this.dbUrl = dbUrl;
+    }
+
+    /**
+     * Opens a pool for the slices of one report.
+     * @param connections The most connections the report uses at once.
+     * @return The pool; the caller closes it.
+     */
+    public ConnectionPool openPool(int connections) {
+        return new ConnectionPool(dbUrl, connections);
+    }
+
+    /**
+     * @param pool The report's connections.
+     * @param table The table.
+     * @return The smallest and largest key of the table, { 1, 0 } if it is empty, or null if the query fails.
+     */
+    public int[] getKeyRange(ConnectionPool pool, Table table) {
+        return DaoCallEvent.record(this, "getKeyRange", 0, () -> {
+            String sql = "SELECT MIN(" + table.key + "), MAX(" + table.key + ") FROM " + table.name;
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                rs.next();
+                if (rs.getObject(1) == null) {
+                    return new int[] { 1, 0 };
+                }
+                return new int[] { rs.getInt(1), rs.getInt(2) };
+            } catch (SQLException e) {
+                System.err.println("Error getting key range of " + table.name + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the overdue loans with IDs in [fromId, toId], by loan ID.
+     * @param pool The report's connections.
+     * @param currentDate The date to check for overdue loans.
+     * @param fromId The first loan ID of the slice.
+     * @param toId The last loan ID of the slice.
+     * @return A list of overdue Borrower objects, or null if the query fails.
+     */
+    public List<Borrower> getOverdueLoans(ConnectionPool pool, LocalDate currentDate, int fromId, int toId) {
+        return DaoCallEvent.record(this, "getOverdueLoans", fromId, () -> {
+            List<Borrower> overdueLoans = new ArrayList<>();
+            String sql = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans"
+                       + " WHERE loan_id BETWEEN ? AND ? AND return_date IS NULL AND due_date < ? ORDER BY loan_id";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                pstmt.setDate(3, java.sql.Date.valueOf(currentDate));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        overdueLoans.add(RowMappers.LOAN.mapRow(rs));
+                    }
+                }
+                return overdueLoans;
+            } catch (SQLException e) {
+                System.err.println("Error getting overdue borrower entries " + fromId + "-" + toId + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the members with IDs in [fromId, toId], by member ID.
+     * @param pool The report's connections.
+     * @param fromId The first member ID of the slice.
+     * @param toId The last member ID of the slice.
+     * @return A list of Member objects, or null if the query fails.
+     */
+    public List<Member> getMembers(ConnectionPool pool, int fromId, int toId) {
+        return DaoCallEvent.record(this, "getMembers", fromId, () -> {
+            List<Member> members = new ArrayList<>();
+            String sql = "SELECT " + RowMappers.MEMBER_COLUMNS + " FROM members WHERE member_id BETWEEN ? AND ? ORDER BY member_id";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        members.add(RowMappers.MEMBER.mapRow(rs));
+                    }
+                }
+                return members;
+            } catch (SQLException e) {
+                System.err.println("Error getting members " + fromId + "-" + toId + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the books with IDs in [fromId, toId] that have a copy available, by book ID.
+     * @param pool The report's connections.
+     * @param fromId The first book ID of the slice.
+     * @param toId The last book ID of the slice.
+     * @return A list of available Book objects, or null if the query fails.
+     */
+    public List<Book> getAvailableBooks(ConnectionPool pool, int fromId, int toId) {
+        return DaoCallEvent.record(this, "getAvailableBooks", fromId, () -> {
+            List<Book> books = new ArrayList<>();
+            String sql = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books"
+                       + " WHERE book_id BETWEEN ? AND ? AND available_copies > 0 ORDER BY book_id";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(RowMappers.BOOK.mapRow(rs));
+                    }
+                }
+                return books;
+            } catch (SQLException e) {
+                System.err.println("Error getting available books " + fromId + "-" + toId + ": " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Looks up book titles in batches.
+     * @param pool The report's connections.
+     * @param bookIds The distinct IDs of the books.
+     * @return The title of each book found, by book ID, or null if a query fails.
+     */
+    public Map<Integer, String> getBookTitles(ConnectionPool pool, List<Integer> bookIds) {
+        return DaoCallEvent.record(this, "getBookTitles", 0, () -> {
+            return lookUp(pool, "SELECT book_id, title FROM books WHERE book_id IN (", bookIds, "book titles");
+        });
+    }
+
+    /**
+     * Looks up member names ("first last") in batches.
+     * @param pool The report's connections.
+     * @param memberIds The distinct IDs of the members.
+     * @return The name of each member found, by member ID, or null if a query fails.
+     */
+    public Map<Integer, String> getMemberNames(ConnectionPool pool, List<Integer> memberIds) {
+        return DaoCallEvent.record(this, "getMemberNames", 0, () -> {
+            return lookUp(pool, "SELECT member_id, CONCAT_WS(' ', first_name, last_name) FROM members WHERE member_id IN (",
+                          memberIds, "member names");
+        });
+    }
+
+    private Map<Integer, String> lookUp(ConnectionPool pool, String sqlPrefix, List<Integer> ids, String what) {
+        Map<Integer, String> values = new HashMap<>();
+        if (ids.isEmpty()) {
+            return values;
+        }
+        try (Connection conn = pool.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+                StringBuilder sql = new StringBuilder(sqlPrefix);
+                for (int i = 0; i < batch.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        pstmt.setInt(i + 1, batch.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            values.put(rs.getInt(1), rs.getString(2));
+                        }
+                    }
+                }
+            }
+            return values;
+        } catch (SQLException e) {
+            System.err.println("Error looking up " + what + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.library.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object. Mappers read columns by position, so
+ * each one is paired with the select list it was written for (see RowMappers); they hold no
+ * state and one instance serves every query and thread.
+ * @param <T> The mapped type.
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    /**
+     * @param rs A result set positioned on a row.
+     * @return The mapped row.
+     * @throws SQLException If a column cannot be read.
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
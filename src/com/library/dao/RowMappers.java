@@ -0,0 +1,76 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.BookCopy;
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.model.Money;
+
+import java.time.LocalDate;
+
+/**
+ * The select lists of the main tables and the mappers that read them. Queries select one of
+ * these lists first, so the mappers can read by column position instead of looking each
+ * column label up for every value of every row. Dates are decoded straight to LocalDate.
+ */
+final class RowMappers {
+
+    static final String BOOK_COLUMNS = "book_id, title, author, isbn, publication_year, total_copies, available_copies, version";
+    static final String MEMBER_COLUMNS = "member_id, first_name, last_name, email, phone_number, join_date, total_fine_due, version";
+    static final String LOAN_COLUMNS = "loan_id, book_id, member_id, loan_date, due_date, return_date, renewed, fine_amount, fine_paid, version";
+    static final String COPY_COLUMNS = "barcode, book_id, status, loan_id";
+
+    static final RowMapper<Book> BOOK = rs -> {
+        Book book = new Book(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getInt(5),
+            rs.getInt(6),
+            rs.getInt(7)
+        );
+        book.setVersion(rs.getInt(8));
+        return book;
+    };
+
+    static final RowMapper<Member> MEMBER = rs -> {
+        Member member = new Member(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getObject(6, LocalDate.class),
+            Money.fromDecimal(rs.getBigDecimal(7))
+        );
+        member.setVersion(rs.getInt(8));
+        return member;
+    };
+
+    static final RowMapper<Borrower> LOAN = rs -> {
+        Borrower loan = new Borrower(
+            rs.getInt(1),
+            rs.getInt(2),
+            rs.getInt(3),
+            rs.getObject(4, LocalDate.class),
+            rs.getObject(5, LocalDate.class),
+            rs.getObject(6, LocalDate.class), // null while the loan is open
+            rs.getBoolean(7),
+            Money.fromDecimal(rs.getBigDecimal(8)),
+            rs.getBoolean(9)
+        );
+        loan.setVersion(rs.getInt(10));
+        return loan;
+    };
+
+    static final RowMapper<BookCopy> COPY = rs -> new BookCopy(
+        rs.getString(1),
+        rs.getInt(2),
+        rs.getString(3),
+        rs.getInt(4) // 0 while the copy is not on loan
+    );
+
+    private RowMappers() {
+    }
+}
@@ -0,0 +1,132 @@
+package com.library.dao;
+
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Money;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the label-based row mapping the DAOs used to do (rs.getInt("book_id"),
+ * rs.getDate(...).toLocalDate()) with RowMappers' positional mappers, on the queries behind
+ * getAllBooks and getOverdueLoans against the configured MySQL database. Both mappings read
+ * the same select list from the same result sets, so only the mapping differs. The driver
+ * buffers each result set, so the mapping loop is timed on its own as well as together with
+ * the query; the best of several rounds is kept.
+ * Lives next to the mappers because they are package-private.
+ *
+ * Usage: java com.library.dao.RowMappingBenchmark [rounds]
+ */
+public class RowMappingBenchmark {
+
+    private static final String ALL_BOOKS_SQL = "SELECT " + RowMappers.BOOK_COLUMNS + " FROM books";
+    private static final String OVERDUE_LOANS_SQL = "SELECT " + RowMappers.LOAN_COLUMNS + " FROM loans"
+                                                  + " WHERE return_date IS NULL AND due_date < ?";
+
+    /**
+     * The way books used to be mapped: by column label.
+     */
+    private static final RowMapper<Book> BOOK_BY_LABEL = rs -> {
+        Book book = new Book(
+            rs.getInt("book_id"),
+            rs.getString("title"),
+            rs.getString("author"),
+            rs.getString("isbn"),
+            rs.getInt("publication_year"),
+            rs.getInt("total_copies"),
+            rs.getInt("available_copies")
+        );
+        book.setVersion(rs.getInt("version"));
+        return book;
+    };
+
+    /**
+     * The way loans used to be mapped: by column label, with dates going through java.sql.Date.
+     */
+    private static final RowMapper<Borrower> LOAN_BY_LABEL = rs -> {
+        Date returnDate = rs.getDate("return_date");
+        Borrower loan = new Borrower(
+            rs.getInt("loan_id"),
+            rs.getInt("book_id"),
+            rs.getInt("member_id"),
+            rs.getDate("loan_date").toLocalDate(),
+            rs.getDate("due_date").toLocalDate(),
+            returnDate != null ? returnDate.toLocalDate() : null,
+            rs.getBoolean("renewed"),
+            Money.fromDecimal(rs.getBigDecimal("fine_amount")),
+            rs.getBoolean("fine_paid")
+        );
+        loan.setVersion(rs.getInt("version"));
+        return loan;
+    };
+
+    public static void main(String[] args) throws SQLException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        LocalDate today = LocalDate.now();
+        System.out.println("Rounds: " + rounds);
+        System.out.printf("%-16s %-10s %10s %16s %16s%n", "Query", "Mapping", "Rows", "Map rows/s", "Query rows/s");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            compare(conn, "getAllBooks", ALL_BOOKS_SQL, null, BOOK_BY_LABEL, RowMappers.BOOK, rounds);
+            compare(conn, "getOverdueLoans", OVERDUE_LOANS_SQL, today, LOAN_BY_LABEL, RowMappers.LOAN, rounds);
+        }
+    }
+
+    private static <T> void compare(Connection conn, String name, String sql, LocalDate date,
+                                    RowMapper<T> byLabel, RowMapper<T> byPosition, int rounds) throws SQLException {
+        run(conn, sql, date, byLabel); // Warm up the JIT, the driver and the buffer pool
+        run(conn, sql, date, byPosition);
+        long[] label = bestOf(conn, sql, date, byLabel, rounds);
+        long[] position = bestOf(conn, sql, date, byPosition, rounds);
+        print(name, "label", label);
+        print(name, "position", position);
+    }
+
+    private static void print(String name, String mapping, long[] result) {
+        System.out.printf("%-16s %-10s %10d %16.0f %16.0f%n", name, mapping, result[0],
+                          result[0] * 1e9 / Math.max(1, result[1]), result[0] * 1e9 / Math.max(1, result[2]));
+    }
+
+    /**
+     * @return The rows, the best mapping nanos and the best query-plus-mapping nanos.
+     */
+    private static <T> long[] bestOf(Connection conn, String sql, LocalDate date, RowMapper<T> mapper, int rounds)
+            throws SQLException {
+        long[] best = { 0, Long.MAX_VALUE, Long.MAX_VALUE };
+        for (int round = 0; round < rounds; round++) {
+            long[] result = run(conn, sql, date, mapper);
+            best[0] = result[0];
+            best[1] = Math.min(best[1], result[1]);
+            best[2] = Math.min(best[2], result[2]);
+        }
+        return best;
+    }
+
+    /**
+     * Runs the query once and maps every row.
+     * @return The rows, the mapping nanos and the query-plus-mapping nanos.
+     */
+    private static <T> long[] run(Connection conn, String sql, LocalDate date, RowMapper<T> mapper) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (date != null) {
+                pstmt.setDate(1, Date.valueOf(date));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long mapStart = System.nanoTime();
+                List<T> rows = new ArrayList<>(); // Collected as the DAOs do
+                while (rs.next()) {
+                    rows.add(mapper.mapRow(rs));
+                }
+                long end = System.nanoTime();
+                return new long[] { rows.size(), end - mapStart, end - start };
+            }
+        }
+    }
+}
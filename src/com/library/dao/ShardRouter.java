@@ -0,0 +1,185 @@
+package com.library.dao;
+
+import com.library.trace.Tracer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Routes rows of a sharded library to their MySQL instance. Every branch (shard) owns its
+ * books, members and loans, and every shard hands out auto-increment IDs with
+ * auto_increment_increment = number of shards and auto_increment_offset = shard + 1, so
+ * an ID alone tells which shard holds the row and IDs never collide across shards.
+ * Calls that have no key (searches, reports) are scattered to all shards in parallel.
+ * Each shard has one connection pool that lives as long as the router, which the shard's
+ * DAOs lease from, so calls do not each open a new connection to the shard.
+ */
+public class ShardRouter {
+
+    private final List<String> shardUrls;
+    private final int homeShard;
+    private final ExecutorService fanOut;
+    private final List<ConnectionPool> pools = new ArrayList<>();
+
+    /**
+     * @param shardUrls The JDBC URL of each shard, in shard order.
+     * @param homeShard The shard of the branch this application serves; new books and members go there.
+     * @param connectionsPerShard The most connections open to each shard at once.
+     */
+    public ShardRouter(List<String> shardUrls, int homeShard, int connectionsPerShard) {
+        if (shardUrls.isEmpty() || homeShard < 0 || homeShard >= shardUrls.size()) {
+            throw new IllegalArgumentException("home shard " + homeShard + " is not one of " + shardUrls.size() + " shards");
+        }
+        this.shardUrls = new ArrayList<>(shardUrls);
+        this.homeShard = homeShard;
+        this.fanOut = Executors.newFixedThreadPool(shardUrls.size(), r -> {
+            Thread thread = new Thread(r, "shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String shardUrl : this.shardUrls) {
+            // Multi-statement, so returnLoan's single round trip can use the pool too
+            pools.add(new ConnectionPool(DatabaseConnection.multiStatementUrl(shardUrl), connectionsPerShard));
+        }
+    }
+
+    public int getShardCount() {
+        return shardUrls.size();
+    }
+
+    public int getHomeShard() {
+        return homeShard;
+    }
+
+    public String getShardUrl(int shard) {
+        return shardUrls.get(shard);
+    }
+
+    /**
+     * @param shard A shard number.
+     * @return The shard's connection pool, whose connections accept multi-statement executes.
+     */
+    public ConnectionPool getPool(int shard) {
+        return pools.get(shard);
+    }
+
+    /**
+     * @param id A book, member or loan ID.
+     * @return The shard holding the row.
+     */
+    public int shardOf(int id) {
+        return Math.floorMod(id - 1, shardUrls.size());
+    }
+
+    /**
+     * Groups IDs by the shard holding them.
+     * @param ids The IDs.
+     * @return The IDs of each shard that holds any, by shard.
+     */
+    public Map<Integer, List<Integer>> groupByShard(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (int id : ids) {
+            byShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs a call on every shard in parallel and waits for all of them.
+     * @param call The call, given the shard number.
+     * @return The results, in shard order.
+     */
+    public <T> List<T> scatter(IntFunction<T> call) {
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            shards.add(shard);
+        }
+        return scatter(shards, call);
+    }
+
+    /**
+     * Runs a call on some shards in parallel and waits for all of them. A single shard is
+     * called on the current thread.
+     * @param shards The shards to call.
+     * @param call The call, given the shard number.
+     * @return The results, in the order of the given shards.
+     */
+    public <T> List<T> scatter(Collection<Integer> shards, IntFunction<T> call) {
+        List<T> results = new ArrayList<>(shards.size());
+        if (shards.size() == 1) {
+            results.add(call.apply(shards.iterator().next()));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (int shard : shards) {
+            Supplier<T> shardCall = Tracer.propagate(() -> call.apply(shard));
+            futures.add(fanOut.submit(shardCall::get));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Shard call failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Runs a list-returning call on every shard in parallel and concatenates the results.
+     * @param call The call, given the shard number.
+     * @return The rows of all shards, shard by shard.
+     */
+    public <T> List<T> gather(IntFunction<List<T>> call) {
+        List<T> rows = new ArrayList<>();
+        for (List<T> shardRows : scatter(call)) {
+            rows.addAll(shardRows);
+        }
+        return rows;
+    }
+
+    /**
+     * Checks that every shard is reachable and hands out IDs the way shardOf expects.
+     * @return true if all shards are configured correctly, false otherwise.
+     */
+    public boolean verifyShards() {
+        boolean ok = true;
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            try (Connection conn = pools.get(shard).getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT @@auto_increment_increment, @@auto_increment_offset");
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                int increment = rs.getInt(1);
+                int offset = rs.getInt(2);
+                if (increment != shardUrls.size() || offset != shard + 1) {
+                    System.err.println("Error: Shard " + shard + " has auto_increment_increment = " + increment
+                            + " and auto_increment_offset = " + offset + "; expected " + shardUrls.size() + " and " + (shard + 1) + ".");
+                    ok = false;
+                }
+            } catch (SQLException e) {
+                System.err.println("Error connecting to shard " + shard + ": " + e.getMessage());
+                e.printStackTrace();
+                ok = false;
+            }
+        }
+        return ok;
+    }
+}
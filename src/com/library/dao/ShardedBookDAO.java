@@ -0,0 +1,76 @@
+package com.library.dao;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BookDAO over a sharded library. Calls on one book go to the shard its ID maps to, new books
+ * are added to the home shard, and searches and catalog listings are scattered to all shards
+ * in parallel and merged in book ID order.
+ */
+public class ShardedBookDAO implements BookDAO {
+
+    private final ShardRouter router;
+    private final List<JdbcBookDAO> shards = new ArrayList<>();
+
+    public ShardedBookDAO(ShardRouter router) {
+        this.router = router;
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            shards.add(new JdbcBookDAO(router.getPool(shard)));
+        }
+    }
+
+    @Override
+    public Book addBook(Book book) {
+        return shards.get(router.getHomeShard()).addBook(book);
+    }
+
+    @Override
+    public Book getBookById(int bookId) {
+        return shards.get(router.shardOf(bookId)).getBookById(bookId);
+    }
+
+    @Override
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        Map<Integer, List<Integer>> byShard = router.groupByShard(bookIds);
+        List<Book> books = new ArrayList<>();
+        for (List<Book> shardBooks : router.scatter(byShard.keySet(), shard -> shards.get(shard).getBooksByIds(byShard.get(shard)))) {
+            books.addAll(shardBooks);
+        }
+        return books;
+    }
+
+    @Override
+    public List<Book> searchBooks(String query) {
+        return sorted(router.gather(shard -> shards.get(shard).searchBooks(query)));
+    }
+
+    @Override
+    public boolean updateBookCopies(int bookId, int change) {
+        return shards.get(router.shardOf(bookId)).updateBookCopies(bookId, change);
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return sorted(router.gather(shard -> shards.get(shard).getAllBooks()));
+    }
+
+    @Override
+    public List<Book> getAvailableBooks() {
+        return sorted(router.gather(shard -> shards.get(shard).getAvailableBooks()));
+    }
+
+    @Override
+    public boolean deleteBook(int bookId) {
+        return shards.get(router.shardOf(bookId)).deleteBook(bookId);
+    }
+
+    private static List<Book> sorted(List<Book> books) {
+        books.sort(Comparator.comparingInt(Book::getBookId));
+        return books;
+    }
+}
@@ -0,0 +1,132 @@
+package com.library.dao;
+
+import com.library.model.Borrower;
+import com.library.model.Member;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * BorrowerDAO over a sharded library. A loan lives on the shard of its member, which hands
+ * out its ID, so calls on one loan or one member's loans go to a single shard; overdue and
+ * recent loans are scattered to all shards in parallel. A unit of work must stay within one
+ * shard, since there are no transactions across MySQL instances: members can only borrow
+ * books of their own branch.
+ */
+public class ShardedBorrowerDAO implements BorrowerDAO {
+
+    private final ShardRouter router;
+    private final List<JdbcBorrowerDAO> shards = new ArrayList<>();
+
+    public ShardedBorrowerDAO(ShardRouter router) {
+        this.router = router;
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            shards.add(new JdbcBorrowerDAO(router.getPool(shard)));
+        }
+    }
+
+    @Override
+    public Borrower createLoan(Borrower borrower) {
+        return shards.get(router.shardOf(borrower.getMemberId())).createLoan(borrower);
+    }
+
+    @Override
+    public Borrower getLoanById(int loanId) {
+        return shards.get(router.shardOf(loanId)).getLoanById(loanId);
+    }
+
+    @Override
+    public List<Borrower> getLoansByMemberId(int memberId) {
+        return shards.get(router.shardOf(memberId)).getLoansByMemberId(memberId);
+    }
+
+    @Override
+    public List<Borrower> getLoanHistoryByMemberId(int memberId, LocalDate archivedSince) {
+        return shards.get(router.shardOf(memberId)).getLoanHistoryByMemberId(memberId, archivedSince);
+    }
+
+    @Override
+    public List<Borrower> getActiveLoansByMemberId(int memberId) {
+        return shards.get(router.shardOf(memberId)).getActiveLoansByMemberId(memberId);
+    }
+
+    @Override
+    public boolean updateLoanReturnDate(int loanId, LocalDate returnDate, long finePaise, boolean finePaid) {
+        return shards.get(router.shardOf(loanId)).updateLoanReturnDate(loanId, returnDate, finePaise, finePaid);
+    }
+
+    @Override
+    public boolean updateLoanRenewedStatus(int loanId, LocalDate newDueDate) {
+        return shards.get(router.shardOf(loanId)).updateLoanRenewedStatus(loanId, newDueDate);
+    }
+
+    @Override
+    public CirculationResult returnLoan(Borrower borrower, LocalDate returnDate, long finePaise) {
+        return shards.get(router.shardOf(borrower.getLoanId())).returnLoan(borrower, returnDate, finePaise);
+    }
+
+    @Override
+    public boolean renewLoan(Borrower borrower, LocalDate newDueDate) {
+        return shards.get(router.shardOf(borrower.getLoanId())).renewLoan(borrower, newDueDate);
+    }
+
+    @Override
+    public boolean updateFinePaidStatus(int loanId, boolean paidStatus) {
+        return shards.get(router.shardOf(loanId)).updateFinePaidStatus(loanId, paidStatus);
+    }
+
+    @Override
+    public List<Borrower> getOverdueLoans(LocalDate currentDate) {
+        return router.gather(shard -> shards.get(shard).getOverdueLoans(currentDate));
+    }
+
+    @Override
+    public List<Borrower> getLoansSince(LocalDate fromDate) {
+        List<Borrower> loans = router.gather(shard -> shards.get(shard).getLoansSince(fromDate));
+        loans.sort(Comparator.comparing(Borrower::getLoanDate).thenComparingInt(Borrower::getLoanId));
+        return loans;
+    }
+
+    /**
+     * Streams the shards one after another, so the consumer is only ever called from one thread.
+     */
+    @Override
+    public void streamAllLoans(Consumer<Borrower> consumer) {
+        for (JdbcBorrowerDAO shard : shards) {
+            shard.streamAllLoans(consumer);
+        }
+    }
+
+    @Override
+    public boolean writeUnitOfWork(List<Borrower> newLoans, Map<Borrower, String> issuedCopies, Collection<Borrower> dirtyLoans,
+                                   Map<Integer, Integer> bookCopyChanges, Collection<Member> dirtyMembers) {
+        TreeSet<Integer> touched = new TreeSet<>();
+        for (Borrower loan : newLoans) {
+            touched.add(router.shardOf(loan.getMemberId()));
+        }
+        for (Borrower loan : dirtyLoans) {
+            touched.add(router.shardOf(loan.getLoanId()));
+        }
+        for (int bookId : bookCopyChanges.keySet()) {
+            touched.add(router.shardOf(bookId));
+        }
+        for (Member member : dirtyMembers) {
+            touched.add(router.shardOf(member.getMemberId()));
+        }
+        if (touched.isEmpty()) {
+            return true;
+        }
+        if (touched.size() > 1) {
+            System.err.println("Error writing borrower entries: the changes span branches " + touched
+                    + "; books can only be borrowed at the member's own branch.");
+            return false;
+        }
+        return shards.get(touched.first()).writeUnitOfWork(newLoans, issuedCopies, dirtyLoans, bookCopyChanges, dirtyMembers);
+    }
+}
@@ -0,0 +1,81 @@
+package com.library.dao;
+
+import com.library.model.Member;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MemberDAO over a sharded library. Members belong to the branch that registered them:
+ * calls on one member go to the shard their ID maps to, new members are added to the home
+ * shard, and lookups without an ID are scattered to all shards in parallel.
+ */
+public class ShardedMemberDAO implements MemberDAO {
+
+    private final ShardRouter router;
+    private final List<JdbcMemberDAO> shards = new ArrayList<>();
+
+    public ShardedMemberDAO(ShardRouter router) {
+        this.router = router;
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            shards.add(new JdbcMemberDAO(router.getPool(shard)));
+        }
+    }
+
+    @Override
+    public Member addMember(Member member) {
+        return shards.get(router.getHomeShard()).addMember(member);
+    }
+
+    @Override
+    public Member getMemberById(int memberId) {
+        return shards.get(router.shardOf(memberId)).getMemberById(memberId);
+    }
+
+    /**
+     * Looks the email up on every shard, since it carries no shard key.
+     */
+    @Override
+    public Member getMemberByEmail(String email) {
+        for (Member member : router.scatter(shard -> shards.get(shard).getMemberByEmail(email))) {
+            if (member != null) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean updateMember(Member member) {
+        return shards.get(router.shardOf(member.getMemberId())).updateMember(member);
+    }
+
+    @Override
+    public List<Member> getAllMembers() {
+        List<Member> members = router.gather(shard -> shards.get(shard).getAllMembers());
+        members.sort(Comparator.comparingInt(Member::getMemberId));
+        return members;
+    }
+
+    @Override
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        Map<Integer, List<Integer>> byShard = router.groupByShard(memberIds);
+        List<Member> members = new ArrayList<>();
+        for (List<Member> shardMembers : router.scatter(byShard.keySet(), shard -> shards.get(shard).getMembersByIds(byShard.get(shard)))) {
+            members.addAll(shardMembers);
+        }
+        return members;
+    }
+
+    @Override
+    public boolean updateTotalFineDue(int memberId, long newTotalFineDuePaise) {
+        return shards.get(router.shardOf(memberId)).updateTotalFineDue(memberId, newTotalFineDuePaise);
+    }
+
+    @Override
+    public boolean deleteMember(int memberId) {
+        return shards.get(router.shardOf(memberId)).deleteMember(memberId);
+    }
+}
@@ -10,56 +10,83 @@ import java.sql.SQLException;
 public class UserDAO {
 
     /**
-     * Retrieves a user by username.
-     * In a real application, password comparison would be done after fetching hashed password.
-     * For this simple example, we fetch both username and password.
+     * Retrieves a user by username, including the stored password hash.
+     * Passwords are checked by SessionManager, which calls this once per login.
      * @param username The username of the user to retrieve.
      * @return The User object, or null if not found.
      */
     public User getUserByUsername(String username) {
-        String sql = "SELECT username, password, role FROM users WHERE username = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        return DaoCallEvent.record(this, "getUserByUsername", 0, () -> {
+            String sql = "SELECT username, password, role FROM users WHERE username = ?";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, username);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new User(
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("role")
-                    );
+                pstmt.setString(1, username);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new User(
+                            rs.getString("username"),
+                            rs.getString("password"),
+                            rs.getString("role")
+                        );
+                    }
                 }
+            } catch (SQLException e) {
+                System.err.println("Error getting user by username: " + e.getMessage());
+                e.printStackTrace();
             }
-        } catch (SQLException e) {
-            System.err.println("Error getting user by username: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return null;
+            return null;
+        });
     }
 
     /**
      * Adds a new user to the database. (Librarian/Admin setup only)
      * This method might be called once for initial setup, or by an admin user.
-     * @param user The User object to add.
+     * @param user The User object to add; its password must already be hashed.
      * @return true if added successfully, false otherwise.
      */
     public boolean addUser(User user) {
-        String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        return DaoCallEvent.record(this, "addUser", 0, () -> {
+            String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, user.getUsername());
-            pstmt.setString(2, user.getPassword()); // In real app: hash this before storing
-            pstmt.setString(3, user.getRole());
+                pstmt.setString(1, user.getUsername());
+                pstmt.setString(2, user.getPassword()); // A PasswordHasher hash
+                pstmt.setString(3, user.getRole());
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+                int rowsAffected = pstmt.executeUpdate();
+                return rowsAffected > 0;
 
-        } catch (SQLException e) {
-            System.err.println("Error adding user: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
+            } catch (SQLException e) {
+                System.err.println("Error adding user: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Replaces a user's stored password hash, e.g. to upgrade a legacy or weaker hash after login.
+     * @param username The username of the user.
+     * @param passwordHash The new hash.
+     * @return true if updated successfully, false otherwise.
+     */
+    public boolean updatePassword(String username, String passwordHash) {
+        return DaoCallEvent.record(this, "updatePassword", 0, () -> {
+            String sql = "UPDATE users SET password = ? WHERE username = ?";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                pstmt.setString(1, passwordHash);
+                pstmt.setString(2, username);
+                return pstmt.executeUpdate() > 0;
+
+            } catch (SQLException e) {
+                System.err.println("Error updating password: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        });
     }
 }
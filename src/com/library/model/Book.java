@@ -8,6 +8,7 @@ public class Book {
     private int publicationYear;
     private int totalCopies;
     private int availableCopies;
+    private int version; // Row version, bumped by every update; 0 for new books
 
     public Book(int bookId, String title, String author, String isbn, int publicationYear, int totalCopies, int availableCopies) {
         this.bookId = bookId;
@@ -32,6 +33,7 @@ public class Book {
     public int getPublicationYear() { return publicationYear; }
     public int getTotalCopies() { return totalCopies; }
     public int getAvailableCopies() { return availableCopies; }
+    public int getVersion() { return version; }
 
     // Setters (for updates or setting auto-generated ID)
     public void setBookId(int bookId) { this.bookId = bookId; }
@@ -41,6 +43,7 @@ public class Book {
     public void setPublicationYear(int publicationYear) { this.publicationYear = publicationYear; }
     public void setTotalCopies(int totalCopies) { this.totalCopies = totalCopies; }
     public void setAvailableCopies(int availableCopies) { this.availableCopies = availableCopies; }
+    public void setVersion(int version) { this.version = version; }
 
     @Override
     public String toString() {
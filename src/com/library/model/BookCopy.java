@@ -0,0 +1,43 @@
+package com.library.model;
+
+public class BookCopy {
+    public static final String STATUS_AVAILABLE = "AVAILABLE";
+    public static final String STATUS_BORROWED = "BORROWED";
+
+    private String barcode;
+    private int bookId;
+    private String status;
+    private int loanId; // 0 when the copy is not out on a loan
+
+    public BookCopy(String barcode, int bookId, String status, int loanId) {
+        this.barcode = barcode;
+        this.bookId = bookId;
+        this.status = status;
+        this.loanId = loanId;
+    }
+
+    // Constructor for new copies that are placed on the shelf
+    public BookCopy(String barcode, int bookId) {
+        this(barcode, bookId, STATUS_AVAILABLE, 0);
+    }
+
+    // Getters
+    public String getBarcode() { return barcode; }
+    public int getBookId() { return bookId; }
+    public String getStatus() { return status; }
+    public int getLoanId() { return loanId; }
+
+    public boolean isAvailable() { return STATUS_AVAILABLE.equals(status); }
+
+    // Setters
+    public void setBarcode(String barcode) { this.barcode = barcode; }
+    public void setBookId(int bookId) { this.bookId = bookId; }
+    public void setStatus(String status) { this.status = status; }
+    public void setLoanId(int loanId) { this.loanId = loanId; }
+
+    @Override
+    public String toString() {
+        return "BookCopy [Barcode=" + barcode + ", Book ID=" + bookId +
+               ", Status=" + status + ", Loan ID=" + (loanId != 0 ? loanId : "N/A") + "]";
+    }
+}
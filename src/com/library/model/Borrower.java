@@ -5,6 +5,8 @@ import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 
 public class Borrower {
+    public static final long FINE_PER_DAY_PAISE = Money.ofRupees(10); // Per day overdue
+
     private int loanId;
     private int bookId;
     private int memberId;
@@ -12,10 +14,11 @@ public class Borrower {
     private LocalDate dueDate;
     private LocalDate returnDate;
     private boolean renewed;
-    private double fineAmount; // New: Fine incurred for this specific loan
+    private long finePaise;    // New: Fine incurred for this specific loan, in paise
     private boolean finePaid;  // New: Status of payment for this loan's fine
+    private int version;       // Row version, bumped by every update; 0 for new loans
 
-    public Borrower(int loanId, int bookId, int memberId, LocalDate loanDate, LocalDate dueDate, LocalDate returnDate, boolean renewed, double fineAmount, boolean finePaid) {
+    public Borrower(int loanId, int bookId, int memberId, LocalDate loanDate, LocalDate dueDate, LocalDate returnDate, boolean renewed, long finePaise, boolean finePaid) {
         this.loanId = loanId;
         this.bookId = bookId;
         this.memberId = memberId;
@@ -23,13 +26,13 @@ public class Borrower {
         this.dueDate = dueDate;
         this.returnDate = returnDate;
         this.renewed = renewed;
-        this.fineAmount = fineAmount; // Initialize new field
+        this.finePaise = finePaise;   // Initialize new field
         this.finePaid = finePaid;     // Initialize new field
     }
 
     // Constructor for new loans (ID will be auto-generated by DB)
     public Borrower(int bookId, int memberId, LocalDate loanDate, LocalDate dueDate) {
-        this(0, bookId, memberId, loanDate, dueDate, null, false, 0.00, false); // Initialize new fields
+        this(0, bookId, memberId, loanDate, dueDate, null, false, 0, false); // Initialize new fields
     }
 
     // Getters
@@ -40,38 +43,40 @@ public class Borrower {
     public LocalDate getDueDate() { return dueDate; }
     public LocalDate getReturnDate() { return returnDate; }
     public boolean isRenewed() { return renewed; }
-    public double getFineAmount() { return fineAmount; } // New Getter
+    public long getFinePaise() { return finePaise; }     // New Getter
     public boolean isFinePaid() { return finePaid; }     // New Getter
+    public int getVersion() { return version; }
 
     // Setters
     public void setLoanId(int loanId) { this.loanId = loanId; }
     public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
     public void setRenewed(boolean renewed) { this.renewed = renewed; }
     public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
-    public void setFineAmount(double fineAmount) { this.fineAmount = fineAmount; } // New Setter
+    public void setFinePaise(long finePaise) { this.finePaise = finePaise; }    // New Setter
     public void setFinePaid(boolean finePaid) { this.finePaid = finePaid; }     // New Setter
+    public void setVersion(int version) { this.version = version; }
 
     /**
      * Calculates the fine for the loan.
      * Fine is Rs. 10 per day for delays.
      *
      * @param currentDate The date against which to check for overdue.
-     * @return The fine amount in Rupees.
+     * @return The fine amount in paise.
      */
-    public double calculateFine(LocalDate currentDate) {
+    public long calculateFinePaise(LocalDate currentDate) {
         // Only calculate if not returned or if returned and fine hasn't been set yet
         if (returnDate != null) {
             if (returnDate.isAfter(dueDate)) {
                 long daysOverdue = ChronoUnit.DAYS.between(dueDate, returnDate);
-                return daysOverdue * 10.0;
+                return daysOverdue * FINE_PER_DAY_PAISE;
             }
         } else {
             if (currentDate.isAfter(dueDate)) {
                 long daysOverdue = ChronoUnit.DAYS.between(dueDate, currentDate);
-                return daysOverdue * 10.0;
+                return daysOverdue * FINE_PER_DAY_PAISE;
             }
         }
-        return 0.0; // No fine
+        return 0; // No fine
     }
 
     @Override
@@ -80,6 +85,6 @@ public class Borrower {
                 ", Loan Date=" + loanDate + ", Due Date=" + dueDate +
                 ", Return Date=" + (returnDate != null ? returnDate : "N/A") +
                 ", Renewed=" + renewed +
-                ", Fine=" + String.format("%.2f", fineAmount) + ", Paid=" + finePaid + "]";
+                ", Fine=" + Money.format(finePaise) + ", Paid=" + finePaid + "]";
     }
 }
@@ -0,0 +1,78 @@
+package com.library.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public class CirculationRollup {
+
+    public enum Period {
+        DAY("D"), WEEK("W"), MONTH("M");
+
+        private final String code;
+
+        Period(String code) {
+            this.code = code;
+        }
+
+        public String getCode() { return code; }
+
+        /**
+         * Returns the first day of the period containing a date. Weeks start on Monday.
+         */
+        public LocalDate startOf(LocalDate date) {
+            switch (this) {
+                case WEEK:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date;
+            }
+        }
+    }
+
+    private Period period;
+    private LocalDate periodStart;
+    private String dimensionKey; // book ID or member cohort ("YYYY-MM" of join date)
+    private int borrows;
+    private int returns;
+    private int overdueReturns;
+    private long finesAssessedPaise;
+
+    public CirculationRollup(Period period, LocalDate periodStart, String dimensionKey,
+                             int borrows, int returns, int overdueReturns, long finesAssessedPaise) {
+        this.period = period;
+        this.periodStart = periodStart;
+        this.dimensionKey = dimensionKey;
+        this.borrows = borrows;
+        this.returns = returns;
+        this.overdueReturns = overdueReturns;
+        this.finesAssessedPaise = finesAssessedPaise;
+    }
+
+    // Getters
+    public Period getPeriod() { return period; }
+    public LocalDate getPeriodStart() { return periodStart; }
+    public String getDimensionKey() { return dimensionKey; }
+    public int getBorrows() { return borrows; }
+    public int getReturns() { return returns; }
+    public int getOverdueReturns() { return overdueReturns; }
+    public long getFinesAssessedPaise() { return finesAssessedPaise; }
+
+    // Setters
+    public void setPeriod(Period period) { this.period = period; }
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+    public void setDimensionKey(String dimensionKey) { this.dimensionKey = dimensionKey; }
+    public void setBorrows(int borrows) { this.borrows = borrows; }
+    public void setReturns(int returns) { this.returns = returns; }
+    public void setOverdueReturns(int overdueReturns) { this.overdueReturns = overdueReturns; }
+    public void setFinesAssessedPaise(long finesAssessedPaise) { this.finesAssessedPaise = finesAssessedPaise; }
+
+    @Override
+    public String toString() {
+        return "CirculationRollup [" + period + " from " + periodStart + ", Key=" + dimensionKey +
+               ", Borrows=" + borrows + ", Returns=" + returns + ", Overdue Returns=" + overdueReturns +
+               ", Fines=Rs. " + Money.format(finesAssessedPaise) + "]";
+    }
+}
@@ -9,21 +9,22 @@ public class Member {
     private String email;
     private String phoneNumber;
     private LocalDate joinDate;
-    private double totalFineDue; // New: Total unpaid fine for this member
+    private long totalFineDuePaise; // New: Total unpaid fine for this member, in paise
+    private int version; // Row version, bumped by every update; 0 for new members
 
-    public Member(int memberId, String firstName, String lastName, String email, String phoneNumber, LocalDate joinDate, double totalFineDue) {
+    public Member(int memberId, String firstName, String lastName, String email, String phoneNumber, LocalDate joinDate, long totalFineDuePaise) {
         this.memberId = memberId;
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
         this.phoneNumber = phoneNumber;
         this.joinDate = joinDate;
-        this.totalFineDue = totalFineDue; // Initialize new field
+        this.totalFineDuePaise = totalFineDuePaise; // Initialize new field
     }
 
     // Constructor without memberId for new members
     public Member(String firstName, String lastName, String email, String phoneNumber, LocalDate joinDate) {
-        this(0, firstName, lastName, email, phoneNumber, joinDate, 0.00); // Initialize new field
+        this(0, firstName, lastName, email, phoneNumber, joinDate, 0); // Initialize new field
     }
 
     // Getters
@@ -33,7 +34,8 @@ public class Member {
     public String getEmail() { return email; }
     public String getPhoneNumber() { return phoneNumber; }
     public LocalDate getJoinDate() { return joinDate; }
-    public double getTotalFineDue() { return totalFineDue; } // New Getter
+    public long getTotalFineDuePaise() { return totalFineDuePaise; } // New Getter
+    public int getVersion() { return version; }
 
     // Setters
     public void setMemberId(int memberId) { this.memberId = memberId; }
@@ -42,12 +44,13 @@ public class Member {
     public void setEmail(String email) { this.email = email; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
     public void setJoinDate(LocalDate joinDate) { this.joinDate = joinDate; }
-    public void setTotalFineDue(double totalFineDue) { this.totalFineDue = totalFineDue; } // New Setter
+    public void setTotalFineDuePaise(long totalFineDuePaise) { this.totalFineDuePaise = totalFineDuePaise; } // New Setter
+    public void setVersion(int version) { this.version = version; }
 
     @Override
     public String toString() {
         return "Member [ID=" + memberId + ", Name=" + firstName + " " + lastName +
                ", Email=" + email + ", Phone=" + phoneNumber + ", Joined=" + joinDate +
-               ", Total Fine Due=Rs. " + String.format("%.2f", totalFineDue) + "]";
+               ", Total Fine Due=Rs. " + Money.format(totalFineDuePaise) + "]";
     }
 }
@@ -0,0 +1,83 @@
+package com.library.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts of money are kept as a long number of paise (1/100 rupee), so fines add up
+ * exactly and can be summed in plain long loops. The database keeps them as DECIMAL(p,2)
+ * rupees; these helpers convert at the JDBC boundary and format for display.
+ */
+public final class Money {
+
+    public static final long PAISE_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    /**
+     * @param rupees Whole rupees.
+     * @return The amount in paise.
+     */
+    public static long ofRupees(long rupees) {
+        return Math.multiplyExact(rupees, PAISE_PER_RUPEE);
+    }
+
+    /**
+     * Converts a DECIMAL rupee amount read from the database.
+     * @param rupees The amount in rupees, or null for SQL NULL.
+     * @return The amount in paise, rounded half-up to whole paise; 0 for null.
+     */
+    public static long fromDecimal(BigDecimal rupees) {
+        if (rupees == null) {
+            return 0;
+        }
+        return rupees.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts an amount for a DECIMAL(p,2) column or parameter.
+     * @param paise The amount in paise.
+     * @return The amount in rupees with two decimals.
+     */
+    public static BigDecimal toDecimal(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    /**
+     * Converts a rupee amount kept as a double by older snapshots and journals.
+     * @param rupees The amount in rupees.
+     * @return The amount in paise, rounded to the nearest paisa.
+     */
+    public static long fromDouble(double rupees) {
+        return Math.round(rupees * PAISE_PER_RUPEE);
+    }
+
+    /**
+     * @param paise The amount in paise.
+     * @return The amount in rupees with two decimals, e.g. "12.50".
+     */
+    public static String format(long paise) {
+        StringBuilder sb = new StringBuilder(12);
+        appendTo(sb, paise);
+        return sb.toString();
+    }
+
+    /**
+     * Appends an amount in rupees with two decimals, e.g. "12.50", without String.format.
+     * @param sb The builder to append to.
+     * @param paise The amount in paise.
+     */
+    public static void appendTo(StringBuilder sb, long paise) {
+        if (paise < 0) {
+            sb.append('-');
+        }
+        long rupees = Math.abs(paise / PAISE_PER_RUPEE);
+        long fraction = Math.abs(paise % PAISE_PER_RUPEE);
+        sb.append(rupees).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
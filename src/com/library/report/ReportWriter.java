@@ -0,0 +1,224 @@
+package com.library.report;
+
+import com.library.model.Money;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Writes tabular reports to the console, a text file or a CSV file.
+ * Each row is assembled in one reused StringBuilder and handed to a large buffered writer,
+ * and numbers are appended directly (money as fixed-point with two decimals) instead of going
+ * through String.format, so writing a row costs no parsing of format strings and no
+ * intermediate Strings. Text output pads cells to the column widths given in the header;
+ * CSV output quotes cells where needed and leaves out the title and separator lines.
+ *
+ * Usage: header, then beginRow / cell... / endRow per row, then close. Close flushes;
+ * it does not close System.out.
+ */
+public class ReportWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SEPARATOR = "--------------------------------------------------";
+
+    private final Writer out;
+    private final boolean csv;
+    private final boolean closeOut;
+    private final StringBuilder row = new StringBuilder(256);
+    private int[] widths = new int[0];
+    private int column;
+
+    private ReportWriter(OutputStream stream, boolean csv, boolean closeOut) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.csv = csv;
+        this.closeOut = closeOut;
+    }
+
+    /**
+     * @return A writer for the console (System.out) in text format.
+     */
+    public static ReportWriter toConsole() {
+        return new ReportWriter(System.out, false, false);
+    }
+
+    /**
+     * @param file The file to create or overwrite.
+     * @return A writer for a text file, formatted like the console output.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ReportWriter toTextFile(Path file) throws IOException {
+        return new ReportWriter(new FileOutputStream(file.toFile()), false, true);
+    }
+
+    /**
+     * @param file The file to create or overwrite.
+     * @return A writer for a CSV file with one header line.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ReportWriter toCsvFile(Path file) throws IOException {
+        return new ReportWriter(new FileOutputStream(file.toFile()), true, true);
+    }
+
+    public boolean isCsv() { return csv; }
+
+    /**
+     * Starts a report: a title line and the column headings.
+     * @param title The report title (not written to CSV).
+     * @param headings The column headings.
+     * @param columnWidths The padded width of each column in text output; 0 for no padding.
+     */
+    public ReportWriter header(String title, String[] headings, int[] columnWidths) {
+        this.widths = columnWidths;
+        if (!csv) {
+            line("\n--- " + title + " ---");
+        }
+        beginRow();
+        for (String heading : headings) {
+            cell(heading);
+        }
+        endRow();
+        separator();
+        return this;
+    }
+
+    /**
+     * Writes a line of free text (not written to CSV).
+     */
+    public ReportWriter line(String text) {
+        if (!csv) {
+            write(row.append(text).append('\n'));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the separator line used under headings and at the end of a report (not written to CSV).
+     */
+    public ReportWriter separator() {
+        return line(SEPARATOR);
+    }
+
+    public ReportWriter beginRow() {
+        row.setLength(0);
+        column = 0;
+        return this;
+    }
+
+    public ReportWriter cell(String value) {
+        int start = startCell();
+        if (csv && value != null && needsQuotes(value)) {
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+            row.append('"');
+        } else {
+            row.append(value);
+        }
+        return endCell(start);
+    }
+
+    public ReportWriter cell(long value) {
+        int start = startCell();
+        row.append(value);
+        return endCell(start);
+    }
+
+    public ReportWriter cell(LocalDate value) {
+        int start = startCell();
+        row.append(value); // ISO-8601, same as LocalDate.toString()
+        return endCell(start);
+    }
+
+    /**
+     * Appends an amount of money: "Rs. 12.50" in text output, "12.50" in CSV.
+     * @param paise The amount in paise.
+     */
+    public ReportWriter money(long paise) {
+        int start = startCell();
+        if (!csv) {
+            row.append("Rs. ");
+        }
+        Money.appendTo(row, paise);
+        return endCell(start);
+    }
+
+    public ReportWriter endRow() {
+        if (!csv) {
+            // Trailing padding of the last column is not needed
+            int end = row.length();
+            while (end > 0 && row.charAt(end - 1) == ' ') {
+                end--;
+            }
+            row.setLength(end);
+        }
+        write(row.append('\n'));
+        return this;
+    }
+
+    private int startCell() {
+        if (column > 0) {
+            row.append(csv ? ',' : ' ');
+        }
+        return row.length();
+    }
+
+    private ReportWriter endCell(int start) {
+        if (!csv && column < widths.length) {
+            for (int i = row.length() - start; i < widths[column]; i++) {
+                row.append(' ');
+            }
+        }
+        column++;
+        return this;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(StringBuilder text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            row.setLength(0);
+        }
+    }
+
+    /**
+     * Flushes the report; closes the file if the writer owns one.
+     */
+    @Override
+    public void close() {
+        try {
+            if (closeOut) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing report: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
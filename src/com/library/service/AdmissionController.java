@@ -0,0 +1,225 @@
+package com.library.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of LibraryService. Each class of operation has its own
+ * concurrency limit and its own bounded queue, so a pile of searches and reports can only
+ * ever hold the query slots and circulation keeps getting database connections. An
+ * operation that finds its class at the limit waits in the queue; when the queue is full,
+ * or the wait times out, it is rejected at once instead of adding to the load.
+ *
+ * The limits adapt to the database: each class keeps a short-term and a long-term average
+ * of how long its operations take, and shrinks its limit when the short-term one rises
+ * well above the long-term one (the database is queueing work), and grows it again, up to
+ * the configured maximum, while latency holds steady and the limit is in use.
+ */
+public class AdmissionController {
+
+    /**
+     * The classes of operations that are limited separately.
+     */
+    public enum OperationClass {
+        CIRCULATION, // borrow, return, renew, pay fines, add and delete books
+        QUERY        // searches and reports
+    }
+
+    private static final double TOLERANCE = 1.5; // short-term latency may exceed the long-term one by this factor
+    private static final double SHORT_TERM_WEIGHT = 0.1;
+    private static final double LONG_TERM_WEIGHT = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final Map<OperationClass, Limiter> limiters = new EnumMap<>(OperationClass.class);
+    private final long queueTimeoutNanos;
+
+    /**
+     * @param maxCirculation The most circulation operations running at once.
+     * @param circulationQueue The most circulation operations waiting for a slot.
+     * @param maxQueries The most searches and reports running at once.
+     * @param queryQueue The most searches and reports waiting for a slot.
+     * @param queueTimeoutMillis How long an operation waits for a slot before it is rejected.
+     */
+    public AdmissionController(int maxCirculation, int circulationQueue, int maxQueries, int queryQueue, long queueTimeoutMillis) {
+        limiters.put(OperationClass.CIRCULATION, new Limiter(maxCirculation, circulationQueue));
+        limiters.put(OperationClass.QUERY, new Limiter(maxQueries, queryQueue));
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    }
+
+    /**
+     * Runs an operation once its class has a free slot, or rejects it.
+     * @param operationClass The class the operation counts against.
+     * @param action The operation, for the rejection message, e.g. "Searching".
+     * @param operation The operation.
+     * @param rejected The result to return when the operation is rejected.
+     * @return The operation's result, or rejected.
+     */
+    public <T> T call(OperationClass operationClass, String action, Supplier<T> operation, T rejected) {
+        Limiter limiter = limiters.get(operationClass);
+        boolean admitted;
+        try {
+            admitted = limiter.acquire(queueTimeoutNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            System.out.println("Error: " + action + " is not possible right now, the library system is busy. Please try again in a moment.");
+            return rejected;
+        }
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param operationClass The class.
+     * @return The current concurrency limit of the class.
+     */
+    public int getLimit(OperationClass operationClass) {
+        return (int) limiters.get(operationClass).snapshot()[0];
+    }
+
+    /**
+     * @param operationClass The class.
+     * @return How many operations of the class were admitted.
+     */
+    public long getAdmitted(OperationClass operationClass) {
+        return limiters.get(operationClass).snapshot()[3];
+    }
+
+    /**
+     * @param operationClass The class.
+     * @return How many operations of the class were rejected.
+     */
+    public long getRejected(OperationClass operationClass) {
+        return limiters.get(operationClass).snapshot()[4];
+    }
+
+    /**
+     * @return One line per class with its limit, running and queued operations, and admitted and rejected counts.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<OperationClass, Limiter> entry : limiters.entrySet()) {
+            long[] counts = entry.getValue().snapshot();
+            if (summary.length() > 0) {
+                summary.append(System.lineSeparator());
+            }
+            summary.append("Admission ").append(entry.getKey().name().toLowerCase())
+                   .append(": limit=").append(counts[0])
+                   .append(" running=").append(counts[1])
+                   .append(" queued=").append(counts[2])
+                   .append(" admitted=").append(counts[3])
+                   .append(" rejected=").append(counts[4]);
+        }
+        return summary.toString();
+    }
+
+    /**
+     * The slots and queue of one class, and its adaptive limit.
+     */
+    private static class Limiter {
+        private final int maxLimit;
+        private final int maxQueued;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition slotFreed = lock.newCondition();
+        private double limit;
+        private int running;
+        private int queued;
+        private double shortTermNanos; // 0 until the first operation finished
+        private double longTermNanos;
+        private long admitted;
+        private long rejected;
+
+        Limiter(int maxLimit, int maxQueued) {
+            this.maxLimit = Math.max(1, maxLimit);
+            this.maxQueued = Math.max(0, maxQueued);
+            this.limit = this.maxLimit; // Start open; the first slow samples bring it down
+        }
+
+        boolean acquire(long timeoutNanos) throws InterruptedException {
+            lock.lock();
+            try {
+                if (running < (int) limit) {
+                    running++;
+                    admitted++;
+                    return true;
+                }
+                if (queued >= maxQueued) {
+                    rejected++;
+                    return false;
+                }
+                queued++;
+                try {
+                    long remaining = timeoutNanos;
+                    while (running >= (int) limit) {
+                        if (remaining <= 0) {
+                            rejected++;
+                            return false;
+                        }
+                        remaining = slotFreed.awaitNanos(remaining);
+                    }
+                } finally {
+                    queued--;
+                }
+                running++;
+                admitted++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long latencyNanos) {
+            lock.lock();
+            try {
+                boolean inUse = running >= limit / 2;
+                running--;
+                adapt(latencyNanos, inUse);
+                slotFreed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves the limit by the ratio of long-term to short-term latency: it shrinks by up
+         * to half while operations slow down, and grows by its square root while they do not.
+         */
+        private void adapt(long latencyNanos, boolean inUse) {
+            if (longTermNanos == 0) {
+                shortTermNanos = latencyNanos;
+                longTermNanos = latencyNanos;
+                return;
+            }
+            shortTermNanos += SHORT_TERM_WEIGHT * (latencyNanos - shortTermNanos);
+            longTermNanos += LONG_TERM_WEIGHT * (latencyNanos - longTermNanos);
+            if (longTermNanos > 2 * shortTermNanos) {
+                longTermNanos *= 0.95; // Forget an overload that has passed
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermNanos / shortTermNanos));
+            double target = limit * gradient + (inUse ? Math.sqrt(limit) : 0);
+            limit = Math.max(1, Math.min(maxLimit, limit + LIMIT_SMOOTHING * (target - limit)));
+        }
+
+        /**
+         * @return limit, running, queued, admitted and rejected, read together.
+         */
+        long[] snapshot() {
+            lock.lock();
+            try {
+                return new long[] { (int) limit, running, queued, admitted, rejected };
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.library.service;
+
+import com.library.dao.ChangeLogDAO;
+import com.library.dao.ChangeLogEntry;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tails change_log on a background thread and hands every change to a consumer, oldest first.
+ *
+ * change_ids are handed out when a row is inserted, not when its transaction commits, so a
+ * poll can see ID n+1 before n is visible, and a rolled-back transaction leaves a gap for
+ * good. Skipped IDs are remembered and looked for again on every poll. Once a gap is older
+ * than GAP_TIMEOUT_MILLIS, the server's open transactions are checked: if none started
+ * before the gap was first missed, nothing can still fill it, so it was rolled back and is
+ * forgotten; otherwise it is kept and looked for until that transaction ends. Only when the
+ * open transactions cannot be read, or more IDs were skipped than can be tracked while an
+ * old transaction is open, does onChangesMissed fire and the caches get dropped.
+ */
+class ChangeLogPoller {
+
+    // Longer than InnoDB's default lock wait timeout (50 s), so a slow commit is still picked up
+    private static final long GAP_TIMEOUT_MILLIS = 60 * 1000L;
+    private static final int MAX_TRACKED_GAPS = 1000;
+    private static final int BATCH_SIZE = 1000;
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000L;
+
+    private final ChangeLogDAO changeLogDAO;
+    private final Consumer<ChangeLogEntry> onChange;
+    private final Runnable onChangesMissed;
+    private final int retentionHours;
+
+    private final Map<Long, Long> missingIds = new TreeMap<>(); // change_id -> when it was first missed
+    private long lastSeenId;
+    private long missedSince; // 0, or when more IDs were skipped than can be tracked
+    private long lastPurge;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param changeLogDAO The DAO reading the log.
+     * @param lastSeenId The change_id up to which the caches are known to be current.
+     * @param onChange Applies one change to the caches.
+     * @param onChangesMissed Drops the caches after a change may have been missed.
+     * @param retentionHours How long log rows are kept before this node purges them.
+     */
+    ChangeLogPoller(ChangeLogDAO changeLogDAO, long lastSeenId, Consumer<ChangeLogEntry> onChange,
+                    Runnable onChangesMissed, int retentionHours) {
+        this.changeLogDAO = changeLogDAO;
+        this.lastSeenId = lastSeenId;
+        this.onChange = onChange;
+        this.onChangesMissed = onChangesMissed;
+        this.retentionHours = retentionHours;
+        this.lastPurge = System.currentTimeMillis();
+    }
+
+    synchronized void start(long pollMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-log-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Reads and applies everything logged since the last poll.
+     */
+    synchronized void poll() {
+        try {
+            List<ChangeLogEntry> changes;
+            do {
+                changes = changeLogDAO.getChanges(lastSeenId, missingIds.keySet(), BATCH_SIZE);
+                if (changes == null) {
+                    return; // Try again next time
+                }
+                apply(changes);
+            } while (changes.size() >= BATCH_SIZE);
+            expireGaps();
+            purgeIfDue();
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive; a failure here must not stop later polls
+            System.err.println("Error applying change log: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(List<ChangeLogEntry> changes) {
+        long now = System.currentTimeMillis();
+        for (ChangeLogEntry change : changes) {
+            long id = change.getChangeId();
+            if (id <= lastSeenId) {
+                missingIds.remove(id); // A transaction that committed late
+            } else {
+                if (id - lastSeenId - 1 > MAX_TRACKED_GAPS - missingIds.size()) {
+                    if (missedSince == 0) {
+                        missedSince = now;
+                    }
+                } else {
+                    for (long gap = lastSeenId + 1; gap < id; gap++) {
+                        missingIds.put(gap, now);
+                    }
+                }
+                lastSeenId = id;
+            }
+            onChange.accept(change);
+        }
+    }
+
+    private void expireGaps() {
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - GAP_TIMEOUT_MILLIS;
+        boolean untrackedExpired = missedSince != 0 && missedSince < expiredBefore;
+        if (!untrackedExpired && missingIds.values().stream().noneMatch(firstMissed -> firstMissed < expiredBefore)) {
+            return;
+        }
+        Long oldestOpenSeconds = changeLogDAO.getOldestOpenTransactionSeconds();
+        // When the oldest open transaction started, at the earliest (trx_started has whole seconds)
+        long oldestOpenSince = oldestOpenSeconds == null || oldestOpenSeconds < 0
+                ? Long.MAX_VALUE : now - (oldestOpenSeconds + 1) * 1000;
+        boolean missed = false;
+        Iterator<Long> gaps = missingIds.values().iterator();
+        while (gaps.hasNext()) {
+            long firstMissed = gaps.next();
+            if (firstMissed >= expiredBefore) {
+                continue;
+            }
+            if (oldestOpenSeconds == null) {
+                gaps.remove();
+                missed = true; // Cannot tell whether it was rolled back
+            } else if (oldestOpenSince > firstMissed) {
+                gaps.remove(); // No transaction that could fill it is still open: rolled back
+            }
+        }
+        if (untrackedExpired) {
+            missed |= oldestOpenSeconds == null || oldestOpenSince <= missedSince;
+            missedSince = 0;
+        }
+        if (missed) {
+            onChangesMissed.run();
+        }
+    }
+
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+            lastPurge = now;
+            changeLogDAO.purgeOlderThan(retentionHours);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.library.service;
+
+import com.library.model.Book;
+import com.library.model.BookCopy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory availability bitmap over physical book copies.
+ * Every copy gets an ordinal; the copies of one book occupy a contiguous range of ordinals
+ * starting at that book's offset, and a set bit means the copy is on the shelf.
+ * Availability checks, picking a copy and listing available books are bit scans
+ * and never touch the database.
+ */
+public class CopyAvailabilityIndex {
+
+    private final BitSet available = new BitSet();
+    private final Map<Integer, int[]> ranges = new HashMap<>(); // bookId -> {offset, length}
+    private final Map<String, Integer> ordinalsByBarcode = new HashMap<>();
+    private final Map<Integer, Book> books = new TreeMap<>(); // catalog data, ordered by book ID
+    private String[] barcodes = new String[64];
+    private int nextOrdinal;
+
+    /**
+     * Rebuilds the index from the catalog and the copy records.
+     * @param allBooks All books in the catalog.
+     * @param allCopies All copy records.
+     */
+    public synchronized void load(List<Book> allBooks, List<BookCopy> allCopies) {
+        available.clear();
+        ranges.clear();
+        ordinalsByBarcode.clear();
+        books.clear();
+        nextOrdinal = 0;
+
+        Map<Integer, List<BookCopy>> copiesByBook = new HashMap<>();
+        for (BookCopy copy : allCopies) {
+            copiesByBook.computeIfAbsent(copy.getBookId(), id -> new ArrayList<>()).add(copy);
+        }
+        for (Book book : allBooks) {
+            List<BookCopy> copies = copiesByBook.get(book.getBookId());
+            addBook(book, copies != null ? copies : new ArrayList<>());
+        }
+    }
+
+    /**
+     * Appends a book and its copies to the end of the ordinal space.
+     * @param book The book.
+     * @param copies The copies of the book.
+     */
+    public synchronized void addBook(Book book, List<BookCopy> copies) {
+        int offset = nextOrdinal;
+        ensureCapacity(offset + copies.size());
+        for (BookCopy copy : copies) {
+            int ordinal = nextOrdinal++;
+            barcodes[ordinal] = copy.getBarcode();
+            ordinalsByBarcode.put(copy.getBarcode(), ordinal);
+            if (copy.isAvailable()) {
+                available.set(ordinal);
+            }
+        }
+        ranges.put(book.getBookId(), new int[] { offset, copies.size() });
+        books.put(book.getBookId(), book);
+    }
+
+    /**
+     * Drops a book from the index. Its ordinals are not reused until the next load.
+     * @param bookId The ID of the book.
+     */
+    public synchronized void removeBook(int bookId) {
+        int[] range = ranges.remove(bookId);
+        books.remove(bookId);
+        if (range != null) {
+            available.clear(range[0], range[0] + range[1]);
+            for (int i = range[0]; i < range[0] + range[1]; i++) {
+                ordinalsByBarcode.remove(barcodes[i]);
+                barcodes[i] = null;
+            }
+        }
+    }
+
+    /**
+     * @param bookId The ID of the book.
+     * @return true if the book is indexed.
+     */
+    public synchronized boolean containsBook(int bookId) {
+        return ranges.containsKey(bookId);
+    }
+
+    /**
+     * @param bookId The ID of the book.
+     * @return true if at least one copy of the book is on the shelf.
+     */
+    public synchronized boolean isAnyAvailable(int bookId) {
+        int[] range = ranges.get(bookId);
+        if (range == null) {
+            return false;
+        }
+        int bit = available.nextSetBit(range[0]);
+        return bit >= 0 && bit < range[0] + range[1];
+    }
+
+    /**
+     * Picks an available copy of the book and marks it as borrowed in the index.
+     * @param bookId The ID of the book.
+     * @return The barcode of the picked copy, or null if no copy is available.
+     */
+    public synchronized String pickAvailableCopy(int bookId) {
+        int[] range = ranges.get(bookId);
+        if (range == null) {
+            return null;
+        }
+        int bit = available.nextSetBit(range[0]);
+        if (bit < 0 || bit >= range[0] + range[1]) {
+            return null;
+        }
+        available.clear(bit);
+        return barcodes[bit];
+    }
+
+    /**
+     * Marks a copy as back on the shelf.
+     * @param barcode The barcode of the copy.
+     */
+    public synchronized void markAvailable(String barcode) {
+        Integer ordinal = ordinalsByBarcode.get(barcode);
+        if (ordinal != null) {
+            available.set(ordinal);
+        }
+    }
+
+    /**
+     * Marks a copy as off the shelf, e.g. after another node lent it out.
+     * @param barcode The barcode of the copy.
+     */
+    public synchronized void markBorrowed(String barcode) {
+        Integer ordinal = ordinalsByBarcode.get(barcode);
+        if (ordinal != null) {
+            available.clear(ordinal);
+        }
+    }
+
+    /**
+     * @param barcode The barcode of a copy.
+     * @return true if the copy is indexed.
+     */
+    public synchronized boolean containsCopy(String barcode) {
+        return ordinalsByBarcode.containsKey(barcode);
+    }
+
+    /**
+     * Counts the copies of a book that are on the shelf.
+     * @param bookId The ID of the book.
+     * @return The number of available copies.
+     */
+    public synchronized int availableCount(int bookId) {
+        int[] range = ranges.get(bookId);
+        return range == null ? 0 : countRange(range);
+    }
+
+    /**
+     * Lists every book with at least one copy on the shelf, ordered by book ID.
+     * Available copy counts are taken from the bitmap.
+     * @return A list of available Book objects.
+     */
+    public synchronized List<Book> getAvailableBooks() {
+        List<Book> result = new ArrayList<>();
+        for (Book book : books.values()) {
+            int[] range = ranges.get(book.getBookId());
+            int count = countRange(range);
+            if (count > 0) {
+                result.add(new Book(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                                    book.getPublicationYear(), range[1], count));
+            }
+        }
+        return result;
+    }
+
+    private int countRange(int[] range) {
+        int end = range[0] + range[1];
+        int count = 0;
+        for (int bit = available.nextSetBit(range[0]); bit >= 0 && bit < end; bit = available.nextSetBit(bit + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > barcodes.length) {
+            barcodes = Arrays.copyOf(barcodes, Math.max(size, barcodes.length * 2));
+        }
+    }
+}
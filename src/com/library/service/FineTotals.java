@@ -0,0 +1,70 @@
+package com.library.service;
+
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.model.Money;
+
+import java.util.List;
+
+/**
+ * Exact fine totals over any number of loans. Amounts are added as long paise in plain
+ * loops, so the totals do not drift the way summed doubles do, and adding a loan boxes or
+ * allocates nothing: pass {@code totals::add} to BorrowerDAO.streamAllLoans to sum the
+ * whole loan history while it is read.
+ */
+public class FineTotals {
+
+    private long loans;
+    private long finedLoans;
+    private long assessedPaise;
+    private long unpaidPaise;
+
+    /**
+     * Adds one loan's fine.
+     * @param loan The loan.
+     */
+    public void add(Borrower loan) {
+        loans++;
+        long fine = loan.getFinePaise();
+        if (fine > 0) {
+            finedLoans++;
+            assessedPaise += fine;
+            if (!loan.isFinePaid()) {
+                unpaidPaise += fine;
+            }
+        }
+    }
+
+    /**
+     * Adds the fines of a list of loans.
+     * @param loans The loans.
+     */
+    public void addAll(List<Borrower> loans) {
+        for (int i = 0, n = loans.size(); i < n; i++) {
+            add(loans.get(i));
+        }
+    }
+
+    /**
+     * @param members The members.
+     * @return The sum of the members' total fine due, in paise.
+     */
+    public static long sumTotalFineDue(List<Member> members) {
+        long total = 0;
+        for (int i = 0, n = members.size(); i < n; i++) {
+            total += members.get(i).getTotalFineDuePaise();
+        }
+        return total;
+    }
+
+    public long getLoans() { return loans; }
+    public long getFinedLoans() { return finedLoans; }
+    public long getAssessedPaise() { return assessedPaise; }
+    public long getUnpaidPaise() { return unpaidPaise; }
+
+    @Override
+    public String toString() {
+        return "FineTotals [Loans=" + loans + ", Fined=" + finedLoans +
+               ", Assessed=Rs. " + Money.format(assessedPaise) + ", Unpaid=Rs. " + Money.format(unpaidPaise) + "]";
+    }
+}
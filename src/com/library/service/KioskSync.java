@@ -0,0 +1,124 @@
+package com.library.service;
+
+import com.library.dao.InMemoryBorrowerDAO;
+import com.library.dao.InMemoryDatabase;
+import com.library.dao.KioskJournal;
+import com.library.dao.KioskSyncDAO;
+import com.library.dao.KioskSyncResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an offline kiosk in step with MySQL. The kiosk always works on its local snapshot
+ * and journal, so it never waits on the network; a background thread periodically tries
+ * the database and, when it answers, pushes the journal, reloads the snapshot and starts
+ * an empty journal. While the database is unreachable each attempt fails within the
+ * connect timeout and the kiosk carries on offline.
+ */
+public class KioskSync {
+
+    private final InMemoryBorrowerDAO borrowerDAO;
+    private final KioskJournal journal;
+    private final KioskSyncDAO syncDAO;
+    private final Path snapshotFile;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean online = true; // Reported on every change, not on every attempt
+
+    /**
+     * @param borrowerDAO The kiosk's loan DAO, writing to the journal.
+     * @param journal The kiosk's journal.
+     * @param syncDAO The DAO used to reach MySQL.
+     * @param snapshotFile Where the snapshot loaded from MySQL is kept.
+     * @param batchSize The number of journal entries pushed per transaction.
+     */
+    public KioskSync(InMemoryBorrowerDAO borrowerDAO, KioskJournal journal, KioskSyncDAO syncDAO,
+                     Path snapshotFile, int batchSize) {
+        this.borrowerDAO = borrowerDAO;
+        this.journal = journal;
+        this.syncDAO = syncDAO;
+        this.snapshotFile = snapshotFile;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Syncs once right away and then every intervalSeconds on a background thread.
+     * @param intervalSeconds The time between sync attempts.
+     */
+    public synchronized void start(int intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        syncNow();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kiosk-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncNow, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * @return The number of operations waiting to be synced.
+     */
+    public int getPendingCount() {
+        return journal.size();
+    }
+
+    /**
+     * Pushes the journal and refreshes the snapshot if the database is reachable.
+     * @return True if the kiosk is now in step with MySQL.
+     */
+    public synchronized boolean syncNow() {
+        List<KioskJournal.Entry> entries = journal.getEntries();
+        KioskSyncResult result;
+        InMemoryDatabase fresh;
+        try {
+            result = syncDAO.push(journal.getJournalId(), entries, batchSize);
+            fresh = syncDAO.loadSnapshot();
+        } catch (SQLException e) {
+            if (online) {
+                System.err.println("Kiosk is offline (" + e.getMessage() + "); working from the local snapshot.");
+                online = false;
+            }
+            return false;
+        }
+        if (!online) {
+            System.err.println("Kiosk is back online.");
+            online = true;
+        }
+
+        if (result.getApplied() > 0 || !result.getConflicts().isEmpty()) {
+            System.err.println("Kiosk sync: " + result.getApplied() + " operation(s) applied, "
+                               + result.getConflicts().size() + " conflict(s).");
+        }
+        for (String conflict : result.getConflicts()) {
+            System.err.println("  Conflict, left for a librarian: " + conflict);
+        }
+
+        try {
+            return borrowerDAO.completeSync(fresh, entries.size(), snapshotFile);
+        } catch (IOException e) {
+            System.err.println("Error saving kiosk snapshot: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.library.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+
+/**
+ * JFR event for one LibraryService operation, from the admission wait to its result,
+ * retries included. The DAO calls, socket reads and samples recorded on the same thread
+ * while it is open show what the operation spent its time on. IDs not known to the
+ * operation are 0.
+ */
+@Name("com.library.Operation")
+@Label("Library Operation")
+@Category({ "Library", "Service" })
+@Description("A borrow, return, renew, fine payment, search or report run through LibraryService")
+@StackTrace(false)
+class LibraryOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Member ID")
+    int memberId;
+
+    @Label("Book ID")
+    int bookId;
+
+    @Label("Loan ID")
+    int loanId;
+
+    @Label("Rows")
+    @Description("Rows returned or written; for a borrow, renewal or payment 1 if it succeeded")
+    int rows;
+
+    @Label("Admitted")
+    @Description("False if admission control turned the operation away")
+    boolean admitted;
+
+    LibraryOperationEvent(String operation, int memberId, int bookId, int loanId) {
+        this.operation = operation;
+        this.memberId = memberId;
+        this.bookId = bookId;
+        this.loanId = loanId;
+    }
+
+    /**
+     * Records the operation's result as a row count.
+     */
+    void setResult(Object result) {
+        if (result instanceof Collection) {
+            rows = ((Collection<?>) result).size();
+        } else if (result instanceof Boolean) {
+            rows = (Boolean) result ? 1 : 0;
+        } else if (result instanceof Integer) {
+            rows = (Integer) result;
+        } else if (result instanceof Long) {
+            rows = (Long) result != LibraryService.RETURN_FAILED ? 1 : 0; // a return's fine
+        } else {
+            rows = result != null ? 1 : 0;
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.library.service;
 
+import com.library.dao.BookCopyDAO;
 import com.library.dao.BookDAO;
 import com.library.dao.BorrowerDAO;
+import com.library.dao.CatalogSnapshotDAO;
+import com.library.dao.ChangeLogDAO;
+import com.library.dao.ChangeLogEntry;
+import com.library.dao.CirculationProcedureDAO;
+import com.library.dao.CirculationResult;
+import com.library.dao.CirculationRollupDAO;
+import com.library.dao.DaoSession;
+import com.library.dao.LoanArchiveDAO;
 import com.library.dao.MemberDAO;
 import com.library.model.Book;
+import com.library.model.BookCopy;
 import com.library.model.Borrower;
+import com.library.model.CirculationRollup;
 import com.library.model.Member;
+import com.library.model.Money;
+import com.library.report.ReportWriter;
+import com.library.service.AdmissionController.OperationClass;
+import com.library.trace.Tracer;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class LibraryService {
@@ -17,10 +39,30 @@ public class LibraryService {
     private static final int MAX_BORROWED_BOOKS = 4;
     private static final int INITIAL_LOAN_DAYS = 5;
     private static final int RENEWAL_DAYS = 3;
+    /** Returned by returnBook when nothing was returned. */
+    public static final long RETURN_FAILED = -1;
+    private static final int LOOKUP_BATCH_SIZE = 1000; // IDs per IN (...) lookup in reports
+    // Loans returned within the longest trending window stay active, since trending is replayed from them
+    private static final int MIN_ARCHIVE_AGE_DAYS = PopularityTracker.TrendWindow.MONTH.getDays();
 
     private BookDAO bookDAO;
     private MemberDAO memberDAO;
     private BorrowerDAO borrowerDAO;
+    private volatile BookCopyDAO bookCopyDAO;  // null unless per-copy tracking is enabled
+    private volatile CopyAvailabilityIndex copyIndex; // null unless per-copy tracking is enabled
+    private CirculationProcedureDAO procedureDAO; // null unless stored procedure mode is enabled
+    private volatile SearchResultCache searchCache; // null unless search caching is enabled
+    private PopularityTracker popularityTracker; // null unless popularity tracking is enabled
+    private volatile RecommendationEngine recommendationEngine; // null unless recommendations are enabled
+    private CirculationRollupDAO rollupDAO;     // null unless circulation rollups are enabled
+    private LoanArchiveDAO archiveDAO;          // null unless loan archival is enabled
+    private KioskSync kioskSync;                // null unless kiosk mode is enabled
+    private CatalogSnapshotDAO catalogSnapshotDAO; // null unless the catalog snapshot is enabled
+    private ChangeLogPoller changeLogPoller;    // null unless the change log is enabled
+    private TransactionExecutor transactions = new TransactionExecutor(3, 20, 1000);
+    private AdmissionController admission;      // null unless admission control is enabled
+    private Tracer tracer;                      // null unless tracing is enabled
+    private ParallelReportEngine reports;       // null unless parallel reports are enabled
 
     public LibraryService(BookDAO bookDAO, MemberDAO memberDAO, BorrowerDAO borrowerDAO) {
         this.bookDAO = bookDAO;
@@ -28,6 +70,401 @@ public class LibraryService {
         this.borrowerDAO = borrowerDAO;
     }
 
+    /**
+     * Enables the catalog snapshot, so the full book and member lists are read from a mapped
+     * snapshot file plus the rows changed since instead of by scanning the tables. Without a
+     * snapshot file one is written first; it is then rewritten every intervalMinutes.
+     * Enable it before features that load the whole catalog, such as copy tracking.
+     * @param catalogSnapshotDAO The DAO that reads and writes the snapshot.
+     * @param intervalMinutes The time between snapshot writes.
+     */
+    public void enableCatalogSnapshot(CatalogSnapshotDAO catalogSnapshotDAO, int intervalMinutes) {
+        if (!catalogSnapshotDAO.hasSnapshot()) {
+            System.out.println("Writing initial catalog snapshot...");
+            catalogSnapshotDAO.writeSnapshot();
+        }
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(catalogSnapshotDAO::writeSnapshot, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        this.catalogSnapshotDAO = catalogSnapshotDAO;
+    }
+
+    /**
+     * @return All books, from the catalog snapshot when it is enabled and readable.
+     */
+    private List<Book> allBooks() {
+        List<Book> books = catalogSnapshotDAO != null ? catalogSnapshotDAO.getAllBooks() : null;
+        return books != null ? books : bookDAO.getAllBooks();
+    }
+
+    /**
+     * @return All members, from the catalog snapshot when it is enabled and readable.
+     */
+    private List<Member> allMembers() {
+        List<Member> members = catalogSnapshotDAO != null ? catalogSnapshotDAO.getAllMembers() : null;
+        return members != null ? members : memberDAO.getAllMembers();
+    }
+
+    /**
+     * Enables per-copy inventory tracking. Loads every copy record into an in-memory
+     * availability index; books without copy records get them created from their
+     * total/available copy counts first.
+     * @param bookCopyDAO The DAO for book copy records.
+     */
+    public void enableCopyTracking(BookCopyDAO bookCopyDAO) {
+        List<Book> allBooks = allBooks();
+        List<BookCopy> allCopies = bookCopyDAO.getAllCopies();
+
+        Map<Integer, Boolean> booksWithCopies = new HashMap<>();
+        for (BookCopy copy : allCopies) {
+            booksWithCopies.put(copy.getBookId(), Boolean.TRUE);
+        }
+        for (Book book : allBooks) {
+            if (!booksWithCopies.containsKey(book.getBookId()) && book.getTotalCopies() > 0) {
+                allCopies.addAll(bookCopyDAO.addCopies(book.getBookId(), book.getTotalCopies(), book.getAvailableCopies()));
+            }
+        }
+
+        CopyAvailabilityIndex index = new CopyAvailabilityIndex();
+        index.load(allBooks, allCopies);
+        this.bookCopyDAO = bookCopyDAO;
+        this.copyIndex = index;
+    }
+
+    /**
+     * Switches borrowBook, returnBook, renewBook and payFines to stored procedure mode:
+     * the procedures are (re)installed and each of these operations then runs as a single
+     * procedure call. Business rules and messages are the same as in the default mode.
+     * @param procedureDAO The DAO that installs and calls the circulation procedures.
+     * @return true if the procedures were installed and the mode is active, false otherwise.
+     */
+    public boolean enableStoredProcedures(CirculationProcedureDAO procedureDAO) {
+        if (!procedureDAO.installProcedures()) {
+            System.out.println("Stored procedure mode not enabled; falling back to regular statements.");
+            return false;
+        }
+        this.procedureDAO = procedureDAO;
+        return true;
+    }
+
+    /**
+     * Enables caching of checkBookAvailability results.
+     * @param searchCache The cache to use.
+     */
+    public void enableSearchCache(SearchResultCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    /**
+     * Enables borrow popularity tracking. The tracker is first fed every loan made within
+     * its longest window, so trending lists survive a restart.
+     * @param tracker The tracker to use.
+     */
+    public void enablePopularityTracking(PopularityTracker tracker) {
+        LocalDate from = LocalDate.now().minusDays(PopularityTracker.TrendWindow.MONTH.getDays() - 1);
+        for (Borrower loan : borrowerDAO.getLoansSince(from)) {
+            tracker.recordBorrow(loan.getBookId(), loan.getLoanDate());
+        }
+        this.popularityTracker = tracker;
+    }
+
+    /**
+     * Enables "also borrowed" recommendations. The engine is built by streaming the whole
+     * loan history once and is kept current by every later borrow.
+     * @param engine The recommendation engine to use.
+     */
+    public void enableRecommendations(RecommendationEngine engine) {
+        borrowerDAO.streamAllLoans(loan -> engine.recordBorrow(loan.getMemberId(), loan.getBookId()));
+        this.recommendationEngine = engine;
+    }
+
+    /**
+     * Enables circulation rollups for the librarian dashboard. The summary tables are rebuilt
+     * from the loan history when they are empty or a rebuild is requested, and are then kept
+     * current by every borrow and return.
+     * @param rollupDAO The DAO that maintains the summary tables.
+     * @param rebuild Whether to rebuild the summary tables even if they already hold data.
+     * @param threads The number of parallel workers used for a rebuild.
+     */
+    public void enableCirculationRollups(CirculationRollupDAO rollupDAO, boolean rebuild, int threads) {
+        Boolean empty = rebuild ? Boolean.TRUE : rollupDAO.isEmpty();
+        if (empty == null) {
+            System.out.println("Circulation rollups could not be checked; the dashboard stays disabled.");
+            return;
+        }
+        if (empty) {
+            System.out.println("Rebuilding circulation rollups...");
+            if (!rollupDAO.rebuild(threads)) {
+                System.out.println("Circulation rollups could not be rebuilt; the dashboard stays disabled.");
+                return;
+            }
+        }
+        this.rollupDAO = rollupDAO;
+    }
+
+    /**
+     * Enables archival of returned, settled loans into the loan history table.
+     * @param archiveDAO The DAO that moves loans into the history table.
+     */
+    public void enableArchival(LoanArchiveDAO archiveDAO) {
+        this.archiveDAO = archiveDAO;
+    }
+
+    /**
+     * Replaces the executor that runs borrow, return, renew and pay-fines transactions and
+     * retries them after deadlocks, lock wait timeouts and version conflicts.
+     * @param transactions The executor.
+     */
+    public void setTransactionExecutor(TransactionExecutor transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * @return The executor of circulation transactions, with its retry and give-up counts.
+     */
+    public TransactionExecutor getTransactionExecutor() {
+        return transactions;
+    }
+
+    /**
+     * Enables admission control: circulation on one side, and searches and reports on the
+     * other, run under separate adaptive concurrency limits and queues, and are turned away
+     * once their queue is full.
+     * @param admission The admission controller.
+     */
+    public void enableAdmissionControl(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * @return The admission controller, or null unless admission control is enabled.
+     */
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    /**
+     * Enables tracing: each operation run through admission becomes a span, with the
+     * connects and statements it sends to MySQL as child spans, and is handed to the
+     * tracer's exporter when it finishes.
+     * @param tracer The tracer.
+     */
+    public void enableTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return The tracer, or null unless tracing is enabled.
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Enables parallel reports: the overdue loans report, the fines report and the list of
+     * available books read their table in key ranges on several connections at once and
+     * merge the ranges in key order. Each report still counts as one query operation.
+     * @param reports The engine that reads the key ranges.
+     */
+    public void enableParallelReports(ParallelReportEngine reports) {
+        this.reports = reports;
+    }
+
+    /**
+     * Enables offline kiosk mode: the DAOs work on a local snapshot and journal, which are
+     * synced with MySQL now and then every intervalSeconds. Circulation keeps working while
+     * the database is unreachable; changes the journal cannot carry are refused.
+     * @param kioskSync The sync of the kiosk's snapshot and journal.
+     * @param intervalSeconds The time between sync attempts.
+     */
+    public void enableKioskMode(KioskSync kioskSync, int intervalSeconds) {
+        this.kioskSync = kioskSync;
+        kioskSync.start(intervalSeconds);
+    }
+
+    /**
+     * Enables the change log, which keeps this node's caches coherent with writes made by other
+     * nodes sharing the database. Triggers append every write to books, members and book copies
+     * to change_log; this node polls it every pollMillis and patches or drops the cached rows.
+     * Enable it before the caches it maintains, so no change slips between loading them and the
+     * first poll.
+     * @param changeLogDAO The DAO that installs the triggers and reads the log.
+     * @param pollMillis The time between polls.
+     * @param retentionHours How long log rows are kept.
+     * @return true if the change log is active, false otherwise.
+     */
+    public boolean enableChangeLog(ChangeLogDAO changeLogDAO, long pollMillis, int retentionHours) {
+        long latest = changeLogDAO.installTriggers() ? changeLogDAO.getLatestChangeId() : -1;
+        if (latest < 0) {
+            System.out.println("Change log not enabled; caches on other nodes may serve stale rows.");
+            return false;
+        }
+        ChangeLogPoller poller = new ChangeLogPoller(changeLogDAO, latest, this::onRemoteChange,
+                                                     this::onRemoteChangesMissed, retentionHours);
+        poller.start(pollMillis);
+        this.changeLogPoller = poller;
+        return true;
+    }
+
+    /**
+     * Applies one logged write to the caches. Changes this node made itself come back too;
+     * they carry absolute values, so applying them again is harmless.
+     */
+    private void onRemoteChange(ChangeLogEntry change) {
+        CopyAvailabilityIndex index = copyIndex;
+        int id = change.getEntityId();
+        switch (change.getEntity()) {
+            case ChangeLogEntry.BOOK:
+                if (change.getOperation() == ChangeLogEntry.DELETE) {
+                    if (searchCache != null) {
+                        searchCache.invalidateBook(id);
+                    }
+                    if (recommendationEngine != null) {
+                        recommendationEngine.removeBook(id);
+                    }
+                    if (index != null) {
+                        index.removeBook(id);
+                    }
+                } else if (change.getOperation() == ChangeLogEntry.INSERT) {
+                    if (searchCache != null) {
+                        searchCache.invalidateQueries(); // The new book may match cached queries
+                    }
+                    if (index != null && !index.containsBook(id)) {
+                        reindexBook(index, id);
+                    }
+                } else if (change.getNewValue() != null) {
+                    if (searchCache != null) {
+                        searchCache.setAvailableCopies(id, change.getNewValue().intValue());
+                    }
+                } else {
+                    if (searchCache != null) {
+                        searchCache.invalidateBook(id);
+                    }
+                    if (index != null) {
+                        reindexBook(index, id); // The total copies may have changed
+                    }
+                }
+                break;
+            case ChangeLogEntry.COPY:
+                if (index == null) {
+                    break;
+                }
+                if (!index.containsCopy(change.getEntityKey())) {
+                    reindexBook(index, id);
+                } else if (change.getNewValue() != null && change.getNewValue() != 0) {
+                    index.markAvailable(change.getEntityKey());
+                } else {
+                    index.markBorrowed(change.getEntityKey());
+                }
+                break;
+            default:
+                break; // Members are not cached in-process
+        }
+    }
+
+    /**
+     * Re-reads a book and its copies into the copy index, or drops it if it is gone.
+     */
+    private void reindexBook(CopyAvailabilityIndex index, int bookId) {
+        Book book = bookDAO.getBookById(bookId);
+        index.removeBook(bookId);
+        if (book != null) {
+            index.addBook(book, bookCopyDAO.getCopiesByBookId(bookId));
+        }
+    }
+
+    /**
+     * Drops or reloads the caches after the change log may have skipped a write.
+     */
+    private void onRemoteChangesMissed() {
+        System.out.println("Change log gap expired; reloading caches.");
+        if (searchCache != null) {
+            searchCache.invalidateAll();
+        }
+        CopyAvailabilityIndex index = copyIndex;
+        if (index != null) {
+            index.load(allBooks(), bookCopyDAO.getAllCopies());
+        }
+    }
+
+    /**
+     * Turns away an action that needs the central database while in kiosk mode.
+     * @return True if the action must not run.
+     */
+    private boolean refusedAtKiosk(String action) {
+        if (kioskSync == null) {
+            return false;
+        }
+        System.out.println("Error: " + action + " is not available at a kiosk. Please ask at the library desk.");
+        return true;
+    }
+
+    /**
+     * Keeps caches in step after this service changed a book's available copies.
+     */
+    private void onCopiesChanged(int bookId, int change) {
+        if (searchCache != null) {
+            searchCache.onCopiesChanged(bookId, change);
+        }
+    }
+
+    /**
+     * Feeds a successful borrow to the trackers that follow circulation.
+     */
+    private void onBorrowed(int loanId, int memberId, int bookId, LocalDate loanDate) {
+        if (popularityTracker != null) {
+            popularityTracker.recordBorrow(bookId, loanDate);
+        }
+        if (recommendationEngine != null) {
+            recommendationEngine.recordBorrow(memberId, bookId);
+        }
+        if (rollupDAO != null) {
+            rollupDAO.recordBorrow(loanId, loanDate);
+        }
+    }
+
+    /**
+     * Keeps statistics in step after a loan was returned.
+     */
+    private void onReturned(int loanId, LocalDate returnDate, long finePaise) {
+        if (rollupDAO != null) {
+            rollupDAO.recordReturn(loanId, returnDate, finePaise);
+        }
+    }
+
+    /**
+     * Runs an operation under admission control, if it is enabled, and records it as a JFR
+     * event and, if tracing is enabled, as a span. Operations must not call other admitted
+     * operations, or they could wait for a slot they already hold.
+     */
+    private <T> T admit(OperationClass operationClass, String action, LibraryOperationEvent event,
+                        Supplier<T> operation, T rejected) {
+        event.begin();
+        Supplier<T> recorded = () -> {
+            event.admitted = true;
+            T result = operation.get();
+            event.setResult(result);
+            return result;
+        };
+        Supplier<T> admitted = () -> admission != null ? admission.call(operationClass, action, recorded, rejected) : recorded.get();
+        try {
+            return tracer != null ? tracer.trace(event.operation, admitted) : admitted.get();
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Opens a session for one service call. Lookups within the call share an identity map
+     * and all writes of the call are flushed together.
+     */
+    private DaoSession openSession() {
+        return new DaoSession(bookDAO, memberDAO, borrowerDAO);
+    }
+
     // --- User Actions ---
 
     /**
@@ -37,24 +474,39 @@ public class LibraryService {
      * @return true if the book was successfully borrowed, false otherwise.
      */
     public boolean borrowBook(int memberId, int bookId) {
-        Member member = memberDAO.getMemberById(memberId);
+        if (procedureDAO != null) {
+            return admit(OperationClass.CIRCULATION, "Borrowing", new LibraryOperationEvent("borrowBook", memberId, bookId, 0),
+                    () -> transactions.execute("Borrowing", () -> borrowBookWithProcedure(memberId, bookId), false), false);
+        }
+        return admit(OperationClass.CIRCULATION, "Borrowing", new LibraryOperationEvent("borrowBook", memberId, bookId, 0),
+                () -> transactions.execute("Borrowing", () -> borrowBookOnce(memberId, bookId), false), false);
+    }
+
+    /**
+     * One attempt at borrowBook. Throws when the book's last copy was taken since it was
+     * read or the database failed, leaving nothing written.
+     */
+    private boolean borrowBookOnce(int memberId, int bookId) {
+        DaoSession session = openSession();
+        Member member = session.getMember(memberId);
         if (member == null) {
             System.out.println("Error: Member with ID " + memberId + " not found.");
             return false;
         }
 
-        Book book = bookDAO.getBookById(bookId);
+        Book book = session.getBook(bookId);
         if (book == null) {
             System.out.println("Error: Book with ID " + bookId + " not found.");
             return false;
         }
 
-        if (book.getAvailableCopies() <= 0) {
+        boolean available = copyIndex != null ? copyIndex.isAnyAvailable(bookId) : book.getAvailableCopies() > 0;
+        if (!available) {
             System.out.println("Error: Book '" + book.getTitle() + "' is currently not available.");
             return false;
         }
 
-        List<Borrower> activeLoans = borrowerDAO.getActiveLoansByMemberId(memberId);
+        List<Borrower> activeLoans = session.getActiveLoansByMemberId(memberId);
         if (activeLoans.size() >= MAX_BORROWED_BOOKS) {
             System.out.println("Error: Member " + member.getFirstName() + " has reached the maximum limit of " + MAX_BORROWED_BOOKS + " borrowed books.");
             return false;
@@ -74,8 +526,35 @@ public class LibraryService {
         LocalDate dueDate = loanDate.plusDays(INITIAL_LOAN_DAYS);
         Borrower newBorrowerEntry = new Borrower(bookId, memberId, loanDate, dueDate);
 
-        if (borrowerDAO.createLoan(newBorrowerEntry) != null) {
-            bookDAO.updateBookCopies(bookId, -1);
+        String barcode = null;
+        if (copyIndex != null) {
+            barcode = copyIndex.pickAvailableCopy(bookId);
+            if (barcode == null) {
+                System.out.println("Error: Book '" + book.getTitle() + "' is currently not available.");
+                return false;
+            }
+        }
+
+        if (barcode != null) {
+            session.createLoan(newBorrowerEntry, barcode); // The copy is marked BORROWED in the loan's transaction
+        } else {
+            session.createLoan(newBorrowerEntry);
+        }
+        session.updateBookCopies(bookId, -1);
+        boolean flushed = false;
+        try {
+            flushed = session.flush();
+        } finally {
+            if (!flushed && barcode != null) {
+                copyIndex.markAvailable(barcode); // Release the reserved copy
+            }
+        }
+        if (flushed) {
+            onCopiesChanged(bookId, -1);
+            onBorrowed(newBorrowerEntry.getLoanId(), memberId, bookId, loanDate);
+            if (barcode != null) {
+                System.out.println("Copy issued: " + barcode);
+            }
             System.out.println("Book '" + book.getTitle() + "' borrowed successfully by " + member.getFirstName() + ".");
             System.out.println("Due date: " + dueDate);
             return true;
@@ -88,45 +567,67 @@ public class LibraryService {
      * Allows a member to return a book.
      * This method now calculates and updates the fine in the database.
      * @param loanId The ID of the loan to return.
-     * @return The fine amount if any, otherwise 0.0.
+     * @return The fine amount in paise, 0 if none, or RETURN_FAILED if the loan is unknown or
+     *         already returned, or the return could not be written.
      */
-    public double returnBook(int loanId) {
+    public long returnBook(int loanId) {
+        if (procedureDAO != null) {
+            return admit(OperationClass.CIRCULATION, "Returning", new LibraryOperationEvent("returnBook", 0, 0, loanId),
+                    () -> transactions.execute("Returning", () -> returnBookWithProcedure(loanId), RETURN_FAILED), RETURN_FAILED);
+        }
+        return admit(OperationClass.CIRCULATION, "Returning", new LibraryOperationEvent("returnBook", 0, 0, loanId),
+                () -> transactions.execute("Returning", () -> returnBookOnce(loanId), RETURN_FAILED), RETURN_FAILED);
+    }
+
+    /**
+     * One attempt at returnBook. Throws when the loan changed since it was read or the
+     * database failed, leaving nothing written.
+     */
+    private long returnBookOnce(int loanId) {
         Borrower borrowerEntry = borrowerDAO.getLoanById(loanId);
         if (borrowerEntry == null) {
             System.out.println("Error: Borrower entry with ID " + loanId + " not found.");
-            return 0.0;
+            return RETURN_FAILED;
         }
         if (borrowerEntry.getReturnDate() != null) {
             System.out.println("Book for borrower entry ID " + loanId + " has already been returned.");
-            System.out.println("Fine previously incurred: Rs. " + String.format("%.2f", borrowerEntry.getFineAmount()));
-            return borrowerEntry.getFineAmount();
+            System.out.println("Fine previously incurred: Rs. " + Money.format(borrowerEntry.getFinePaise()));
+            return RETURN_FAILED;
         }
 
         LocalDate returnDate = LocalDate.now();
-        double calculatedFine = borrowerEntry.calculateFine(returnDate);
-
-        if (borrowerDAO.updateLoanReturnDate(loanId, returnDate, calculatedFine, false)) {
-            bookDAO.updateBookCopies(borrowerEntry.getBookId(), 1);
+        long calculatedFine = borrowerEntry.calculateFinePaise(returnDate);
 
+        // Loan, copy, book and member updates go to the server together in one round trip
+        CirculationResult result = borrowerDAO.returnLoan(borrowerEntry, returnDate, calculatedFine);
+        if (result != null) {
+            onCopiesChanged(borrowerEntry.getBookId(), 1);
+            onReturned(loanId, returnDate, calculatedFine);
+            onCopyReturned(result.getBarcode());
             if (calculatedFine > 0) {
-                Member member = memberDAO.getMemberById(borrowerEntry.getMemberId());
-                if (member != null) {
-                    double newTotalFineDue = member.getTotalFineDue() + calculatedFine;
-                    memberDAO.updateTotalFineDue(member.getMemberId(), newTotalFineDue);
-                    System.out.println("Member's total fine due updated to Rs. " + String.format("%.2f", newTotalFineDue));
-                }
+                System.out.println("Member's total fine due updated to Rs. " + Money.format(result.getTotalFineDuePaise()));
             }
 
             System.out.println("Book for borrower entry ID " + loanId + " returned successfully.");
             if (calculatedFine > 0) {
-                System.out.println("Fine incurred: Rs. " + String.format("%.2f", calculatedFine));
+                System.out.println("Fine incurred: Rs. " + Money.format(calculatedFine));
             } else {
                 System.out.println("No fine incurred.");
             }
             return calculatedFine;
         }
         System.out.println("Failed to update borrower entry return date.");
-        return 0.0;
+        return RETURN_FAILED;
+    }
+
+    /**
+     * Makes the copy a committed return put back on the shelf available in the copy index.
+     * @param barcode The copy's barcode, or null if the return freed no tracked copy.
+     */
+    private void onCopyReturned(String barcode) {
+        if (copyIndex != null && barcode != null) {
+            copyIndex.markAvailable(barcode);
+        }
     }
 
     /**
@@ -135,6 +636,19 @@ public class LibraryService {
      * @return true if renewed successfully, false otherwise.
      */
     public boolean renewBook(int loanId) {
+        if (procedureDAO != null) {
+            return admit(OperationClass.CIRCULATION, "Renewing", new LibraryOperationEvent("renewBook", 0, 0, loanId),
+                    () -> transactions.execute("Renewing", () -> renewBookWithProcedure(loanId), false), false);
+        }
+        return admit(OperationClass.CIRCULATION, "Renewing", new LibraryOperationEvent("renewBook", 0, 0, loanId),
+                () -> transactions.execute("Renewing", () -> renewBookOnce(loanId), false), false);
+    }
+
+    /**
+     * One attempt at renewBook. Throws when the loan changed since it was read or the
+     * database failed, leaving nothing written.
+     */
+    private boolean renewBookOnce(int loanId) {
         Borrower borrowerEntry = borrowerDAO.getLoanById(loanId);
         if (borrowerEntry == null) {
             System.out.println("Error: Borrower entry with ID " + loanId + " not found.");
@@ -150,7 +664,7 @@ public class LibraryService {
         }
 
         LocalDate newDueDate = borrowerEntry.getDueDate().plusDays(RENEWAL_DAYS);
-        if (borrowerDAO.updateLoanRenewedStatus(loanId, newDueDate)) {
+        if (borrowerDAO.renewLoan(borrowerEntry, newDueDate)) {
             System.out.println("Book for borrower entry ID " + loanId + " renewed successfully. New due date: " + newDueDate);
             return true;
         }
@@ -164,25 +678,42 @@ public class LibraryService {
      * @return true if fines were successfully processed/paid, false otherwise.
      */
     public boolean payFines(int memberId) {
-        Member member = memberDAO.getMemberById(memberId);
+        if (refusedAtKiosk("Paying fines")) {
+            return false;
+        }
+        if (procedureDAO != null) {
+            return admit(OperationClass.CIRCULATION, "Paying fines", new LibraryOperationEvent("payFines", memberId, 0, 0),
+                    () -> transactions.execute("Paying fines", () -> payFinesWithProcedure(memberId), false), false);
+        }
+        return admit(OperationClass.CIRCULATION, "Paying fines", new LibraryOperationEvent("payFines", memberId, 0, 0),
+                () -> transactions.execute("Paying fines", () -> payFinesOnce(memberId), false), false);
+    }
+
+    /**
+     * One attempt at payFines. Throws when the member or one of their loans changed since
+     * it was read or the database failed, leaving nothing written.
+     */
+    private boolean payFinesOnce(int memberId) {
+        DaoSession session = openSession();
+        Member member = session.getMember(memberId);
         if (member == null) {
             System.out.println("Error: Member with ID " + memberId + " not found.");
             return false;
         }
 
-        if (member.getTotalFineDue() <= 0) {
+        if (member.getTotalFineDuePaise() <= 0) {
             System.out.println("Member " + member.getFirstName() + " has no outstanding fines.");
             return true;
         }
 
-        List<Borrower> memberLoansWithUnpaidFines = borrowerDAO.getLoansByMemberId(memberId).stream()
-            .filter(loan -> loan.getFineAmount() > 0 && !loan.isFinePaid())
+        List<Borrower> memberLoansWithUnpaidFines = session.getLoansByMemberId(memberId).stream()
+            .filter(loan -> loan.getFinePaise() > 0 && !loan.isFinePaid())
             .collect(Collectors.toList());
 
         if (memberLoansWithUnpaidFines.isEmpty()) {
-            System.out.println("Member " + member.getFirstName() + " has no individual loan fines outstanding, but total fine due is " + String.format("%.2f", member.getTotalFineDue()) + ". This might indicate a data inconsistency.");
-            if (member.getTotalFineDue() > 0) {
-                if (memberDAO.updateTotalFineDue(memberId, 0.00)) {
+            System.out.println("Member " + member.getFirstName() + " has no individual loan fines outstanding, but total fine due is " + Money.format(member.getTotalFineDuePaise()) + ". This might indicate a data inconsistency.");
+            if (member.getTotalFineDuePaise() > 0) {
+                if (memberDAO.updateTotalFineDue(memberId, 0)) {
                     System.out.println("Total fine due for member " + member.getFirstName() + " reset to 0.00.");
                     return true;
                 } else {
@@ -193,28 +724,150 @@ public class LibraryService {
             return true;
         }
 
-        boolean allFinesPaidSuccessfully = true;
+        // Loan fines and the member total are written together, so they either all change or none do
+        long paidAmount = member.getTotalFineDuePaise();
         for (Borrower loan : memberLoansWithUnpaidFines) {
-            if (!borrowerDAO.updateFinePaidStatus(loan.getLoanId(), true)) {
-                allFinesPaidSuccessfully = false;
-                System.err.println("Failed to mark fine as paid for Borrower Entry ID: " + loan.getLoanId());
-            }
+            loan.setFinePaid(true);
+            session.markDirty(loan);
         }
+        member.setTotalFineDuePaise(0);
+        session.markDirty(member);
 
-        if (allFinesPaidSuccessfully) {
-            if (memberDAO.updateTotalFineDue(memberId, 0.00)) {
-                System.out.println("All outstanding fines for " + member.getFirstName() + " (Rs. " + String.format("%.2f", member.getTotalFineDue()) + ") have been paid.");
-                return true;
-            } else {
-                System.out.println("Successfully marked individual loan fines as paid, but failed to reset member's total fine due.");
-                return false;
+        if (session.flush()) {
+            System.out.println("All outstanding fines for " + member.getFirstName() + " (Rs. " + Money.format(paidAmount) + ") have been paid.");
+            return true;
+        }
+        System.out.println("Some fines could not be marked as paid. Please check logs.");
+        return false;
+    }
+
+    // --- Stored procedure mode ---
+
+    private boolean borrowBookWithProcedure(int memberId, int bookId) {
+        LocalDate loanDate = LocalDate.now();
+        LocalDate dueDate = loanDate.plusDays(INITIAL_LOAN_DAYS);
+        String barcode = copyIndex != null ? copyIndex.pickAvailableCopy(bookId) : null;
+        CirculationResult result = null;
+        try {
+            result = procedureDAO.borrowBook(memberId, bookId, barcode, loanDate, dueDate, MAX_BORROWED_BOOKS);
+        } finally {
+            if (barcode != null && (result == null || result.getStatus() != CirculationProcedureDAO.STATUS_OK)) {
+                copyIndex.markAvailable(barcode); // Release the reserved copy
             }
+        }
+        if (result == null) {
+            System.out.println("Failed to create borrower entry.");
+            return false;
+        }
+        switch (result.getStatus()) {
+            case CirculationProcedureDAO.STATUS_MEMBER_NOT_FOUND:
+                System.out.println("Error: Member with ID " + memberId + " not found.");
+                return false;
+            case CirculationProcedureDAO.STATUS_BOOK_NOT_FOUND:
+                System.out.println("Error: Book with ID " + bookId + " not found.");
+                return false;
+            case CirculationProcedureDAO.STATUS_NOT_AVAILABLE:
+                System.out.println("Error: Book '" + result.getBookTitle() + "' is currently not available.");
+                return false;
+            case CirculationProcedureDAO.STATUS_LIMIT_REACHED:
+                System.out.println("Error: Member " + result.getMemberName() + " has reached the maximum limit of " + MAX_BORROWED_BOOKS + " borrowed books.");
+                return false;
+            case CirculationProcedureDAO.STATUS_ALREADY_BORROWED:
+                System.out.println("Error: Member " + result.getMemberName() + " already has an active loan for '" + result.getBookTitle() + "'.");
+                System.out.println("Please return the current copy before borrowing it again.");
+                return false;
+            default:
+                break;
+        }
+
+        System.out.println("Borrower entry created successfully with ID: " + result.getLoanId());
+        onCopiesChanged(bookId, -1);
+        onBorrowed(result.getLoanId(), memberId, bookId, loanDate);
+        if (barcode != null) {
+            System.out.println("Copy issued: " + barcode);
+        }
+        System.out.println("Book '" + result.getBookTitle() + "' borrowed successfully by " + result.getMemberName() + ".");
+        System.out.println("Due date: " + dueDate);
+        return true;
+    }
+
+    private long returnBookWithProcedure(int loanId) {
+        LocalDate returnDate = LocalDate.now();
+        CirculationResult result = procedureDAO.returnBook(loanId, returnDate, Borrower.FINE_PER_DAY_PAISE);
+        if (result == null) {
+            System.out.println("Failed to update borrower entry return date.");
+            return RETURN_FAILED;
+        }
+        if (result.getStatus() == CirculationProcedureDAO.STATUS_LOAN_NOT_FOUND) {
+            System.out.println("Error: Borrower entry with ID " + loanId + " not found.");
+            return RETURN_FAILED;
+        }
+        if (result.getStatus() == CirculationProcedureDAO.STATUS_ALREADY_RETURNED) {
+            System.out.println("Book for borrower entry ID " + loanId + " has already been returned.");
+            System.out.println("Fine previously incurred: Rs. " + Money.format(result.getFinePaise()));
+            return RETURN_FAILED;
+        }
+
+        onCopiesChanged(result.getBookId(), 1);
+        onReturned(loanId, returnDate, result.getFinePaise());
+        onCopyReturned(result.getBarcode());
+        long calculatedFine = result.getFinePaise();
+        if (calculatedFine > 0) {
+            System.out.println("Member's total fine due updated to Rs. " + Money.format(result.getTotalFineDuePaise()));
+        }
+        System.out.println("Book for borrower entry ID " + loanId + " returned successfully.");
+        if (calculatedFine > 0) {
+            System.out.println("Fine incurred: Rs. " + Money.format(calculatedFine));
         } else {
-            System.out.println("Some fines could not be marked as paid. Please check logs.");
+            System.out.println("No fine incurred.");
+        }
+        return calculatedFine;
+    }
+
+    private boolean renewBookWithProcedure(int loanId) {
+        CirculationResult result = procedureDAO.renewBook(loanId, RENEWAL_DAYS);
+        if (result == null) {
+            System.out.println("Failed to renew book for borrower entry ID " + loanId + ".");
             return false;
         }
+        switch (result.getStatus()) {
+            case CirculationProcedureDAO.STATUS_LOAN_NOT_FOUND:
+                System.out.println("Error: Borrower entry with ID " + loanId + " not found.");
+                return false;
+            case CirculationProcedureDAO.STATUS_ALREADY_RETURNED:
+                System.out.println("Error: Cannot renew a book that has already been returned.");
+                return false;
+            case CirculationProcedureDAO.STATUS_ALREADY_RENEWED:
+                System.out.println("Error: This book has already been renewed once.");
+                return false;
+            default:
+                System.out.println("Book for borrower entry ID " + loanId + " renewed successfully. New due date: " + result.getDueDate());
+                return true;
+        }
     }
 
+    private boolean payFinesWithProcedure(int memberId) {
+        CirculationResult result = procedureDAO.payFines(memberId);
+        if (result == null) {
+            System.out.println("Some fines could not be marked as paid. Please check logs.");
+            return false;
+        }
+        switch (result.getStatus()) {
+            case CirculationProcedureDAO.STATUS_MEMBER_NOT_FOUND:
+                System.out.println("Error: Member with ID " + memberId + " not found.");
+                return false;
+            case CirculationProcedureDAO.STATUS_NO_FINES:
+                System.out.println("Member " + result.getMemberName() + " has no outstanding fines.");
+                return true;
+            case CirculationProcedureDAO.STATUS_FINES_RESET:
+                System.out.println("Member " + result.getMemberName() + " has no individual loan fines outstanding, but total fine due is " + Money.format(result.getTotalFineDuePaise()) + ". This might indicate a data inconsistency.");
+                System.out.println("Total fine due for member " + result.getMemberName() + " reset to 0.00.");
+                return true;
+            default:
+                System.out.println("All outstanding fines for " + result.getMemberName() + " (Rs. " + Money.format(result.getTotalFineDuePaise()) + ") have been paid.");
+                return true;
+        }
+    }
 
     /**
      * Checks the availability of books based on a search query.
@@ -222,10 +875,12 @@ public class LibraryService {
      * @return A list of available books matching the query.
      */
     public List<Book> checkBookAvailability(String query) {
-        List<Book> foundBooks = bookDAO.searchBooks(query);
-        return foundBooks.stream()
-                         .filter(book -> book.getAvailableCopies() > 0)
-                         .collect(Collectors.toList());
+        return admit(OperationClass.QUERY, "Searching", new LibraryOperationEvent("searchBooks", 0, 0, 0), () -> {
+            List<Book> foundBooks = searchCache != null ? searchCache.search(query) : bookDAO.searchBooks(query);
+            return foundBooks.stream()
+                             .filter(book -> book.getAvailableCopies() > 0)
+                             .collect(Collectors.toList());
+        }, new ArrayList<>());
     }
 
     /**
@@ -237,26 +892,49 @@ public class LibraryService {
         return borrowerDAO.getActiveLoansByMemberId(memberId);
     }
 
+    /**
+     * Retrieves a member's loan history, most recent first.
+     * @param memberId The ID of the member.
+     * @param archivedYears How many past calendar years of archived loans to include; 0 for active loans only.
+     * @return A list of Borrower objects.
+     */
+    public List<Borrower> getLoanHistory(int memberId, int archivedYears) {
+        LocalDate archivedSince = archivedYears > 0 && archiveDAO != null
+                ? LocalDate.now().minusYears(archivedYears).withDayOfYear(1)
+                : null;
+        return admit(OperationClass.QUERY, "Viewing loan history", new LibraryOperationEvent("getLoanHistory", memberId, 0, 0),
+                () -> borrowerDAO.getLoanHistoryByMemberId(memberId, archivedSince), new ArrayList<>());
+    }
+
     /**
      * Calculates the total fine for a member based on their overdue loans.
      * This method now retrieves the total_fine_due from the member table.
      * It also lists individual unpaid fines.
      * @param memberId The ID of the member.
-     * @return The total fine amount.
+     * @return The total fine amount in paise.
      */
-    public double getMemberFineDetails(int memberId) {
-        Member member = memberDAO.getMemberById(memberId);
+    public long getMemberFineDetails(int memberId) {
+        return admit(OperationClass.QUERY, "Viewing fines", new LibraryOperationEvent("getMemberFineDetails", memberId, 0, 0),
+                () -> printMemberFineDetails(memberId), 0L);
+    }
+
+    /**
+     * Prints a member's fines; the caller holds a query slot.
+     */
+    private long printMemberFineDetails(int memberId) {
+        DaoSession session = openSession();
+        Member member = session.getMember(memberId);
         if (member == null) {
             System.out.println("Error: Member with ID " + memberId + " not found.");
-            return 0.0;
+            return 0;
         }
 
         System.out.println("\n--- Fine Details for Member: " + member.getFirstName() + " " + member.getLastName() + " (ID: " + member.getMemberId() + ") ---");
-        System.out.println("Total Outstanding Fine: Rs. " + String.format("%.2f", member.getTotalFineDue()));
+        System.out.println("Total Outstanding Fine: Rs. " + Money.format(member.getTotalFineDuePaise()));
 
-        List<Borrower> allLoans = borrowerDAO.getLoansByMemberId(memberId);
+        List<Borrower> allLoans = session.getLoansByMemberId(memberId);
         List<Borrower> unpaidFines = allLoans.stream()
-            .filter(loan -> loan.getFineAmount() > 0 && !loan.isFinePaid())
+            .filter(loan -> loan.getFinePaise() > 0 && !loan.isFinePaid())
             .collect(Collectors.toList());
 
         if (unpaidFines.isEmpty()) {
@@ -264,14 +942,42 @@ public class LibraryService {
         } else {
             System.out.println("Details of Unpaid Fines:");
             for (Borrower loan : unpaidFines) {
-                Book book = bookDAO.getBookById(loan.getBookId());
+                Book book = session.getBook(loan.getBookId());
                 System.out.println("  - Borrower Entry ID: " + loan.getLoanId() +
                                    ", Book: " + (book != null ? book.getTitle() : "Unknown") +
                                    ", Due Date: " + loan.getDueDate() +
-                                   ", Fine Amount: Rs. " + String.format("%.2f", loan.getFineAmount()));
+                                   ", Fine Amount: Rs. " + Money.format(loan.getFinePaise()));
             }
         }
-        return member.getTotalFineDue();
+        return member.getTotalFineDuePaise();
+    }
+
+    /**
+     * Recommends books that members who borrowed the given book also borrowed.
+     * @param bookId The ID of the book.
+     * @param n The maximum number of recommendations.
+     * @return A list of Book objects, strongest first; empty if recommendations are not enabled.
+     */
+    public List<Book> getRecommendationsForBook(int bookId, int n) {
+        if (recommendationEngine == null) {
+            return new ArrayList<>();
+        }
+        return admit(OperationClass.QUERY, "Recommending books", new LibraryOperationEvent("getRecommendationsForBook", 0, bookId, 0),
+                () -> booksInOrder(recommendationEngine.recommendForBook(bookId, n)), new ArrayList<>());
+    }
+
+    /**
+     * Recommends books for a member based on everything they have borrowed.
+     * @param memberId The ID of the member.
+     * @param n The maximum number of recommendations.
+     * @return A list of Book objects, strongest first; empty if recommendations are not enabled.
+     */
+    public List<Book> getRecommendationsForMember(int memberId, int n) {
+        if (recommendationEngine == null) {
+            return new ArrayList<>();
+        }
+        return admit(OperationClass.QUERY, "Recommending books", new LibraryOperationEvent("getRecommendationsForMember", memberId, 0, 0),
+                () -> booksInOrder(recommendationEngine.recommendForMember(memberId, n)), new ArrayList<>());
     }
 
     // --- Librarian Actions ---
@@ -282,7 +988,22 @@ public class LibraryService {
      * @return true if added successfully, false otherwise.
      */
     public boolean addBook(Book book) {
-        return bookDAO.addBook(book) != null;
+        if (refusedAtKiosk("Adding books")) {
+            return false;
+        }
+        return admit(OperationClass.CIRCULATION, "Adding books", new LibraryOperationEvent("addBook", 0, 0, 0), () -> {
+            if (bookDAO.addBook(book) == null) {
+                return false;
+            }
+            if (searchCache != null) {
+                searchCache.invalidateQueries(); // The new book may match any cached query
+            }
+            if (copyIndex != null) {
+                List<BookCopy> copies = bookCopyDAO.addCopies(book.getBookId(), book.getTotalCopies(), book.getAvailableCopies());
+                copyIndex.addBook(book, copies);
+            }
+            return true;
+        }, false);
     }
 
     /**
@@ -290,7 +1011,18 @@ public class LibraryService {
      * @param memberId The ID of the member.
      */
     public void getMemberStatus(int memberId) {
-        Member member = memberDAO.getMemberById(memberId);
+        admit(OperationClass.QUERY, "Viewing member status", new LibraryOperationEvent("getMemberStatus", memberId, 0, 0), () -> {
+            printMemberStatus(memberId);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Prints a member's details and active loans; the caller holds a query slot.
+     */
+    private void printMemberStatus(int memberId) {
+        DaoSession session = openSession();
+        Member member = session.getMember(memberId);
         if (member == null) {
             System.out.println("Member with ID " + memberId + " not found.");
             return;
@@ -299,15 +1031,15 @@ public class LibraryService {
         System.out.println("Email: " + member.getEmail());
         System.out.println("Phone: " + (member.getPhoneNumber() != null ? member.getPhoneNumber() : "N/A"));
         System.out.println("Joined: " + member.getJoinDate());
-        System.out.println("Total Outstanding Fine: Rs. " + String.format("%.2f", member.getTotalFineDue()));
+        System.out.println("Total Outstanding Fine: Rs. " + Money.format(member.getTotalFineDuePaise()));
 
-        List<Borrower> activeLoans = borrowerDAO.getActiveLoansByMemberId(memberId);
+        List<Borrower> activeLoans = session.getActiveLoansByMemberId(memberId);
         System.out.println("\nBooks Borrowed (" + activeLoans.size() + "/" + MAX_BORROWED_BOOKS + "):");
         if (activeLoans.isEmpty()) {
             System.out.println("  No books currently borrowed.");
         } else {
             activeLoans.forEach(borrowerEntry -> {
-                Book book = bookDAO.getBookById(borrowerEntry.getBookId());
+                Book book = session.getBook(borrowerEntry.getBookId());
                 System.out.println("  - Borrower Entry ID: " + borrowerEntry.getLoanId() +
                                    ", Book: " + (book != null ? book.getTitle() : "Unknown") +
                                    ", Due Date: " + borrowerEntry.getDueDate() +
@@ -321,7 +1053,36 @@ public class LibraryService {
      * @return A list of available Book objects.
      */
     public List<Book> getAllAvailableBooks() {
-        return bookDAO.getAvailableBooks();
+        if (copyIndex != null) {
+            return copyIndex.getAvailableBooks();
+        }
+        return admit(OperationClass.QUERY, "Listing available books", new LibraryOperationEvent("getAllAvailableBooks", 0, 0, 0), () -> {
+            List<Book> books = reports != null ? reports.getAvailableBooks() : null;
+            return books != null ? books : bookDAO.getAvailableBooks();
+        }, new ArrayList<>());
+    }
+
+    /**
+     * Moves returned loans with no unpaid fine out of the active loans table (Librarian feature).
+     * @param olderThanDays Only loans returned more than this many days ago are archived.
+     * @return The number of loans archived.
+     */
+    public int archiveReturnedLoans(int olderThanDays) {
+        if (archiveDAO == null) {
+            System.out.println("Loan archival is not enabled.");
+            return 0;
+        }
+        if (olderThanDays < MIN_ARCHIVE_AGE_DAYS) {
+            System.out.println("Error: Only loans returned more than " + MIN_ARCHIVE_AGE_DAYS + " days ago can be archived.");
+            return 0;
+        }
+        int archived = archiveDAO.archiveLoans(LocalDate.now().minusDays(olderThanDays));
+        if (archived < 0) {
+            System.out.println("Failed to archive borrower entries.");
+            return 0;
+        }
+        System.out.println(archived + " borrower entries archived.");
+        return archived;
     }
 
     /**
@@ -329,24 +1090,234 @@ public class LibraryService {
      * (Librarian feature)
      */
     public void viewAllMembersWithFines() { // NEW METHOD
-        List<Member> allMembers = memberDAO.getAllMembers();
+        try (ReportWriter report = ReportWriter.toConsole()) {
+            writeMembersWithFinesReport(report);
+        }
+    }
+
+    /**
+     * Writes the list of all members with their total outstanding fines to a report (Librarian feature).
+     * @param report The report to write to.
+     */
+    public void writeMembersWithFinesReport(ReportWriter report) {
+        List<Member> allMembers = admit(OperationClass.QUERY, "Reporting fines", new LibraryOperationEvent("membersWithFinesReport", 0, 0, 0), this::reportMembers, null);
+        if (allMembers == null) {
+            return;
+        }
         if (allMembers.isEmpty()) {
-            System.out.println("No members registered in the system.");
+            report.line("No members registered in the system.");
             return;
         }
 
-        System.out.println("\n--- All Members and Outstanding Fines ---");
-        System.out.printf("%-10s %-25s %-15s%n", "Member ID", "Member Name", "Total Fine Due");
-        System.out.println("--------------------------------------------------");
+        report.header("All Members and Outstanding Fines",
+                      new String[] { "Member ID", "Member Name", "Total Fine Due" },
+                      new int[] { 10, 25, 15 });
         for (Member member : allMembers) {
-            System.out.printf("%-10d %-25s Rs. %-15.2f%n",
-                              member.getMemberId(),
-                              member.getFirstName() + " " + member.getLastName(),
-                              member.getTotalFineDue());
+            report.beginRow()
+                  .cell(member.getMemberId())
+                  .cell(member.getFirstName() + " " + member.getLastName())
+                  .money(member.getTotalFineDuePaise())
+                  .endRow();
         }
-        System.out.println("--------------------------------------------------");
+        report.beginRow()
+              .cell("")
+              .cell("Total")
+              .money(FineTotals.sumTotalFineDue(allMembers))
+              .endRow();
+        report.separator();
     }
 
+    /**
+     * @return All members for a report: from the catalog snapshot when it is enabled and
+     *         readable, else read in parallel when parallel reports are enabled.
+     */
+    private List<Member> reportMembers() {
+        List<Member> members = catalogSnapshotDAO != null ? catalogSnapshotDAO.getAllMembers() : null;
+        if (members == null && reports != null) {
+            members = reports.getAllMembers();
+        }
+        return members != null ? members : memberDAO.getAllMembers();
+    }
+
+    /**
+     * Sums the fines of every loan, archived ones included, as they are streamed from the
+     * database (Librarian feature).
+     * @return The totals, or null if the library is too busy.
+     */
+    public FineTotals getFineTotals() {
+        return admit(OperationClass.QUERY, "Summing fines", new LibraryOperationEvent("fineTotals", 0, 0, 0), () -> {
+            FineTotals totals = new FineTotals();
+            borrowerDAO.streamAllLoans(totals::add);
+            return totals;
+        }, null);
+    }
+
+    /**
+     * Displays the fines assessed on all loans and how much of them is unpaid (Librarian feature).
+     */
+    public void viewFineTotals() {
+        FineTotals totals = getFineTotals();
+        if (totals == null) {
+            return;
+        }
+        System.out.println("Fines assessed on " + totals.getFinedLoans() + " of " + totals.getLoans() + " borrower entries: Rs. "
+                           + Money.format(totals.getAssessedPaise()) + " (unpaid: Rs. " + Money.format(totals.getUnpaidPaise()) + ")");
+    }
+
+    /**
+     * Writes all overdue loans with their book titles and member names to a report (Librarian feature).
+     * Titles and names are looked up in batches rather than once per loan; with parallel
+     * reports, each key range of loans is read and looked up on its own connection.
+     * @param report The report to write to.
+     * @return The number of overdue loans written.
+     */
+    public int writeOverdueLoansReport(ReportWriter report) {
+        Integer written = admit(OperationClass.QUERY, "Reporting overdue loans", new LibraryOperationEvent("overdueLoansReport", 0, 0, 0), () -> writeOverdueLoans(report), null);
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Writes the overdue loans report; the caller holds a query slot.
+     */
+    private int writeOverdueLoans(ReportWriter report) {
+        List<ParallelReportEngine.OverdueLoan> overdueLoans = reports != null ? reports.getOverdueLoanRows(LocalDate.now()) : null;
+        if (overdueLoans == null) {
+            overdueLoans = overdueLoanRows(borrowerDAO.getOverdueLoans(LocalDate.now()));
+        }
+        if (overdueLoans.isEmpty()) {
+            report.line("No overdue borrower entries found.");
+            return 0;
+        }
+
+        report.header("Overdue Borrower Entries Report",
+                      new String[] { "Entry ID", "Book", "Member", "Due Date", "Fine", "Paid" },
+                      new int[] { 9, 30, 25, 11, 13, 4 });
+        for (ParallelReportEngine.OverdueLoan row : overdueLoans) {
+            Borrower borrowerEntry = row.getLoan();
+            report.beginRow()
+                  .cell(borrowerEntry.getLoanId())
+                  .cell(row.getTitle())
+                  .cell(row.getMemberName())
+                  .cell(borrowerEntry.getDueDate())
+                  .money(borrowerEntry.getFinePaise())
+                  .cell(borrowerEntry.isFinePaid() ? "Yes" : "No")
+                  .endRow();
+        }
+        report.separator();
+        return overdueLoans.size();
+    }
+
+    /**
+     * Looks up the book titles and member names of overdue loans in batches.
+     */
+    private List<ParallelReportEngine.OverdueLoan> overdueLoanRows(List<Borrower> overdueLoans) {
+        Map<Integer, String> titles = new HashMap<>();
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> bookIds = overdueLoans.stream().map(Borrower::getBookId).distinct().collect(Collectors.toList());
+        List<Integer> memberIds = overdueLoans.stream().map(Borrower::getMemberId).distinct().collect(Collectors.toList());
+        for (int from = 0; from < bookIds.size(); from += LOOKUP_BATCH_SIZE) {
+            for (Book book : bookDAO.getBooksByIds(bookIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, bookIds.size())))) {
+                titles.put(book.getBookId(), book.getTitle());
+            }
+        }
+        for (int from = 0; from < memberIds.size(); from += LOOKUP_BATCH_SIZE) {
+            for (Member member : memberDAO.getMembersByIds(memberIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, memberIds.size())))) {
+                names.put(member.getMemberId(), member.getFirstName() + " " + member.getLastName());
+            }
+        }
+        List<ParallelReportEngine.OverdueLoan> rows = new ArrayList<>(overdueLoans.size());
+        for (Borrower loan : overdueLoans) {
+            rows.add(new ParallelReportEngine.OverdueLoan(loan, titles.getOrDefault(loan.getBookId(), "Unknown"),
+                                                          names.getOrDefault(loan.getMemberId(), "Unknown")));
+        }
+        return rows;
+    }
+
+
+    /**
+     * Retrieves the most borrowed books within a window (Librarian feature).
+     * @param k The maximum number of books to return.
+     * @param window The window to rank by.
+     * @return A list of Book objects, most borrowed first; empty if popularity tracking is not enabled.
+     */
+    public List<Book> getTrendingBooks(int k, PopularityTracker.TrendWindow window) {
+        if (popularityTracker == null) {
+            return new ArrayList<>();
+        }
+        return admit(OperationClass.QUERY, "Listing trending books", new LibraryOperationEvent("getTrendingBooks", 0, 0, 0),
+                () -> booksInOrder(popularityTracker.getTrending(k, window, LocalDate.now())), new ArrayList<>());
+    }
+
+    /**
+     * Loads books by ID with one query, keeping the order of the IDs and skipping books that no longer exist.
+     */
+    private List<Book> booksInOrder(List<Integer> bookIds) {
+        Map<Integer, Book> booksById = new HashMap<>();
+        for (Book book : bookDAO.getBooksByIds(bookIds)) {
+            booksById.put(book.getBookId(), book);
+        }
+        List<Book> books = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) {
+            Book book = booksById.get(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Displays borrow, return, overdue and fine totals for the current day, week or month,
+     * per member cohort and for the busiest books (Librarian feature).
+     * @param period The period to show.
+     */
+    public void viewCirculationDashboard(CirculationRollup.Period period) {
+        if (rollupDAO == null) {
+            System.out.println("Circulation rollups are not enabled.");
+            return;
+        }
+        admit(OperationClass.QUERY, "Viewing the dashboard", new LibraryOperationEvent("circulationDashboard", 0, 0, 0), () -> {
+            printCirculationDashboard(period);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Prints the circulation dashboard; the caller holds a query slot.
+     */
+    private void printCirculationDashboard(CirculationRollup.Period period) {
+        LocalDate today = LocalDate.now();
+        System.out.println("\n--- Circulation for the " + period.name().toLowerCase() + " starting " + period.startOf(today) + " ---");
+        List<CirculationRollup> cohorts = rollupDAO.getCohortRollups(period, today);
+        if (cohorts.isEmpty()) {
+            System.out.println("No circulation recorded in this period.");
+            return;
+        }
+        System.out.printf("%-10s %-8s %-8s %-8s %-12s%n", "Cohort", "Borrows", "Returns", "Overdue", "Fines (Rs.)");
+        for (CirculationRollup cohort : cohorts) {
+            System.out.printf("%-10s %-8d %-8d %-8d %-12s%n", cohort.getDimensionKey(), cohort.getBorrows(),
+                              cohort.getReturns(), cohort.getOverdueReturns(), Money.format(cohort.getFinesAssessedPaise()));
+        }
+
+        List<CirculationRollup> topBooks = rollupDAO.getBookRollups(period, today, 10);
+        List<Integer> bookIds = new ArrayList<>();
+        for (CirculationRollup rollup : topBooks) {
+            bookIds.add(Integer.parseInt(rollup.getDimensionKey()));
+        }
+        Map<Integer, Book> booksById = new HashMap<>();
+        for (Book book : bookDAO.getBooksByIds(bookIds)) {
+            booksById.put(book.getBookId(), book);
+        }
+        System.out.println("\nBusiest books:");
+        System.out.printf("%-5s %-30s %-8s %-8s %-8s %-12s%n", "ID", "Title", "Borrows", "Returns", "Overdue", "Fines (Rs.)");
+        for (CirculationRollup rollup : topBooks) {
+            Book book = booksById.get(Integer.parseInt(rollup.getDimensionKey()));
+            System.out.printf("%-5s %-30s %-8d %-8d %-8d %-12s%n", rollup.getDimensionKey(),
+                              book != null ? book.getTitle() : "(deleted)", rollup.getBorrows(),
+                              rollup.getReturns(), rollup.getOverdueReturns(), Money.format(rollup.getFinesAssessedPaise()));
+        }
+        System.out.println("--------------------------------------------------");
+    }
 
     /**
      * Deletes a book from the library (Librarian feature).
@@ -354,7 +1325,24 @@ public class LibraryService {
      * @return true if deleted successfully, false otherwise.
      */
     public boolean deleteBook(int bookId) {
-        return bookDAO.deleteBook(bookId);
+        if (refusedAtKiosk("Deleting books")) {
+            return false;
+        }
+        return admit(OperationClass.CIRCULATION, "Deleting books", new LibraryOperationEvent("deleteBook", 0, bookId, 0), () -> {
+            if (!bookDAO.deleteBook(bookId)) {
+                return false;
+            }
+            if (searchCache != null) {
+                searchCache.invalidateBook(bookId);
+            }
+            if (recommendationEngine != null) {
+                recommendationEngine.removeBook(bookId);
+            }
+            if (copyIndex != null) {
+                copyIndex.removeBook(bookId); // Copy rows are removed by ON DELETE CASCADE
+            }
+            return true;
+        }, false);
     }
 
     /**
@@ -363,6 +1351,9 @@ public class LibraryService {
      */
     public List<Borrower> getOverdueLoansReport() {
         LocalDate currentDate = LocalDate.now();
-        return borrowerDAO.getOverdueLoans(currentDate);
+        return admit(OperationClass.QUERY, "Reporting overdue loans", new LibraryOperationEvent("overdueLoansReport", 0, 0, 0), () -> {
+            List<Borrower> overdueLoans = reports != null ? reports.getOverdueLoans(currentDate) : null;
+            return overdueLoans != null ? overdueLoans : borrowerDAO.getOverdueLoans(currentDate);
+        }, new ArrayList<>());
     }
 }
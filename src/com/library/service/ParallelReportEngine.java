@@ -0,0 +1,256 @@
+package com.library.service;
+
+import com.library.dao.ConnectionPool;
+import com.library.dao.ReportRangeDAO;
+import com.library.model.Book;
+import com.library.model.Borrower;
+import com.library.model.Member;
+import com.library.trace.Tracer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Builds librarian reports in parallel. The primary key space of the report's table is cut
+ * into slices of a fixed number of keys; a fork-join task splits the slices in halves until
+ * each subtask holds one, which reads its key range on one of the report's pooled
+ * connections and enriches its rows (overdue loans get their book titles and member names)
+ * right there. Idle workers steal slices, so skewed ranges (old loans are overdue far more
+ * often than new ones) still keep every connection busy. Each slice is written into its own
+ * position, and the slices are concatenated in key order once all are done.
+ *
+ * The parallelism bounds both the worker threads and the connections a report holds open.
+ */
+public class ParallelReportEngine {
+
+    private final ReportRangeDAO rangeDAO;
+    private final int parallelism;
+    private final int sliceKeys;
+    private final ForkJoinPool workers;
+
+    /**
+     * An overdue loan with the title of its book and the name of its member.
+     */
+    public static class OverdueLoan {
+        private final Borrower loan;
+        private final String title;
+        private final String memberName;
+
+        public OverdueLoan(Borrower loan, String title, String memberName) {
+            this.loan = loan;
+            this.title = title;
+            this.memberName = memberName;
+        }
+
+        public Borrower getLoan() {
+            return loan;
+        }
+
+        /**
+         * @return The book title, or "Unknown" if the book is gone.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * @return The member's name, or "Unknown" if the member is gone.
+         */
+        public String getMemberName() {
+            return memberName;
+        }
+    }
+
+    /**
+     * Reads one slice of a report.
+     */
+    @FunctionalInterface
+    private interface SliceReader<T> {
+        /**
+         * @return The rows with keys in [fromId, toId], in key order, or null if the read failed.
+         */
+        List<T> read(ConnectionPool connections, int fromId, int toId);
+    }
+
+    /**
+     * @param rangeDAO The DAO that reads key ranges.
+     * @param parallelism The most slices read at once, which is also the most connections a report uses.
+     * @param sliceKeys The number of keys per slice.
+     */
+    public ParallelReportEngine(ReportRangeDAO rangeDAO, int parallelism, int sliceKeys) {
+        this.rangeDAO = rangeDAO;
+        this.parallelism = Math.max(1, parallelism);
+        this.sliceKeys = Math.max(1, sliceKeys);
+        this.workers = new ForkJoinPool(this.parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param currentDate The date to check for overdue loans.
+     * @return All overdue loans by loan ID, or null if the report failed.
+     */
+    public List<Borrower> getOverdueLoans(LocalDate currentDate) {
+        return collect("overdue borrower entries", ReportRangeDAO.Table.LOANS,
+                       (connections, fromId, toId) -> rangeDAO.getOverdueLoans(connections, currentDate, fromId, toId));
+    }
+
+    /**
+     * @param currentDate The date to check for overdue loans.
+     * @return All overdue loans by loan ID with their titles and member names, or null if the report failed.
+     */
+    public List<OverdueLoan> getOverdueLoanRows(LocalDate currentDate) {
+        return collect("overdue borrower entries", ReportRangeDAO.Table.LOANS,
+                       (connections, fromId, toId) -> enrich(connections, rangeDAO.getOverdueLoans(connections, currentDate, fromId, toId)));
+    }
+
+    /**
+     * @return All members by member ID, or null if the report failed.
+     */
+    public List<Member> getAllMembers() {
+        return collect("members", ReportRangeDAO.Table.MEMBERS, rangeDAO::getMembers);
+    }
+
+    /**
+     * @return All books with a copy available, by book ID, or null if the report failed.
+     */
+    public List<Book> getAvailableBooks() {
+        return collect("available books", ReportRangeDAO.Table.BOOKS, rangeDAO::getAvailableBooks);
+    }
+
+    /**
+     * Looks up the titles and names of one slice of overdue loans.
+     */
+    private List<OverdueLoan> enrich(ConnectionPool connections, List<Borrower> loans) {
+        if (loans == null) {
+            return null;
+        }
+        List<Integer> bookIds = new ArrayList<>();
+        List<Integer> memberIds = new ArrayList<>();
+        for (Borrower loan : loans) {
+            bookIds.add(loan.getBookId());
+            memberIds.add(loan.getMemberId());
+        }
+        Map<Integer, String> titles = rangeDAO.getBookTitles(connections, distinct(bookIds));
+        Map<Integer, String> names = rangeDAO.getMemberNames(connections, distinct(memberIds));
+        if (titles == null || names == null) {
+            return null;
+        }
+        List<OverdueLoan> rows = new ArrayList<>(loans.size());
+        for (Borrower loan : loans) {
+            rows.add(new OverdueLoan(loan, titles.getOrDefault(loan.getBookId(), "Unknown"),
+                                     names.getOrDefault(loan.getMemberId(), "Unknown")));
+        }
+        return rows;
+    }
+
+    private static List<Integer> distinct(List<Integer> ids) {
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    /**
+     * Reads every slice of a table in parallel and concatenates them in key order.
+     * @return The rows, or null if any slice failed.
+     */
+    private <T> List<T> collect(String what, ReportRangeDAO.Table table, SliceReader<T> reader) {
+        try (ConnectionPool connections = rangeDAO.openPool(parallelism)) {
+            int[] keys = rangeDAO.getKeyRange(connections, table);
+            if (keys == null) {
+                return null;
+            }
+            Report<T> report = new Report<>(connections, reader, keys[0], sliceKeys, ((long) keys[1] - keys[0] + sliceKeys) / sliceKeys);
+            try {
+                workers.invoke(new SliceTask<>(report, 0, report.slices.length));
+            } catch (RuntimeException e) {
+                System.err.println("Error reading " + what + " in parallel: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+            if (report.failed.get()) {
+                System.err.println("Error reading " + what + " in parallel: a key range could not be read.");
+                return null;
+            }
+            int rowCount = 0;
+            for (List<T> slice : report.slices) {
+                rowCount += slice.size();
+            }
+            List<T> rows = new ArrayList<>(rowCount);
+            for (List<T> slice : report.slices) {
+                rows.addAll(slice);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * One report being read: its connections, its slices so far, and whether any failed.
+     */
+    private static class Report<T> {
+        final ConnectionPool connections;
+        final SliceReader<T> reader;
+        final int firstKey;
+        final int sliceKeys;
+        final List<T>[] slices; // each written by the task that read it, read after all joined
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        @SuppressWarnings("unchecked")
+        Report(ConnectionPool connections, SliceReader<T> reader, int firstKey, int sliceKeys, long sliceCount) {
+            this.connections = connections;
+            this.reader = reader;
+            this.firstKey = firstKey;
+            this.sliceKeys = sliceKeys;
+            this.slices = (List<T>[]) new List<?>[(int) sliceCount];
+        }
+    }
+
+    /**
+     * Reads the slices [from, to) of a report, halving the range until one slice is left.
+     * Runs under the operation that started the report, so slice reads count towards its
+     * trace. Once a slice has failed, the remaining ones are skipped.
+     */
+    private static class SliceTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Report<T> report;
+        private final int from;
+        private final int to;
+        private final transient Supplier<Void> work;
+
+        SliceTask(Report<T> report, int from, int to) {
+            this.report = report;
+            this.from = from;
+            this.to = to;
+            this.work = Tracer.propagate(this::run);
+        }
+
+        @Override
+        protected void compute() {
+            work.get();
+        }
+
+        private Void run() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SliceTask<>(report, from, middle), new SliceTask<>(report, middle, to));
+            } else if (to > from && !report.failed.get()) {
+                long fromId = report.firstKey + (long) from * report.sliceKeys;
+                long toId = Math.min(Integer.MAX_VALUE, fromId + report.sliceKeys - 1);
+                List<T> rows = report.reader.read(report.connections, (int) fromId, (int) toId);
+                if (rows == null) {
+                    report.failed.set(true);
+                }
+                report.slices[from] = rows;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.library.service;
+
+import com.library.util.IntIntHashMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Streaming borrow counts per book over sliding day, week and month windows.
+ * Each day's borrows go into a count-min sketch in a ring of daily buckets, and each window
+ * keeps a running sum of the buckets it covers, so an update or an estimate costs a fixed
+ * number of counter operations regardless of how many books or loans there are. Each window
+ * also keeps a bounded set of its heaviest hitters, from which trending lists are read; the set
+ * is a min-heap indexed by book ID, so a borrow updates or replaces a candidate in O(log k).
+ * Memory is fixed by the sketch size and the candidate capacity.
+ */
+public class PopularityTracker {
+
+    public enum TrendWindow {
+        DAY(1), WEEK(7), MONTH(30);
+
+        private final int days;
+
+        TrendWindow(int days) {
+            this.days = days;
+        }
+
+        public int getDays() { return days; }
+    }
+
+    private static final int MAX_DAYS = 30; // the longest window
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    private final int width;
+    private final int mask;
+    private final int candidateCapacity;
+    private final int[][][] dailySketches = new int[MAX_DAYS][DEPTH][];
+    private final int[][][] windowSketches = new int[TrendWindow.values().length][DEPTH][];
+    private final CandidateHeap[] candidates = new CandidateHeap[TrendWindow.values().length];
+    private long currentDay = Long.MIN_VALUE;
+
+    /**
+     * @param sketchWidth Counters per sketch row; larger means fewer over-estimates. Rounded up to a power of two.
+     * @param maxTrending The largest k that getTrending will be asked for.
+     */
+    public PopularityTracker(int sketchWidth, int maxTrending) {
+        this.width = Integer.highestOneBit(Math.max(16, sketchWidth) - 1) << 1;
+        this.mask = width - 1;
+        this.candidateCapacity = Math.max(1, maxTrending) * 4;
+        for (int day = 0; day < MAX_DAYS; day++) {
+            for (int row = 0; row < DEPTH; row++) {
+                dailySketches[day][row] = new int[width];
+            }
+        }
+        for (TrendWindow window : TrendWindow.values()) {
+            for (int row = 0; row < DEPTH; row++) {
+                windowSketches[window.ordinal()][row] = new int[width];
+            }
+            candidates[window.ordinal()] = new CandidateHeap(candidateCapacity);
+        }
+    }
+
+    /**
+     * Records one borrow. Borrows may arrive slightly out of order (e.g. while replaying history);
+     * borrows older than the longest window are ignored.
+     * @param bookId The ID of the borrowed book.
+     * @param loanDate The date of the loan.
+     */
+    public synchronized void recordBorrow(int bookId, LocalDate loanDate) {
+        long day = loanDate.toEpochDay();
+        if (day > currentDay) {
+            advanceTo(day);
+        }
+        long age = currentDay - day;
+        if (age >= MAX_DAYS) {
+            return;
+        }
+
+        int hash = Integer.hashCode(bookId);
+        int[][] daily = dailySketches[slot(day)];
+        for (int row = 0; row < DEPTH; row++) {
+            daily[row][index(hash, row)]++;
+        }
+        for (TrendWindow window : TrendWindow.values()) {
+            if (age < window.days) {
+                int[][] sketch = windowSketches[window.ordinal()];
+                int estimate = Integer.MAX_VALUE;
+                for (int row = 0; row < DEPTH; row++) {
+                    estimate = Math.min(estimate, ++sketch[row][index(hash, row)]);
+                }
+                candidates[window.ordinal()].offer(bookId, estimate);
+            }
+        }
+    }
+
+    /**
+     * Returns the most borrowed books in a window, most borrowed first.
+     * Counts are count-min estimates, so they may be slightly high but are never low.
+     * @param k The number of books to return.
+     * @param window The window to rank by.
+     * @param today The current date; buckets that fell out of the window are expired first.
+     * @return Up to k book IDs.
+     */
+    public synchronized List<Integer> getTrending(int k, TrendWindow window, LocalDate today) {
+        if (today.toEpochDay() > currentDay) {
+            advanceTo(today.toEpochDay());
+        }
+        return candidates[window.ordinal()].top(k);
+    }
+
+    /**
+     * Estimates how often a book was borrowed in a window.
+     * @param bookId The ID of the book.
+     * @param window The window.
+     * @return The estimated borrow count.
+     */
+    public synchronized int estimate(int bookId, TrendWindow window) {
+        return estimate(windowSketches[window.ordinal()], Integer.hashCode(bookId));
+    }
+
+    private void advanceTo(long day) {
+        if (currentDay == Long.MIN_VALUE || day - currentDay >= MAX_DAYS) {
+            for (int[][] sketch : dailySketches) {
+                clear(sketch);
+            }
+            for (int[][] sketch : windowSketches) {
+                clear(sketch);
+            }
+            for (CandidateHeap windowCandidates : candidates) {
+                windowCandidates.clear();
+            }
+            currentDay = day;
+            return;
+        }
+        while (currentDay < day) {
+            currentDay++;
+            // The bucket currentDay - window.days has just left each window
+            for (TrendWindow window : TrendWindow.values()) {
+                subtract(windowSketches[window.ordinal()], dailySketches[slot(currentDay - window.days)]);
+            }
+            clear(dailySketches[slot(currentDay)]);
+        }
+        for (TrendWindow window : TrendWindow.values()) {
+            CandidateHeap windowCandidates = candidates[window.ordinal()];
+            int[][] sketch = windowSketches[window.ordinal()];
+            windowCandidates.reestimate(bookId -> estimate(sketch, Integer.hashCode(bookId)));
+        }
+    }
+
+    private int estimate(int[][] sketch, int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch[row][index(hash, row)]);
+        }
+        return min;
+    }
+
+    private static void subtract(int[][] target, int[][] source) {
+        for (int row = 0; row < DEPTH; row++) {
+            for (int i = 0; i < target[row].length; i++) {
+                target[row][i] -= source[row][i];
+            }
+        }
+    }
+
+    private static void clear(int[][] sketch) {
+        for (int[] row : sketch) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) MAX_DAYS);
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * A window's heaviest hitters: a binary min-heap of (book ID, estimate) in two int arrays,
+     * weakest at the root, with each book's heap position in a primitive map so a candidate
+     * can be found and re-sifted when its estimate grows. Between equal estimates the higher
+     * book ID is the weaker, matching the order trending lists are read in.
+     */
+    private static final class CandidateHeap {
+        private final int[] books;
+        private final int[] counts;
+        private IntIntHashMap positions; // bookId -> heap index + 1; missing reads as 0
+        private int size;
+
+        CandidateHeap(int capacity) {
+            this.books = new int[capacity];
+            this.counts = new int[capacity];
+            this.positions = new IntIntHashMap(capacity);
+        }
+
+        /**
+         * Updates a candidate's estimate, adds the book if there is room, or replaces the
+         * weakest candidate if the book now outranks it.
+         */
+        void offer(int bookId, int estimate) {
+            int position = positions.get(bookId) - 1;
+            if (position >= 0) {
+                counts[position] = estimate;
+                siftDown(siftUp(position));
+            } else if (size < books.length) {
+                set(size, bookId, estimate);
+                siftUp(size++);
+            } else if (estimate > counts[0]) {
+                positions.remove(books[0]);
+                set(0, bookId, estimate);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Replaces every estimate, e.g. after buckets left the window, and drops the books whose
+         * estimate fell to 0.
+         */
+        void reestimate(IntUnaryOperator estimator) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int count = estimator.applyAsInt(books[i]);
+                if (count > 0) {
+                    books[kept] = books[i];
+                    counts[kept++] = count;
+                }
+            }
+            size = kept;
+            positions = new IntIntHashMap(books.length);
+            for (int i = 0; i < size; i++) {
+                positions.put(books[i], i + 1);
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        void clear() {
+            size = 0;
+            positions = new IntIntHashMap(books.length);
+        }
+
+        /**
+         * @return Up to k book IDs with a positive estimate, highest estimate first, then lowest ID.
+         */
+        List<Integer> top(int k) {
+            long[] ranked = new long[size];
+            for (int i = 0; i < size; i++) {
+                // Sorting ascending puts high counts first, then low book IDs
+                ranked[i] = (long) (Integer.MAX_VALUE - counts[i]) << 32 | (books[i] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(ranked);
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < ranked.length && result.size() < k; i++) {
+                if (Integer.MAX_VALUE - (int) (ranked[i] >>> 32) > 0) {
+                    result.add((int) ranked[i]);
+                }
+            }
+            return result;
+        }
+
+        private int siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!weaker(i, parent)) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+            return i;
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int weakest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && weaker(left, weakest)) {
+                    weakest = left;
+                }
+                if (right < size && weaker(right, weakest)) {
+                    weakest = right;
+                }
+                if (weakest == i) {
+                    return;
+                }
+                swap(i, weakest);
+                i = weakest;
+            }
+        }
+
+        private boolean weaker(int a, int b) {
+            return counts[a] < counts[b] || (counts[a] == counts[b] && books[a] > books[b]);
+        }
+
+        private void swap(int a, int b) {
+            int book = books[a];
+            int count = counts[a];
+            set(a, books[b], counts[b]);
+            set(b, book, count);
+        }
+
+        private void set(int position, int bookId, int count) {
+            books[position] = bookId;
+            counts[position] = count;
+            positions.put(bookId, position + 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.library.service;
+
+import com.library.util.IntIntHashMap;
+import com.library.util.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * "Members who borrowed this also borrowed" recommendations.
+ * Keeps a sparse item-item matrix where cell (a, b) counts the members who have borrowed
+ * both book a and book b, plus the set of books each member has borrowed. Both are built
+ * once from loan history and then updated on every borrow, so a recommendation is a scan
+ * over one book's (or one member's books') non-zero cells rather than a self-join over loans.
+ */
+public class RecommendationEngine {
+
+    private final IntObjectMap<IntIntHashMap> coBorrowCounts = new IntObjectMap<>(); // bookId -> (bookId -> members)
+    private final IntObjectMap<IntIntHashMap> booksByMember = new IntObjectMap<>();  // memberId -> set of bookIds
+
+    /**
+     * Records that a member borrowed a book. Borrowing the same book again does not count twice.
+     * @param memberId The ID of the member.
+     * @param bookId The ID of the book.
+     */
+    public synchronized void recordBorrow(int memberId, int bookId) {
+        IntIntHashMap history = rowOf(booksByMember, memberId);
+        if (history.containsKey(bookId)) {
+            return;
+        }
+        IntIntHashMap row = rowOf(coBorrowCounts, bookId);
+        history.forEach((otherBookId, ignored) -> {
+            row.addTo(otherBookId, 1);
+            rowOf(coBorrowCounts, otherBookId).addTo(bookId, 1);
+        });
+        history.addTo(bookId, 1);
+    }
+
+    private static IntIntHashMap rowOf(IntObjectMap<IntIntHashMap> rows, int id) {
+        IntIntHashMap row = rows.get(id);
+        if (row == null) {
+            row = new IntIntHashMap();
+            rows.put(id, row);
+        }
+        return row;
+    }
+
+    /**
+     * Forgets a book, e.g. after it was deleted from the catalog: its row, the cells of other
+     * books that point at it, and its place in every member's history, so a later borrow by
+     * one of those members does not recreate its cells.
+     * @param bookId The ID of the book.
+     */
+    public synchronized void removeBook(int bookId) {
+        IntIntHashMap row = coBorrowCounts.remove(bookId);
+        if (row != null) {
+            row.forEach((otherBookId, ignored) -> {
+                IntIntHashMap otherRow = coBorrowCounts.get(otherBookId);
+                if (otherRow != null) {
+                    otherRow.remove(bookId);
+                }
+            });
+        }
+        for (IntIntHashMap history : booksByMember.values()) {
+            history.remove(bookId);
+        }
+    }
+
+    /**
+     * Recommends books most often borrowed by members who also borrowed the given book.
+     * @param bookId The ID of the book.
+     * @param n The maximum number of recommendations.
+     * @return Up to n book IDs, strongest first.
+     */
+    public synchronized List<Integer> recommendForBook(int bookId, int n) {
+        IntIntHashMap row = coBorrowCounts.get(bookId);
+        return row == null ? new ArrayList<>() : topN(row, null, n);
+    }
+
+    /**
+     * Recommends books by summing the co-borrow counts of every book the member has borrowed,
+     * leaving out books the member has already borrowed.
+     * @param memberId The ID of the member.
+     * @param n The maximum number of recommendations.
+     * @return Up to n book IDs, strongest first.
+     */
+    public synchronized List<Integer> recommendForMember(int memberId, int n) {
+        IntIntHashMap history = booksByMember.get(memberId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        IntIntHashMap scores = new IntIntHashMap();
+        history.forEach((borrowedBookId, ignored) -> {
+            IntIntHashMap row = coBorrowCounts.get(borrowedBookId);
+            if (row != null) {
+                row.forEach((otherBookId, count) -> scores.addTo(otherBookId, count));
+            }
+        });
+        return topN(scores, history, n);
+    }
+
+    /**
+     * Picks the n highest-scoring keys with a bounded min-heap. Score and book ID are packed
+     * into one long so the heap orders by score, then by lower book ID.
+     */
+    private static List<Integer> topN(IntIntHashMap scores, IntIntHashMap exclude, int n) {
+        PriorityQueue<Long> heap = new PriorityQueue<>();
+        scores.forEach((bookId, score) -> {
+            if (score <= 0 || (exclude != null && exclude.containsKey(bookId))) {
+                return;
+            }
+            long packed = ((long) score << 32) | (Integer.MAX_VALUE - bookId);
+            if (heap.size() < n) {
+                heap.add(packed);
+            } else if (n > 0 && packed > heap.peek()) {
+                heap.poll();
+                heap.add(packed);
+            }
+        });
+        List<Integer> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(0, Integer.MAX_VALUE - (int) (heap.poll() & 0xFFFFFFFFL));
+        }
+        return result;
+    }
+}
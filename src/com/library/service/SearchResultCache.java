@@ -0,0 +1,361 @@
+package com.library.service;
+
+import com.library.dao.BookDAO;
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches catalog search results by normalized query.
+ * Only the matching book IDs are cached per query; book rows live in a shared map whose
+ * available copy counts are patched when LibraryService changes them and re-read from the
+ * database once they are older than the configured staleness window. Query entries expire
+ * after a TTL and the number of entries is bounded. Each book row counts the cached queries
+ * that match it and is dropped with the last of them, so the rows are bounded too.
+ *
+ * Admission follows W-TinyLFU: new queries enter a small LRU window; when the window
+ * overflows, its oldest query only displaces the main region's LRU victim if a frequency
+ * sketch says it is searched more often, so one-off queries cannot flush popular ones.
+ *
+ * Searches and row refreshes read the database without holding the cache's lock, which is
+ * only taken to look entries up and to store what was read. A read that overlapped a copy
+ * count change or an invalidation is returned but not stored, since it may predate the change.
+ */
+public class SearchResultCache {
+
+    private final BookDAO bookDAO;
+    private final int maxEntries;
+    private final long queryTtlMillis;
+    private final long maxStalenessMillis;
+
+    private final LinkedHashMap<String, QueryEntry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, QueryEntry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, CachedBook> books = new HashMap<>();
+    private final FrequencySketch sketch;
+    private final int windowSize;
+    private long generation; // bumped by every change applied from outside; guarded by this
+
+    /**
+     * @param bookDAO The DAO used to run searches and refresh book rows.
+     * @param maxEntries The maximum number of cached queries.
+     * @param queryTtlMillis How long the book IDs matching a query are reused.
+     * @param maxStalenessMillis How old an available copy count may get before it is re-read.
+     */
+    public SearchResultCache(BookDAO bookDAO, int maxEntries, long queryTtlMillis, long maxStalenessMillis) {
+        this.bookDAO = bookDAO;
+        this.maxEntries = Math.max(2, maxEntries);
+        this.queryTtlMillis = queryTtlMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.windowSize = Math.max(1, this.maxEntries / 100);
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    /**
+     * Searches for books by title, author, or ISBN, answering from the cache when possible.
+     * @param query The search string.
+     * @return A list of matching Book objects (copies; callers may modify them).
+     */
+    public List<Book> search(String query) {
+        String key = normalize(query);
+        long now = System.currentTimeMillis();
+        QueryEntry entry;
+        List<Integer> stale = null;
+        long readGeneration;
+        synchronized (this) {
+            sketch.increment(key);
+            entry = lookup(key, now);
+            if (entry != null) {
+                stale = staleBookIds(entry, now);
+                if (stale.isEmpty()) {
+                    return rows(entry, Map.of());
+                }
+            }
+            readGeneration = generation;
+        }
+
+        if (entry == null) {
+            List<Book> found = bookDAO.searchBooks(query);
+            synchronized (this) {
+                if (generation == readGeneration) {
+                    store(key, found, now);
+                }
+            }
+            return copies(found);
+        }
+
+        Map<Integer, Book> refreshed = new HashMap<>();
+        for (Book book : bookDAO.getBooksByIds(stale)) {
+            refreshed.put(book.getBookId(), book);
+        }
+        synchronized (this) {
+            if (generation == readGeneration && lookup(key, now) == entry) {
+                for (Book book : refreshed.values()) {
+                    CachedBook previous = books.get(book.getBookId());
+                    // A row dropped by invalidateBook comes back counting at least this query
+                    books.put(book.getBookId(), new CachedBook(book, now, previous != null ? previous.queries : 1));
+                }
+            }
+            return rows(entry, refreshed);
+        }
+    }
+
+    /**
+     * Applies a change in available copies that LibraryService has just written.
+     * @param bookId The ID of the book.
+     * @param change The amount the available copies changed by.
+     */
+    public synchronized void onCopiesChanged(int bookId, int change) {
+        generation++;
+        CachedBook cached = books.get(bookId);
+        if (cached != null) {
+            cached.book.setAvailableCopies(cached.book.getAvailableCopies() + change);
+        }
+    }
+
+    /**
+     * Sets a book's available copies to a value another node wrote.
+     * @param bookId The ID of the book.
+     * @param availableCopies The new number of available copies.
+     */
+    public synchronized void setAvailableCopies(int bookId, int availableCopies) {
+        generation++;
+        CachedBook cached = books.get(bookId);
+        if (cached != null) {
+            cached.book.setAvailableCopies(availableCopies);
+        }
+    }
+
+    /**
+     * Forgets a book, e.g. after it was deleted. Queries that matched it drop it on their next use.
+     * @param bookId The ID of the book.
+     */
+    public synchronized void invalidateBook(int bookId) {
+        generation++;
+        books.remove(bookId);
+    }
+
+    /**
+     * Drops all cached queries, e.g. after a book was added and could match any of them.
+     * Book rows go with them, since no query refers to them any more.
+     */
+    public synchronized void invalidateQueries() {
+        generation++;
+        window.clear();
+        main.clear();
+        books.clear();
+    }
+
+    /**
+     * Drops all cached queries and book rows, e.g. after changes may have been missed.
+     */
+    public synchronized void invalidateAll() {
+        invalidateQueries();
+    }
+
+    /**
+     * @return The query's entry if it is cached and not yet expired, otherwise null.
+     */
+    private QueryEntry lookup(String key, long now) {
+        QueryEntry entry = window.get(key);
+        if (entry == null) {
+            entry = main.get(key);
+        }
+        return entry != null && now - entry.createdAt <= queryTtlMillis ? entry : null;
+    }
+
+    private List<Integer> staleBookIds(QueryEntry entry, long now) {
+        List<Integer> stale = new ArrayList<>();
+        for (int bookId : entry.bookIds) {
+            CachedBook cached = books.get(bookId);
+            if (cached == null || now - cached.loadedAt > maxStalenessMillis) {
+                stale.add(bookId);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Copies out a query's books, preferring rows just read over cached ones.
+     * A book that is in neither was deleted and is left out.
+     */
+    private List<Book> rows(QueryEntry entry, Map<Integer, Book> read) {
+        List<Book> result = new ArrayList<>(entry.bookIds.length);
+        for (int bookId : entry.bookIds) {
+            Book book = read.get(bookId);
+            if (book == null) {
+                CachedBook cached = books.get(bookId);
+                book = cached != null ? cached.book : null;
+            }
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return copies(result);
+    }
+
+    /**
+     * Caches a query's search results.
+     */
+    private void store(String key, List<Book> found, long now) {
+        int[] bookIds = new int[found.size()];
+        for (int i = 0; i < found.size(); i++) {
+            bookIds[i] = found.get(i).getBookId();
+        }
+        QueryEntry entry = new QueryEntry(bookIds, now);
+        retain(found, now); // Before releasing an older entry, so shared rows are not dropped and re-added
+        if (main.containsKey(key)) {
+            release(main.put(key, entry));
+        } else {
+            admit(key, entry);
+        }
+    }
+
+    private void admit(String key, QueryEntry entry) {
+        release(window.put(key, entry));
+        if (window.size() <= windowSize) {
+            return;
+        }
+        Iterator<Map.Entry<String, QueryEntry>> windowIterator = window.entrySet().iterator();
+        Map.Entry<String, QueryEntry> candidate = windowIterator.next();
+        windowIterator.remove();
+
+        if (main.size() < maxEntries - windowSize) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        Iterator<Map.Entry<String, QueryEntry>> mainIterator = main.entrySet().iterator();
+        Map.Entry<String, QueryEntry> victim = mainIterator.next();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            mainIterator.remove();
+            release(victim.getValue());
+            main.put(candidate.getKey(), candidate.getValue());
+        } else {
+            release(candidate.getValue());
+        }
+    }
+
+    /**
+     * Stores the rows of a newly cached query, counting the query on each.
+     */
+    private void retain(List<Book> rows, long now) {
+        for (Book book : rows) {
+            CachedBook previous = books.get(book.getBookId());
+            books.put(book.getBookId(), new CachedBook(book, now, previous != null ? previous.queries + 1 : 1));
+        }
+    }
+
+    /**
+     * Uncounts a query that left the cache, dropping the rows no other query matches.
+     */
+    private void release(QueryEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (int bookId : entry.bookIds) {
+            CachedBook cached = books.get(bookId);
+            if (cached != null && --cached.queries <= 0) {
+                books.remove(bookId);
+            }
+        }
+    }
+
+    private static List<Book> copies(List<Book> source) {
+        List<Book> result = new ArrayList<>(source.size());
+        for (Book book : source) {
+            result.add(new Book(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                                book.getPublicationYear(), book.getTotalCopies(), book.getAvailableCopies()));
+        }
+        return result;
+    }
+
+    /**
+     * Lower-cases the query. MySQL's default collations compare case-insensitively, so
+     * queries that differ only in case return the same books; whitespace is part of the
+     * LIKE pattern and is kept.
+     */
+    static String normalize(String query) {
+        return query.toLowerCase(Locale.ROOT);
+    }
+
+    private static class QueryEntry {
+        final int[] bookIds;
+        final long createdAt;
+
+        QueryEntry(int[] bookIds, long createdAt) {
+            this.bookIds = bookIds;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static class CachedBook {
+        final Book book;
+        final long loadedAt;
+        int queries; // cached queries matching the book
+
+        CachedBook(Book book, long loadedAt, int queries) {
+            this.book = book;
+            this.loadedAt = loadedAt;
+            this.queries = queries;
+        }
+    }
+
+    /**
+     * Count-min sketch of query frequencies with four rows of small counters.
+     * All counters are halved after a sample period so old popularity fades.
+     */
+    private static class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final int[][] counters;
+        private final int mask;
+        private final int samplePeriod;
+        private int additions;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries * 4) - 1) << 1;
+            this.counters = new int[ROWS][width];
+            this.mask = width - 1;
+            this.samplePeriod = 10 * maxEntries;
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                }
+            }
+            if (++additions >= samplePeriod) {
+                for (int[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>>= 1;
+                    }
+                }
+                additions = 0;
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int min = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                min = Math.min(min, counters[row][index(hash, row)]);
+            }
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.library.service;
+
+import com.library.dao.UserDAO;
+import com.library.model.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authenticated sessions for librarians and system users. A user logs in once, which reads
+ * the users table and checks the slow password hash, and gets back an opaque random token.
+ * Every later request presents the token, which is resolved from a concurrent map: no
+ * database round trip and no hashing. Sessions expire after a period of inactivity (each use
+ * extends them) or after an absolute lifetime, and can be revoked singly or per user.
+ */
+public class SessionManager {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final UserDAO userDAO;
+    private final PasswordHasher hasher;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // Checked when a username does not exist, so logins take as long whether it does or not
+    private final String dummyHash;
+
+    private static class Session {
+        final User principal;
+        final long createdAt;
+        volatile long lastUsedAt;
+
+        Session(User principal, long now) {
+            this.principal = principal;
+            this.createdAt = now;
+            this.lastUsedAt = now;
+        }
+    }
+
+    /**
+     * @param userDAO The DAO holding users and their password hashes.
+     * @param hasher The password hasher.
+     * @param idleTimeoutMillis How long an unused session stays valid.
+     * @param maxLifetimeMillis How long a session stays valid however often it is used.
+     */
+    public SessionManager(UserDAO userDAO, PasswordHasher hasher, long idleTimeoutMillis, long maxLifetimeMillis) {
+        this.userDAO = userDAO;
+        this.hasher = hasher;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.dummyHash = hasher.hash("not a password");
+    }
+
+    /**
+     * Checks a username and password and opens a session. A legacy plain-text or weaker
+     * stored password is replaced by a fresh hash on success.
+     * @param username The username.
+     * @param password The plain-text password.
+     * @return The session token, or null if the credentials are wrong.
+     */
+    public String login(String username, String password) {
+        User user = userDAO.getUserByUsername(username);
+        if (user == null) {
+            hasher.verify(password, dummyHash);
+            return null;
+        }
+        if (!hasher.verify(password, user.getPassword())) {
+            return null;
+        }
+        if (hasher.needsRehash(user.getPassword())) {
+            userDAO.updatePassword(username, hasher.hash(password));
+        }
+        removeExpired();
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        // The cached principal never carries the password hash
+        sessions.put(token, new Session(new User(user.getUsername(), null, user.getRole()), System.currentTimeMillis()));
+        return token;
+    }
+
+    /**
+     * Resolves a token to its user and extends the session.
+     * @param token The session token.
+     * @return The user, or null if the token is unknown, expired or revoked.
+     */
+    public User getPrincipal(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastUsedAt = now;
+        return session.principal;
+    }
+
+    /**
+     * Resolves a token and checks the user's role.
+     * @param token The session token.
+     * @param role The required role, compared ignoring case.
+     * @return true if the token is valid and its user has the role.
+     */
+    public boolean hasRole(String token, String role) {
+        User principal = getPrincipal(token);
+        return principal != null && role.equalsIgnoreCase(principal.getRole());
+    }
+
+    /**
+     * Ends a session, e.g. at logout.
+     * @param token The session token.
+     */
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Ends every session of a user, e.g. after their password or role changed.
+     * @param username The username.
+     * @return The number of sessions ended.
+     */
+    public int revokeUser(String username) {
+        int revoked = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().principal.getUsername().equals(username)
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                revoked++;
+            }
+        }
+        return revoked;
+    }
+
+    /**
+     * Hashes a password and adds the user. (Librarian/Admin setup only)
+     * @param username The username.
+     * @param password The plain-text password.
+     * @param role The role, e.g. "LIBRARIAN".
+     * @return true if added successfully, false otherwise.
+     */
+    public boolean createUser(String username, String password, String role) {
+        return userDAO.addUser(new User(username, hasher.hash(password), role));
+    }
+
+    /**
+     * @return The number of sessions held, expired ones included until they are swept.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastUsedAt > idleTimeoutMillis || now - session.createdAt > maxLifetimeMillis;
+    }
+
+    /**
+     * Sweeps expired sessions. Runs at login, which is rare next to lookups, so abandoned
+     * sessions cannot pile up.
+     */
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> isExpired(session, now));
+    }
+}
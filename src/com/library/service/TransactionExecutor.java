@@ -0,0 +1,175 @@
+package com.library.service;
+
+import com.library.dao.DataAccessException;
+import com.library.dao.OptimisticLockException;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs circulation transactions and reruns them when they lost a race with another
+ * transaction: a MySQL deadlock (error 1213) or lock wait timeout (1205), or a version
+ * conflict found by an optimistic write. Only failures after which nothing of the
+ * transaction was committed are retried, so a rerun never applies a change twice; any
+ * other database error is reported and the transaction is given up at once. Retries wait
+ * a random time up to an exponentially growing bound ("full jitter"), so transactions
+ * that collided do not collide again in lockstep. Counts of retries and give-ups are kept
+ * per failure kind for monitoring.
+ */
+public class TransactionExecutor {
+
+    // Error codes and SQLState as in Connector/J's MysqlErrorNumbers; the application does not compile against the driver
+    static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    static final int ER_LOCK_DEADLOCK = 1213;
+    static final String SQLSTATE_ROLLBACK_SERIALIZATION_FAILURE = "40001"; // Connector/J reports both errors with it
+
+    /**
+     * Why a transaction failed.
+     */
+    public enum Failure {
+        DEADLOCK, LOCK_WAIT_TIMEOUT, VERSION_CONFLICT, PERMANENT
+    }
+
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final LongAdder committed = new LongAdder();
+    private final Map<Failure, LongAdder> retries = new EnumMap<>(Failure.class);
+    private final Map<Failure, LongAdder> aborts = new EnumMap<>(Failure.class);
+
+    /**
+     * @param maxRetries How often a transaction is rerun before it is given up.
+     * @param baseBackoffMillis The bound of the wait before the first retry; it doubles with each retry.
+     * @param maxBackoffMillis The largest bound of the wait.
+     */
+    public TransactionExecutor(int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        for (Failure failure : Failure.values()) {
+            retries.put(failure, new LongAdder());
+            aborts.put(failure, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs a transaction, rerunning it while it fails with a retryable error.
+     * @param action The transaction, for error messages, e.g. "Borrowing".
+     * @param transaction One attempt. It must be safe to rerun: read everything it checks
+     *        itself and leave nothing behind when it throws.
+     * @param failed The result to return when the transaction is given up.
+     * @return The result of the first attempt that did not throw, or failed.
+     */
+    public <T> T execute(String action, Supplier<T> transaction, T failed) {
+        for (int attempt = 0; ; attempt++) {
+            Failure failure;
+            RuntimeException error;
+            try {
+                T result = transaction.get();
+                committed.increment();
+                return result;
+            } catch (OptimisticLockException e) {
+                failure = Failure.VERSION_CONFLICT;
+                error = e;
+            } catch (DataAccessException e) {
+                failure = classify(e.getSQLException());
+                error = e;
+            }
+
+            if (failure == Failure.PERMANENT) {
+                aborts.get(failure).increment();
+                System.err.println(error.getMessage()); // Already reads "Error <doing what>: <driver message>"
+                error.printStackTrace();
+                return failed;
+            }
+            if (attempt == maxRetries) {
+                aborts.get(failure).increment();
+                System.out.println("Error: " + action + " kept conflicting with other updates (" + error.getMessage() + "). Please try again.");
+                return failed;
+            }
+            retries.get(failure).increment();
+            try {
+                Thread.sleep(backoffMillis(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborts.get(failure).increment();
+                return failed;
+            }
+        }
+    }
+
+    /**
+     * Tells which failures roll back the whole transaction, and can therefore be retried.
+     * A lock wait timeout only rolls back the waiting statement, but the DAOs roll back the
+     * rest before the error reaches the executor.
+     * @param e The driver's exception.
+     * @return DEADLOCK, LOCK_WAIT_TIMEOUT or PERMANENT.
+     */
+    static Failure classify(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            if (cause.getErrorCode() == ER_LOCK_DEADLOCK) {
+                return Failure.DEADLOCK;
+            }
+            if (cause.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                return Failure.LOCK_WAIT_TIMEOUT;
+            }
+            if (SQLSTATE_ROLLBACK_SERIALIZATION_FAILURE.equals(cause.getSQLState())) {
+                return Failure.DEADLOCK;
+            }
+        }
+        return Failure.PERMANENT;
+    }
+
+    /**
+     * @param attempt The number of the failed attempt, from 0.
+     * @return A random wait between 0 and base * 2^attempt, capped at the maximum.
+     */
+    private long backoffMillis(int attempt) {
+        long bound = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * @return The number of transactions that completed, on the first attempt or a retry.
+     */
+    public long getCommitted() {
+        return committed.sum();
+    }
+
+    /**
+     * @param failure The failure kind.
+     * @return How often a transaction was rerun after this kind of failure.
+     */
+    public long getRetries(Failure failure) {
+        return retries.get(failure).sum();
+    }
+
+    /**
+     * @param failure The failure kind.
+     * @return How many transactions were given up after this kind of failure.
+     */
+    public long getAborts(Failure failure) {
+        return aborts.get(failure).sum();
+    }
+
+    /**
+     * @return One line with the completed transactions, and the retries and give-ups by failure kind.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Transactions: " + getCommitted() + " completed; retries:");
+        for (Failure failure : Failure.values()) {
+            if (failure != Failure.PERMANENT) {
+                summary.append(' ').append(failure.name().toLowerCase()).append('=').append(getRetries(failure));
+            }
+        }
+        summary.append("; given up:");
+        for (Failure failure : Failure.values()) {
+            summary.append(' ').append(failure.name().toLowerCase()).append('=').append(getAborts(failure));
+        }
+        return summary.toString();
+    }
+}
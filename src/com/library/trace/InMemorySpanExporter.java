@@ -0,0 +1,173 @@
+package com.library.trace;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per-operation totals of where the wall time of each traced operation went along
+ * its critical path: waiting for a connection, waiting for a statement, or in the
+ * application. Time with any statement in flight counts as query time, time with only a
+ * connect in flight as connect time, and the rest as application time, so statements sent
+ * to several shards in parallel are only counted once.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    /**
+     * Where part of an operation's wall time went.
+     */
+    public enum Phase {
+        CONNECT, // opening connections
+        QUERY,   // statements, commits and rollbacks
+        APP,     // everything else: Java code, locks, queueing for admission
+        CPU      // CPU time of the operation's thread, part of the other phases
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void export(Span operation) {
+        long[] phases = criticalPath(operation);
+        stats.computeIfAbsent(operation.getName(), name -> new Stats()).add(operation, phases[0], phases[1]);
+    }
+
+    /**
+     * @param operation The operation name, e.g. "borrowBook".
+     * @return How many of the operation were traced.
+     */
+    public long getCount(String operation) {
+        Stats operationStats = stats.get(operation);
+        return operationStats != null ? operationStats.snapshot()[0] : 0;
+    }
+
+    /**
+     * @param operation The operation name, e.g. "borrowBook".
+     * @param phase The phase.
+     * @return The average time per operation spent in the phase, in milliseconds.
+     */
+    public double getAverageMillis(String operation, Phase phase) {
+        Stats operationStats = stats.get(operation);
+        if (operationStats == null) {
+            return 0;
+        }
+        long[] totals = operationStats.snapshot();
+        return totals[0] > 0 ? totals[phase.ordinal() + 2] / 1_000_000.0 / totals[0] : 0;
+    }
+
+    /**
+     * @return One line per operation with its average wall time split into connect, query
+     *         and application time, its statements per operation, and its slowest trace.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats operationStats = entry.getValue();
+            long[] totals = operationStats.snapshot();
+            double count = totals[0];
+            if (summary.length() > 0) {
+                summary.append(System.lineSeparator());
+            }
+            summary.append(String.format("Trace %s: %d ops, avg %.2f ms = connect %.2f + query %.2f + app %.2f (cpu %.2f), "
+                                         + "%.1f connects/op, %.1f statements/op, slowest %.2f ms %s",
+                    entry.getKey(), totals[0], totals[1] / 1e6 / count,
+                    totals[2] / 1e6 / count, totals[3] / 1e6 / count, totals[4] / 1e6 / count, totals[5] / 1e6 / count,
+                    totals[6] / count, totals[7] / count, totals[8] / 1e6, operationStats.slowestTraceparent()));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Sweeps the operation's child spans in time order and splits its wall time into phases.
+     * @return The connect and query nanoseconds on the critical path.
+     */
+    private static long[] criticalPath(Span operation) {
+        long start = operation.getStartNanos();
+        long end = operation.getEndNanos();
+        List<Span> children = operation.getChildren();
+        long[][] edges = new long[children.size() * 2][]; // time, +1 or -1, 1 for a statement
+        int n = 0;
+        for (Span child : children) {
+            long childStart = Math.max(start, child.getStartNanos());
+            long childEnd = Math.min(end, child.getEndNanos());
+            if (childEnd <= childStart) {
+                continue;
+            }
+            long statement = child.getKind() == Span.Kind.STATEMENT ? 1 : 0;
+            edges[n++] = new long[] { childStart, 1, statement };
+            edges[n++] = new long[] { childEnd, -1, statement };
+        }
+        edges = Arrays.copyOf(edges, n);
+        Arrays.sort(edges, Comparator.comparingLong(edge -> edge[0]));
+        long connect = 0;
+        long query = 0;
+        int connectsOpen = 0;
+        int statementsOpen = 0;
+        long previous = start;
+        for (long[] edge : edges) {
+            long elapsed = edge[0] - previous;
+            if (statementsOpen > 0) {
+                query += elapsed;
+            } else if (connectsOpen > 0) {
+                connect += elapsed;
+            }
+            previous = edge[0];
+            if (edge[2] == 1) {
+                statementsOpen += (int) edge[1];
+            } else {
+                connectsOpen += (int) edge[1];
+            }
+        }
+        return new long[] { connect, query };
+    }
+
+    /**
+     * Running totals of one operation.
+     */
+    private static class Stats {
+        private long count;
+        private long wallNanos;
+        private long connectNanos;
+        private long queryNanos;
+        private long appNanos;
+        private long cpuNanos;
+        private long connects;
+        private long statements;
+        private long slowestNanos;
+        private String slowestTraceparent;
+
+        synchronized void add(Span operation, long connect, long query) {
+            long wall = operation.getDurationNanos();
+            count++;
+            wallNanos += wall;
+            connectNanos += connect;
+            queryNanos += query;
+            appNanos += wall - connect - query;
+            cpuNanos += operation.getCpuNanos();
+            for (Span child : operation.getChildren()) {
+                if (child.getKind() == Span.Kind.CONNECT) {
+                    connects++;
+                } else {
+                    statements++;
+                }
+            }
+            if (wall > slowestNanos) {
+                slowestNanos = wall;
+                slowestTraceparent = operation.getTraceparent();
+            }
+        }
+
+        /**
+         * @return count, wall, connect, query, app, cpu, connects, statements and slowest, read together.
+         */
+        synchronized long[] snapshot() {
+            return new long[] { count, wallNanos, connectNanos, queryNanos, appNanos, cpuNanos, connects, statements, slowestNanos };
+        }
+
+        synchronized String slowestTraceparent() {
+            return slowestTraceparent;
+        }
+    }
+}
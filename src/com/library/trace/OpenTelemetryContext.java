@@ -0,0 +1,83 @@
+package com.library.trace;
+
+import java.lang.reflect.Method;
+
+/**
+ * Makes an operation span the current OpenTelemetry context while it runs, when the
+ * OpenTelemetry API is on the classpath. Connector/J then parents its own connect and
+ * statement spans under the operation and sends the operation's traceparent to the server
+ * with each query. The API is reached by reflection, so the application neither needs it to
+ * compile nor to run; without it this does nothing.
+ */
+final class OpenTelemetryContext {
+
+    private static final Method CREATE_SPAN_CONTEXT; // SpanContext.create(traceId, spanId, flags, state)
+    private static final Object SAMPLED;              // TraceFlags.getSampled()
+    private static final Object DEFAULT_STATE;        // TraceState.getDefault()
+    private static final Method WRAP;                 // Span.wrap(spanContext)
+    private static final Method MAKE_CURRENT;         // ImplicitContextKeyed.makeCurrent()
+
+    static {
+        Method createSpanContext = null;
+        Object sampled = null;
+        Object defaultState = null;
+        Method wrap = null;
+        Method makeCurrent = null;
+        try {
+            ClassLoader loader = OpenTelemetryContext.class.getClassLoader();
+            Class<?> spanContext = Class.forName("io.opentelemetry.api.trace.SpanContext", false, loader);
+            Class<?> traceFlags = Class.forName("io.opentelemetry.api.trace.TraceFlags", false, loader);
+            Class<?> traceState = Class.forName("io.opentelemetry.api.trace.TraceState", false, loader);
+            Class<?> span = Class.forName("io.opentelemetry.api.trace.Span", false, loader);
+            Class<?> contextKeyed = Class.forName("io.opentelemetry.context.ImplicitContextKeyed", false, loader);
+            createSpanContext = spanContext.getMethod("create", String.class, String.class, traceFlags, traceState);
+            sampled = traceFlags.getMethod("getSampled").invoke(null);
+            defaultState = traceState.getMethod("getDefault").invoke(null);
+            wrap = span.getMethod("wrap", spanContext);
+            makeCurrent = contextKeyed.getMethod("makeCurrent");
+        } catch (ReflectiveOperationException | LinkageError e) {
+            createSpanContext = null; // No usable OpenTelemetry API; tracing stays at the JDBC boundary
+        }
+        CREATE_SPAN_CONTEXT = createSpanContext;
+        SAMPLED = sampled;
+        DEFAULT_STATE = defaultState;
+        WRAP = wrap;
+        MAKE_CURRENT = makeCurrent;
+    }
+
+    private OpenTelemetryContext() {
+    }
+
+    /**
+     * Makes an operation the current OpenTelemetry span on this thread.
+     * @param operation The operation span.
+     * @return The scope to close when the operation ends on this thread, or null if the API is
+     *         not available.
+     */
+    static AutoCloseable makeCurrent(Span operation) {
+        if (CREATE_SPAN_CONTEXT == null) {
+            return null;
+        }
+        try {
+            Object spanContext = CREATE_SPAN_CONTEXT.invoke(null, operation.getTraceId(), operation.getSpanId(), SAMPLED, DEFAULT_STATE);
+            return (AutoCloseable) MAKE_CURRENT.invoke(WRAP.invoke(null, spanContext));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Restores the OpenTelemetry context that was current before makeCurrent.
+     * @param scope What makeCurrent returned; null is ignored.
+     */
+    static void close(AutoCloseable scope) {
+        if (scope == null) {
+            return;
+        }
+        try {
+            scope.close();
+        } catch (Exception e) {
+            // Scope.close() declares no exceptions
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.library.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A timed piece of work within a trace: a LibraryService operation, or a connect or SQL
+ * statement the operation sent to MySQL. IDs follow W3C Trace Context, so a span can be
+ * matched with the driver's and the server's own telemetry by its traceparent.
+ */
+public class Span {
+
+    /**
+     * What a span times.
+     */
+    public enum Kind {
+        OPERATION, // a LibraryService operation
+        CONNECT,   // opening a connection
+        STATEMENT  // a statement, commit or rollback round trip
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final Span parent;
+    private final Span root;
+    private final long startNanos;
+    private long endNanos;
+    private long cpuNanos;
+    private final List<Span> children; // operations only: every connect and statement below them
+
+    Span(Kind kind, String name, Span parent) {
+        this.kind = kind;
+        this.name = name;
+        this.parent = parent;
+        this.root = parent != null ? parent.root : this;
+        this.traceId = parent != null ? parent.traceId : randomHex(16);
+        this.spanId = randomHex(8);
+        this.children = kind == Kind.OPERATION ? Collections.synchronizedList(new ArrayList<>()) : null;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the span. A connect or statement is added to its root operation, from whichever
+     * thread ran it.
+     */
+    void end() {
+        endNanos = System.nanoTime();
+        if (kind != Kind.OPERATION) {
+            root.children.add(this);
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The operation, e.g. "borrowBook", or the SQL of a statement.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return The enclosing span, or null for the root operation.
+     */
+    public Span getParent() {
+        return parent;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return CPU time the operation's own thread used, or 0 for connects and statements.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    void setCpuNanos(long cpuNanos) {
+        this.cpuNanos = cpuNanos;
+    }
+
+    /**
+     * @return The connects and statements run under this operation, in the order they ended.
+     */
+    public List<Span> getChildren() {
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        synchronized (children) {
+            return new ArrayList<>(children);
+        }
+    }
+
+    /**
+     * @return The W3C traceparent header of the span, e.g. "00-&lt;trace id&gt;-&lt;span id&gt;-01".
+     */
+    public String getTraceparent() {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+
+    private static String randomHex(int bytes) {
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < bytes; i++) {
+            int b = random.nextInt(256);
+            hex.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.library.trace;
+
+/**
+ * Receives each finished operation span, with its connects and statements as children.
+ */
+public interface SpanExporter {
+
+    /**
+     * Called once per operation, on the thread that ran it.
+     * @param operation The finished operation span.
+     */
+    void export(Span operation);
+}
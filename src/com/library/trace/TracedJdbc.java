@@ -0,0 +1,67 @@
+package com.library.trace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Forwarding proxies for a connection and the statements it creates, which time every
+ * execute call, commit and rollback as a statement span.
+ */
+final class TracedJdbc {
+
+    private TracedJdbc() {
+    }
+
+    static Connection wrap(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("commit") || name.equals("rollback")) {
+                return Tracer.inSpan(Span.Kind.STATEMENT, name.toUpperCase(), () -> forward(connection, method, args));
+            }
+            Object result = forward(connection, method, args);
+            if (result instanceof Statement) {
+                // prepareStatement and prepareCall carry the SQL; createStatement gets it per execute
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrap((Statement) result, method.getReturnType(), sql);
+            }
+            return result;
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    private static Object wrap(Statement statement, Class<?> statementInterface, String preparedSql) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return forward(statement, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            return Tracer.inSpan(Span.Kind.STATEMENT, sql != null ? sql : method.getName(), () -> forward(statement, method, args));
+        };
+        return Proxy.newProxyInstance(statementInterface.getClassLoader(), new Class<?>[] { statementInterface }, handler);
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.library.trace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Traces LibraryService operations down to their round trips to MySQL. An operation span is
+ * open on its thread while the operation runs; connections opened through
+ * DatabaseConnection while tracing is on time their connect and every statement, commit
+ * and rollback as child spans of the operation open at that moment, also on the shard
+ * fan-out threads the operation's context is handed to. Finished operations go to the
+ * exporter.
+ *
+ * When the OpenTelemetry API is on the classpath, the operation is also the current
+ * OpenTelemetry span while it runs, so the spans Connector/J records itself (its
+ * OpenTelemetryHandler) are parented under the operation. The JDBC-boundary spans are
+ * recorded either way, and are all there is without the API.
+ */
+public class Tracer {
+
+    /**
+     * A JDBC call, such as DriverManager.getConnection.
+     */
+    public interface JdbcCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static volatile boolean jdbcTracing; // true once any Tracer exists
+
+    private final SpanExporter exporter;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime;
+
+    /**
+     * @param exporter Receives every finished operation.
+     */
+    public Tracer(SpanExporter exporter) {
+        this.exporter = exporter;
+        this.cpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        jdbcTracing = true;
+    }
+
+    /**
+     * Runs an operation in a new operation span and exports the span. An operation run by
+     * another traced operation is part of that one's span.
+     * @param operation The operation name, e.g. "borrowBook".
+     * @param work The operation.
+     * @return The operation's result.
+     */
+    public <T> T trace(String operation, Supplier<T> work) {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+        Span span = new Span(Span.Kind.OPERATION, operation, null);
+        long cpuStart = cpuTime ? threads.getCurrentThreadCpuTime() : 0;
+        CURRENT.set(span);
+        AutoCloseable otelScope = OpenTelemetryContext.makeCurrent(span);
+        try {
+            return work.get();
+        } finally {
+            OpenTelemetryContext.close(otelScope);
+            CURRENT.remove();
+            span.end();
+            if (cpuTime) {
+                span.setCpuNanos(threads.getCurrentThreadCpuTime() - cpuStart);
+            }
+            exporter.export(span);
+        }
+    }
+
+    public SpanExporter getExporter() {
+        return exporter;
+    }
+
+    /**
+     * @return true if connections should be opened through {@link #connect}.
+     */
+    public static boolean isEnabled() {
+        return jdbcTracing;
+    }
+
+    /**
+     * Opens a connection as a connect span of the current operation, if any, and returns it
+     * wrapped so its statements are traced too.
+     * @param open Opens the connection.
+     * @return The traced connection.
+     * @throws SQLException If the connection cannot be opened.
+     */
+    public static Connection connect(JdbcCall<Connection> open) throws SQLException {
+        return TracedJdbc.wrap(inSpan(Span.Kind.CONNECT, "connect", open));
+    }
+
+    /**
+     * Hands the current operation to work that runs on another thread, so its connects and
+     * statements count towards the operation.
+     * @param work The work.
+     * @return The work, running under the operation current now.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        Span operation = CURRENT.get();
+        if (operation == null) {
+            return work;
+        }
+        return () -> {
+            Span previous = CURRENT.get();
+            CURRENT.set(operation);
+            AutoCloseable otelScope = OpenTelemetryContext.makeCurrent(operation);
+            try {
+                return work.get();
+            } finally {
+                OpenTelemetryContext.close(otelScope);
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Runs a JDBC call as a child span of the current operation, or just runs it outside one.
+     */
+    static <T> T inSpan(Span.Kind kind, String name, JdbcCall<T> call) throws SQLException {
+        Span operation = CURRENT.get();
+        if (operation == null) {
+            return call.call();
+        }
+        Span span = new Span(kind, name, operation);
+        try {
+            return call.call();
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -6,4 +6,7 @@
  */
 module LibraryManagementSystem {
 	requires java.sql;
+	requires java.management;
+	requires jdk.management;
+	requires jdk.jfr;
 }
\ No newline at end of file